@@ -91,6 +91,16 @@ public final class AIMLBotConfiguration implements BotConfiguration,
      */
     public static final String AFTER_LOADING_ORDER_KEY = "AfterLoadingOrder";
 
+    /**
+     * Klíč nepovinné cesty ke snímku kategorií.
+     */
+    public static final String SNAPSHOT_PATH_KEY = "SnapshotPath";
+
+    /**
+     * Klíč nepovinného příznaku důvěryhodných souborů, které se nevalidují.
+     */
+    public static final String TRUSTED_SOURCES_KEY = "TrustedSources";
+
     /**
      * Jméno robota.
      */
@@ -121,6 +131,16 @@ public final class AIMLBotConfiguration implements BotConfiguration,
      */
     private final List<String> afterLoadingOrder;
 
+    /**
+     * Cesta ke snímku kategorií, null, pokud se snímek nepoužívá.
+     */
+    private final URI snapshotPath;
+
+    /**
+     * Zda jsou soubory robota důvěryhodné a nevalidují se.
+     */
+    private final boolean sourcesTrusted;
+
     /**
      * Načte konfiguraci robota z {@link Properties}.
      * 
@@ -181,13 +201,25 @@ public final class AIMLBotConfiguration implements BotConfiguration,
         LOGGER.log(Level.INFO, "api.BotAfterRead",
                 new Object[] { afterLoadingOrder });
 
+        final Path snapshotPath =
+                Configuration.readOptionalPath(botSettings, SNAPSHOT_PATH_KEY);
+        LOGGER.log(Level.INFO, "api.BotSnapshotRead",
+                new Object[] { snapshotPath });
+
+        final boolean sourcesTrusted =
+                Configuration.readOptionalBoolean(botSettings,
+                        TRUSTED_SOURCES_KEY, false);
+        LOGGER.log(Level.INFO, "api.BotTrustedSourcesRead",
+                new Object[] { sourcesTrusted });
+
         final Map<String, String> validBotPredicates =
                 Configuration.readValidEntries(botPredicates);
         LOGGER.log(Level.INFO, "api.BotPredicatesRead",
                 new Object[] { validBotPredicates });
 
         return new AIMLBotConfiguration(name, filesLocation, gossipPath,
-                validBotPredicates, beforeLoadingOrder, afterLoadingOrder);
+                validBotPredicates, beforeLoadingOrder, afterLoadingOrder,
+                snapshotPath, sourcesTrusted);
     }
 
     /**
@@ -205,13 +237,74 @@ public final class AIMLBotConfiguration implements BotConfiguration,
      *            pořadí souborů k přednostnímu načítání
      * @param afterLoadingOrder
      *            pořadí souborů k dodatečnému načítání
-     * @return konfigurace
+     * @return konfigurace bez snímku kategorií
      */
     public static AIMLBotConfiguration of(final String name,
             final Path filesLocation, final Path gossipPath,
             final Map<String, String> predicates,
             final List<String> beforeLoadingOrder,
             final List<String> afterLoadingOrder) {
+        return of(name, filesLocation, gossipPath, predicates,
+                beforeLoadingOrder, afterLoadingOrder, null);
+    }
+
+    /**
+     * Vytvoří konfiguraci.
+     * 
+     * @param name
+     *            jméno robota
+     * @param filesLocation
+     *            umístění souborů
+     * @param gossipPath
+     *            cesta k souboru s promluvami
+     * @param predicates
+     *            predikáty
+     * @param beforeLoadingOrder
+     *            pořadí souborů k přednostnímu načítání
+     * @param afterLoadingOrder
+     *            pořadí souborů k dodatečnému načítání
+     * @param snapshotPath
+     *            cesta ke snímku kategorií, či null, pokud se snímek nemá
+     *            používat
+     * @return konfigurace s validovanými soubory
+     */
+    public static AIMLBotConfiguration of(final String name,
+            final Path filesLocation, final Path gossipPath,
+            final Map<String, String> predicates,
+            final List<String> beforeLoadingOrder,
+            final List<String> afterLoadingOrder, final Path snapshotPath) {
+        return of(name, filesLocation, gossipPath, predicates,
+                beforeLoadingOrder, afterLoadingOrder, snapshotPath, false);
+    }
+
+    /**
+     * Vytvoří konfiguraci.
+     * 
+     * @param name
+     *            jméno robota
+     * @param filesLocation
+     *            umístění souborů
+     * @param gossipPath
+     *            cesta k souboru s promluvami
+     * @param predicates
+     *            predikáty
+     * @param beforeLoadingOrder
+     *            pořadí souborů k přednostnímu načítání
+     * @param afterLoadingOrder
+     *            pořadí souborů k dodatečnému načítání
+     * @param snapshotPath
+     *            cesta ke snímku kategorií, či null, pokud se snímek nemá
+     *            používat
+     * @param sourcesTrusted
+     *            true, pokud se soubory robota nemají validovat proti schématu
+     * @return konfigurace
+     */
+    public static AIMLBotConfiguration of(final String name,
+            final Path filesLocation, final Path gossipPath,
+            final Map<String, String> predicates,
+            final List<String> beforeLoadingOrder,
+            final List<String> afterLoadingOrder, final Path snapshotPath,
+            final boolean sourcesTrusted) {
         if (name == null || filesLocation == null || gossipPath == null
                 || predicates == null || beforeLoadingOrder == null
                 || afterLoadingOrder == null) {
@@ -247,7 +340,8 @@ public final class AIMLBotConfiguration implements BotConfiguration,
         }
 
         return new AIMLBotConfiguration(name, filesLocation, gossipPath,
-                predicates, beforeLoadingOrder, afterLoadingOrder);
+                predicates, beforeLoadingOrder, afterLoadingOrder,
+                snapshotPath, sourcesTrusted);
     }
 
     /**
@@ -265,17 +359,25 @@ public final class AIMLBotConfiguration implements BotConfiguration,
      *            pořadí souborů k přednostnímu načítání
      * @param afterLoadingOrder
      *            pořadí souborů k dodatečnému načítání
+     * @param snapshotPath
+     *            cesta ke snímku kategorií, či null
+     * @param sourcesTrusted
+     *            zda se soubory robota nevalidují
      */
     private AIMLBotConfiguration(final String name, final Path filesLocation,
             final Path gossipPath, final Map<String, String> predicates,
             final List<String> beforeLoadingOrder,
-            final List<String> afterLoadingOrder) {
+            final List<String> afterLoadingOrder, final Path snapshotPath,
+            final boolean sourcesTrusted) {
         this.name = name;
         this.filesLocation = filesLocation.toUri();
         this.gossipPath = gossipPath.toUri();
         this.predicates = new HashMap<>(predicates);
         this.beforeLoadingOrder = new ArrayList<>(beforeLoadingOrder);
         this.afterLoadingOrder = new ArrayList<>(afterLoadingOrder);
+        this.snapshotPath =
+                snapshotPath == null ? null : snapshotPath.toUri();
+        this.sourcesTrusted = sourcesTrusted;
     }
 
     /*
@@ -344,6 +446,32 @@ public final class AIMLBotConfiguration implements BotConfiguration,
         return Collections.unmodifiableList(afterLoadingOrder);
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.api.BotConfiguration#
+     * getSnapshotPath()
+     */
+    @Override
+    public Path getSnapshotPath() {
+        if (snapshotPath == null) {
+            return null;
+        }
+
+        return Paths.get(snapshotPath);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.api.BotConfiguration#
+     * areSourcesTrusted()
+     */
+    @Override
+    public boolean areSourcesTrusted() {
+        return sourcesTrusted;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -365,6 +493,10 @@ public final class AIMLBotConfiguration implements BotConfiguration,
         builder.append(Text.toString(beforeLoadingOrder, maxLen));
         builder.append(", afterLoadingOrder=");
         builder.append(Text.toString(afterLoadingOrder, maxLen));
+        builder.append(", snapshotPath=");
+        builder.append(snapshotPath);
+        builder.append(", sourcesTrusted=");
+        builder.append(sourcesTrusted);
         builder.append("]");
         return builder.toString();
     }
@@ -380,6 +512,10 @@ public final class AIMLBotConfiguration implements BotConfiguration,
         botSettingsProps.put(GOSSIP_PATH_KEY, this.gossipPath.toString());
         botSettingsProps.put(BEFORE_LOADING_ORDER_KEY, Configuration.writeLoadingOrder(this.beforeLoadingOrder));
         botSettingsProps.put(AFTER_LOADING_ORDER_KEY, Configuration.writeLoadingOrder(this.afterLoadingOrder));
+        if (this.snapshotPath != null) {
+            botSettingsProps.put(SNAPSHOT_PATH_KEY, Paths.get(this.snapshotPath).toString());
+        }
+        botSettingsProps.put(TRUSTED_SOURCES_KEY, Boolean.toString(this.sourcesTrusted));
         
         final Properties botPredicatesProps = new Properties();
         final Set<Entry<String, String>> botPredicatesEntries = this.predicates.entrySet();
@@ -0,0 +1,571 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.api;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.language.AIMLLanguage;
+import cz.cuni.mff.ms.brodecva.botnicek.library.language.Language;
+import cz.cuni.mff.ms.brodecva.botnicek.library.loader.AIMLCategoryLoader;
+import cz.cuni.mff.ms.brodecva.botnicek.library.loader.AIMLSourceParser;
+import cz.cuni.mff.ms.brodecva.botnicek.library.loader.AIMLSourceParserFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.loader.Loader;
+import cz.cuni.mff.ms.brodecva.botnicek.library.loader.LoaderException;
+import cz.cuni.mff.ms.brodecva.botnicek.library.loader.SourceParserFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.logging.BotnicekLogger;
+import cz.cuni.mff.ms.brodecva.botnicek.library.parser.AIMLTemplateParserFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParserFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.Normalizer;
+import cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.SimpleNormalizer;
+import cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.SimpleSplitter;
+import cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.Splitter;
+import cz.cuni.mff.ms.brodecva.botnicek.library.processor.set.DisplayStrategy;
+import cz.cuni.mff.ms.brodecva.botnicek.library.responder.AIMLBot;
+import cz.cuni.mff.ms.brodecva.botnicek.library.responder.AIMLConversation;
+import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot;
+import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Conversation;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLWordFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.BrainImage;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.CachingStructure;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.OverlayStructure;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.StructureStatistics;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.SwappableStructure;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.WordTree;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.FrugalMapperFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.MapperFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
+
+/**
+ * Mozek robota technologie AIML. Kategorie robota jsou načteny při jeho
+ * vytvoření a všechny konverzace založené metodou
+ * {@link #createConversation(ConversationConfiguration)} sdílí tutéž
+ * rozhodovací strukturu, jazyk i továrnu na parsery šablon. Kategorie naučené
+ * v konverzaci ukládá její vlastní načítač do překryvné struktury nad
+ * sdílenou (viz {@link OverlayStructure}), takže je ostatní konverzace
+ * nevidí a uvolní se spolu s konverzací. Při změně
+ * souborů lze kategorie za běhu znovu načíst metodou {@link #reload()},
+ * případně tak činit automaticky pomocí {@link BrainWatcher}.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ */
+public final class AIMLBrain implements Brain {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = BotnicekLogger
+            .getLogger(AIMLBrain.class);
+
+    /**
+     * Lokalizátor hlášek výjimek.
+     */
+    private static final ExceptionMessageLocalizer MESSAGE_LOCALIZER =
+            ExceptionMessageLocalizer.getLocalizer();
+
+    /**
+     * Načítač, který naplnil sdílenou rozhodovací strukturu.
+     */
+    private final Loader loader;
+
+    /**
+     * Jazyk konverzací.
+     */
+    private final Language language;
+
+    /**
+     * Nástroj na dělení textu na zpracovatelné úseky.
+     */
+    private final Splitter splitter;
+
+    /**
+     * Nástroj pro normalizaci textu.
+     */
+    private final Normalizer normalizer;
+
+    /**
+     * Továrna na parsery šablon.
+     */
+    private final TemplateParserFactory parserFactory;
+
+    /**
+     * Továrna na parsery zdrojových souborů používaná při znovunačtení.
+     */
+    private final SourceParserFactory sourceParserFactory;
+
+    /**
+     * Umístění snímku kategorií používaného při znovunačtení, či null.
+     */
+    private final Path snapshotPath;
+
+    /**
+     * Zámek zajišťující, že současně probíhá nejvýše jedno znovunačtení.
+     */
+    private final Object reloadLock = new Object();
+
+    /**
+     * Vytvoří mozek a načte do něj kategorie robota. Kategorie lze později
+     * znovu načíst metodou {@link #reload()}.
+     * 
+     * @param botConfig
+     *            nastavení robota
+     * @param languageConfiguration
+     *            nastavení jazyka konverzace
+     * @return nový mozek
+     * @throws SessionException
+     *             chyba při načítání kategorií či nastavení
+     */
+    public static Brain create(final BotConfiguration botConfig,
+            final LanguageConfiguration languageConfiguration)
+            throws SessionException {
+        // Sdílený strom se mění jen při načítání před zveřejněním mozku,
+        // kategorie naučené za běhu jdou do překryvu konverzace.
+        final MapperFactory mapperFactory = new FrugalMapperFactory();
+
+        final WordTree tree = new WordTree(mapperFactory, true);
+        final MatchingStructure matchingStructure =
+                new SwappableStructure(new CachingStructure(tree));
+
+        final Language language = createLanguage(languageConfiguration);
+
+        final Loader loader =
+                createLoader(matchingStructure, botConfig, language);
+
+        try {
+            loader.load();
+        } catch (final LoaderException e) {
+            throw new SessionException(e);
+        }
+        tree.compact();
+
+        return create(loader, language,
+                createSourceParserFactory(botConfig),
+                botConfig.getSnapshotPath());
+    }
+
+    /**
+     * Načte kategorie robota a zapíše je do {@link BrainImage obrazu mozku},
+     * který pak mohou sdílet procesy otevírající jej metodou
+     * {@link #createFromImage(BotConfiguration, LanguageConfiguration, Path)}.
+     * 
+     * @param botConfig
+     *            nastavení robota
+     * @param languageConfiguration
+     *            nastavení jazyka konverzace
+     * @param image
+     *            cesta k zapisovanému obrazu
+     * @throws SessionException
+     *             chyba při načítání kategorií či zápisu obrazu
+     */
+    public static void writeImage(final BotConfiguration botConfig,
+            final LanguageConfiguration languageConfiguration, final Path image)
+            throws SessionException {
+        final WordTree tree = new WordTree(new FrugalMapperFactory());
+
+        final Language language = createLanguage(languageConfiguration);
+
+        final Loader loader = createLoader(tree, botConfig, language);
+
+        try {
+            loader.load();
+
+            BrainImage.write(tree.freeze(), image);
+        } catch (final LoaderException | IOException e) {
+            throw new SessionException(e);
+        }
+    }
+
+    /**
+     * Vytvoří mozek nad namapovaným {@link BrainImage obrazem mozku}. Kategorie
+     * se nenačítají ze souborů a strom není uložen na haldě. Obraz je neměnný,
+     * znovunačtení proto není podporováno. Kategorie naučené za běhu si každá
+     * konverzace drží zvlášť (viz {@link #createConversation}).
+     * 
+     * @param botConfig
+     *            nastavení robota
+     * @param languageConfiguration
+     *            nastavení jazyka konverzace
+     * @param image
+     *            cesta k obrazu
+     * @return nový mozek
+     * @throws SessionException
+     *             chyba při otevírání obrazu či nastavení
+     */
+    public static Brain createFromImage(final BotConfiguration botConfig,
+            final LanguageConfiguration languageConfiguration, final Path image)
+            throws SessionException {
+        final MatchingStructure matchingStructure;
+        try {
+            matchingStructure = new CachingStructure(BrainImage.open(image));
+        } catch (final IOException e) {
+            throw new SessionException(e);
+        }
+
+        final Language language = createLanguage(languageConfiguration);
+
+        final Loader loader =
+                createLoader(matchingStructure, botConfig, language);
+
+        return create(loader, language,
+                createSourceParserFactory(botConfig), null);
+    }
+
+    /**
+     * Vytvoří jazyk konverzací.
+     * 
+     * @param languageConfiguration
+     *            nastavení jazyka konverzace
+     * @return jazyk
+     */
+    private static Language createLanguage(
+            final LanguageConfiguration languageConfiguration) {
+        final String languageName = languageConfiguration.getName();
+
+        final Pattern sentenceDelimiter =
+                languageConfiguration.getSentenceDelim();
+
+        final Map<Pattern, String> genderSubs =
+                languageConfiguration.getGenderSubs();
+
+        final Map<Pattern, String> personSubs =
+                languageConfiguration.getPersonSubs();
+
+        final Map<Pattern, String> person2Subs =
+                languageConfiguration.getPerson2Subs();
+
+        final Map<Pattern, String> abbreviationsSubs =
+                languageConfiguration.getAbbreviationsSubs();
+
+        final Map<Pattern, String> spellingSubs =
+                languageConfiguration.getSpellingSubs();
+
+        final Map<Pattern, String> emoticonsSubstitution =
+                languageConfiguration.getEmoticonsSubs();
+
+        final Map<Pattern, String> innerPunctuationSubs =
+                languageConfiguration.getInnerPunctuationSubs();
+
+        return new AIMLLanguage(languageName, sentenceDelimiter, genderSubs,
+                personSubs, person2Subs, abbreviationsSubs, spellingSubs,
+                emoticonsSubstitution, innerPunctuationSubs);
+    }
+
+    /**
+     * Vytvoří továrnu na parsery zdrojových souborů dle nastavení robota.
+     * Důvěryhodné soubory se nevalidují proti schématu.
+     * 
+     * @param botConfig
+     *            nastavení robota
+     * @return továrna na parsery
+     */
+    private static SourceParserFactory createSourceParserFactory(
+            final BotConfiguration botConfig) {
+        return new AIMLSourceParserFactory(botConfig.areSourcesTrusted());
+    }
+
+    /**
+     * Vytvoří robota a načítač plnící danou strukturu. Načítač parsuje soubory
+     * souběžně v tolika vláknech, kolik je dostupných procesorů, a používá
+     * parsery a snímek kategorií dle nastavení robota.
+     * 
+     * @param matchingStructure
+     *            plněná rozhodovací struktura
+     * @param botConfig
+     *            nastavení robota
+     * @param language
+     *            jazyk konverzací
+     * @return načítač
+     */
+    private static Loader createLoader(
+            final MatchingStructure matchingStructure,
+            final BotConfiguration botConfig, final Language language) {
+        final String botName = botConfig.getName();
+
+        final Path filesLocation = botConfig.getFilesLocation();
+
+        final Path gossipPath = botConfig.getGossipPath();
+
+        final Map<String, String> predicates = botConfig.getPredicates();
+
+        final List<String> beforeloadingOrder =
+                botConfig.getBeforeLoadingOrder();
+
+        final List<String> afterLoadingOrder = botConfig.getAfterLoadingOrder();
+
+        final Bot bot =
+                new AIMLBot(botName, language, filesLocation, gossipPath,
+                        predicates, beforeloadingOrder, afterLoadingOrder);
+
+        return createLoader(matchingStructure, bot,
+                createSourceParserFactory(botConfig),
+                botConfig.getSnapshotPath());
+    }
+
+    /**
+     * Vytvoří načítač plnící danou strukturu kategoriemi robota.
+     * 
+     * @param matchingStructure
+     *            plněná rozhodovací struktura
+     * @param bot
+     *            robot
+     * @param sourceParserFactory
+     *            továrna na parsery zdrojových souborů
+     * @param snapshotPath
+     *            umístění snímku kategorií, či null
+     * @return načítač
+     */
+    private static Loader createLoader(
+            final MatchingStructure matchingStructure, final Bot bot,
+            final SourceParserFactory sourceParserFactory,
+            final Path snapshotPath) {
+        return new AIMLCategoryLoader(matchingStructure, bot,
+                sourceParserFactory, Runtime.getRuntime()
+                        .availableProcessors(), snapshotPath);
+    }
+
+    /**
+     * Vytvoří mozek nad načítačem se zbylými výchozími součástmi.
+     * 
+     * @param loader
+     *            načítač
+     * @param language
+     *            jazyk konverzací
+     * @param sourceParserFactory
+     *            továrna na parsery zdrojových souborů pro znovunačtení
+     * @param snapshotPath
+     *            umístění snímku kategorií pro znovunačtení, či null
+     * @return nový mozek
+     * @throws SessionException
+     *             chyba při vytváření továrny na parsery šablon
+     */
+    private static Brain create(final Loader loader, final Language language,
+            final SourceParserFactory sourceParserFactory,
+            final Path snapshotPath) throws SessionException {
+        final Splitter splitter = new SimpleSplitter(language);
+
+        final Normalizer normalizer = new SimpleNormalizer();
+
+        final TemplateParserFactory parserFactory;
+        try {
+            parserFactory = new AIMLTemplateParserFactory();
+        } catch (final IOException e) {
+            throw new SessionException(e);
+        }
+
+        return new AIMLBrain(loader, language, splitter, normalizer,
+                parserFactory, sourceParserFactory, snapshotPath);
+    }
+
+    /**
+     * Vytvoří mozek nad již naplněnou rozhodovací strukturou načítače.
+     * 
+     * @param loader
+     *            načítač s naplněnou rozhodovací strukturou
+     * @param language
+     *            jazyk konverzací
+     * @param splitter
+     *            dělič vět
+     * @param normalizer
+     *            normalizér
+     * @param parserFactory
+     *            továrna na parser šablon
+     */
+    public AIMLBrain(final Loader loader, final Language language,
+            final Splitter splitter, final Normalizer normalizer,
+            final TemplateParserFactory parserFactory) {
+        this(loader, language, splitter, normalizer, parserFactory,
+                new AIMLSourceParserFactory(), null);
+    }
+
+    /**
+     * Vytvoří mozek nad již naplněnou rozhodovací strukturou načítače, který
+     * při znovunačtení používá dané parsery zdrojových souborů a snímek
+     * kategorií v daném umístění.
+     * 
+     * @param loader
+     *            načítač s naplněnou rozhodovací strukturou
+     * @param language
+     *            jazyk konverzací
+     * @param splitter
+     *            dělič vět
+     * @param normalizer
+     *            normalizér
+     * @param parserFactory
+     *            továrna na parser šablon
+     * @param sourceParserFactory
+     *            továrna na parsery zdrojových souborů
+     * @param snapshotPath
+     *            umístění snímku kategorií, či null
+     */
+    private AIMLBrain(final Loader loader, final Language language,
+            final Splitter splitter, final Normalizer normalizer,
+            final TemplateParserFactory parserFactory,
+            final SourceParserFactory sourceParserFactory,
+            final Path snapshotPath) {
+        if (loader == null || language == null || splitter == null
+                || normalizer == null || parserFactory == null) {
+            throw new NullPointerException(
+                    MESSAGE_LOCALIZER.getMessage("api.NullArgument"));
+        }
+
+        this.loader = loader;
+        this.language = language;
+        this.splitter = splitter;
+        this.normalizer = normalizer;
+        this.parserFactory = parserFactory;
+        this.sourceParserFactory = sourceParserFactory;
+        this.snapshotPath = snapshotPath;
+
+        LOGGER.log(Level.INFO, "api.BrainCreated", new Object[] { this });
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.api.Brain#getBot()
+     */
+    @Override
+    public Bot getBot() {
+        return loader.getBot();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.api.Brain#getLanguage()
+     */
+    @Override
+    public Language getLanguage() {
+        return language;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.api.Brain#getCategoryCount()
+     */
+    @Override
+    public int getCategoryCount() {
+        return loader.getFilledStructure().getCategoryCount();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.api.Brain#getStatistics()
+     */
+    @Override
+    public StructureStatistics getStatistics() {
+        return loader.getFilledStructure().getStatistics();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.api.Brain#createConversation
+     * (cz.cuni.mff.ms.brodecva.botnicek.library.api.ConversationConfiguration)
+     */
+    @Override
+    public Conversation createConversation(
+            final ConversationConfiguration conversationConfig) {
+        if (conversationConfig == null) {
+            throw new NullPointerException(
+                    MESSAGE_LOCALIZER.getMessage("api.NullArgument"));
+        }
+
+        final Map<String, String> defaultPredicates =
+                conversationConfig.getDefaultPredicates();
+        final Map<String, DisplayStrategy> predicatesSetBehavior =
+                conversationConfig.getDisplayStrategies();
+
+        // Slova naučená v konverzaci nesmí trvale rozšířit globální slovník,
+        // nevkládá je do něj proto továrna na slova ani mapy překryvu.
+        final MatchingStructure learned =
+                new OverlayStructure(loader.getFilledStructure(), new WordTree(
+                        new FrugalMapperFactory(true)));
+        final Loader conversationLoader =
+                new AIMLCategoryLoader(learned, loader.getBot(),
+                        AIMLSourceParser.create(new AIMLWordFactory(
+                                normalizer, false)));
+
+        return new AIMLConversation(conversationLoader, splitter, normalizer,
+                language, parserFactory, defaultPredicates,
+                predicatesSetBehavior);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * Nová struktura se plní mimo sdílenou, takže hledání během načítání
+     * nečeká. Lze volat z libovolného vlákna.
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.api.Brain#reload()
+     */
+    @Override
+    public void reload() throws SessionException {
+        final MatchingStructure filledStructure = loader.getFilledStructure();
+        if (!(filledStructure instanceof SwappableStructure)) {
+            throw new UnsupportedOperationException(
+                    MESSAGE_LOCALIZER.getMessage("api.BrainNotReloadable"));
+        }
+
+        synchronized (reloadLock) {
+            final WordTree replacement =
+                    new WordTree(new FrugalMapperFactory(), true);
+
+            try {
+                createLoader(replacement, loader.getBot(),
+                        sourceParserFactory, snapshotPath).load();
+            } catch (final LoaderException e) {
+                throw new SessionException(e);
+            }
+            replacement.compact();
+
+            ((SwappableStructure) filledStructure).swap(new CachingStructure(
+                    replacement));
+        }
+
+        LOGGER.log(Level.INFO, "api.BrainReloaded", new Object[] {
+                getBot().getFilesPath(), getCategoryCount() });
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("AIMLBrain [loader=");
+        builder.append(loader);
+        builder.append(", language=");
+        builder.append(language);
+        builder.append("]");
+        return builder.toString();
+    }
+}
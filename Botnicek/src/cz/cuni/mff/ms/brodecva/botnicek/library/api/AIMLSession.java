@@ -21,35 +21,13 @@ package cz.cuni.mff.ms.brodecva.botnicek.library.api;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.List;
-import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Pattern;
 
-import cz.cuni.mff.ms.brodecva.botnicek.library.language.AIMLLanguage;
 import cz.cuni.mff.ms.brodecva.botnicek.library.language.Language;
-import cz.cuni.mff.ms.brodecva.botnicek.library.loader.AIMLCategoryLoader;
-import cz.cuni.mff.ms.brodecva.botnicek.library.loader.AIMLSourceParser;
-import cz.cuni.mff.ms.brodecva.botnicek.library.loader.Loader;
-import cz.cuni.mff.ms.brodecva.botnicek.library.loader.LoaderException;
-import cz.cuni.mff.ms.brodecva.botnicek.library.loader.SourceParser;
 import cz.cuni.mff.ms.brodecva.botnicek.library.logging.BotnicekLogger;
-import cz.cuni.mff.ms.brodecva.botnicek.library.parser.AIMLTemplateParserFactory;
-import cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParserFactory;
-import cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.Normalizer;
-import cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.SimpleNormalizer;
-import cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.SimpleSplitter;
-import cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.Splitter;
-import cz.cuni.mff.ms.brodecva.botnicek.library.processor.set.DisplayStrategy;
-import cz.cuni.mff.ms.brodecva.botnicek.library.responder.AIMLBot;
-import cz.cuni.mff.ms.brodecva.botnicek.library.responder.AIMLConversation;
 import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot;
 import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Conversation;
-import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure;
-import cz.cuni.mff.ms.brodecva.botnicek.library.storage.WordTree;
-import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.FrugalMapperFactory;
-import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.MapperFactory;
 import cz.cuni.mff.ms.brodecva.botnicek.library.utils.Property;
 
 /**
@@ -88,90 +66,25 @@ public final class AIMLSession implements Session {
             final LanguageConfiguration languageConfiguration,
             final ConversationConfiguration conversationConfig)
             throws SessionException {
-        final MapperFactory mapperFactory = new FrugalMapperFactory();
+        final Brain brain = AIMLBrain.create(botConfig, languageConfiguration);
 
-        final MatchingStructure matchingStructure = new WordTree(mapperFactory);
-
-        final String botName = botConfig.getName();
-
-        final String languageName = languageConfiguration.getName();
-
-        final Pattern sentenceDelimiter =
-                languageConfiguration.getSentenceDelim();
-
-        final Map<Pattern, String> genderSubs =
-                languageConfiguration.getGenderSubs();
-
-        final Map<Pattern, String> personSubs =
-                languageConfiguration.getPersonSubs();
-
-        final Map<Pattern, String> person2Subs =
-                languageConfiguration.getPerson2Subs();
-
-        final Map<Pattern, String> abbreviationsSubs =
-                languageConfiguration.getAbbreviationsSubs();
-
-        final Map<Pattern, String> spellingSubs =
-                languageConfiguration.getSpellingSubs();
-
-        final Map<Pattern, String> emoticonsSubstitution =
-                languageConfiguration.getEmoticonsSubs();
-
-        final Map<Pattern, String> innerPunctuationSubs =
-                languageConfiguration.getInnerPunctuationSubs();
-
-        final Language language =
-                new AIMLLanguage(languageName, sentenceDelimiter, genderSubs,
-                        personSubs, person2Subs, abbreviationsSubs,
-                        spellingSubs, emoticonsSubstitution,
-                        innerPunctuationSubs);
-
-        final Path filesLocation = botConfig.getFilesLocation();
-
-        final Path gossipPath = botConfig.getGossipPath();
-
-        final Map<String, String> predicates = botConfig.getPredicates();
-
-        final List<String> beforeloadingOrder =
-                botConfig.getBeforeLoadingOrder();
-
-        final List<String> afterLoadingOrder = botConfig.getAfterLoadingOrder();
-
-        final Bot bot =
-                new AIMLBot(botName, language, filesLocation, gossipPath,
-                        predicates, beforeloadingOrder, afterLoadingOrder);
-
-        final SourceParser parser = AIMLSourceParser.create();
-
-        final Loader loader =
-                new AIMLCategoryLoader(matchingStructure, bot, parser);
-
-        final Splitter splitter = new SimpleSplitter(language);
-
-        final Normalizer normalizer = new SimpleNormalizer();
-
-        final TemplateParserFactory parserFactory;
-        try {
-            parserFactory = new AIMLTemplateParserFactory();
-        } catch (final IOException e) {
-            throw new SessionException(e);
-        }
-
-        final Map<String, String> defaultPredicates =
-                conversationConfig.getDefaultPredicates();
-        final Map<String, DisplayStrategy> predicatesSetBehavior =
-                conversationConfig.getDisplayStrategies();
+        return start(brain, conversationConfig);
+    }
 
-        final Conversation conversation;
-        try {
-            loader.load();
-            conversation =
-                    new AIMLConversation(loader, splitter, normalizer,
-                            language, parserFactory, defaultPredicates,
-                            predicatesSetBehavior);
-        } catch (final LoaderException e) {
-            throw new SessionException(e);
-        }
+    /**
+     * Vytvoří relaci konverzace nad již načteným mozkem, který může být
+     * sdílen dalšími relacemi.
+     * 
+     * @param brain
+     *            sdílený mozek robota
+     * @param conversationConfig
+     *            nastavení konverzace
+     * @return nová relace
+     */
+    public static Session start(final Brain brain,
+            final ConversationConfiguration conversationConfig) {
+        final Conversation conversation =
+                brain.createConversation(conversationConfig);
 
         return new AIMLSession(conversation);
     }
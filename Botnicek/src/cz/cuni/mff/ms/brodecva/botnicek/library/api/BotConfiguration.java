@@ -70,4 +70,21 @@ public interface BotConfiguration extends Storable {
      * @return soubory načítané dodatečně
      */
     List<String> getAfterLoadingOrder();
+    
+    /**
+     * Vrátí cestu ke snímku kategorií, ze kterého se při načítání obnoví
+     * kategorie, pokud odpovídá zdrojovým souborům, a jinak se po
+     * naparsování zapíše.
+     * 
+     * @return cesta ke snímku, nebo null, pokud se snímek nepoužívá
+     */
+    Path getSnapshotPath();
+    
+    /**
+     * Vrátí, zda jsou soubory robota důvěryhodné, tedy již dříve ověřené
+     * proti schématu, takže je lze načítat bez validace.
+     * 
+     * @return true, pokud se soubory nemají validovat
+     */
+    boolean areSourcesTrusted();
 }
@@ -0,0 +1,92 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.api;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.language.Language;
+import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot;
+import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Conversation;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.StructureStatistics;
+
+/**
+ * Jednou načtený mozek robota, tedy rozhodovací struktura spolu s nástroji
+ * pro zpracování vstupu, sdílený libovolným počtem konverzací.
+ * 
+ * <p>
+ * Konverzace založené nad týmž mozkem si udržují pouze vlastní predikáty a
+ * historii, kategorie robota jsou uloženy jen jednou.
+ * </p>
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ */
+public interface Brain {
+
+    /**
+     * Poskytuje přístup k definici robota, jehož kategorie mozek obsahuje.
+     * 
+     * @return robot
+     */
+    Bot getBot();
+
+    /**
+     * Poskytuje přístup k definici aspektů jazyka, které jsou třeba pro vedení
+     * konverzace.
+     * 
+     * @return definice jazyka
+     */
+    Language getLanguage();
+
+    /**
+     * Vrátí počet kategorií uložených v mozku.
+     * 
+     * @return počet kategorií
+     */
+    int getCategoryCount();
+
+    /**
+     * Sestaví statistiku velikosti a tvaru struktury s kategoriemi pro
+     * plánování kapacity. Sestavení neblokuje probíhající konverzace.
+     * 
+     * @return statistika struktury s kategoriemi
+     */
+    StructureStatistics getStatistics();
+
+    /**
+     * Založí novou konverzaci nad sdíleným mozkem.
+     * 
+     * @param conversationConfig
+     *            nastavení konverzace
+     * @return nová konverzace
+     */
+    Conversation createConversation(
+            ConversationConfiguration conversationConfig);
+
+    /**
+     * Znovu načte kategorie robota do nové struktury a atomicky ji zveřejní.
+     * Rozběhnuté hledání doběhne nad původní verzí, další promluvy všech
+     * konverzací již použijí novou. Konverzace si ponechají predikáty i
+     * historii, kategorie naučené za běhu se však zahodí.
+     * 
+     * @throws SessionException
+     *             chyba při načítání, mozek pak zůstává v původní verzi
+     * @throws UnsupportedOperationException
+     *             pokud mozek znovunačtení nepodporuje
+     */
+    void reload() throws SessionException;
+}
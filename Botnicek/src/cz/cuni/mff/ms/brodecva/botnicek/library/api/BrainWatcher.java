@@ -0,0 +1,280 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.api;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.logging.BotnicekLogger;
+import cz.cuni.mff.ms.brodecva.botnicek.library.platform.AIML;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
+
+/**
+ * <p>
+ * Sledovač souborů robota, který při jejich změně na pozadí znovu načte
+ * kategorie mozku metodou {@link Brain#reload()}. Změny se slučují, načítá se
+ * až po chvíli bez dalších změn.
+ * </p>
+ * 
+ * <p>
+ * Sleduje umístění {@link cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot#getFilesPath()}
+ * . Je-li jím adresář, reaguje na změny souborů AIML v něm, jinak jen na
+ * změny daného souboru. Selže-li načítání, mozek zůstává v původní verzi.
+ * </p>
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ */
+public final class BrainWatcher implements Closeable {
+
+    /**
+     * Výchozí doba bez změn, po jejímž uplynutí se kategorie načtou.
+     */
+    public static final long DEFAULT_QUIET_PERIOD_MILLIS = 500;
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = BotnicekLogger
+            .getLogger(BrainWatcher.class);
+
+    /**
+     * Lokalizátor hlášek výjimek.
+     */
+    private static final ExceptionMessageLocalizer MESSAGE_LOCALIZER =
+            ExceptionMessageLocalizer.getLocalizer();
+
+    /**
+     * Sledovaný mozek.
+     */
+    private final Brain brain;
+
+    /**
+     * Služba sledování adresáře.
+     */
+    private final WatchService watchService;
+
+    /**
+     * Jméno sledovaného souboru, či null, pokud se sledují všechny soubory
+     * AIML adresáře.
+     */
+    private final String fileName;
+
+    /**
+     * Doba bez změn v milisekundách.
+     */
+    private final long quietPeriodMillis;
+
+    /**
+     * Vlákno sledování.
+     */
+    private final Thread thread;
+
+    /**
+     * Začne sledovat soubory robota daného mozku s výchozí dobou bez změn.
+     * 
+     * @param brain
+     *            mozek
+     * @return spuštěný sledovač
+     * @throws IOException
+     *             pokud nelze umístění sledovat
+     */
+    public static BrainWatcher watch(final Brain brain) throws IOException {
+        return watch(brain, DEFAULT_QUIET_PERIOD_MILLIS);
+    }
+
+    /**
+     * Začne sledovat soubory robota daného mozku.
+     * 
+     * @param brain
+     *            mozek
+     * @param quietPeriodMillis
+     *            doba bez změn v milisekundách, po které se kategorie načtou
+     * @return spuštěný sledovač
+     * @throws IOException
+     *             pokud nelze umístění sledovat
+     */
+    public static BrainWatcher watch(final Brain brain,
+            final long quietPeriodMillis) throws IOException {
+        if (brain == null) {
+            throw new NullPointerException(
+                    MESSAGE_LOCALIZER.getMessage("api.NullArgument"));
+        }
+        if (quietPeriodMillis < 0) {
+            throw new IllegalArgumentException(MESSAGE_LOCALIZER.getMessage(
+                    "api.NegativeQuietPeriod", quietPeriodMillis));
+        }
+
+        final Path location = brain.getBot().getFilesPath().toAbsolutePath();
+
+        final Path directory;
+        final String fileName;
+        if (Files.isDirectory(location)) {
+            directory = location;
+            fileName = null;
+        } else {
+            directory = location.getParent();
+            fileName = location.getFileName().toString();
+        }
+
+        final WatchService watchService =
+                directory.getFileSystem().newWatchService();
+        try {
+            directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (final IOException e) {
+            watchService.close();
+            throw e;
+        }
+
+        final BrainWatcher watcher =
+                new BrainWatcher(brain, watchService, fileName,
+                        quietPeriodMillis);
+        watcher.thread.start();
+
+        LOGGER.log(Level.INFO, "api.BrainWatchStarted", location);
+        return watcher;
+    }
+
+    /**
+     * Vytvoří sledovač.
+     * 
+     * @param brain
+     *            mozek
+     * @param watchService
+     *            služba sledování s registrovaným adresářem
+     * @param fileName
+     *            jméno sledovaného souboru, či null
+     * @param quietPeriodMillis
+     *            doba bez změn v milisekundách
+     */
+    private BrainWatcher(final Brain brain, final WatchService watchService,
+            final String fileName, final long quietPeriodMillis) {
+        this.brain = brain;
+        this.watchService = watchService;
+        this.fileName = fileName;
+        this.quietPeriodMillis = quietPeriodMillis;
+
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watchChanges();
+            }
+        }, "BrainWatcher-" + brain.getBot().getName());
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Čeká na změny a po chvíli klidu znovu načte kategorie, dokud není
+     * sledovač uzavřen.
+     */
+    private void watchChanges() {
+        try {
+            while (true) {
+                if (!isRelevant(watchService.take())) {
+                    continue;
+                }
+
+                WatchKey next =
+                        watchService.poll(quietPeriodMillis,
+                                TimeUnit.MILLISECONDS);
+                while (next != null) {
+                    isRelevant(next);
+                    next =
+                            watchService.poll(quietPeriodMillis,
+                                    TimeUnit.MILLISECONDS);
+                }
+
+                try {
+                    brain.reload();
+                } catch (final SessionException | RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "api.BrainReloadFailed",
+                            new Object[] { brain.getBot().getFilesPath(),
+                                    e.getMessage() });
+                }
+            }
+        } catch (final ClosedWatchServiceException | InterruptedException e) {
+            LOGGER.log(Level.INFO, "api.BrainWatchStopped", brain.getBot()
+                    .getFilesPath());
+        }
+    }
+
+    /**
+     * Zpracuje události klíče a obnoví jej.
+     * 
+     * @param key
+     *            klíč s událostmi
+     * @return true, pokud se některá událost týká souborů robota
+     */
+    private boolean isRelevant(final WatchKey key) {
+        boolean relevant = false;
+
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                relevant = true;
+                continue;
+            }
+
+            final String name = event.context().toString();
+            if (fileName == null) {
+                relevant |=
+                        name.endsWith("." + AIML.FILE_SUFFIX.getValue());
+            } else {
+                relevant |= name.equals(fileName);
+            }
+        }
+        key.reset();
+
+        return relevant;
+    }
+
+    /**
+     * Ukončí sledování. Právě probíhající načítání doběhne.
+     * 
+     * @throws IOException
+     *             chyba při uzavírání služby sledování
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "BrainWatcher [brain=" + brain + ", fileName=" + fileName
+                + ", quietPeriodMillis=" + quietPeriodMillis + "]";
+    }
+}
@@ -23,18 +23,33 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import cz.cuni.mff.ms.brodecva.botnicek.library.logging.BotnicekLogger;
 import cz.cuni.mff.ms.brodecva.botnicek.library.platform.AIML;
 import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.CategorySink;
 import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure;
 import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
 
 /**
- * Načítač kategorií z AIML dokumentu do uložiště.
+ * Načítač kategorií z AIML dokumentu do uložiště. Je-li mu zadána cesta ke
+ * snímku, využívá při načítání dle nastavení robota binární snímek kategorií,
+ * pokud odpovídá zdrojovým souborům.
+ * Je-li vytvořen s továrnou na parsery, parsuje více souborů souběžně a
+ * výsledky vkládá do uložiště v pořadí postupného načítání.
  * 
  * @author Václav Brodec
  * @version 1.0
@@ -74,6 +89,26 @@ public final class AIMLCategoryLoader extends AbstractLoader implements
      */
     private final SourceParser parser;
 
+    /**
+     * Továrna na parsery pro souběžné načítání, null pro postupné načítání.
+     */
+    private final SourceParserFactory parserFactory;
+
+    /**
+     * Počet vláken souběžného načítání.
+     */
+    private final int parallelism;
+
+    /**
+     * Umístění binárního snímku kategorií, null pokud se snímek nepoužívá.
+     */
+    private final URI snapshotPath;
+
+    /**
+     * Právě pořizovaný snímek kategorií, null mimo výchozí načítání.
+     */
+    private transient CategorySnapshot recording = null;
+
     /**
      * Vytvoří parser AIML souborů pro naplnění dané rozhodovací struktury.
      * 
@@ -86,6 +121,91 @@ public final class AIMLCategoryLoader extends AbstractLoader implements
      */
     public AIMLCategoryLoader(final MatchingStructure filledStructure,
             final Bot bot, final SourceParser parser) {
+        this(filledStructure, bot, parser, null, 1, null);
+    }
+
+    /**
+     * Vytvoří parser AIML souborů pro naplnění dané rozhodovací struktury,
+     * který při výchozím načítání používá snímek kategorií v daném umístění.
+     * 
+     * @param bot
+     *            bot ovlivňující načítání
+     * @param filledStructure
+     *            rozhodovací struktura
+     * @param parser
+     *            parser zdrojového kódu
+     * @param snapshotPath
+     *            umístění snímku kategorií, či null pro načítání bez snímku
+     */
+    public AIMLCategoryLoader(final MatchingStructure filledStructure,
+            final Bot bot, final SourceParser parser, final Path snapshotPath) {
+        this(filledStructure, bot, parser, null, 1, snapshotPath);
+    }
+
+    /**
+     * Vytvoří parser AIML souborů pro naplnění dané rozhodovací struktury,
+     * který soubory umístění načítá souběžně. Každé vlákno používá vlastní
+     * parser z továrny.
+     * 
+     * @param bot
+     *            bot ovlivňující načítání
+     * @param filledStructure
+     *            rozhodovací struktura
+     * @param parserFactory
+     *            továrna na parsery zdrojového kódu
+     * @param parallelism
+     *            nejvyšší počet souběžně parsovaných souborů, kladný
+     */
+    public AIMLCategoryLoader(final MatchingStructure filledStructure,
+            final Bot bot, final SourceParserFactory parserFactory,
+            final int parallelism) {
+        this(filledStructure, bot, parserFactory, parallelism, null);
+    }
+
+    /**
+     * Vytvoří parser AIML souborů pro naplnění dané rozhodovací struktury,
+     * který soubory umístění načítá souběžně a při výchozím načítání používá
+     * snímek kategorií v daném umístění.
+     * 
+     * @param bot
+     *            bot ovlivňující načítání
+     * @param filledStructure
+     *            rozhodovací struktura
+     * @param parserFactory
+     *            továrna na parsery zdrojového kódu
+     * @param parallelism
+     *            nejvyšší počet souběžně parsovaných souborů, kladný
+     * @param snapshotPath
+     *            umístění snímku kategorií, či null pro načítání bez snímku
+     */
+    public AIMLCategoryLoader(final MatchingStructure filledStructure,
+            final Bot bot, final SourceParserFactory parserFactory,
+            final int parallelism, final Path snapshotPath) {
+        this(filledStructure, bot, parserFactory == null ? null
+                : parserFactory.createParser(), parserFactory, parallelism,
+                snapshotPath);
+    }
+
+    /**
+     * Vytvoří parser AIML souborů.
+     * 
+     * @param filledStructure
+     *            rozhodovací struktura
+     * @param bot
+     *            bot ovlivňující načítání
+     * @param parser
+     *            parser zdrojového kódu
+     * @param parserFactory
+     *            továrna na parsery pro souběžné načítání, či null
+     * @param parallelism
+     *            počet vláken souběžného načítání
+     * @param snapshotPath
+     *            umístění snímku kategorií, či null
+     */
+    private AIMLCategoryLoader(final MatchingStructure filledStructure,
+            final Bot bot, final SourceParser parser,
+            final SourceParserFactory parserFactory, final int parallelism,
+            final Path snapshotPath) {
         LOGGER.log(Level.INFO, "loader.AIMLParserInitialization", parser);
 
         if (filledStructure == null || bot == null || parser == null) {
@@ -93,9 +213,18 @@ public final class AIMLCategoryLoader extends AbstractLoader implements
                     MESSAGE_LOCALIZER.getMessage("loader.NullArgument"));
         }
 
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(MESSAGE_LOCALIZER.getMessage(
+                    "loader.InvalidParallelism", parallelism));
+        }
+
         this.parser = parser;
         this.filledStructure = filledStructure;
         this.bot = bot;
+        this.parserFactory = parserFactory;
+        this.parallelism = parallelism;
+        this.snapshotPath =
+                snapshotPath == null ? null : snapshotPath.toUri();
     }
 
     /*
@@ -128,7 +257,28 @@ public final class AIMLCategoryLoader extends AbstractLoader implements
      * (java.nio.file.Path)
      */
     @Override
-    public void loadIndividualFile(final Path path) throws LoaderException {
+    public synchronized void loadIndividualFile(final Path path)
+            throws LoaderException {
+        loadFile(path, parser, getTargetSink(), getTargetBot());
+    }
+
+    /**
+     * Načte kategorie ze souboru daným parserem.
+     * 
+     * @param path
+     *            soubor
+     * @param fileParser
+     *            parser zdrojového kódu
+     * @param sink
+     *            příjemce kategorií
+     * @param context
+     *            bot ovlivňující načítání
+     * @throws LoaderException
+     *             chyba při načítání
+     */
+    private static void loadFile(final Path path,
+            final SourceParser fileParser, final CategorySink sink,
+            final Bot context) throws LoaderException {
         LOGGER.log(Level.INFO, "loader.FileLoadAttempt", path);
 
         final String fileName = path.getFileName().toString();
@@ -139,42 +289,231 @@ public final class AIMLCategoryLoader extends AbstractLoader implements
         }
 
         try (final InputStream inputStream = new BufferedInputStream(new FileInputStream(path.toFile()))) {
-            loadFromStream(inputStream, path.toUri()
-                    .toString());
+            parse(inputStream, path.toUri().toString(), fileParser,
+                    sink, context);
         } catch (final IOException e) {
             throw new LoaderException(e);
         }
     }
 
+    /**
+     * Načte kategorie z proudu daným parserem.
+     * 
+     * @param inputStream
+     *            vstupní proud
+     * @param systemId
+     *            systémové ID
+     * @param streamParser
+     *            parser zdrojového kódu
+     * @param sink
+     *            příjemce kategorií
+     * @param context
+     *            bot ovlivňující načítání
+     * @throws LoaderException
+     *             chyba při načítání
+     */
+    private static void parse(final InputStream inputStream,
+            final String systemId, final SourceParser streamParser,
+            final CategorySink sink, final Bot context)
+            throws LoaderException {
+        LOGGER.log(Level.INFO, "loader.StreamLoadAttempt", systemId);
+
+        try {
+            streamParser.parse(inputStream, systemId, sink, context);
+        } catch (final SourceParserException e) {
+            throw new LoaderException(e);
+        }
+    }
+
+    /**
+     * Vrátí příjemce, do kterého se právě vkládají načtené kategorie.
+     * 
+     * @return plněná struktura, případně příjemce zaznamenávající snímek
+     */
+    private CategorySink getTargetSink() {
+        if (recording == null) {
+            return filledStructure;
+        }
+
+        return recording.getSink();
+    }
+
+    /**
+     * Vrátí bota předávaného parseru.
+     * 
+     * @return bot, případně zaznamenávající snímek
+     */
+    private Bot getTargetBot() {
+        if (recording == null) {
+            return bot;
+        }
+
+        return recording.getBot();
+    }
+
     /*
      * (non-Javadoc)
      * 
-     * @see cz.cuni.mff.ms.brodecva.botnicek.library.loader.AbstractLoader#
-     * loadFromStream (java.io.InputStream, java.lang.String)
+     * Je-li povoleno souběžné načítání, parsuje soubory ve skupině vláken do
+     * samostatných dávek a ty pak vkládá do struktury v zadaném pořadí, takže
+     * pozdější kategorie přepisují dřívější stejně jako při postupném
+     * načítání. Soubor, který byl parsován bez dopředného zpracování, ačkoli
+     * jej dříve načtený soubor zapnul, se naparsuje znovu.
+     * 
+     * Načítání jsou vzájemně vyloučena, neboť sdílí parser a do struktury smí
+     * zapisovat jen jedno vlákno.
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.loader.AbstractLoader#loadFiles
+     * (java.util.List)
      */
     @Override
-    public void loadFromStream(final InputStream inputStream,
-            final String systemId) throws LoaderException {
-        LOGGER.log(Level.INFO, "loader.StreamLoadAttempt", systemId);
-        
+    protected synchronized void loadFiles(final List<Path> files)
+            throws LoaderException {
+        if (parserFactory == null || parallelism == 1 || files.size() < 2) {
+            super.loadFiles(files);
+            return;
+        }
+
+        final int threads = Math.min(parallelism, files.size());
+        LOGGER.log(Level.INFO, "loader.ParallelLoadAttempt", new Object[] {
+                files.size(), threads });
+
+        final CategorySink sink = getTargetSink();
+        final Bot context = getTargetBot();
+        final boolean forwardCompatible = sink.isForwardCompatible();
+
+        final ThreadLocal<SourceParser> parsers =
+                new ThreadLocal<SourceParser>() {
+                    @Override
+                    protected SourceParser initialValue() {
+                        return parserFactory.createParser();
+                    }
+                };
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
         try {
-            parser.parse(inputStream, systemId, filledStructure, bot);
-        } catch (final SourceParserException e) {
+            final List<Future<CategoryBatch>> batches =
+                    new ArrayList<Future<CategoryBatch>>(files.size());
+            for (final Path file : files) {
+                batches.add(executor.submit(new Callable<CategoryBatch>() {
+                    @Override
+                    public CategoryBatch call() throws LoaderException {
+                        final CategoryBatch batch =
+                                new CategoryBatch(forwardCompatible);
+                        loadFile(file, parsers.get(), batch, context);
+                        return batch;
+                    }
+                }));
+            }
+
+            for (int i = 0; i < files.size(); i++) {
+                final Path file = files.get(i);
+
+                if (sink.isForwardCompatible() && !forwardCompatible) {
+                    LOGGER.log(Level.INFO, "loader.FileReparsedForward", file);
+
+                    batches.get(i).cancel(false);
+                    loadFile(file, parser, sink, context);
+                    continue;
+                }
+
+                final CategoryBatch batch;
+                try {
+                    batch = batches.get(i).get();
+                } catch (final ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof LoaderException) {
+                        throw (LoaderException) cause;
+                    }
+                    throw new LoaderException(cause);
+                }
+
+                batch.mergeInto(sink);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new LoaderException(e);
+        } finally {
+            executor.shutdownNow();
         }
     }
 
     /*
      * (non-Javadoc)
      * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.loader.AbstractLoader#
+     * loadFromStream (java.io.InputStream, java.lang.String)
+     */
+    @Override
+    public synchronized void loadFromStream(final InputStream inputStream,
+            final String systemId) throws LoaderException {
+        parse(inputStream, systemId, parser, getTargetSink(),
+                getTargetBot());
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * Je-li zadáno umístění snímku a leží v něm snímek kategorií s
+     * odpovídajícím klíčem, obnoví kategorie z něj. Jinak soubory naparsuje
+     * a snímek zapíše pro příští načtení. Chyby při práci se snímkem
+     * načítání nepřeruší. Bez zadaného umístění se snímek nepoužívá.
+     * 
      * @see cz.cuni.mff.ms.brodecva.botnicek.library.loader.Loader#load()
      */
     @Override
     public void load() throws LoaderException {
         LOGGER.log(Level.INFO, "loader.DefaultLoadAttempt", bot);
-        
-        loadFromLocation(bot.getFilesPath(), bot.getBeforeOrder(),
-                bot.getAfterOrder());
+
+        final Path location = bot.getFilesPath();
+        if (this.snapshotPath == null) {
+            LOGGER.log(Level.FINE, "loader.SnapshotDisabled", location);
+            loadFromLocation(location, bot.getBeforeOrder(),
+                    bot.getAfterOrder());
+            return;
+        }
+        final Path snapshotPath = Paths.get(this.snapshotPath);
+
+        byte[] key = null;
+        if (Files.exists(location)) {
+            try {
+                key =
+                        CategorySnapshot.computeKey(location,
+                                bot.getBeforeOrder(), bot.getAfterOrder(),
+                                filledStructure.isForwardCompatible(), parser);
+
+                if (CategorySnapshot.restore(snapshotPath, key,
+                        filledStructure, bot) >= 0) {
+                    return;
+                }
+                LOGGER.log(Level.INFO, "loader.SnapshotUnavailable",
+                        snapshotPath);
+            } catch (final IOException e) {
+                LOGGER.log(Level.WARNING, "loader.SnapshotReadFailed",
+                        new Object[] { snapshotPath, e.getMessage() });
+            }
+        }
+
+        final CategorySnapshot snapshot =
+                new CategorySnapshot(filledStructure, bot);
+        recording = snapshot;
+        try {
+            loadFromLocation(location, bot.getBeforeOrder(),
+                    bot.getAfterOrder());
+        } finally {
+            recording = null;
+        }
+
+        if (key == null) {
+            return;
+        }
+        try {
+            snapshot.write(snapshotPath, key);
+        } catch (final IOException e) {
+            LOGGER.log(Level.WARNING, "loader.SnapshotWriteFailed",
+                    new Object[] { snapshotPath, e.getMessage() });
+        }
     }
 
     /*
@@ -185,6 +524,7 @@ public final class AIMLCategoryLoader extends AbstractLoader implements
     @Override
     public String toString() {
         return "AIMLCategoryLoader [matchingStructure=" + filledStructure
-                + ", bot=" + bot + ", parser=" + parser + "]";
+                + ", bot=" + bot + ", parser=" + parser + ", parallelism="
+                + parallelism + ", snapshotPath=" + snapshotPath + "]";
     }
 }
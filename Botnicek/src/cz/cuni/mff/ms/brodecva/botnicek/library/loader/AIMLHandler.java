@@ -34,11 +34,14 @@ import org.xml.sax.ext.DefaultHandler2;
 import cz.cuni.mff.ms.brodecva.botnicek.library.logging.BotnicekLogger;
 import cz.cuni.mff.ms.brodecva.botnicek.library.platform.AIML;
 import cz.cuni.mff.ms.brodecva.botnicek.library.platform.XML;
+import cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.SimpleNormalizer;
 import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot;
 import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLInputPath;
 import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLPartMarker;
 import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLTemplate;
-import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLWordFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.CategorySink;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.WordFactory;
 import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
 
 /**
@@ -72,16 +75,27 @@ public final class AIMLHandler extends DefaultHandler2 implements Handler,
     private static final String AIML_NAMESPACE_URI = AIML.NAMESPACE_URI
             .getValue();
 
+    /**
+     * Výchozí továrna na slova vzorů, vkládá je do globálního slovníku slov.
+     */
+    private static final WordFactory DEFAULT_WORD_FACTORY =
+            new AIMLWordFactory(new SimpleNormalizer(), true);
+
     /**
      * Uložiště, do kterého je obsah transformován.
      */
-    private final MatchingStructure brain;
+    private final CategorySink brain;
 
     /**
      * Bot.
      */
     private final Bot bot;
 
+    /**
+     * Továrna na slova vzorů.
+     */
+    private final WordFactory wordFactory;
+
     /**
      * Téma zpracovávané části.
      */
@@ -185,9 +199,26 @@ public final class AIMLHandler extends DefaultHandler2 implements Handler,
      * @param bot
      *            nastavení robota
      */
-    public AIMLHandler(final MatchingStructure brain, final Bot bot) {
+    public AIMLHandler(final CategorySink brain, final Bot bot) {
+        this(brain, bot, DEFAULT_WORD_FACTORY);
+    }
+
+    /**
+     * Vytvoří obslužný objekt ve výchozím stavu s danou továrnou na slova
+     * vzorů.
+     * 
+     * @param brain
+     *            uložiště, do kterého je obsah transformován
+     * @param bot
+     *            nastavení robota
+     * @param wordFactory
+     *            továrna na slova vzorů, určuje, zda se slova vkládají do
+     *            globálního slovníku
+     */
+    public AIMLHandler(final CategorySink brain, final Bot bot,
+            final WordFactory wordFactory) {
         this(brain, bot, DefaultSpaceStrategy.create(), PreserveSpaceStrategy
-                .create(), new AIMLErrorHandler());
+                .create(), new AIMLErrorHandler(), wordFactory);
         this.phase = AIMLPartMarker.UNDEFINED;
     }
 
@@ -205,16 +236,42 @@ public final class AIMLHandler extends DefaultHandler2 implements Handler,
      * @param strictErrorHandler
      *            obslužný objekt pro obsluhu chyb ve striktním režimu
      */
-    public AIMLHandler(final MatchingStructure brain, final Bot bot,
+    public AIMLHandler(final CategorySink brain, final Bot bot,
             final SpaceStrategy defaultStrategy,
             final SpaceStrategy preserveStrategy,
             final ErrorHandler strictErrorHandler) {
+        this(brain, bot, defaultStrategy, preserveStrategy,
+                strictErrorHandler, DEFAULT_WORD_FACTORY);
+    }
+
+    /**
+     * Vytvoří nový obslužný objekt.
+     * 
+     * @param brain
+     *            uložiště, do kterého je obsah transformován
+     * @param bot
+     *            nastavení robota
+     * @param defaultStrategy
+     *            výchozí strategie pro bílé znaky
+     * @param preserveStrategy
+     *            zachovávající strategie pro bílé znaky
+     * @param strictErrorHandler
+     *            obslužný objekt pro obsluhu chyb ve striktním režimu
+     * @param wordFactory
+     *            továrna na slova vzorů
+     */
+    public AIMLHandler(final CategorySink brain, final Bot bot,
+            final SpaceStrategy defaultStrategy,
+            final SpaceStrategy preserveStrategy,
+            final ErrorHandler strictErrorHandler,
+            final WordFactory wordFactory) {
         if (LOGGER.isLoggable(Level.FINER)) {
             LOGGER.log(Level.FINER, "loader.AIMLHandlerConstruction", new Object[] { brain, bot, defaultStrategy, preserveStrategy, strictErrorHandler });
         }
         
         if (brain == null || bot == null || defaultStrategy == null
-                || preserveStrategy == null || strictErrorHandler == null) {
+                || preserveStrategy == null || strictErrorHandler == null
+                || wordFactory == null) {
             throw new NullPointerException(
                     MESSAGE_LOCALIZER.getMessage("loader.NullArgument"));
         }
@@ -224,6 +281,7 @@ public final class AIMLHandler extends DefaultHandler2 implements Handler,
         this.defaultStrategy = defaultStrategy;
         this.preserveStrategy = preserveStrategy;
         this.strictErrorHandler = strictErrorHandler;
+        this.wordFactory = wordFactory;
     }
 
     /**
@@ -240,6 +298,7 @@ public final class AIMLHandler extends DefaultHandler2 implements Handler,
         this.defaultStrategy = original.defaultStrategy;
         this.preserveStrategy = original.preserveStrategy;
         this.strictErrorHandler = original.strictErrorHandler;
+        this.wordFactory = original.wordFactory;
 
         this.topic = original.topic;
         this.that = original.that;
@@ -475,7 +534,8 @@ public final class AIMLHandler extends DefaultHandler2 implements Handler,
                 if (localName.equals(AIML.TEMPLATE.getValue())) {
                     template = getCharacters();
 
-                    brain.add(new AIMLInputPath(pattern, that, topic),
+                    brain.add(new AIMLInputPath(pattern, that, topic,
+                            wordFactory),
                             new AIMLTemplate(template));
 
                     pattern = null;
@@ -21,7 +21,9 @@ package cz.cuni.mff.ms.brodecva.botnicek.library.loader;
 import java.io.Serializable;
 
 import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot;
-import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.CategorySink;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.WordFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
 
 /**
  * Implementace továrny na obslužné objekty pro AIML při zpracování SAXem.
@@ -37,19 +39,58 @@ public final class AIMLHandlerFactory implements SourceHandlerFactory,
      */
     private static final long serialVersionUID = 1089371309288281721L;
 
+    /**
+     * Lokalizátor hlášek výjimek.
+     */
+    private static final ExceptionMessageLocalizer MESSAGE_LOCALIZER =
+            ExceptionMessageLocalizer.getLocalizer();
+
+    /**
+     * Továrna na slova vzorů, null pro výchozí továrnu obslužného objektu.
+     * Ve starších serializovaných verzích chybí.
+     */
+    private final WordFactory wordFactory;
+
+    /**
+     * Vytvoří továrnu na obslužné objekty, které vkládají slova vzorů do
+     * globálního slovníku slov.
+     */
+    public AIMLHandlerFactory() {
+        this.wordFactory = null;
+    }
+
+    /**
+     * Vytvoří továrnu na obslužné objekty s danou továrnou na slova vzorů.
+     * 
+     * @param wordFactory
+     *            továrna na slova vzorů
+     */
+    public AIMLHandlerFactory(final WordFactory wordFactory) {
+        if (wordFactory == null) {
+            throw new NullPointerException(
+                    MESSAGE_LOCALIZER.getMessage("loader.NullArgument"));
+        }
+
+        this.wordFactory = wordFactory;
+    }
+
     /*
      * (non-Javadoc)
      * 
      * @see
      * cz.cuni.mff.ms.brodecva.botnicek.library.loader.SourceHandlerFactory#
      * createContentHandler
-     * (cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure,
+     * (cz.cuni.mff.ms.brodecva.botnicek.library.storage.CategorySink,
      * cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot)
      */
     @Override
     public Handler createHandler(
-            final MatchingStructure structure, final Bot bot) {
-        return new AIMLHandler(structure, bot);
+            final CategorySink structure, final Bot bot) {
+        if (wordFactory == null) {
+            return new AIMLHandler(structure, bot);
+        }
+
+        return new AIMLHandler(structure, bot, wordFactory);
     }
 
 }
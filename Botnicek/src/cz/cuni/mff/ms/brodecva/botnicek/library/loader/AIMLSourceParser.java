@@ -42,10 +42,13 @@ import org.xml.sax.XMLReader;
 
 import cz.cuni.mff.ms.brodecva.botnicek.library.logging.BotnicekLogger;
 import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot;
-import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.CategorySink;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.WordFactory;
 
 /**
- * Parser zdrojového kódu AIML.
+ * Parser zdrojového kódu AIML. Zkompilované schéma a továrny na SAX parsery
+ * jsou sdílené celým procesem, vytvoření dalšího parseru tak schéma znovu
+ * nekompiluje.
  * 
  * @author Václav Brodec
  * @version 1.0
@@ -69,11 +72,31 @@ public final class AIMLSourceParser implements SourceParser, Serializable {
     public static final String AIML_SCHEMA_SOURCE =
             "/cz/cuni/mff/ms/brodecva/botnicek/library/platform/AIML.xsd";
 
+    /**
+     * Zkompilované schéma AIML, vytvoří se při první potřebě.
+     */
+    private static Schema aimlSchema = null;
+
+    /**
+     * Sdílená továrna na validující parsery.
+     */
+    private static SAXParserFactory validatingParserFactory = null;
+
+    /**
+     * Sdílená továrna na nevalidující parsery.
+     */
+    private static SAXParserFactory trustedParserFactory = null;
+
     /**
      * {@link XMLReader} pro parsování.
      */
     private final transient XMLReader reader;
 
+    /**
+     * Zda parser důvěřuje zdrojům a nevaliduje je proti schématu.
+     */
+    private final boolean trusted;
+
     /**
      * Továrna na {@link Handler}.
      */
@@ -85,46 +108,144 @@ public final class AIMLSourceParser implements SourceParser, Serializable {
      * @return výchozí parser
      */
     public static AIMLSourceParser create() {
+        return create(false);
+    }
+
+    /**
+     * Vytvoří parser zdrojového kódu AIML pro důvěryhodné zdroje, tedy již
+     * dříve ověřené proti schématu. Dokumenty nevaliduje, jejich zpracování
+     * je jinak stejné jako u výchozího parseru.
+     * 
+     * @return parser bez validace
+     */
+    public static AIMLSourceParser createTrusted() {
+        return create(true);
+    }
+
+    /**
+     * Vytvoří výchozí parser zdrojového kódu AIML, který slova vzorů vytváří
+     * danou továrnou. Umožňuje například načítat kategorie, jejichž slova se
+     * nemají trvale vkládat do globálního slovníku slov.
+     * 
+     * @param wordFactory
+     *            továrna na slova vzorů
+     * @return výchozí parser
+     */
+    public static AIMLSourceParser create(final WordFactory wordFactory) {
+        return create(false, new AIMLHandlerFactory(wordFactory));
+    }
+
+    /**
+     * Vytvoří parser zdrojového kódu AIML.
+     * 
+     * @param trusted
+     *            zda vynechat validaci proti schématu
+     * @return parser
+     */
+    private static AIMLSourceParser create(final boolean trusted) {
+        return create(trusted, new AIMLHandlerFactory());
+    }
+
+    /**
+     * Vytvoří parser zdrojového kódu AIML.
+     * 
+     * @param trusted
+     *            zda vynechat validaci proti schématu
+     * @param handlerFactory
+     *            továrna na obslužné objekty
+     * @return parser
+     */
+    private static AIMLSourceParser create(final boolean trusted,
+            final SourceHandlerFactory handlerFactory) {
         XMLReader newReader;
         try {
-            newReader = createAIMLReader();
+            newReader = createAIMLReader(trusted);
         } catch (SAXException | ParserConfigurationException e) {
             throw new SourceParserError(e);
         }
 
-        return new AIMLSourceParser(newReader, new AIMLHandlerFactory());
+        return new AIMLSourceParser(newReader, handlerFactory, trusted);
     }
 
     /**
-     * Vrátí XML reader pro zpracování zdrojových AIML souborů.
+     * Vrátí XML reader pro zpracování zdrojových AIML souborů. Továrny na
+     * parsery nejsou bezpečné pro souběžné použití, proto je přístup k nim
+     * synchronizován.
      * 
+     * @param trusted
+     *            zda vynechat validaci proti schématu
      * @return XML reader pro zpracování zdrojových AIML souborů
      * @throws SAXException
      *             pokud dojde k chybě při parsování schématu
      * @throws ParserConfigurationException
      *             pokud nemůže být vytvořen parser odpovídající konfiguraci
      */
-    private static XMLReader createAIMLReader() throws SAXException,
+    private static synchronized XMLReader createAIMLReader(
+            final boolean trusted) throws SAXException,
             ParserConfigurationException {
-        final SchemaFactory schemaFactory =
-                SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        final SAXParserFactory parserFactory;
+        if (trusted) {
+            if (trustedParserFactory == null) {
+                trustedParserFactory = createParserFactory(null);
+            }
+            parserFactory = trustedParserFactory;
+        } else {
+            if (validatingParserFactory == null) {
+                validatingParserFactory =
+                        createParserFactory(getAIMLSchema());
+            }
+            parserFactory = validatingParserFactory;
+        }
+
+        final SAXParser saxParser = parserFactory.newSAXParser();
+
+        return saxParser.getXMLReader();
+    }
+
+    /**
+     * Vrátí zkompilované schéma AIML, při prvním volání jej zkompiluje.
+     * 
+     * @return schéma AIML
+     * @throws SAXException
+     *             pokud dojde k chybě při parsování schématu
+     */
+    private static synchronized Schema getAIMLSchema() throws SAXException {
+        if (aimlSchema == null) {
+            final SchemaFactory schemaFactory =
+                    SchemaFactory
+                            .newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
 
-        final Schema aimlSchema =
-                schemaFactory.newSchema(new StreamSource(
-                        AIMLCategoryLoader.class
-                                .getResourceAsStream(AIML_SCHEMA_SOURCE)));
+            aimlSchema =
+                    schemaFactory.newSchema(new StreamSource(
+                            AIMLCategoryLoader.class
+                                    .getResourceAsStream(AIML_SCHEMA_SOURCE)));
+        }
+
+        return aimlSchema;
+    }
 
+    /**
+     * Vytvoří továrnu na parsery s podporou prostorů jmen.
+     * 
+     * @param schema
+     *            schéma pro validaci, či null pro parsování bez validace
+     * @return továrna na parsery
+     * @throws SAXException
+     *             pokud továrna nepodporuje požadované vlastnosti
+     * @throws ParserConfigurationException
+     *             pokud nemůže být vytvořen parser odpovídající konfiguraci
+     */
+    private static SAXParserFactory createParserFactory(final Schema schema)
+            throws SAXException, ParserConfigurationException {
         final SAXParserFactory parserFactory = SAXParserFactory.newInstance();
         parserFactory.setNamespaceAware(true);
         parserFactory
                 .setFeature("http://xml.org/sax/features/namespaces", true);
         parserFactory.setFeature(
                 "http://xml.org/sax/features/namespace-prefixes", false);
-        parserFactory.setSchema(aimlSchema);
+        parserFactory.setSchema(schema);
 
-        final SAXParser saxParser = parserFactory.newSAXParser();
-
-        return saxParser.getXMLReader();
+        return parserFactory;
     }
 
     /**
@@ -134,11 +255,23 @@ public final class AIMLSourceParser implements SourceParser, Serializable {
      *            čtecí objekt SAXu
      * @param handlerFactory
      *            továrna na {@link ContentHandler} a {@link AIMLErrorHandler}.
+     * @param trusted
+     *            zda parser vynechává validaci proti schématu
      */
     private AIMLSourceParser(final XMLReader reader,
-            final SourceHandlerFactory handlerFactory) {
+            final SourceHandlerFactory handlerFactory, final boolean trusted) {
         this.reader = reader;
         this.handlerFactory = handlerFactory;
+        this.trusted = trusted;
+    }
+
+    /**
+     * Indikuje, zda parser důvěřuje zdrojům a nevaliduje je.
+     * 
+     * @return true, pokud parser vynechává validaci proti schématu
+     */
+    public boolean isTrusted() {
+        return trusted;
     }
 
     /*
@@ -147,12 +280,12 @@ public final class AIMLSourceParser implements SourceParser, Serializable {
      * @see
      * cz.cuni.mff.ms.brodecva.botnicek.library.loader.SourceParser#parse(java
      * .io.InputStream, java.lang.String,
-     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure,
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.CategorySink,
      * cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot)
      */
     @Override
     public void parse(final InputStream inputStream, final String systemId,
-            final MatchingStructure filledStructure, final Bot bot)
+            final CategorySink filledStructure, final Bot bot)
             throws SourceParserException {
         final InputSource input = new InputSource(inputStream);
         input.setSystemId(systemId);
@@ -216,6 +349,12 @@ public final class AIMLSourceParser implements SourceParser, Serializable {
          */
         private final SourceHandlerFactory handlerFactory;
 
+        /**
+         * Zda parser vynechává validaci. Ve starších serializovaných verzích
+         * chybí, a proto se obnoví jako validující.
+         */
+        private final boolean trusted;
+
         /**
          * Vytvoří serializační proxy.
          * 
@@ -224,6 +363,7 @@ public final class AIMLSourceParser implements SourceParser, Serializable {
          */
         public SerializationProxy(final AIMLSourceParser original) {
             handlerFactory = original.handlerFactory;
+            trusted = original.trusted;
         }
 
         /**
@@ -235,7 +375,8 @@ public final class AIMLSourceParser implements SourceParser, Serializable {
          */
         Object readResolve() throws ObjectStreamException {
             try {
-                return new AIMLSourceParser(createAIMLReader(), handlerFactory);
+                return new AIMLSourceParser(createAIMLReader(trusted),
+                        handlerFactory, trusted);
             } catch (SAXException | ParserConfigurationException e) {
                 throw new SourceParserError(e);
             }
@@ -250,6 +391,6 @@ public final class AIMLSourceParser implements SourceParser, Serializable {
     @Override
     public String toString() {
         return "AIMLSourceParser [reader=" + reader + ", handlerFactory="
-                + handlerFactory + "]";
+                + handlerFactory + ", trusted=" + trusted + "]";
     }
 }
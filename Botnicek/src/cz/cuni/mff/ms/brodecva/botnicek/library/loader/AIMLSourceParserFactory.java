@@ -0,0 +1,77 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.loader;
+
+import java.io.Serializable;
+
+/**
+ * Továrna na parsery zdrojového kódu AIML.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see AIMLSourceParser#create()
+ * @see AIMLSourceParser#createTrusted()
+ */
+public final class AIMLSourceParserFactory implements SourceParserFactory,
+        Serializable {
+
+    /**
+     * UID serializované verze.
+     */
+    private static final long serialVersionUID = -3154960741826314357L;
+
+    /**
+     * Zda vytvářet parsery bez validace proti schématu.
+     */
+    private final boolean trusted;
+
+    /**
+     * Vytvoří továrnu na výchozí, validující parsery.
+     */
+    public AIMLSourceParserFactory() {
+        this(false);
+    }
+
+    /**
+     * Vytvoří továrnu na parsery.
+     * 
+     * @param trusted
+     *            true pro parsery důvěryhodných zdrojů, které vynechávají
+     *            validaci proti schématu
+     */
+    public AIMLSourceParserFactory(final boolean trusted) {
+        this.trusted = trusted;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.loader.SourceParserFactory#
+     * createParser()
+     */
+    @Override
+    public SourceParser createParser() {
+        if (trusted) {
+            return AIMLSourceParser.createTrusted();
+        }
+
+        return AIMLSourceParser.create();
+    }
+}
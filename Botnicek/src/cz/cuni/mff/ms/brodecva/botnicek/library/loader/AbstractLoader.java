@@ -21,6 +21,7 @@ package cz.cuni.mff.ms.brodecva.botnicek.library.loader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -32,8 +33,8 @@ import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
 
 /**
  * Abstraktní verze načítače zdrojových souborů pro konverzaci. Zajišťuje
- * korektní zpracování předané lokace, ať už se jedná o adresář či přímo soubor.
- * Vlastní načítací metodu nespecifikuje.
+ * korektní zpracování předané lokace, ať už se jedná o adresář či přímo soubor,
+ * a určuje pořadí načítaných souborů. Vlastní načítací metodu nespecifikuje.
  * 
  * @author Václav Brodec
  * @version 1.0
@@ -72,6 +73,7 @@ public abstract class AbstractLoader implements Loader {
         LOGGER.log(Level.INFO, "loader.LocationLoadAttempt", location);
 
         final File fileLocation = location.toFile();
+        final List<Path> files = new ArrayList<Path>();
 
         try {
             if (!fileLocation.exists()) {
@@ -85,7 +87,7 @@ public abstract class AbstractLoader implements Loader {
                 LOGGER.log(Level.INFO, "loader.BeforeLoadingAttempts", beforeLoadingOrder);
 
                 for (final String fileName : beforeLoadingOrder) {
-                    loadIndividualFile(location.resolve(fileName));
+                    files.add(location.resolve(fileName));
                 }
 
                 LOGGER.log(Level.INFO, "loader.StandardLoadingAttempts", fileLocation);
@@ -109,21 +111,39 @@ public abstract class AbstractLoader implements Loader {
                         continue;
                     }
 
-                    loadIndividualFile(child.toPath());
+                    files.add(child.toPath());
                 }
 
                 LOGGER.log(Level.INFO, "loader.AfterLoadingAttempts", afterLoadingOrder);
 
                 for (final String fileName : afterLoadingOrder) {
-                    loadIndividualFile(location.resolve(fileName));
+                    files.add(location.resolve(fileName));
                 }
             } else {
                 LOGGER.log(Level.INFO, "loader.LocationIsNotDir", fileLocation);
                 
-                loadIndividualFile(location);
+                files.add(location);
             }
         } catch (final FileNotFoundException e) {
             throw new LoaderException(e);
         }
+
+        loadFiles(files);
+    }
+
+    /**
+     * Načte soubory v daném pořadí. Výchozí implementace je načítá postupně
+     * metodou {@link #loadIndividualFile(Path)}. Potomci mohou soubory
+     * zpracovávat i jinak, výsledek však musí odpovídat postupnému načtení.
+     * 
+     * @param files
+     *            soubory v pořadí načítání
+     * @throws LoaderException
+     *             chyba při načítání
+     */
+    protected void loadFiles(final List<Path> files) throws LoaderException {
+        for (final Path file : files) {
+            loadIndividualFile(file);
+        }
     }
 }
@@ -0,0 +1,124 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.loader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.CategorySink;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.Template;
+
+/**
+ * Dávka kategorií naparsovaných z jednoho souboru. Kategorie pouze
+ * zaznamenává v pořadí vložení, aby je bylo možné později vložit do sdílené
+ * struktury ve stejném pořadí, v jakém by byly načteny postupně.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ */
+final class CategoryBatch implements CategorySink {
+
+    /**
+     * Zaznamenané cesty.
+     */
+    private final List<InputPath> paths = new ArrayList<InputPath>();
+
+    /**
+     * Zaznamenané šablony.
+     */
+    private final List<Template> templates = new ArrayList<Template>();
+
+    /**
+     * Režim dopředného zpracování před parsováním.
+     */
+    private final boolean initiallyForwardCompatible;
+
+    /**
+     * Režim dopředného zpracování.
+     */
+    private boolean forwardCompatible;
+
+    /**
+     * Vytvoří prázdnou dávku.
+     * 
+     * @param forwardCompatible
+     *            režim dopředného zpracování sdílené struktury před
+     *            parsováním
+     */
+    CategoryBatch(final boolean forwardCompatible) {
+        this.initiallyForwardCompatible = forwardCompatible;
+        this.forwardCompatible = forwardCompatible;
+    }
+
+    /**
+     * Vloží zaznamenané kategorie do příjemce v pořadí, v jakém byly
+     * naparsovány, a přenese do něj i režim dopředného zpracování.
+     * 
+     * @param sink
+     *            příjemce kategorií, např. plněná struktura
+     */
+    void mergeInto(final CategorySink sink) {
+        if (forwardCompatible != initiallyForwardCompatible) {
+            sink.setForwardCompatible(forwardCompatible);
+        }
+
+        for (int i = 0; i < paths.size(); i++) {
+            sink.add(paths.get(i), templates.get(i));
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.CategorySink#add
+     * (cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath,
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.Template)
+     */
+    @Override
+    public void add(final InputPath path, final Template answer) {
+        paths.add(path);
+        templates.add(answer);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.CategorySink#
+     * isForwardCompatible()
+     */
+    @Override
+    public boolean isForwardCompatible() {
+        return forwardCompatible;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.CategorySink#
+     * setForwardCompatible(boolean)
+     */
+    @Override
+    public void setForwardCompatible(final boolean forwardCompatible) {
+        this.forwardCompatible = forwardCompatible;
+    }
+}
@@ -0,0 +1,651 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.loader;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.language.Language;
+import cz.cuni.mff.ms.brodecva.botnicek.library.logging.BotnicekLogger;
+import cz.cuni.mff.ms.brodecva.botnicek.library.platform.AIML;
+import cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.SimpleNormalizer;
+import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLInputPath;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLTemplate;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLWordFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.CategorySink;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.Template;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.Word;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.WordFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
+
+/**
+ * <p>
+ * Binární snímek kategorií načtených z AIML souborů robota. Zaznamenává
+ * kategorie v pořadí, v jakém je parser vložil do struktury, a hodnoty
+ * predikátů robota, které se při načítání dosadily do vzorů. Při dalším
+ * spuštění se snímek přečte jedním sekvenčním čtením a kategorie se vloží do
+ * struktury znovu bez parsování a validace dokumentů.
+ * </p>
+ * 
+ * <p>
+ * Snímek je platný, jen pokud souhlasí jeho klíč, tedy haš jmen, velikostí a
+ * časů změny AIML souborů, pořadí načítání a režimu dopředného zpracování,
+ * a pokud mají zaznamenané predikáty robota stále stejné hodnoty.
+ * </p>
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see AIMLCategoryLoader#load()
+ */
+final class CategorySnapshot {
+
+    /**
+     * Značka formátu ("BOTS").
+     */
+    static final int MAGIC = 0x424F5453;
+
+    /**
+     * Verze formátu.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Přípona dočasného souboru, do kterého se snímek zapisuje.
+     */
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    /**
+     * Algoritmus haše klíče.
+     */
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    /**
+     * Kódování řetězců.
+     */
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = BotnicekLogger
+            .getLogger(CategorySnapshot.class);
+
+    /**
+     * Lokalizátor hlášek výjimek.
+     */
+    private static final ExceptionMessageLocalizer MESSAGE_LOCALIZER =
+            ExceptionMessageLocalizer.getLocalizer();
+
+    /**
+     * Zaznamenávající příjemce kategorií předávaný parseru.
+     */
+    private final RecordingSink sink;
+
+    /**
+     * Zaznamenávající robot předávaný parseru.
+     */
+    private final RecordingBot bot;
+
+    /**
+     * Vytvoří prázdný záznam nad plněnou strukturou a robotem.
+     * 
+     * @param filledStructure
+     *            plněná struktura
+     * @param bot
+     *            robot ovlivňující načítání
+     */
+    CategorySnapshot(final MatchingStructure filledStructure, final Bot bot) {
+        this.sink = new RecordingSink(filledStructure);
+        this.bot = new RecordingBot(bot);
+    }
+
+    /**
+     * Vrátí příjemce, který vložené kategorie předá plněné struktuře a
+     * zaznamená je.
+     * 
+     * @return zaznamenávající příjemce
+     */
+    CategorySink getSink() {
+        return sink;
+    }
+
+    /**
+     * Vrátí robota, který zaznamenává dotazy na své predikáty.
+     * 
+     * @return zaznamenávající robot
+     */
+    Bot getBot() {
+        return bot;
+    }
+
+    /**
+     * Vrátí počet zaznamenaných kategorií.
+     * 
+     * @return počet kategorií
+     */
+    int getCategoryCount() {
+        return sink.templates.size();
+    }
+
+    /**
+     * Spočítá klíč snímku z popisu zdrojových souborů a nastavení načítání.
+     * Obsah souborů se nečte, změnu pozná podle velikosti a času poslední
+     * změny. Snímek pořízený parserem bez validace neplatí pro validující
+     * parser a naopak.
+     * 
+     * @param location
+     *            umístění AIML souborů (adresář či soubor)
+     * @param beforeLoadingOrder
+     *            soubory načítané přednostně
+     * @param afterLoadingOrder
+     *            soubory načítané na konec
+     * @param forwardCompatible
+     *            režim dopředného zpracování před načtením
+     * @param parser
+     *            parser zdrojového kódu
+     * @return klíč snímku
+     * @throws IOException
+     *             chyba při čtení popisu souborů
+     */
+    static byte[] computeKey(final Path location,
+            final List<String> beforeLoadingOrder,
+            final List<String> afterLoadingOrder,
+            final boolean forwardCompatible, final SourceParser parser)
+            throws IOException {
+        final Map<String, Path> files = new TreeMap<String, Path>();
+        if (Files.isDirectory(location)) {
+            try (final DirectoryStream<Path> children =
+                    Files.newDirectoryStream(location, "*."
+                            + AIML.FILE_SUFFIX.getValue())) {
+                for (final Path child : children) {
+                    if (Files.isRegularFile(child)) {
+                        files.put(child.getFileName().toString(), child);
+                    }
+                }
+            }
+        } else {
+            files.put(location.getFileName().toString(), location);
+        }
+
+        final ByteArrayOutputStream description = new ByteArrayOutputStream();
+        try (final DataOutputStream out = new DataOutputStream(description)) {
+            out.writeInt(VERSION);
+            writeString(out, parser.getClass().getName());
+            out.writeBoolean(parser instanceof AIMLSourceParser
+                    && ((AIMLSourceParser) parser).isTrusted());
+            out.writeBoolean(forwardCompatible);
+            writeStrings(out, beforeLoadingOrder);
+            writeStrings(out, afterLoadingOrder);
+
+            out.writeInt(files.size());
+            for (final Entry<String, Path> file : files.entrySet()) {
+                final Path path = file.getValue();
+
+                writeString(out, file.getKey());
+                out.writeLong(Files.size(path));
+                out.writeLong(Files.getLastModifiedTime(path).toMillis());
+            }
+        }
+
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM).digest(
+                    description.toByteArray());
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Zapíše zaznamenané kategorie do snímku. Snímek se nejprve zapíše do
+     * dočasného souboru, který pak nahradí cílový.
+     * 
+     * @param path
+     *            cesta ke snímku
+     * @param key
+     *            klíč snímku
+     * @throws IOException
+     *             chyba při zápisu
+     */
+    void write(final Path path, final byte[] key) throws IOException {
+        final List<String> words = new ArrayList<String>();
+        final Map<String, Integer> indexes = new HashMap<String, Integer>();
+        final List<int[]> paths = new ArrayList<int[]>(sink.paths.size());
+        for (final InputPath recorded : sink.paths) {
+            final int[] wordIndexes = new int[recorded.getLength()];
+
+            int position = 0;
+            for (final Word word : recorded) {
+                final String value = word.getValue();
+
+                Integer index = indexes.get(value);
+                if (index == null) {
+                    index = words.size();
+                    indexes.put(value, index);
+                    words.add(value);
+                }
+                wordIndexes[position++] = index;
+            }
+            paths.add(wordIndexes);
+        }
+
+        final Path temporary =
+                path.resolveSibling(path.getFileName() + TEMPORARY_SUFFIX);
+        try (final DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(key.length);
+            out.write(key);
+
+            out.writeInt(bot.predicates.size());
+            for (final Entry<String, String> predicate : bot.predicates
+                    .entrySet()) {
+                writeString(out, predicate.getKey());
+                writeString(out, predicate.getValue());
+            }
+
+            out.writeBoolean(sink.isForwardCompatible());
+
+            writeStrings(out, words);
+
+            out.writeInt(paths.size());
+            for (int i = 0; i < paths.size(); i++) {
+                final int[] wordIndexes = paths.get(i);
+
+                out.writeInt(wordIndexes.length);
+                for (final int index : wordIndexes) {
+                    out.writeInt(index);
+                }
+                writeString(out, sink.templates.get(i).getValue());
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+        LOGGER.log(Level.INFO, "loader.SnapshotWritten", new Object[] {
+                paths.size(), path });
+    }
+
+    /**
+     * Pokusí se obnovit kategorie ze snímku do struktury. Snímek se celý
+     * přečte a ověří dřív, než se do struktury vloží první kategorie.
+     * 
+     * @param path
+     *            cesta ke snímku
+     * @param key
+     *            očekávaný klíč snímku
+     * @param filledStructure
+     *            plněná struktura
+     * @param bot
+     *            robot ovlivňující načítání
+     * @return počet obnovených kategorií, nebo -1, pokud snímek chybí či
+     *         neodpovídá
+     * @throws IOException
+     *             snímek je poškozený či jej nelze přečíst
+     */
+    static int restore(final Path path, final byte[] key,
+            final MatchingStructure filledStructure, final Bot bot)
+            throws IOException {
+        final byte[] content;
+        try {
+            content = Files.readAllBytes(path);
+        } catch (final NoSuchFileException e) {
+            return -1;
+        }
+
+        try (final DataInputStream in =
+                new DataInputStream(new ByteArrayInputStream(content))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(MESSAGE_LOCALIZER.getMessage(
+                        "loader.SnapshotInvalid", path));
+            }
+
+            final byte[] storedKey = new byte[in.readInt()];
+            in.readFully(storedKey);
+            if (!Arrays.equals(key, storedKey)) {
+                return -1;
+            }
+
+            final int predicateCount = in.readInt();
+            for (int i = 0; i < predicateCount; i++) {
+                final String name = readString(in);
+                final String value = readString(in);
+
+                if (!value.equals(bot.getPredicateValue(name))) {
+                    return -1;
+                }
+            }
+
+            final boolean forwardCompatible = in.readBoolean();
+
+            final WordFactory wordFactory =
+                    new AIMLWordFactory(new SimpleNormalizer(), true);
+            final Word[] words = new Word[in.readInt()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = wordFactory.create(readString(in));
+            }
+
+            final int categoryCount = in.readInt();
+            final InputPath[] paths = new InputPath[categoryCount];
+            final Template[] templates = new Template[categoryCount];
+            for (int i = 0; i < categoryCount; i++) {
+                final List<Word> pathWords = new ArrayList<Word>();
+
+                final int length = in.readInt();
+                for (int j = 0; j < length; j++) {
+                    pathWords.add(words[in.readInt()]);
+                }
+                paths[i] = new AIMLInputPath(pathWords);
+                templates[i] = new AIMLTemplate(readString(in));
+            }
+
+            if (in.read() != -1) {
+                throw new IOException(MESSAGE_LOCALIZER.getMessage(
+                        "loader.SnapshotInvalid", path));
+            }
+
+            if (forwardCompatible) {
+                filledStructure.setForwardCompatible(true);
+            }
+            for (int i = 0; i < categoryCount; i++) {
+                filledStructure.add(paths[i], templates[i]);
+            }
+
+            LOGGER.log(Level.INFO, "loader.SnapshotRestored", new Object[] {
+                    categoryCount, path });
+            return categoryCount;
+        } catch (final IndexOutOfBoundsException | IllegalArgumentException
+                | NullPointerException e) {
+            throw new IOException(MESSAGE_LOCALIZER.getMessage(
+                    "loader.SnapshotInvalid", path), e);
+        }
+    }
+
+    /**
+     * Zapíše seznam řetězců s jeho délkou.
+     * 
+     * @param out
+     *            výstupní proud
+     * @param strings
+     *            řetězce
+     * @throws IOException
+     *             chyba při zápisu
+     */
+    private static void writeStrings(final DataOutputStream out,
+            final List<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (final String string : strings) {
+            writeString(out, string);
+        }
+    }
+
+    /**
+     * Zapíše řetězec jako délku a bajty v UTF-8 (na rozdíl od
+     * {@link DataOutputStream#writeUTF(String)} bez omezení délky).
+     * 
+     * @param out
+     *            výstupní proud
+     * @param string
+     *            řetězec
+     * @throws IOException
+     *             chyba při zápisu
+     */
+    private static void writeString(final DataOutputStream out,
+            final String string) throws IOException {
+        final byte[] bytes = string.getBytes(CHARSET);
+
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Přečte řetězec zapsaný metodou
+     * {@link #writeString(DataOutputStream, String)}.
+     * 
+     * @param in
+     *            vstupní proud
+     * @return řetězec
+     * @throws IOException
+     *             chyba při čtení
+     */
+    private static String readString(final DataInputStream in)
+            throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+
+        return new String(bytes, CHARSET);
+    }
+
+    /**
+     * Příjemce, který vkládané kategorie předává plněné struktuře a
+     * zaznamenává je v pořadí vložení.
+     */
+    private static final class RecordingSink implements CategorySink {
+
+        /**
+         * Plněná struktura.
+         */
+        private final MatchingStructure filledStructure;
+
+        /**
+         * Zaznamenané cesty.
+         */
+        private final List<InputPath> paths = new ArrayList<InputPath>();
+
+        /**
+         * Zaznamenané šablony.
+         */
+        private final List<Template> templates = new ArrayList<Template>();
+
+        /**
+         * Vytvoří zaznamenávajícího příjemce.
+         * 
+         * @param filledStructure
+         *            plněná struktura
+         */
+        private RecordingSink(final MatchingStructure filledStructure) {
+            this.filledStructure = filledStructure;
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see
+         * cz.cuni.mff.ms.brodecva.botnicek.library.storage.CategorySink
+         * #add(cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath,
+         * cz.cuni.mff.ms.brodecva.botnicek.library.storage.Template)
+         */
+        @Override
+        public void add(final InputPath path, final Template answer) {
+            filledStructure.add(path, answer);
+
+            paths.add(path);
+            templates.add(answer);
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see
+         * cz.cuni.mff.ms.brodecva.botnicek.library.storage.CategorySink
+         * #isForwardCompatible()
+         */
+        @Override
+        public boolean isForwardCompatible() {
+            return filledStructure.isForwardCompatible();
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see
+         * cz.cuni.mff.ms.brodecva.botnicek.library.storage.CategorySink
+         * #setForwardCompatible(boolean)
+         */
+        @Override
+        public void setForwardCompatible(final boolean forwardCompatible) {
+            filledStructure.setForwardCompatible(forwardCompatible);
+        }
+    }
+
+    /**
+     * Robot, který zaznamenává hodnoty predikátů dosazených při načítání.
+     */
+    private static final class RecordingBot implements Bot {
+
+        /**
+         * Skutečný robot.
+         */
+        private final Bot bot;
+
+        /**
+         * Dotázané predikáty a jejich hodnoty, dotazovat se může více vláken
+         * souběžného načítání.
+         */
+        private final ConcurrentMap<String, String> predicates =
+                new ConcurrentHashMap<String, String>();
+
+        /**
+         * Vytvoří zaznamenávajícího robota.
+         * 
+         * @param bot
+         *            skutečný robot
+         */
+        private RecordingBot(final Bot bot) {
+            this.bot = bot;
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see
+         * cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot#getPredicateValue
+         * (java.lang.String)
+         */
+        @Override
+        public String getPredicateValue(final String name) {
+            final String value = bot.getPredicateValue(name);
+            if (name != null && value != null) {
+                predicates.put(name, value);
+            }
+
+            return value;
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot#getFilesPath()
+         */
+        @Override
+        public Path getFilesPath() {
+            return bot.getFilesPath();
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot#getName()
+         */
+        @Override
+        public String getName() {
+            return bot.getName();
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see
+         * cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot#getBeforeOrder()
+         */
+        @Override
+        public List<String> getBeforeOrder() {
+            return bot.getBeforeOrder();
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see
+         * cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot#getAfterOrder()
+         */
+        @Override
+        public List<String> getAfterOrder() {
+            return bot.getAfterOrder();
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot#getLanguage()
+         */
+        @Override
+        public Language getLanguage() {
+            return bot.getLanguage();
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see
+         * cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot#getGossipPath()
+         */
+        @Override
+        public Path getGossipPath() {
+            return bot.getGossipPath();
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return bot.toString();
+        }
+    }
+}
@@ -19,7 +19,7 @@
 package cz.cuni.mff.ms.brodecva.botnicek.library.loader;
 
 import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot;
-import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.CategorySink;
 
 /**
  * Továrna na obslužné objekty pro SAX.
@@ -33,10 +33,10 @@ public interface SourceHandlerFactory {
      * Vytvoří objekt na obsluhu událostí při parsování.
      * 
      * @param structure
-     *            plněná struktura
+     *            příjemce kategorií, např. plněná struktura
      * @param bot
      *            bot
      * @return nový {@link Handler}
      */
-    Handler createHandler(MatchingStructure structure, Bot bot);
+    Handler createHandler(CategorySink structure, Bot bot);
 }
@@ -21,7 +21,7 @@ package cz.cuni.mff.ms.brodecva.botnicek.library.loader;
 import java.io.InputStream;
 
 import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot;
-import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.CategorySink;
 
 /**
  * Parser zdrojového kódu.
@@ -32,21 +32,21 @@ import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure;
 public interface SourceParser {
 
     /**
-     * Parsuje vstupní proud s daným ID a plní danou strukturu. Pokud je třeba,
-     * využívá při tom specifika bota.
+     * Parsuje vstupní proud s daným ID a načtené kategorie vkládá do daného
+     * příjemce. Pokud je třeba, využívá při tom specifika bota.
      * 
      * @param inputStream
      *            vstupní proud s kódem
      * @param systemId
      *            systémové ID
      * @param filledStructure
-     *            plněná struktura
+     *            příjemce kategorií, např. plněná struktura
      * @param bot
      *            bot
      * @throws SourceParserException
      *             pokud dojde k chybě při parsování zdroje
      */
     void parse(InputStream inputStream, String systemId,
-            MatchingStructure filledStructure, Bot bot)
+            CategorySink filledStructure, Bot bot)
             throws SourceParserException;
 }
@@ -18,34 +18,34 @@
  */
 package cz.cuni.mff.ms.brodecva.botnicek.library.parser;
 
-import java.io.IOException;
 import java.io.Serializable;
-import java.io.StringReader;
 import java.net.URI;
+import java.util.Collections;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 import cz.cuni.mff.ms.brodecva.botnicek.library.logging.BotnicekLogger;
 import cz.cuni.mff.ms.brodecva.botnicek.library.platform.XML;
+import cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom.ReadOnlyAttr;
+import cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom.ReadOnlyElement;
+import cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom.ReadOnlyNode;
+import cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom.ReadOnlyTrees;
 import cz.cuni.mff.ms.brodecva.botnicek.library.processor.Processor;
 import cz.cuni.mff.ms.brodecva.botnicek.library.processor.ProcessorException;
 import cz.cuni.mff.ms.brodecva.botnicek.library.processor.ProcessorRegistry;
+import cz.cuni.mff.ms.brodecva.botnicek.library.processor.StreamingProcessor;
 import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot;
 import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Conversation;
 import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchResult;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.Template;
 import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
-import cz.cuni.mff.ms.brodecva.botnicek.library.utils.classes.ClassManagment;
 
 /**
  * Parser pro obsah template AIML tagu.
@@ -76,11 +76,6 @@ public final class AIMLTemplateParser implements TemplateParser, Serializable {
      */
     public static final String VERSION = "1.0";
 
-    /**
-     * Document builder.
-     */
-    private static final DocumentBuilder DOCUMENT_BUILDER;
-
     /**
      * Kontext konverzace.
      */
@@ -101,18 +96,6 @@ public final class AIMLTemplateParser implements TemplateParser, Serializable {
      */
     private boolean forwardProcessingEnabled;
 
-    static {
-        final DocumentBuilderFactory factory =
-                DocumentBuilderFactory.newInstance();
-        factory.setNamespaceAware(true);
-
-        try {
-            DOCUMENT_BUILDER = factory.newDocumentBuilder();
-        } catch (final ParserConfigurationException e) {
-            throw new ParseError(e);
-        }
-    }
-
     /**
      * Vytvoří parser vnitřku Template tagu.
      * 
@@ -188,16 +171,32 @@ public final class AIMLTemplateParser implements TemplateParser, Serializable {
                 LOGGER.log(Level.FINE, "parser.AIMLTemplateParserProcessInput", input);
             }
             
-            final Document template =
-                    DOCUMENT_BUILDER.parse(new InputSource(new StringReader(
-                            input)));
-
-            return evaluate(template);
+            return evaluate(ReadOnlyTrees.parse(input));
         } catch (final SAXException e) {
             throw new ProcessorException(e);
-        } catch (final IOException e) {
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser#process
+     * (cz.cuni.mff.ms.brodecva.botnicek.library.storage.Template)
+     */
+    @Override
+    public String process(final Template template) throws ProcessorException {
+        final Element compiled;
+        try {
+            compiled = template.getCompiled();
+        } catch (final SAXException e) {
             throw new ProcessorException(e);
         }
+
+        final StringBuilder output = new StringBuilder();
+        evaluate(compiled, output);
+
+        return output.toString();
     }
 
     /*
@@ -209,33 +208,62 @@ public final class AIMLTemplateParser implements TemplateParser, Serializable {
      */
     @Override
     public String process(final Element element) throws ProcessorException {
+        final StringBuilder output = new StringBuilder();
+
+        process(element, output);
+
+        return output.toString();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser#process
+     * (org.w3c.dom.Element, java.lang.StringBuilder)
+     */
+    @Override
+    public void process(final Element element, final StringBuilder output)
+            throws ProcessorException {
         if (LOGGER.isLoggable(Level.FINE)) {
             LOGGER.log(Level.FINE, "parser.AIMLTemplateParserProcessElement", element);
         }
         
         if (element == null) {
-            return EMPTY_RESPONSE;
+            return;
         }
 
         final String elementNamespaceDescription = element.getNamespaceURI();
-
-        final URI elementNamespace =
-                elementNamespaceDescription == null ? null : URI
-                        .create(elementNamespaceDescription);
+        final URI registryNamespace = processorRegistry.getNamespace();
+
+        final URI elementNamespace;
+        if (elementNamespaceDescription == null) {
+            elementNamespace = null;
+        } else if (elementNamespaceDescription.equals(registryNamespace
+                .toString())) {
+            elementNamespace = registryNamespace;
+        } else {
+            elementNamespace = URI.create(elementNamespaceDescription);
+        }
 
         if (elementNamespace == null
-                || processorRegistry.getNamespace().equals(elementNamespace)) {
-            final Class<? extends Processor> processorClass;
+                || registryNamespace.equals(elementNamespace)) {
+            final Processor processor;
             try {
-                processorClass =
-                        processorRegistry.get(element.getLocalName(),
+                processor =
+                        processorRegistry.getProcessor(element.getLocalName(),
                                 elementNamespace);
             } catch (final ClassNotFoundException e) {
-                return handleUnknownElement(element, e);
+                output.append(handleUnknownElement(element, e));
+                return;
             }
 
-            return ClassManagment.getNewInstance(processorClass).process(
-                    element, this);
+            if (processor instanceof StreamingProcessor) {
+                ((StreamingProcessor) processor).process(element, this, output);
+            } else {
+                output.append(processor.process(element, this));
+            }
+            return;
         }
         
         if (LOGGER.isLoggable(Level.FINER)) {
@@ -243,12 +271,13 @@ public final class AIMLTemplateParser implements TemplateParser, Serializable {
         }
         
         if (element.getChildNodes().getLength() == 0) {
-            return XML.createEmptyElement(element);
+            output.append(XML.createEmptyElement(element));
+            return;
         }
 
-        return XML.createElementStart(element)
-                + evaluate(element.getChildNodes())
-                + XML.createElementEnd(element);
+        output.append(XML.createElementStart(element));
+        evaluate(element.getChildNodes(), output);
+        output.append(XML.createElementEnd(element));
     }
 
     /**
@@ -295,13 +324,27 @@ public final class AIMLTemplateParser implements TemplateParser, Serializable {
      */
     @Override
     public String evaluate(final NodeList list) throws ProcessorException {
-        final StringBuilder result = new StringBuilder();
+        final StringBuilder output = new StringBuilder();
 
-        for (int index = 0; index < list.getLength(); index++) {
-            result.append(evaluate(list.item(index)));
-        }
+        evaluate(list, output);
 
-        return result.toString();
+        return output.toString();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser#evaluate
+     * (org.w3c.dom.NodeList, java.lang.StringBuilder)
+     */
+    @Override
+    public void evaluate(final NodeList list, final StringBuilder output)
+            throws ProcessorException {
+        final int length = list.getLength();
+        for (int index = 0; index < length; index++) {
+            evaluate(list.item(index), output);
+        }
     }
 
     /*
@@ -313,36 +356,52 @@ public final class AIMLTemplateParser implements TemplateParser, Serializable {
      */
     @Override
     public String evaluate(final Node node) throws ProcessorException {
-        String response = EMPTY_RESPONSE;
+        final StringBuilder output = new StringBuilder();
+
+        evaluate(node, output);
 
+        return output.toString();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser#evaluate
+     * (org.w3c.dom.Node, java.lang.StringBuilder)
+     */
+    @Override
+    public void evaluate(final Node node, final StringBuilder output)
+            throws ProcessorException {
         if (node == null) {
-            return response;
+            return;
         }
 
+        final int start = output.length();
+
         final short nodeType = node.getNodeType();
         switch (nodeType) {
         case Node.ELEMENT_NODE:
-            response += process((Element) node);
+            process((Element) node, output);
             break;
         case Node.TEXT_NODE:
-            response += node.getNodeValue();
+            output.append(node.getNodeValue());
             break;
         case Node.CDATA_SECTION_NODE:
-            response += XML.CDATA_START + node.getNodeValue() + XML.CDATA_END;
+            output.append(XML.CDATA_START).append(node.getNodeValue())
+                    .append(XML.CDATA_END);
             break;
         case Node.COMMENT_NODE:
-            response +=
-                    XML.COMMENT_START + node.getTextContent() + XML.COMMENT_END;
+            output.append(XML.COMMENT_START).append(node.getTextContent())
+                    .append(XML.COMMENT_END);
             break;
         default:
             break;
         }
         
         if (LOGGER.isLoggable(Level.FINE)) {
-            LOGGER.log(Level.FINE, "parser.AIMLTemplateHandleNode", new Object[] { node, response });
+            LOGGER.log(Level.FINE, "parser.AIMLTemplateHandleNode", new Object[] { node, output.substring(start) });
         }
-        
-        return response;
     }
 
     /*
@@ -380,12 +439,14 @@ public final class AIMLTemplateParser implements TemplateParser, Serializable {
                     MESSAGE_LOCALIZER.getMessage("parser.ElementNotEmpty"));
         }
         
-        final Document ownerDoc = element.getOwnerDocument();
-        final Element newElement =
-                ownerDoc.createElementNS(element.getNamespaceURI(),
-                        newElementName);
-        newElement.appendChild(ownerDoc.createElementNS(
-                element.getNamespaceURI(), childName));
+        final List<ReadOnlyAttr> noAttributes = Collections.emptyList();
+        final List<ReadOnlyNode> noChildren = Collections.emptyList();
+        final ReadOnlyElement child =
+                new ReadOnlyElement(element.getNamespaceURI(), childName,
+                        noAttributes, noChildren);
+        final ReadOnlyElement newElement =
+                new ReadOnlyElement(element.getNamespaceURI(), newElementName,
+                        noAttributes, Collections.singletonList(child));
 
         return evaluate(newElement);
     }
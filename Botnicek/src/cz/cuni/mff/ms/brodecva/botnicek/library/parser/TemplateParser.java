@@ -27,6 +27,7 @@ import cz.cuni.mff.ms.brodecva.botnicek.library.processor.ProcessorException;
 import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot;
 import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Conversation;
 import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchResult;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.Template;
 
 /**
  * Parser reakce.
@@ -78,6 +79,18 @@ public interface TemplateParser {
      */
     String process(String input) throws ProcessorException;
 
+    /**
+     * Zpracuje šablonu v její přeložené podobě. Kód šablony se tak čte nejvýše
+     * jednou za dobu jejího života, nikoli při každé odpovědi.
+     * 
+     * @param template
+     *            šablona
+     * @return výstup zpracování
+     * @throws ProcessorException
+     *             chyba při zpracování
+     */
+    String process(Template template) throws ProcessorException;
+
     /**
      * Zpracuje prvek.
      * 
@@ -89,6 +102,19 @@ public interface TemplateParser {
      */
     String process(Element element) throws ProcessorException;
 
+    /**
+     * Zpracuje prvek a výstup připojí na konec dodaného výstupu.
+     * 
+     * @param element
+     *            prvek ke zpracování
+     * @param output
+     *            výstup odpovědi
+     * @throws ProcessorException
+     *             chyba při zpracování
+     */
+    void process(Element element, StringBuilder output)
+            throws ProcessorException;
+
     /**
      * Zpracuje element.
      * 
@@ -111,6 +137,19 @@ public interface TemplateParser {
      */
     String evaluate(NodeList list) throws ProcessorException;
 
+    /**
+     * Zpracuje uzel po uzlu a výsledky připojí na konec dodaného výstupu.
+     * 
+     * @param list
+     *            seznam uzlů
+     * @param output
+     *            výstup odpovědi
+     * @throws ProcessorException
+     *             chyba při zpracování
+     */
+    void evaluate(NodeList list, StringBuilder output)
+            throws ProcessorException;
+
     /**
      * Podle typu uzlu buďto porvede jeho zpracování jako prvku nebo expanduje
      * jeho obsah do textové podoby.
@@ -123,6 +162,19 @@ public interface TemplateParser {
      */
     String evaluate(Node node) throws ProcessorException;
 
+    /**
+     * Zpracuje uzel stejně jako {@link #evaluate(Node)}, výsledek však připojí
+     * na konec dodaného výstupu.
+     * 
+     * @param node
+     *            uzel ke zpracování
+     * @param output
+     *            výstup odpovědi
+     * @throws ProcessorException
+     *             chyba při zpracování
+     */
+    void evaluate(Node node, StringBuilder output) throws ProcessorException;
+
     /**
      * Rozbalí zkrácený prvek pod novým jménem, s novým synem, a zpracuje jej.
      * 
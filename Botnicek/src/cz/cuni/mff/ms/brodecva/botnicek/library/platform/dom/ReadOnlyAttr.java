@@ -0,0 +1,274 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.TypeInfo;
+
+/**
+ * Neměnný atribut prvku.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ */
+public final class ReadOnlyAttr extends ReadOnlyNode implements Attr {
+
+    /**
+     * URI prostoru jmen.
+     */
+    private final String namespaceURI;
+
+    /**
+     * Kvalifikované jméno.
+     */
+    private final String name;
+
+    /**
+     * Prefix jména.
+     */
+    private final String prefix;
+
+    /**
+     * Místní část jména.
+     */
+    private final String localName;
+
+    /**
+     * Hodnota.
+     */
+    private final String value;
+
+    /**
+     * Prvek, kterému atribut patří. Nastavuje jej jednou konstruktor prvku.
+     */
+    private ReadOnlyElement ownerElement;
+
+    /**
+     * Vytvoří atribut.
+     * 
+     * @param namespaceURI
+     *            URI prostoru jmen, může být null
+     * @param name
+     *            kvalifikované jméno
+     * @param value
+     *            hodnota
+     */
+    public ReadOnlyAttr(final String namespaceURI, final String name,
+            final String value) {
+        if (name == null || value == null) {
+            throw new NullPointerException(
+                    MESSAGE_LOCALIZER.getMessage("platform.NullArgument"));
+        }
+
+        this.namespaceURI = namespaceURI;
+        this.name = name;
+        this.prefix = toPrefix(name);
+        this.localName = toLocalName(name);
+        this.value = value;
+    }
+
+    /**
+     * Přiřadí atribut prvku. Volá se pouze při sestavování prvku.
+     * 
+     * @param ownerElement
+     *            prvek
+     */
+    void setOwnerElement(final ReadOnlyElement ownerElement) {
+        this.ownerElement = ownerElement;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getNodeName()
+     */
+    @Override
+    public String getNodeName() {
+        return name;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getNodeValue()
+     */
+    @Override
+    public String getNodeValue() {
+        return value;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getNodeType()
+     */
+    @Override
+    public short getNodeType() {
+        return ATTRIBUTE_NODE;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom.ReadOnlyNode#
+     * getNamespaceURI()
+     */
+    @Override
+    public String getNamespaceURI() {
+        return namespaceURI;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom.ReadOnlyNode#getPrefix
+     * ()
+     */
+    @Override
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom.ReadOnlyNode#
+     * getLocalName()
+     */
+    @Override
+    public String getLocalName() {
+        return localName;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom.ReadOnlyNode#
+     * lookupPrefix(java.lang.String)
+     */
+    @Override
+    public String lookupPrefix(final String namespaceURI) {
+        if (ownerElement == null) {
+            return null;
+        }
+
+        return ownerElement.lookupPrefix(namespaceURI);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom.ReadOnlyNode#
+     * lookupNamespaceURI(java.lang.String)
+     */
+    @Override
+    public String lookupNamespaceURI(final String prefix) {
+        if (ownerElement == null) {
+            return null;
+        }
+
+        return ownerElement.lookupNamespaceURI(prefix);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Attr#getName()
+     */
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Attr#getSpecified()
+     */
+    @Override
+    public boolean getSpecified() {
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Attr#getValue()
+     */
+    @Override
+    public String getValue() {
+        return value;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Attr#setValue(java.lang.String)
+     */
+    @Override
+    public void setValue(final String value) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Attr#getOwnerElement()
+     */
+    @Override
+    public Element getOwnerElement() {
+        return ownerElement;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Attr#getSchemaTypeInfo()
+     */
+    @Override
+    public TypeInfo getSchemaTypeInfo() {
+        return null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Attr#isId()
+     */
+    @Override
+    public boolean isId() {
+        return false;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return name + "=\"" + value + "\"";
+    }
+}
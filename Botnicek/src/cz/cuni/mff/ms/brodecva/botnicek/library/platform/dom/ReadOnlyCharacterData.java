@@ -0,0 +1,160 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom;
+
+import org.w3c.dom.CharacterData;
+import org.w3c.dom.DOMException;
+
+/**
+ * Společný základ neměnných textových uzlů.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ */
+public abstract class ReadOnlyCharacterData extends ReadOnlyNode implements
+        CharacterData {
+
+    /**
+     * Obsah uzlu.
+     */
+    private final String data;
+
+    /**
+     * Vytvoří uzel s obsahem.
+     * 
+     * @param data
+     *            obsah
+     */
+    ReadOnlyCharacterData(final String data) {
+        if (data == null) {
+            throw new NullPointerException(
+                    MESSAGE_LOCALIZER.getMessage("platform.NullArgument"));
+        }
+
+        this.data = data;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getNodeValue()
+     */
+    @Override
+    public final String getNodeValue() {
+        return data;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.CharacterData#getData()
+     */
+    @Override
+    public final String getData() {
+        return data;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.CharacterData#setData(java.lang.String)
+     */
+    @Override
+    public final void setData(final String data) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.CharacterData#getLength()
+     */
+    @Override
+    public final int getLength() {
+        return data.length();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.CharacterData#substringData(int, int)
+     */
+    @Override
+    public final String substringData(final int offset, final int count) {
+        if (offset < 0 || offset > data.length() || count < 0) {
+            throw new DOMException(DOMException.INDEX_SIZE_ERR,
+                    MESSAGE_LOCALIZER.getMessage(
+                            "platform.ReadOnlyNodeIndexInvalid", offset,
+                            count));
+        }
+
+        return data.substring(offset, Math.min(data.length(), offset + count));
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.CharacterData#appendData(java.lang.String)
+     */
+    @Override
+    public final void appendData(final String arg) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.CharacterData#insertData(int, java.lang.String)
+     */
+    @Override
+    public final void insertData(final int offset, final String arg) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.CharacterData#deleteData(int, int)
+     */
+    @Override
+    public final void deleteData(final int offset, final int count) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.CharacterData#replaceData(int, int, java.lang.String)
+     */
+    @Override
+    public final void replaceData(final int offset, final int count,
+            final String arg) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public final String toString() {
+        return "[" + getNodeName() + ": " + data + "]";
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom;
+
+import org.w3c.dom.Comment;
+
+/**
+ * Neměnný komentář.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ */
+public final class ReadOnlyComment extends ReadOnlyCharacterData implements
+        Comment {
+
+    /**
+     * Vytvoří komentář.
+     * 
+     * @param data
+     *            text komentáře
+     */
+    public ReadOnlyComment(final String data) {
+        super(data);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getNodeName()
+     */
+    @Override
+    public String getNodeName() {
+        return "#comment";
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getNodeType()
+     */
+    @Override
+    public short getNodeType() {
+        return COMMENT_NODE;
+    }
+}
@@ -0,0 +1,605 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.TypeInfo;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.platform.XML;
+
+/**
+ * Neměnný prvek.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ */
+public final class ReadOnlyElement extends ReadOnlyNode implements Element {
+
+    /**
+     * Zástupný znak za libovolné jméno či prostor jmen.
+     */
+    private static final String ANY = "*";
+
+    /**
+     * Jméno atributu deklarujícího výchozí prostor jmen.
+     */
+    private static final String XMLNS = "xmlns";
+
+    /**
+     * URI prostoru jmen.
+     */
+    private final String namespaceURI;
+
+    /**
+     * Kvalifikované jméno.
+     */
+    private final String tagName;
+
+    /**
+     * Prefix jména.
+     */
+    private final String prefix;
+
+    /**
+     * Místní část jména.
+     */
+    private final String localName;
+
+    /**
+     * Atributy.
+     */
+    private final ReadOnlyNamedNodeMap attributes;
+
+    /**
+     * Synové.
+     */
+    private final ReadOnlyNodeList children;
+
+    /**
+     * Údaj odvozený z obsahu prvku, který si uložil jeho zpracovatel.
+     */
+    private volatile Object attachment;
+
+    /**
+     * Vytvoří prvek. Atributy ani synové nesmí patřit jinému prvku.
+     * 
+     * @param namespaceURI
+     *            URI prostoru jmen, může být null
+     * @param tagName
+     *            kvalifikované jméno
+     * @param attributes
+     *            atributy
+     * @param children
+     *            synové
+     */
+    public ReadOnlyElement(final String namespaceURI, final String tagName,
+            final List<ReadOnlyAttr> attributes,
+            final List<? extends ReadOnlyNode> children) {
+        if (tagName == null || attributes == null || children == null) {
+            throw new NullPointerException(
+                    MESSAGE_LOCALIZER.getMessage("platform.NullArgument"));
+        }
+
+        this.namespaceURI = namespaceURI;
+        this.tagName = tagName;
+        this.prefix = toPrefix(tagName);
+        this.localName = toLocalName(tagName);
+
+        this.attributes = ReadOnlyNamedNodeMap.copyOf(attributes);
+        this.attributes.setOwnerElement(this);
+
+        this.children = ReadOnlyNodeList.copyOf(children);
+        for (int i = 0; i < children.size(); i++) {
+            children.get(i).attach(this, i);
+        }
+    }
+
+    /**
+     * Vrátí údaj odvozený z obsahu prvku, který si uložil jeho zpracovatel
+     * (například index pro rychlejší vyhodnocení).
+     * 
+     * @return uložený údaj, nebo null, pokud zatím žádný uložen nebyl
+     */
+    public Object getAttachment() {
+        return attachment;
+    }
+
+    /**
+     * Uloží údaj odvozený z obsahu prvku. Obsah se nemění, údaj proto nelze
+     * zneplatnit a čtení nevyžaduje zámek. Souběžně ukládané údaje se
+     * nesynchronizují, musí tedy jít o rovnocenné výsledky stejného výpočtu.
+     * 
+     * @param attachment
+     *            odvozený údaj
+     */
+    public void setAttachment(final Object attachment) {
+        this.attachment = attachment;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getNodeName()
+     */
+    @Override
+    public String getNodeName() {
+        return tagName;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getNodeValue()
+     */
+    @Override
+    public String getNodeValue() {
+        return null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getNodeType()
+     */
+    @Override
+    public short getNodeType() {
+        return ELEMENT_NODE;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom.ReadOnlyNode#
+     * getChildNodes()
+     */
+    @Override
+    public NodeList getChildNodes() {
+        return children;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom.ReadOnlyNode#
+     * getAttributes()
+     */
+    @Override
+    public NamedNodeMap getAttributes() {
+        return attributes;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom.ReadOnlyNode#
+     * hasAttributes()
+     */
+    @Override
+    public boolean hasAttributes() {
+        return attributes.getLength() > 0;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom.ReadOnlyNode#
+     * getNamespaceURI()
+     */
+    @Override
+    public String getNamespaceURI() {
+        return namespaceURI;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom.ReadOnlyNode#getPrefix
+     * ()
+     */
+    @Override
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom.ReadOnlyNode#
+     * getLocalName()
+     */
+    @Override
+    public String getLocalName() {
+        return localName;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom.ReadOnlyNode#
+     * getTextContent()
+     */
+    @Override
+    public String getTextContent() {
+        final StringBuilder result = new StringBuilder();
+
+        for (int i = 0; i < children.getLength(); i++) {
+            final Node child = children.item(i);
+
+            final short type = child.getNodeType();
+            if (type != COMMENT_NODE && type != PROCESSING_INSTRUCTION_NODE) {
+                result.append(child.getTextContent());
+            }
+        }
+
+        return result.toString();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom.ReadOnlyNode#
+     * lookupPrefix(java.lang.String)
+     */
+    @Override
+    public String lookupPrefix(final String namespaceURI) {
+        if (namespaceURI == null) {
+            return null;
+        }
+
+        if (namespaceURI.equals(this.namespaceURI) && prefix != null) {
+            return prefix;
+        }
+
+        for (int i = 0; i < attributes.getLength(); i++) {
+            final Attr attribute = (Attr) attributes.item(i);
+
+            if (XMLNS.equals(attribute.getPrefix())
+                    && namespaceURI.equals(attribute.getValue())) {
+                return attribute.getLocalName();
+            }
+        }
+
+        return super.lookupPrefix(namespaceURI);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom.ReadOnlyNode#
+     * lookupNamespaceURI(java.lang.String)
+     */
+    @Override
+    public String lookupNamespaceURI(final String prefix) {
+        if (namespaceURI != null && equal(prefix, this.prefix)) {
+            return namespaceURI;
+        }
+
+        final ReadOnlyAttr declaration;
+        if (prefix == null) {
+            declaration =
+                    attributes.get(XML.XMLNS_NAMESPACE_URI.getValue(), XMLNS);
+        } else {
+            declaration =
+                    attributes.get(XML.XMLNS_NAMESPACE_URI.getValue(), prefix);
+        }
+
+        if (declaration != null) {
+            final String value = declaration.getValue();
+
+            return value.isEmpty() ? null : value;
+        }
+
+        return super.lookupNamespaceURI(prefix);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Element#getTagName()
+     */
+    @Override
+    public String getTagName() {
+        return tagName;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Element#getAttribute(java.lang.String)
+     */
+    @Override
+    public String getAttribute(final String name) {
+        final ReadOnlyAttr attribute = attributes.get(name);
+
+        return attribute == null ? "" : attribute.getValue();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Element#setAttribute(java.lang.String,
+     * java.lang.String)
+     */
+    @Override
+    public void setAttribute(final String name, final String value) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Element#removeAttribute(java.lang.String)
+     */
+    @Override
+    public void removeAttribute(final String name) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Element#getAttributeNode(java.lang.String)
+     */
+    @Override
+    public Attr getAttributeNode(final String name) {
+        return attributes.get(name);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Element#setAttributeNode(org.w3c.dom.Attr)
+     */
+    @Override
+    public Attr setAttributeNode(final Attr newAttr) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Element#removeAttributeNode(org.w3c.dom.Attr)
+     */
+    @Override
+    public Attr removeAttributeNode(final Attr oldAttr) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Element#getElementsByTagName(java.lang.String)
+     */
+    @Override
+    public NodeList getElementsByTagName(final String name) {
+        final List<Node> result = new ArrayList<Node>();
+        collectDescendants(this, ANY, name, false, result);
+
+        return ReadOnlyNodeList.copyOf(result);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Element#getAttributeNS(java.lang.String,
+     * java.lang.String)
+     */
+    @Override
+    public String getAttributeNS(final String namespaceURI,
+            final String localName) {
+        final ReadOnlyAttr attribute = attributes.get(namespaceURI, localName);
+
+        return attribute == null ? "" : attribute.getValue();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Element#setAttributeNS(java.lang.String,
+     * java.lang.String, java.lang.String)
+     */
+    @Override
+    public void setAttributeNS(final String namespaceURI,
+            final String qualifiedName, final String value) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Element#removeAttributeNS(java.lang.String,
+     * java.lang.String)
+     */
+    @Override
+    public void removeAttributeNS(final String namespaceURI,
+            final String localName) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Element#getAttributeNodeNS(java.lang.String,
+     * java.lang.String)
+     */
+    @Override
+    public Attr getAttributeNodeNS(final String namespaceURI,
+            final String localName) {
+        return attributes.get(namespaceURI, localName);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Element#setAttributeNodeNS(org.w3c.dom.Attr)
+     */
+    @Override
+    public Attr setAttributeNodeNS(final Attr newAttr) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Element#getElementsByTagNameNS(java.lang.String,
+     * java.lang.String)
+     */
+    @Override
+    public NodeList getElementsByTagNameNS(final String namespaceURI,
+            final String localName) {
+        final List<Node> result = new ArrayList<Node>();
+        collectDescendants(this, namespaceURI, localName, true, result);
+
+        return ReadOnlyNodeList.copyOf(result);
+    }
+
+    /**
+     * Sesbírá v pořadí dokumentu potomky prvku odpovídající jménu.
+     * 
+     * @param element
+     *            prohledávaný prvek
+     * @param namespaceURI
+     *            hledaný prostor jmen nebo {@value #ANY}, uvažuje se jen při
+     *            hledání podle místního jména
+     * @param name
+     *            hledané jméno nebo {@value #ANY}
+     * @param local
+     *            zda-li se hledá podle místního jména a prostoru jmen
+     * @param result
+     *            seznam, do kterého se přidávají nalezené prvky
+     */
+    private static void collectDescendants(final Element element,
+            final String namespaceURI, final String name, final boolean local,
+            final List<Node> result) {
+        final NodeList nodes = element.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            final Node node = nodes.item(i);
+            if (node.getNodeType() != ELEMENT_NODE) {
+                continue;
+            }
+
+            final Element child = (Element) node;
+            final boolean nameMatches;
+            if (local) {
+                nameMatches =
+                        (ANY.equals(name) || name.equals(child.getLocalName()))
+                                && (ANY.equals(namespaceURI) || equal(
+                                        namespaceURI, child.getNamespaceURI()));
+            } else {
+                nameMatches =
+                        ANY.equals(name) || name.equals(child.getTagName());
+            }
+
+            if (nameMatches) {
+                result.add(child);
+            }
+            collectDescendants(child, namespaceURI, name, local, result);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Element#hasAttribute(java.lang.String)
+     */
+    @Override
+    public boolean hasAttribute(final String name) {
+        return attributes.get(name) != null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Element#hasAttributeNS(java.lang.String,
+     * java.lang.String)
+     */
+    @Override
+    public boolean hasAttributeNS(final String namespaceURI,
+            final String localName) {
+        return attributes.get(namespaceURI, localName) != null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Element#getSchemaTypeInfo()
+     */
+    @Override
+    public TypeInfo getSchemaTypeInfo() {
+        return null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Element#setIdAttribute(java.lang.String, boolean)
+     */
+    @Override
+    public void setIdAttribute(final String name, final boolean isId) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Element#setIdAttributeNS(java.lang.String,
+     * java.lang.String, boolean)
+     */
+    @Override
+    public void setIdAttributeNS(final String namespaceURI,
+            final String localName, final boolean isId) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Element#setIdAttributeNode(org.w3c.dom.Attr, boolean)
+     */
+    @Override
+    public void setIdAttributeNode(final Attr idAttr, final boolean isId) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "[" + tagName + ": null]";
+    }
+}
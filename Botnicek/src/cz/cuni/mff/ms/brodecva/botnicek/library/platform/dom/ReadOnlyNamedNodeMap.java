@@ -0,0 +1,209 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom;
+
+import java.util.List;
+
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Neměnná mapa atributů prvku. Atributů bývá málo, hledá se proto
+ * procházením.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ */
+public final class ReadOnlyNamedNodeMap implements NamedNodeMap {
+
+    /**
+     * Prázdná mapa.
+     */
+    static final ReadOnlyNamedNodeMap EMPTY = new ReadOnlyNamedNodeMap(
+            new ReadOnlyAttr[0]);
+
+    /**
+     * Atributy v pořadí dokumentu.
+     */
+    private final ReadOnlyAttr[] attributes;
+
+    /**
+     * Vytvoří mapu z pole, které již nikdo jiný nemění.
+     * 
+     * @param attributes
+     *            atributy
+     */
+    private ReadOnlyNamedNodeMap(final ReadOnlyAttr[] attributes) {
+        this.attributes = attributes;
+    }
+
+    /**
+     * Vytvoří mapu z kopie daných atributů.
+     * 
+     * @param attributes
+     *            atributy
+     * @return mapa atributů
+     */
+    static ReadOnlyNamedNodeMap copyOf(final List<ReadOnlyAttr> attributes) {
+        if (attributes.isEmpty()) {
+            return EMPTY;
+        }
+
+        return new ReadOnlyNamedNodeMap(
+                attributes.toArray(new ReadOnlyAttr[attributes.size()]));
+    }
+
+    /**
+     * Vrátí atribut podle kvalifikovaného jména.
+     * 
+     * @param name
+     *            kvalifikované jméno
+     * @return atribut, null pokud neexistuje
+     */
+    ReadOnlyAttr get(final String name) {
+        for (final ReadOnlyAttr attribute : attributes) {
+            if (attribute.getName().equals(name)) {
+                return attribute;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Vrátí atribut podle prostoru jmen a místního jména.
+     * 
+     * @param namespaceURI
+     *            URI prostoru jmen, může být null
+     * @param localName
+     *            místní jméno
+     * @return atribut, null pokud neexistuje
+     */
+    ReadOnlyAttr get(final String namespaceURI, final String localName) {
+        for (final ReadOnlyAttr attribute : attributes) {
+            if (attribute.getLocalName().equals(localName)
+                    && ReadOnlyNode.equal(attribute.getNamespaceURI(),
+                            namespaceURI)) {
+                return attribute;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Přiřadí atributy prvku.
+     * 
+     * @param ownerElement
+     *            prvek
+     */
+    void setOwnerElement(final ReadOnlyElement ownerElement) {
+        for (final ReadOnlyAttr attribute : attributes) {
+            attribute.setOwnerElement(ownerElement);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.NamedNodeMap#getNamedItem(java.lang.String)
+     */
+    @Override
+    public Node getNamedItem(final String name) {
+        return get(name);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.NamedNodeMap#setNamedItem(org.w3c.dom.Node)
+     */
+    @Override
+    public Node setNamedItem(final Node arg) {
+        throw ReadOnlyNode.modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.NamedNodeMap#removeNamedItem(java.lang.String)
+     */
+    @Override
+    public Node removeNamedItem(final String name) {
+        throw ReadOnlyNode.modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.NamedNodeMap#item(int)
+     */
+    @Override
+    public Node item(final int index) {
+        if (index < 0 || index >= attributes.length) {
+            return null;
+        }
+
+        return attributes[index];
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.NamedNodeMap#getLength()
+     */
+    @Override
+    public int getLength() {
+        return attributes.length;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.NamedNodeMap#getNamedItemNS(java.lang.String,
+     * java.lang.String)
+     */
+    @Override
+    public Node getNamedItemNS(final String namespaceURI,
+            final String localName) {
+        return get(namespaceURI, localName);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.NamedNodeMap#setNamedItemNS(org.w3c.dom.Node)
+     */
+    @Override
+    public Node setNamedItemNS(final Node arg) {
+        throw ReadOnlyNode.modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.NamedNodeMap#removeNamedItemNS(java.lang.String,
+     * java.lang.String)
+     */
+    @Override
+    public Node removeNamedItemNS(final String namespaceURI,
+            final String localName) {
+        throw ReadOnlyNode.modificationNotAllowed();
+    }
+}
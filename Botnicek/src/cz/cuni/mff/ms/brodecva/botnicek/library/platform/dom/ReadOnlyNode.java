@@ -0,0 +1,570 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom;
+
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.UserDataHandler;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.platform.XML;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
+
+/**
+ * <p>
+ * Společný základ neměnných uzlů. Strom z těchto uzlů se po sestavení již
+ * nemění, ani při čtení, a proto jej lze bez zamykání sdílet mezi vlákny.
+ * </p>
+ * 
+ * <p>
+ * Operace, které by strom měnily, vyvolají {@link DOMException} s kódem
+ * {@link DOMException#NO_MODIFICATION_ALLOWED_ERR}. Uzly nepatří žádnému
+ * dokumentu, {@link #getOwnerDocument()} proto vrací null.
+ * </p>
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ */
+public abstract class ReadOnlyNode implements Node {
+
+    /**
+     * Lokalizátor hlášek výjimek. Společný pro všechny uzly.
+     */
+    protected static final ExceptionMessageLocalizer MESSAGE_LOCALIZER =
+            ExceptionMessageLocalizer.getLocalizer();
+
+    /**
+     * Otec uzlu. Nastavuje jej jednou konstruktor otce.
+     */
+    private ReadOnlyNode parent;
+
+    /**
+     * Pořadí uzlu mezi syny otce.
+     */
+    private int index;
+
+    /**
+     * Připojí uzel k otci. Volá se pouze při sestavování otce.
+     * 
+     * @param parent
+     *            otec
+     * @param index
+     *            pořadí mezi syny otce
+     */
+    final void attach(final ReadOnlyNode parent, final int index) {
+        this.parent = parent;
+        this.index = index;
+    }
+
+    /**
+     * Vytvoří výjimku oznamující pokus o změnu uzlu.
+     * 
+     * @return výjimka ke vyvolání
+     */
+    static DOMException modificationNotAllowed() {
+        return new DOMException(DOMException.NO_MODIFICATION_ALLOWED_ERR,
+                MESSAGE_LOCALIZER.getMessage("platform.ReadOnlyNodeModified"));
+    }
+
+    /**
+     * Vytvoří výjimku oznamující nepodporovanou operaci.
+     * 
+     * @return výjimka ke vyvolání
+     */
+    static DOMException notSupported() {
+        return new DOMException(DOMException.NOT_SUPPORTED_ERR,
+                MESSAGE_LOCALIZER.getMessage("platform.ReadOnlyNodeUnsupported"));
+    }
+
+    /**
+     * Vrátí prefix kvalifikovaného jména.
+     * 
+     * @param qualifiedName
+     *            kvalifikované jméno
+     * @return prefix, null pokud jej jméno nemá
+     */
+    static String toPrefix(final String qualifiedName) {
+        final int separator =
+                qualifiedName.indexOf(XML.PREFIX_SEPARATOR.getValue());
+        if (separator < 0) {
+            return null;
+        }
+
+        return qualifiedName.substring(0, separator);
+    }
+
+    /**
+     * Vrátí místní část kvalifikovaného jména.
+     * 
+     * @param qualifiedName
+     *            kvalifikované jméno
+     * @return místní část
+     */
+    static String toLocalName(final String qualifiedName) {
+        final int separator =
+                qualifiedName.indexOf(XML.PREFIX_SEPARATOR.getValue());
+
+        return qualifiedName.substring(separator + 1);
+    }
+
+    /**
+     * Porovná dvě hodnoty, které mohou být null.
+     * 
+     * @param first
+     *            první hodnota
+     * @param second
+     *            druhá hodnota
+     * @return true, pokud jsou obě null nebo si jsou rovny
+     */
+    static boolean equal(final Object first, final Object second) {
+        if (first == null) {
+            return second == null;
+        }
+
+        return first.equals(second);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#setNodeValue(java.lang.String)
+     */
+    @Override
+    public final void setNodeValue(final String nodeValue) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getParentNode()
+     */
+    @Override
+    public Node getParentNode() {
+        return parent;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getChildNodes()
+     */
+    @Override
+    public NodeList getChildNodes() {
+        return ReadOnlyNodeList.EMPTY;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getFirstChild()
+     */
+    @Override
+    public final Node getFirstChild() {
+        return getChildNodes().item(0);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getLastChild()
+     */
+    @Override
+    public final Node getLastChild() {
+        final NodeList children = getChildNodes();
+
+        return children.item(children.getLength() - 1);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getPreviousSibling()
+     */
+    @Override
+    public final Node getPreviousSibling() {
+        if (parent == null) {
+            return null;
+        }
+
+        return parent.getChildNodes().item(index - 1);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getNextSibling()
+     */
+    @Override
+    public final Node getNextSibling() {
+        if (parent == null) {
+            return null;
+        }
+
+        return parent.getChildNodes().item(index + 1);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getAttributes()
+     */
+    @Override
+    public NamedNodeMap getAttributes() {
+        return null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getOwnerDocument()
+     */
+    @Override
+    public final Document getOwnerDocument() {
+        return null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#insertBefore(org.w3c.dom.Node, org.w3c.dom.Node)
+     */
+    @Override
+    public final Node insertBefore(final Node newChild, final Node refChild) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#replaceChild(org.w3c.dom.Node, org.w3c.dom.Node)
+     */
+    @Override
+    public final Node replaceChild(final Node newChild, final Node oldChild) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#removeChild(org.w3c.dom.Node)
+     */
+    @Override
+    public final Node removeChild(final Node oldChild) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#appendChild(org.w3c.dom.Node)
+     */
+    @Override
+    public final Node appendChild(final Node newChild) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#hasChildNodes()
+     */
+    @Override
+    public final boolean hasChildNodes() {
+        return getChildNodes().getLength() > 0;
+    }
+
+    /**
+     * Neměnné uzly nelze klonovat, lze je však sdílet.
+     * 
+     * @param deep
+     *            nepoužito
+     * @return nikdy
+     * @throws DOMException
+     *             vždy
+     */
+    @Override
+    public final Node cloneNode(final boolean deep) {
+        throw notSupported();
+    }
+
+    /**
+     * Strom vzniká již normalizovaný, metoda nic nedělá.
+     */
+    @Override
+    public final void normalize() {
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#isSupported(java.lang.String, java.lang.String)
+     */
+    @Override
+    public final boolean isSupported(final String feature,
+            final String version) {
+        return false;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getNamespaceURI()
+     */
+    @Override
+    public String getNamespaceURI() {
+        return null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getPrefix()
+     */
+    @Override
+    public String getPrefix() {
+        return null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#setPrefix(java.lang.String)
+     */
+    @Override
+    public final void setPrefix(final String prefix) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getLocalName()
+     */
+    @Override
+    public String getLocalName() {
+        return null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#hasAttributes()
+     */
+    @Override
+    public boolean hasAttributes() {
+        return false;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getBaseURI()
+     */
+    @Override
+    public final String getBaseURI() {
+        return null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#compareDocumentPosition(org.w3c.dom.Node)
+     */
+    @Override
+    public final short compareDocumentPosition(final Node other) {
+        throw notSupported();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getTextContent()
+     */
+    @Override
+    public String getTextContent() {
+        return getNodeValue();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#setTextContent(java.lang.String)
+     */
+    @Override
+    public final void setTextContent(final String textContent) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#isSameNode(org.w3c.dom.Node)
+     */
+    @Override
+    public final boolean isSameNode(final Node other) {
+        return this == other;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#lookupPrefix(java.lang.String)
+     */
+    @Override
+    public String lookupPrefix(final String namespaceURI) {
+        if (parent == null) {
+            return null;
+        }
+
+        return parent.lookupPrefix(namespaceURI);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#isDefaultNamespace(java.lang.String)
+     */
+    @Override
+    public final boolean isDefaultNamespace(final String namespaceURI) {
+        return equal(namespaceURI, lookupNamespaceURI(null));
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#lookupNamespaceURI(java.lang.String)
+     */
+    @Override
+    public String lookupNamespaceURI(final String prefix) {
+        if (parent == null) {
+            return null;
+        }
+
+        return parent.lookupNamespaceURI(prefix);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#isEqualNode(org.w3c.dom.Node)
+     */
+    @Override
+    public final boolean isEqualNode(final Node other) {
+        if (other == null || getNodeType() != other.getNodeType()
+                || !equal(getNodeName(), other.getNodeName())
+                || !equal(getLocalName(), other.getLocalName())
+                || !equal(getNamespaceURI(), other.getNamespaceURI())
+                || !equal(getPrefix(), other.getPrefix())
+                || !equal(getNodeValue(), other.getNodeValue())) {
+            return false;
+        }
+
+        if (!areEqual(getAttributes(), other.getAttributes())) {
+            return false;
+        }
+
+        final NodeList children = getChildNodes();
+        final NodeList otherChildren = other.getChildNodes();
+        if (children.getLength() != otherChildren.getLength()) {
+            return false;
+        }
+        for (int i = 0; i < children.getLength(); i++) {
+            if (!children.item(i).isEqualNode(otherChildren.item(i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Porovná atributy bez ohledu na jejich pořadí.
+     * 
+     * @param attributes
+     *            atributy uzlu
+     * @param otherAttributes
+     *            atributy druhého uzlu
+     * @return true, pokud si atributy odpovídají
+     */
+    private static boolean areEqual(final NamedNodeMap attributes,
+            final NamedNodeMap otherAttributes) {
+        if (attributes == null || otherAttributes == null) {
+            return attributes == null && otherAttributes == null;
+        }
+
+        if (attributes.getLength() != otherAttributes.getLength()) {
+            return false;
+        }
+        for (int i = 0; i < attributes.getLength(); i++) {
+            final Node attribute = attributes.item(i);
+
+            final Node otherAttribute;
+            if (attribute.getLocalName() == null) {
+                otherAttribute =
+                        otherAttributes.getNamedItem(attribute.getNodeName());
+            } else {
+                otherAttribute =
+                        otherAttributes.getNamedItemNS(
+                                attribute.getNamespaceURI(),
+                                attribute.getLocalName());
+            }
+
+            if (!attribute.isEqualNode(otherAttribute)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getFeature(java.lang.String, java.lang.String)
+     */
+    @Override
+    public final Object getFeature(final String feature, final String version) {
+        return null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#setUserData(java.lang.String, java.lang.Object,
+     * org.w3c.dom.UserDataHandler)
+     */
+    @Override
+    public final Object setUserData(final String key, final Object data,
+            final UserDataHandler handler) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getUserData(java.lang.String)
+     */
+    @Override
+    public final Object getUserData(final String key) {
+        return null;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom;
+
+import java.util.List;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Neměnný seznam uzlů.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ */
+public final class ReadOnlyNodeList implements NodeList {
+
+    /**
+     * Prázdný seznam.
+     */
+    public static final ReadOnlyNodeList EMPTY = new ReadOnlyNodeList(
+            new Node[0]);
+
+    /**
+     * Uzly seznamu.
+     */
+    private final Node[] nodes;
+
+    /**
+     * Vytvoří seznam z pole, které již nikdo jiný nemění.
+     * 
+     * @param nodes
+     *            uzly seznamu
+     */
+    private ReadOnlyNodeList(final Node[] nodes) {
+        this.nodes = nodes;
+    }
+
+    /**
+     * Vytvoří seznam z kopie daných uzlů.
+     * 
+     * @param nodes
+     *            uzly
+     * @return seznam uzlů
+     */
+    static ReadOnlyNodeList copyOf(final List<? extends Node> nodes) {
+        if (nodes.isEmpty()) {
+            return EMPTY;
+        }
+
+        return new ReadOnlyNodeList(nodes.toArray(new Node[nodes.size()]));
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.NodeList#item(int)
+     */
+    @Override
+    public Node item(final int index) {
+        if (index < 0 || index >= nodes.length) {
+            return null;
+        }
+
+        return nodes[index];
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.NodeList#getLength()
+     */
+    @Override
+    public int getLength() {
+        return nodes.length;
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.Text;
+
+/**
+ * Neměnný textový uzel.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ */
+public class ReadOnlyText extends ReadOnlyCharacterData implements Text {
+
+    /**
+     * Vytvoří textový uzel.
+     * 
+     * @param data
+     *            text
+     */
+    public ReadOnlyText(final String data) {
+        super(data);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getNodeName()
+     */
+    @Override
+    public String getNodeName() {
+        return "#text";
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Node#getNodeType()
+     */
+    @Override
+    public short getNodeType() {
+        return TEXT_NODE;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Text#splitText(int)
+     */
+    @Override
+    public final Text splitText(final int offset) {
+        throw modificationNotAllowed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Text#isElementContentWhitespace()
+     */
+    @Override
+    public final boolean isElementContentWhitespace() {
+        return false;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Text#getWholeText()
+     */
+    @Override
+    public final String getWholeText() {
+        Node first = this;
+        while (first.getPreviousSibling() instanceof Text) {
+            first = first.getPreviousSibling();
+        }
+
+        final StringBuilder result = new StringBuilder();
+        for (Node node = first; node instanceof Text; node =
+                node.getNextSibling()) {
+            result.append(node.getNodeValue());
+        }
+
+        return result.toString();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.w3c.dom.Text#replaceWholeText(java.lang.String)
+     */
+    @Override
+    public final Text replaceWholeText(final String content) {
+        throw modificationNotAllowed();
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Vytváří neměnné stromy z kódu XML či z běžných stromů DOM.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ */
+public final class ReadOnlyTrees {
+
+    /**
+     * Document builder vlastní každému vláknu. Document builder není bezpečný
+     * pro více vláken, takto však překlad z různých vláken nečeká ani na
+     * sebe navzájem.
+     * 
+     * @author Václav Brodec
+     * @version 1.0
+     */
+    private static final class ThreadLocalDocumentBuilder extends
+            ThreadLocal<DocumentBuilder> {
+        /* (non-Javadoc)
+         * @see java.lang.ThreadLocal#initialValue()
+         */
+        @Override
+        protected DocumentBuilder initialValue() {
+            try {
+                synchronized (FACTORY) {
+                    return FACTORY.newDocumentBuilder();
+                }
+            } catch (final ParserConfigurationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Továrna na document buildery. Ani ta není bezpečná pro více vláken,
+     * nové buildery z ní proto vznikají ve vzájemném vyloučení.
+     */
+    private static final DocumentBuilderFactory FACTORY;
+
+    static {
+        FACTORY = DocumentBuilderFactory.newInstance();
+        FACTORY.setNamespaceAware(true);
+    }
+
+    /**
+     * Document builder aktuálního vlákna.
+     */
+    private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDER =
+            new ThreadLocalDocumentBuilder();
+
+    /**
+     * Skrytý konstruktor.
+     */
+    private ReadOnlyTrees() {
+    }
+
+    /**
+     * Přečte kód XML a vrátí jeho kořenový prvek jako neměnný strom.
+     * 
+     * @param source
+     *            kód XML
+     * @return kořenový prvek
+     * @throws SAXException
+     *             pokud kód není správně strukturovaný
+     */
+    public static ReadOnlyElement parse(final String source)
+            throws SAXException {
+        final Document document;
+        try {
+            document =
+                    DOCUMENT_BUILDER.get().parse(
+                            new InputSource(new StringReader(source)));
+        } catch (final IOException e) {
+            throw new SAXException(e);
+        }
+
+        return copyOf(document.getDocumentElement());
+    }
+
+    /**
+     * Vytvoří neměnnou kopii prvku i celého jeho podstromu. Kopírují se prvky,
+     * atributy, text, sekce CDATA a komentáře, ostatní uzly se vynechají.
+     * 
+     * @param element
+     *            prvek
+     * @return neměnná kopie
+     */
+    public static ReadOnlyElement copyOf(final Element element) {
+        final NamedNodeMap sourceAttributes = element.getAttributes();
+        final List<ReadOnlyAttr> attributes =
+                new ArrayList<ReadOnlyAttr>(sourceAttributes.getLength());
+        for (int i = 0; i < sourceAttributes.getLength(); i++) {
+            final Attr attribute = (Attr) sourceAttributes.item(i);
+
+            attributes.add(new ReadOnlyAttr(attribute.getNamespaceURI(),
+                    attribute.getName(), attribute.getValue()));
+        }
+
+        final NodeList sourceChildren = element.getChildNodes();
+        final List<ReadOnlyNode> children =
+                new ArrayList<ReadOnlyNode>(sourceChildren.getLength());
+        for (int i = 0; i < sourceChildren.getLength(); i++) {
+            final Node child = sourceChildren.item(i);
+
+            switch (child.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                children.add(copyOf((Element) child));
+                break;
+            case Node.TEXT_NODE:
+                children.add(new ReadOnlyText(child.getNodeValue()));
+                break;
+            case Node.CDATA_SECTION_NODE:
+                children.add(new ReadOnlyCDATASection(child.getNodeValue()));
+                break;
+            case Node.COMMENT_NODE:
+                children.add(new ReadOnlyComment(child.getNodeValue()));
+                break;
+            default:
+                break;
+            }
+        }
+
+        return new ReadOnlyElement(element.getNamespaceURI(),
+                element.getTagName(), attributes, children);
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.processor;
+
+import org.w3c.dom.Element;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser;
+
+/**
+ * Abstraktní procesor, jehož výstup se připojuje přímo k výstupu odpovědi.
+ * Samostatný výstup v podobě řetězce vzniká jen na požádání.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ */
+public abstract class AbstractStreamingProcessor extends AbstractProcessor
+        implements StreamingProcessor {
+
+    /**
+     * UID serializované verze.
+     */
+    private static final long serialVersionUID = 2630586144920437196L;
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.processor.Processor#process(
+     * org.w3c.dom.Element,
+     * cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser)
+     */
+    @Override
+    public final String process(final Element element,
+            final TemplateParser parser) throws ProcessorException {
+        final StringBuilder output = new StringBuilder();
+
+        process(element, parser, output);
+
+        return output.toString();
+    }
+}
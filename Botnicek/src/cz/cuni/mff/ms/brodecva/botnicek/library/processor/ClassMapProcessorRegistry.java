@@ -18,16 +18,21 @@
  */
 package cz.cuni.mff.ms.brodecva.botnicek.library.processor;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.net.URI;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import cz.cuni.mff.ms.brodecva.botnicek.library.logging.BotnicekLogger;
 import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
 import cz.cuni.mff.ms.brodecva.botnicek.library.utils.classes.ClassControlError;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.classes.ClassManagment;
 import cz.cuni.mff.ms.brodecva.botnicek.library.utils.classes.ClassMap;
 import cz.cuni.mff.ms.brodecva.botnicek.library.utils.classes.SimpleClassMap;
 
@@ -68,6 +73,12 @@ public final class ClassMapProcessorRegistry implements ProcessorRegistry,
      */
     private final ClassMap<String, Processor> processors;
 
+    /**
+     * Již vytvořené sdílené instance procesorů podle jejich tříd. Klíčem je
+     * třída, nikoli tag, aby se změna mapy tříd projevila i na instancích.
+     */
+    private transient ConcurrentMap<Class<? extends Processor>, Processor> instances;
+
     /**
      * Vytvoří registr procesorů.
      * 
@@ -132,6 +143,8 @@ public final class ClassMapProcessorRegistry implements ProcessorRegistry,
 
         this.namespace = namespace;
         this.processors = processors;
+        this.instances =
+                new ConcurrentHashMap<Class<? extends Processor>, Processor>();
     }
 
     /*
@@ -172,6 +185,48 @@ public final class ClassMapProcessorRegistry implements ProcessorRegistry,
         return result;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.processor.ProcessorRegistry#
+     * getProcessor(java.lang.String, java.net.URI)
+     */
+    @Override
+    public Processor getProcessor(final String key, final URI namespace)
+            throws ClassNotFoundException {
+        final Class<? extends Processor> processorClass = get(key, namespace);
+
+        final Processor cached = instances.get(processorClass);
+        if (cached != null) {
+            return cached;
+        }
+
+        final Processor created = ClassManagment.getNewInstance(processorClass);
+        final Processor previous =
+                instances.putIfAbsent(processorClass, created);
+
+        return previous == null ? created : previous;
+    }
+
+    /**
+     * Po načtení vytvoří prázdnou sadu instancí procesorů.
+     * 
+     * @param in
+     *            vstupní proud
+     * @throws IOException
+     *             chyba při čtení
+     * @throws ClassNotFoundException
+     *             neznámá třída
+     */
+    private void readObject(final ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        in.defaultReadObject();
+
+        instances =
+                new ConcurrentHashMap<Class<? extends Processor>, Processor>();
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -18,6 +18,10 @@
  */
 package cz.cuni.mff.ms.brodecva.botnicek.library.processor;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 
 import org.w3c.dom.Element;
@@ -26,17 +30,29 @@ import org.w3c.dom.NodeList;
 
 import cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser;
 import cz.cuni.mff.ms.brodecva.botnicek.library.platform.AIML;
+import cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom.ReadOnlyElement;
 import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Conversation;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.CompiledPattern;
 import cz.cuni.mff.ms.brodecva.botnicek.library.utils.Matcher;
 import cz.cuni.mff.ms.brodecva.botnicek.library.utils.AIMLStructuralMatcher;
 
 /**
+ * <p>
  * Zpracovává podmínkové výrazy.
+ * </p>
+ * 
+ * <p>
+ * Seznam možností s jedním predikátem v přeložené šabloně se při prvním
+ * zpracování zaindexuje. Možnosti s hodnotou bez žolíků se vybírají podle
+ * normalizované hodnoty z hašovací tabulky, postupně se pak porovnají jen
+ * možnosti se žolíky předcházející nalezené. Pořadí vyhodnocení, a tedy i
+ * výsledek, zůstává stejný jako při postupném procházení seznamu.
+ * </p>
  * 
  * @author Václav Brodec
  * @version 1.0
  */
-public final class ConditionProcessor extends AbstractProcessor {
+public final class ConditionProcessor extends AbstractStreamingProcessor {
     /**
      * UID serializované verze.
      */
@@ -68,13 +84,15 @@ public final class ConditionProcessor extends AbstractProcessor {
      * (non-Javadoc)
      * 
      * @see
-     * cz.cuni.mff.ms.brodecva.botnicek.library.processor.Processor#process(
-     * org.w3c.dom.Element,
-     * cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser)
+     * cz.cuni.mff.ms.brodecva.botnicek.library.processor.StreamingProcessor#
+     * process(org.w3c.dom.Element,
+     * cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser,
+     * java.lang.StringBuilder)
      */
     @Override
-    public String process(final Element element, final TemplateParser parser)
-            throws ProcessorException {
+    public void process(final Element element, final TemplateParser parser,
+            final StringBuilder output) throws ProcessorException {
+        final int start = output.length();
         final Conversation conversation = parser.getConversation();
 
         String predicateValue = null;
@@ -86,25 +104,29 @@ public final class ConditionProcessor extends AbstractProcessor {
             predicateValue = conversation.getPredicateValue(predicateName);
 
             if (element.hasAttribute(AIML.ATT_VALUE.getValue())) {
-                final String result = processSingleConditionBlock(element, parser,
-                        predicateValue);
+                processSingleConditionBlock(element, parser, predicateValue,
+                        output);
                 
                 if (LOGGER.isLoggable(Level.FINE)) {
-                    LOGGER.log(Level.FINE, "processor.SingleConditionProcessorResult", new Object[] { element, predicateName, predicateValue, result });
+                    LOGGER.log(Level.FINE, "processor.SingleConditionProcessorResult", new Object[] { element, predicateName, predicateValue, output.substring(start) });
                 }
                 
-                return result;
+                return;
             }
         }
         
-        final String result = processOptionList(element.getChildNodes(), parser,
-                predicateValue);
+        if (predicateValue != null && element instanceof ReadOnlyElement
+                && matcher instanceof AIMLStructuralMatcher) {
+            processIndexedOptionList((ReadOnlyElement) element, parser,
+                    predicateValue, (AIMLStructuralMatcher) matcher, output);
+        } else {
+            processOptionList(element.getChildNodes(), parser, predicateValue,
+                    output);
+        }
         
         if (LOGGER.isLoggable(Level.FINE)) {
-            LOGGER.log(Level.FINE, "processor.MultipleConditionProcessorResult", new Object[] { element, predicateValue, result });
+            LOGGER.log(Level.FINE, "processor.MultipleConditionProcessorResult", new Object[] { element, predicateValue, output.substring(start) });
         }
-        
-        return result;
     }
 
     /**
@@ -116,19 +138,18 @@ public final class ConditionProcessor extends AbstractProcessor {
      *            parser
      * @param predicateValue
      *            hodnota predikátu
-     * @return výstup
+     * @param output
+     *            výstup odpovědi
      * @throws ProcessorException
      *             chyba při zpracování
      */
-    private String processSingleConditionBlock(final Element element,
-            final TemplateParser parser, final String predicateValue)
-            throws ProcessorException {
+    private void processSingleConditionBlock(final Element element,
+            final TemplateParser parser, final String predicateValue,
+            final StringBuilder output) throws ProcessorException {
         final String value = element.getAttribute(AIML.ATT_VALUE.getValue());
 
         if (matcher.matches(predicateValue, value)) {
-            return parser.evaluate(element.getChildNodes());
-        } else {
-            return EMPTY_RESPONSE;
+            parser.evaluate(element.getChildNodes(), output);
         }
     }
 
@@ -141,15 +162,14 @@ public final class ConditionProcessor extends AbstractProcessor {
      *            parser
      * @param predicateValue
      *            hodnota predikátu (null v případě vícepredikátové podmínky)
-     * @return response výstup
+     * @param output
+     *            výstup odpovědi
      * @throws ProcessorException
      *             chyba při zpracování
      */
-    private String processOptionList(final NodeList list,
-            final TemplateParser parser, final String predicateValue)
-            throws ProcessorException {
-        String result = EMPTY_RESPONSE;
-
+    private void processOptionList(final NodeList list,
+            final TemplateParser parser, final String predicateValue,
+            final StringBuilder output) throws ProcessorException {
         final int length = list.getLength();
         for (int index = 0; index < length; index++) {
             final Node node = list.item(index);
@@ -164,7 +184,7 @@ public final class ConditionProcessor extends AbstractProcessor {
 
                 if (!element.hasAttribute(AIML.ATT_NAME.getValue())
                         && !element.hasAttribute(AIML.ATT_VALUE.getValue())) {
-                    result = result + parser.evaluate(node.getChildNodes());
+                    parser.evaluate(node.getChildNodes(), output);
                     break;
                 }
 
@@ -196,13 +216,249 @@ public final class ConditionProcessor extends AbstractProcessor {
                 }
 
                 if (matcher.matches(usedPredicateValue, itemValue)) {
-                    return result + parser.evaluate(element.getChildNodes());
+                    parser.evaluate(element.getChildNodes(), output);
+                    return;
                 }
             default:
                 break;
             }
         }
+    }
+
+    /**
+     * Zpracuje seznam možností s jedním predikátem pomocí jeho indexu.
+     * 
+     * @param element
+     *            neměnný prvek podmínky
+     * @param parser
+     *            parser
+     * @param predicateValue
+     *            hodnota predikátu
+     * @param structuralMatcher
+     *            porovnávač, jehož přeložené vzory index využívá
+     * @param output
+     *            výstup odpovědi
+     * @throws ProcessorException
+     *             chyba při zpracování
+     */
+    private void processIndexedOptionList(final ReadOnlyElement element,
+            final TemplateParser parser, final String predicateValue,
+            final AIMLStructuralMatcher structuralMatcher,
+            final StringBuilder output) throws ProcessorException {
+        final NodeList list = element.getChildNodes();
+
+        // Index se ukládá přímo k neměnnému prvku, souběžné konverzace jej
+        // tak čtou bez zámku. Případný souběžný výpočet vede ke stejnému
+        // indexu.
+        final OptionIndex index;
+        final Object attachment = element.getAttachment();
+        if (attachment instanceof OptionIndex) {
+            index = (OptionIndex) attachment;
+        } else {
+            index = OptionIndex.create(list, structuralMatcher);
+            element.setAttachment(index);
+        }
+
+        final int chosen = index.choose(predicateValue, structuralMatcher);
+
+        for (final int position : index.getDefaultPositions()) {
+            if (position >= chosen) {
+                break;
+            }
+
+            parser.evaluate(list.item(position).getChildNodes(), output);
+        }
+
+        if (chosen != OptionIndex.NONE) {
+            parser.evaluate(list.item(chosen).getChildNodes(), output);
+        }
+    }
+
+    /**
+     * Index seznamu možností s jedním predikátem. Možnosti uchovává jen pomocí
+     * jejich pozic v seznamu, po vytvoření se nemění.
+     */
+    private static final class OptionIndex {
+
+        /**
+         * Pozice značící, že žádná možnost nebyla vybrána.
+         */
+        static final int NONE = Integer.MAX_VALUE;
+
+        /**
+         * Pozice první možnosti podle její hodnoty bez žolíků.
+         */
+        private final Map<String, Integer> literals;
+
+        /**
+         * Pozice možností s ostatními hodnotami, vzestupně.
+         */
+        private final int[] patternedPositions;
+
+        /**
+         * Hodnoty možností na odpovídajících pozicích.
+         */
+        private final String[] patternedValues;
+
+        /**
+         * Pozice výchozích možností, vzestupně.
+         */
+        private final int[] defaultPositions;
 
-        return result;
+        /**
+         * Vytvoří index.
+         * 
+         * @param literals
+         *            pozice možností podle hodnot bez žolíků
+         * @param patternedPositions
+         *            pozice ostatních možností
+         * @param patternedValues
+         *            hodnoty ostatních možností
+         * @param defaultPositions
+         *            pozice výchozích možností
+         */
+        private OptionIndex(final Map<String, Integer> literals,
+                final int[] patternedPositions,
+                final String[] patternedValues, final int[] defaultPositions) {
+            this.literals = literals;
+            this.patternedPositions = patternedPositions;
+            this.patternedValues = patternedValues;
+            this.defaultPositions = defaultPositions;
+        }
+
+        /**
+         * Zaindexuje seznam možností.
+         * 
+         * @param list
+         *            seznam možností
+         * @param structuralMatcher
+         *            porovnávač překládající hodnoty
+         * @return index
+         */
+        static OptionIndex create(final NodeList list,
+                final AIMLStructuralMatcher structuralMatcher) {
+            final String valueName = AIML.ATT_VALUE.getValue();
+            final String nameName = AIML.ATT_NAME.getValue();
+
+            final Map<String, Integer> literals =
+                    new HashMap<String, Integer>();
+            final List<Integer> patternedPositions = new ArrayList<Integer>();
+            final List<String> patternedValues = new ArrayList<String>();
+            final List<Integer> defaultPositions = new ArrayList<Integer>();
+
+            final int length = list.getLength();
+            for (int index = 0; index < length; index++) {
+                final Node node = list.item(index);
+
+                if (node == null || node.getNodeType() != Node.ELEMENT_NODE) {
+                    continue;
+                }
+
+                final Element element = (Element) node;
+
+                if (!element.hasAttribute(valueName)) {
+                    if (!element.hasAttribute(nameName)) {
+                        defaultPositions.add(index);
+                    }
+                    continue;
+                }
+
+                final String value = element.getAttribute(valueName);
+                final String literal = getLiteral(value, structuralMatcher);
+                if (literal == null) {
+                    patternedPositions.add(index);
+                    patternedValues.add(value);
+                } else if (!literals.containsKey(literal)) {
+                    literals.put(literal, index);
+                }
+            }
+
+            return new OptionIndex(literals, toArray(patternedPositions),
+                    patternedValues.toArray(new String[patternedValues.size()]),
+                    toArray(defaultPositions));
+        }
+
+        /**
+         * Vrátí podobu hodnoty bez žolíků, ve které se srovnává s
+         * normalizovaným textem.
+         * 
+         * @param value
+         *            hodnota možnosti
+         * @param structuralMatcher
+         *            porovnávač překládající hodnoty
+         * @return podoba hodnoty, nebo null, pokud hodnota obsahuje žolíky
+         *         nebo není platným vzorem (pak chybu ohlásí až porovnání)
+         */
+        private static String getLiteral(final String value,
+                final AIMLStructuralMatcher structuralMatcher) {
+            final CompiledPattern compiled;
+            try {
+                compiled = structuralMatcher.compile(value);
+            } catch (final IllegalArgumentException e) {
+                return null;
+            }
+
+            return compiled.getLiteral();
+        }
+
+        /**
+         * Převede seznam pozic na pole.
+         * 
+         * @param positions
+         *            seznam pozic
+         * @return pole pozic
+         */
+        private static int[] toArray(final List<Integer> positions) {
+            final int[] result = new int[positions.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = positions.get(i);
+            }
+
+            return result;
+        }
+
+        /**
+         * Vybere první možnost, jejíž hodnota odpovídá hodnotě predikátu.
+         * 
+         * @param predicateValue
+         *            hodnota predikátu
+         * @param structuralMatcher
+         *            porovnávač
+         * @return pozice vybrané možnosti, nebo {@link #NONE}
+         */
+        int choose(final String predicateValue,
+                final AIMLStructuralMatcher structuralMatcher) {
+            final Integer literal =
+                    literals.get(structuralMatcher.normalize(predicateValue));
+
+            final int chosen;
+            if (literal == null) {
+                chosen = NONE;
+            } else {
+                chosen = literal;
+            }
+
+            for (int i = 0; i < patternedPositions.length; i++) {
+                if (patternedPositions[i] >= chosen) {
+                    break;
+                }
+
+                if (structuralMatcher.matches(predicateValue,
+                        patternedValues[i])) {
+                    return patternedPositions[i];
+                }
+            }
+
+            return chosen;
+        }
+
+        /**
+         * Vrátí pozice výchozích možností.
+         * 
+         * @return pozice výchozích možností, vzestupně
+         */
+        int[] getDefaultPositions() {
+            return defaultPositions;
+        }
     }
 }
@@ -73,7 +73,10 @@ public final class DateProcessor extends AbstractProcessor {
     @Override
     public String process(final Element element, final TemplateParser parser)
             throws ProcessorException {
-        final String formattedDate = dateFormat.format(new Date());
+        final String formattedDate;
+        synchronized (dateFormat) {
+            formattedDate = dateFormat.format(new Date());
+        }
 
         return formattedDate;
     }
@@ -23,7 +23,9 @@ import org.w3c.dom.Element;
 import cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser;
 
 /**
- * Zpracuje dodaný element a vrátí textový výstup.
+ * Zpracuje dodaný element a vrátí textový výstup. Jedna instance procesoru
+ * zpracovává prvky všech konverzací, implementace proto nesmí mezi voláními
+ * uchovávat stav a musí být bezpečná pro souběžné použití.
  * 
  * @author Václav Brodec
  * @version 1.0
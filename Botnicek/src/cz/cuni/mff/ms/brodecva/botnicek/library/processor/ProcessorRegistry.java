@@ -50,6 +50,23 @@ public interface ProcessorRegistry {
     Class<? extends Processor> get(final String key, final URI namespace)
             throws ClassNotFoundException;
 
+    /**
+     * Vrátí instanci procesoru registrovaného pod klíčem, pokud se shodují
+     * jmenné prostory či je jmenný prostor {@code null}. Instance je sdílená
+     * všemi konverzacemi, procesor proto musí být bezstavový a bezpečný pro
+     * souběžné použití.
+     * 
+     * @param key
+     *            klíč
+     * @param namespace
+     *            jmenný prostor
+     * @return sdílená instance registrované třídy
+     * @throws ClassNotFoundException
+     *             pokud pod daným klíčem neexistuje žádná třída
+     */
+    Processor getProcessor(final String key, final URI namespace)
+            throws ClassNotFoundException;
+
     /**
      * Vrátí hash registru.
      * 
@@ -31,7 +31,7 @@ import cz.cuni.mff.ms.brodecva.botnicek.library.platform.XML;
  * @author Václav Brodec
  * @version 1.0
  */
-public final class RandomProcessor extends AbstractProcessor {
+public final class RandomProcessor extends AbstractStreamingProcessor {
 
     /**
      * UID serializované verze.
@@ -42,13 +42,14 @@ public final class RandomProcessor extends AbstractProcessor {
      * (non-Javadoc)
      * 
      * @see
-     * cz.cuni.mff.ms.brodecva.botnicek.library.processor.Processor#process(
-     * org.w3c.dom.Element,
-     * cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser)
+     * cz.cuni.mff.ms.brodecva.botnicek.library.processor.StreamingProcessor#
+     * process(org.w3c.dom.Element,
+     * cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser,
+     * java.lang.StringBuilder)
      */
     @Override
-    public String process(final Element element, final TemplateParser parser)
-            throws ProcessorException {
+    public void process(final Element element, final TemplateParser parser,
+            final StringBuilder output) throws ProcessorException {
         final List<Element> possibilities = XML.listFilialElements(element);
 
         final int possibilitiesCount = possibilities.size();
@@ -56,8 +57,7 @@ public final class RandomProcessor extends AbstractProcessor {
         final int randomPick =
                 Math.abs(ThreadLocalRandom.current().nextInt(possibilitiesCount));
 
-        return parser.evaluate(possibilities.get(randomPick)
-                .getChildNodes());
+        parser.evaluate(possibilities.get(randomPick).getChildNodes(), output);
     }
 
 }
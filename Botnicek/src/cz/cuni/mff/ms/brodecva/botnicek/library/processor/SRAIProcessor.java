@@ -19,10 +19,14 @@
 package cz.cuni.mff.ms.brodecva.botnicek.library.processor;
 
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
 
 import cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser;
+import cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom.ReadOnlyElement;
 import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Conversation;
 import cz.cuni.mff.ms.brodecva.botnicek.library.responder.ConversationException;
+import cz.cuni.mff.ms.brodecva.botnicek.library.responder.RedirectTarget;
 
 /**
  * Provede rekurzivní pokus o vyhodnocení svého obsahu jako nového vstupu.
@@ -53,10 +57,68 @@ public final class SRAIProcessor extends AbstractProcessor {
         final Conversation currentConversation = parser.getConversation();
         
         try {
+            if (isConstant(element)) {
+                if (element instanceof ReadOnlyElement) {
+                    return currentConversation.attemptRedirect(innerResult,
+                            getTarget((ReadOnlyElement) element));
+                }
+
+                return currentConversation.attemptRedirect(innerResult);
+            }
+
             return currentConversation.attemptTalk(innerResult);
         } catch (final ConversationException e) {
             throw new ProcessorException(e);
         }
     }
+
+    /**
+     * Vrátí cíl přesměrování uložený u přeloženého prvku, případně jej
+     * vytvoří. Souběžně vytvořené cíle jsou rovnocenné, jeden z nich se
+     * pouze přestane používat.
+     * 
+     * @param element
+     *            neměnný prvek přesměrování s neměnným obsahem
+     * @return sdílený cíl přesměrování
+     */
+    private static RedirectTarget getTarget(final ReadOnlyElement element) {
+        final Object attachment = element.getAttachment();
+        if (attachment instanceof RedirectTarget) {
+            return (RedirectTarget) attachment;
+        }
+
+        final RedirectTarget target = new RedirectTarget();
+        element.setAttachment(target);
+
+        return target;
+    }
+
+    /**
+     * Indikuje, zda-li prvek obsahuje jen text, takže jeho obsah je při
+     * každém zpracování stejný.
+     * 
+     * @param element
+     *            prvek
+     * @return true, pokud prvek neobsahuje vnořené prvky
+     */
+    private static boolean isConstant(final Element element) {
+        final NodeList children = element.getChildNodes();
+
+        final int length = children.getLength();
+        for (int index = 0; index < length; index++) {
+            final Node child = children.item(index);
+
+            switch (child.getNodeType()) {
+            case Node.TEXT_NODE:
+            case Node.CDATA_SECTION_NODE:
+            case Node.COMMENT_NODE:
+                break;
+            default:
+                return false;
+            }
+        }
+
+        return true;
+    }
     
 }
@@ -40,7 +40,7 @@ public final class SentenceProcessor extends AbstractProcessor {
     /**
      * Vzor na rozpoznání vět dle definice.
      */
-    private static Pattern sentence = Pattern.compile("\\w[^.]*\\.|^\\w[^.]*$");
+    private static final Pattern SENTENCE = Pattern.compile("\\w[^.]*\\.|^\\w[^.]*$");
 
     /*
      * (non-Javadoc)
@@ -55,7 +55,7 @@ public final class SentenceProcessor extends AbstractProcessor {
             throws ProcessorException {
         final String text = parser.evaluate(element.getChildNodes());
 
-        final Matcher sentenceMatcher = sentence.matcher(text);
+        final Matcher sentenceMatcher = SENTENCE.matcher(text);
         final StringBuffer result = new StringBuffer(text.length());
         while (sentenceMatcher.find()) {
             final String sentence = sentenceMatcher.group();
@@ -50,13 +50,14 @@ public abstract class StarReferenceProcessor extends AbstractProcessor {
     /**
      * Normalizér.
      */
-    private Normalizer normalizer;
+    private final Normalizer normalizer;
 
     /**
      * Výchozí konstruktor.
      */
     protected StarReferenceProcessor() {
         indexFactory = new DefaultIndexFactory();
+        normalizer = new SimpleNormalizer();
     }
 
     /**
@@ -70,7 +71,8 @@ public abstract class StarReferenceProcessor extends AbstractProcessor {
     protected StarReferenceProcessor(final IndexFactory indexFactory,
             final Normalizer normalizer) {
         this.indexFactory = indexFactory;
-        this.normalizer = normalizer;
+        this.normalizer =
+                normalizer == null ? new SimpleNormalizer() : normalizer;
     }
 
     /**
@@ -104,10 +106,6 @@ public abstract class StarReferenceProcessor extends AbstractProcessor {
                             references, parser }));
         }
 
-        if (normalizer == null) {
-            normalizer = new SimpleNormalizer();
-        }
-
         return normalizer.deconvertFromNormalChars(references
                 .get(zeroBasedIndex));
     }
@@ -0,0 +1,49 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.processor;
+
+import org.w3c.dom.Element;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser;
+
+/**
+ * Procesor, který výstup zpracování připojuje přímo k výstupu celé odpovědi.
+ * Vnořené úrovně zpracování tak nevytvářejí mezivýsledky v podobě řetězců.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see TemplateParser#evaluate(org.w3c.dom.NodeList, StringBuilder)
+ */
+public interface StreamingProcessor extends Processor {
+
+    /**
+     * Zpracuje element a výstup připojí na konec dodaného výstupu.
+     * 
+     * @param element
+     *            prvek ke zpracování
+     * @param parser
+     *            parser šablony
+     * @param output
+     *            výstup odpovědi
+     * @throws ProcessorException
+     *             chyba při zpracování
+     */
+    void process(Element element, TemplateParser parser, StringBuilder output)
+            throws ProcessorException;
+}
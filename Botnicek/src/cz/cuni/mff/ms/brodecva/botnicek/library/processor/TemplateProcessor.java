@@ -28,7 +28,7 @@ import cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser;
  * @author Václav Brodec
  * @version 1.0
  */
-public final class TemplateProcessor extends AbstractProcessor {
+public final class TemplateProcessor extends AbstractStreamingProcessor {
     /**
      * UID serializované verze.
      */
@@ -38,13 +38,14 @@ public final class TemplateProcessor extends AbstractProcessor {
      * (non-Javadoc)
      * 
      * @see
-     * cz.cuni.mff.ms.brodecva.botnicek.library.processor.Processor#process(
-     * org.w3c.dom.Element,
-     * cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser)
+     * cz.cuni.mff.ms.brodecva.botnicek.library.processor.StreamingProcessor#
+     * process(org.w3c.dom.Element,
+     * cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser,
+     * java.lang.StringBuilder)
      */
     @Override
-    public String process(final Element element, final TemplateParser parser)
-            throws ProcessorException {
-        return parser.evaluate(element.getChildNodes());
+    public void process(final Element element, final TemplateParser parser,
+            final StringBuilder output) throws ProcessorException {
+        parser.evaluate(element.getChildNodes(), output);
     }
 }
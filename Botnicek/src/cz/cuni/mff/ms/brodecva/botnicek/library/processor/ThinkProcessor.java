@@ -28,7 +28,7 @@ import cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser;
  * @author Václav Brodec
  * @version 1.0
  */
-public final class ThinkProcessor extends AbstractProcessor {
+public final class ThinkProcessor extends AbstractStreamingProcessor {
     /**
      * UID serializované verze.
      */
@@ -38,16 +38,19 @@ public final class ThinkProcessor extends AbstractProcessor {
      * (non-Javadoc)
      * 
      * @see
-     * cz.cuni.mff.ms.brodecva.botnicek.library.processor.Processor#process(
-     * org.w3c.dom.Element,
-     * cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser)
+     * cz.cuni.mff.ms.brodecva.botnicek.library.processor.StreamingProcessor#
+     * process(org.w3c.dom.Element,
+     * cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser,
+     * java.lang.StringBuilder)
      */
     @Override
-    public String process(final Element element, final TemplateParser parser)
-            throws ProcessorException {
-        parser.evaluate(element.getChildNodes());
+    public void process(final Element element, final TemplateParser parser,
+            final StringBuilder output) throws ProcessorException {
+        final int start = output.length();
 
-        return EMPTY_RESPONSE;
+        parser.evaluate(element.getChildNodes(), output);
+
+        output.setLength(start);
     }
 
 }
@@ -23,6 +23,7 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -46,7 +47,10 @@ import cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.Splitter;
 import cz.cuni.mff.ms.brodecva.botnicek.library.processor.ProcessorException;
 import cz.cuni.mff.ms.brodecva.botnicek.library.processor.set.DisplayStrategy;
 import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLInputPath;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath;
 import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchResult;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.Template;
 import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
 
 /**
@@ -74,6 +78,44 @@ public final class AIMLConversation implements Conversation, Serializable {
         }
     }
 
+    /**
+     * Připravené neměnné vstupy, které vyhazují nejdéle nepoužité záznamy.
+     * 
+     * @author Václav Brodec
+     * @version 1.0
+     */
+    private static final class PreparedInputs extends
+            LinkedHashMap<String, String[]> {
+
+        /**
+         * UID serializované verze.
+         */
+        private static final long serialVersionUID = 1967411284617413270L;
+
+        /**
+         * Výchozí faktor naplnění.
+         */
+        private static final float LOAD_FACTOR = 0.75f;
+
+        /**
+         * Vytvoří prázdnou mapu.
+         */
+        private PreparedInputs() {
+            super(PREPARED_INPUTS_CAPACITY, LOAD_FACTOR, true);
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+         */
+        @Override
+        protected boolean removeEldestEntry(
+                final Map.Entry<String, String[]> eldest) {
+            return size() > PREPARED_INPUTS_CAPACITY;
+        }
+    }
+
     /**
      * UID serializované verze.
      */
@@ -95,6 +137,11 @@ public final class AIMLConversation implements Conversation, Serializable {
      * Velikost zásobníku pro vnořené volání metody {@link #attemptTalk(String)}.
      */
     public static final int STACK_SIZE = 100;    
+
+    /**
+     * Maximální počet zapamatovaných připravených neměnných vstupů.
+     */
+    public static final int PREPARED_INPUTS_CAPACITY = 256;
     
     /**
      * Úroveň vnoření při rekurzivním zpracování.
@@ -162,6 +209,12 @@ public final class AIMLConversation implements Conversation, Serializable {
      */
     private transient Listener listener;
 
+    /**
+     * Neměnné vstupy přesměrování po nahrazení, rozdělení na věty a
+     * normalizaci.
+     */
+    private transient Map<String, String[]> preparedInputs;
+
     /**
      * Konstruktor nové konverzace. Pro určeného bota načte jeho zdrojové
      * soubory, do kterých dosadí jeho predikáty.
@@ -321,7 +374,7 @@ public final class AIMLConversation implements Conversation, Serializable {
         
         resetAttempts();
         
-        evaluate(speech, true);
+        evaluate(speech, true, false, null);
     }
 
     /*
@@ -365,7 +418,7 @@ public final class AIMLConversation implements Conversation, Serializable {
             @Override
             public void run() {
                 try {
-                    answerToListener(evaluate(speech, true));
+                    answerToListener(evaluate(speech, true, false, null));
                 } catch (final Throwable e) {
                     notifyExceptionToListener(e);
                 }
@@ -383,13 +436,64 @@ public final class AIMLConversation implements Conversation, Serializable {
      */
     @Override
     public String attemptTalk(final String speech) throws ConversationException {
+        return attempt(speech, false, null);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.responder.Conversation#attemptRedirect
+     * (java.lang.String)
+     */
+    @Override
+    public String attemptRedirect(final String speech)
+            throws ConversationException {
+        return attempt(speech, true, null);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.responder.Conversation#attemptRedirect
+     * (java.lang.String,
+     * cz.cuni.mff.ms.brodecva.botnicek.library.responder.RedirectTarget)
+     */
+    @Override
+    public String attemptRedirect(final String speech,
+            final RedirectTarget target) throws ConversationException {
+        if (target == null) {
+            throw new NullPointerException(
+                    MESSAGE_LOCALIZER.getMessage("responder.NullTarget"));
+        }
+
+        return attempt(speech, true, target);
+    }
+
+    /**
+     * Vyhodnotí vstup bez záznamu a se sledováním úrovně zanoření.
+     * 
+     * @param speech
+     *            vstup
+     * @param constant
+     *            zda-li je vstup neměnný, a jeho příprava se tedy může
+     *            zapamatovat
+     * @param target
+     *            sdílený cíl přesměrování, null pokud není k dispozici
+     * @return výstup bota
+     * @throws ConversationException
+     *             pokud dojde k chybě při vyhodnocování vstupu
+     */
+    private String attempt(final String speech, final boolean constant,
+            final RedirectTarget target) throws ConversationException {
         if (isStackFull()) {
             throw new ConversationException(MESSAGE_LOCALIZER.getMessage("responder.StackFull", this, speech));
         } else {
             increaseRecursionLevel();
         }
         
-        final String result = evaluate(speech, false);
+        final String result = evaluate(speech, false, constant, target);
         
         decreaseRecursionLevel();
         
@@ -466,12 +570,19 @@ public final class AIMLConversation implements Conversation, Serializable {
      *            uživatelský vstup
      * @param record
      *            true pro zaznamenávání interakce do historie
+     * @param constant
+     *            true, pokud je vstup neměnný a jeho příprava se může
+     *            zapamatovat
+     * @param target
+     *            sdílený cíl přesměrování s neměnným vstupem, null pokud se
+     *            hledá přímo ve struktuře
      * @return celá reakce na vstup
      * @throws ConversationException
      *             pokud dojde k chybě při vyhodnocování vstupu
      */
     private synchronized String evaluate(final String speech,
-            final boolean record) throws ConversationException {
+            final boolean record, final boolean constant,
+            final RedirectTarget target) throws ConversationException {
         if (speech == null) {
             throw new NullPointerException(
                     MESSAGE_LOCALIZER.getMessage("responder.NullSpeech"));
@@ -485,13 +596,15 @@ public final class AIMLConversation implements Conversation, Serializable {
 
         boolean someSentenceSuccesful = false;
         try {
-            final String substituted = substitute(speech);
-
-            final String[] sentences = splitter.splitToSentences(substituted);
+            final String[] patterns;
+            if (constant) {
+                patterns = getPreparedInput(speech);
+            } else {
+                patterns = prepare(speech);
+            }
 
-            for (final String sentence : sentences) {
-                final String pattern =
-                        normalizer.convertToNormalChars(sentence);
+            for (int index = 0; index < patterns.length; index++) {
+                final String pattern = patterns[index];
 
                 String that = null;
 
@@ -514,13 +627,20 @@ public final class AIMLConversation implements Conversation, Serializable {
                     topic = normalizer.convertToNormalChars(topic);
                 }
 
-                final MatchResult result =
-                        loader.getFilledStructure().find(
-                                new AIMLInputPath(pattern, that, topic));
+                final MatchingStructure structure =
+                        loader.getFilledStructure();
+                final InputPath path = new AIMLInputPath(pattern, that, topic);
+
+                final MatchResult result;
+                if (target == null) {
+                    result = structure.find(path);
+                } else {
+                    result = target.find(structure, patterns, index, path);
+                }
                 if (result.isSuccesful()) {
                     someSentenceSuccesful = true;
                     
-                    final String template = result.getTemplate().getValue();
+                    final Template template = result.getTemplate();
 
                     final TemplateParser parser =
                             parserFactory
@@ -557,6 +677,53 @@ public final class AIMLConversation implements Conversation, Serializable {
         return lastResponse;
     }
 
+    /**
+     * Připraví vstup k hledání. Nahradí v něm jazykové prvky, rozdělí jej na
+     * věty a ty normalizuje.
+     * 
+     * @param speech
+     *            vstup
+     * @return normalizované věty vstupu
+     */
+    private String[] prepare(final String speech) {
+        final String substituted = substitute(speech);
+
+        final String[] sentences = splitter.splitToSentences(substituted);
+
+        final String[] patterns = new String[sentences.length];
+        for (int i = 0; i < sentences.length; i++) {
+            patterns[i] = normalizer.convertToNormalChars(sentences[i]);
+        }
+
+        return patterns;
+    }
+
+    /**
+     * Vrátí zapamatovanou přípravu neměnného vstupu, chybí-li, vstup připraví
+     * a přípravu si zapamatuje. Příprava nezávisí na stavu konverzace ani na
+     * obsahu rozhodovací struktury, její změny ji proto nezneplatňují. Volá se
+     * jen při držení zámku konverzace.
+     * 
+     * @param speech
+     *            neměnný vstup
+     * @return normalizované věty vstupu
+     */
+    private String[] getPreparedInput(final String speech) {
+        if (preparedInputs == null) {
+            preparedInputs = new PreparedInputs();
+        }
+
+        final String[] cached = preparedInputs.get(speech);
+        if (cached != null) {
+            return cached;
+        }
+
+        final String[] prepared = prepare(speech);
+        preparedInputs.put(speech, prepared);
+
+        return prepared;
+    }
+
     /**
      * Odpoví registrovanému posluchači, pokud nějaký je.
      * 
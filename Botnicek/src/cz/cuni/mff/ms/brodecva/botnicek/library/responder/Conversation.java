@@ -101,6 +101,38 @@ public interface Conversation extends Serializable {
      */
     String attemptTalk(String speech) throws ConversationException;
 
+    /**
+     * Předá botu k odpovědi neměnný vstup, typicky obsah přesměrování bez
+     * vnořených prvků. Chová se stejně jako {@link #attemptTalk(String)},
+     * nahrazení, rozdělení na věty a normalizaci vstupu si však konverzace
+     * může zapamatovat a při dalším přesměrování na týž vstup z nich rovnou
+     * vyhledat cílovou šablonu.
+     * 
+     * @param speech
+     *            neměnný vstup
+     * @return výstup bota, reakce na vstup
+     * @throws ConversationException
+     *             pokud dojde k chybě při vyhodnocování vstupu
+     */
+    String attemptRedirect(String speech) throws ConversationException;
+
+    /**
+     * Předá botu k odpovědi neměnný vstup jako
+     * {@link #attemptRedirect(String)}. Cílovou šablonu navíc hledá přes
+     * sdílený předem vyhledaný cíl, který si výsledky hledání nezávislé na
+     * kontextu pamatuje pro všechny konverzace.
+     * 
+     * @param speech
+     *            neměnný vstup
+     * @param target
+     *            sdílený cíl přesměrování s tímto vstupem
+     * @return výstup bota, reakce na vstup
+     * @throws ConversationException
+     *             pokud dojde k chybě při vyhodnocování vstupu
+     */
+    String attemptRedirect(String speech, RedirectTarget target)
+            throws ConversationException;
+
     /**
      * Resetuje počitadlo pokusů metody {@link #attemptTalk(String)}.
      */
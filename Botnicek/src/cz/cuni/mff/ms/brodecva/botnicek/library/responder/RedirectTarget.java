@@ -0,0 +1,176 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.responder;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.ContextFreeMatch;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchResult;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure;
+
+/**
+ * <p>
+ * Předem vyhledaný cíl neměnného přesměrování. Ukládá se k přeloženému prvku
+ * přesměrování, sdílí jej tedy všechny konverzace nad týmž mozkem.
+ * </p>
+ * 
+ * <p>
+ * Pro každou větu vstupu si pamatuje výsledek hledání nezávislý na kontextu
+ * spolu se značkou verze obsahu struktury, ve které byl nalezen. Jakmile
+ * struktura vrátí jinou značku (změna kategorií, znovunačtení mozku) nebo
+ * značku nevede (konverzace se něco naučila), hledá se znovu. Věty, jejichž
+ * cíl na kontextu závisí, se hledají vždy celé.
+ * </p>
+ * 
+ * <p>
+ * Instance je bezpečná pro vícevláknové využití. Souběžná hledání téže věty
+ * vedou ke stejnému výsledku, mohou se tedy navzájem přepsat.
+ * </p>
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see Conversation#attemptRedirect(String, RedirectTarget)
+ */
+public final class RedirectTarget {
+
+    /**
+     * Značka věty, jejíž cíl závisí na kontextu.
+     */
+    private static final Object CONTEXT_DEPENDENT = new Object();
+
+    /**
+     * Výsledky pro věty vstupu platné v jedné verzi obsahu struktury.
+     */
+    private static final class Resolution {
+
+        /**
+         * Značka verze obsahu struktury.
+         */
+        private final Object version;
+
+        /**
+         * Normalizované věty vstupu.
+         */
+        private final String[] sentences;
+
+        /**
+         * Výsledky pro jednotlivé věty, null pokud věta dosud hledána nebyla.
+         */
+        private final AtomicReferenceArray<Object> matches;
+
+        /**
+         * Vytvoří prázdné výsledky.
+         * 
+         * @param version
+         *            značka verze obsahu struktury
+         * @param sentences
+         *            normalizované věty vstupu
+         */
+        private Resolution(final Object version, final String[] sentences) {
+            this.version = version;
+            this.sentences = sentences;
+            this.matches = new AtomicReferenceArray<Object>(sentences.length);
+        }
+
+        /**
+         * Zjistí, zda-li výsledky platí pro danou verzi a věty.
+         * 
+         * @param version
+         *            značka verze obsahu struktury
+         * @param sentences
+         *            normalizované věty vstupu
+         * @return true, pokud ano
+         */
+        private boolean isValid(final Object version, final String[] sentences) {
+            return this.version == version
+                    && (this.sentences == sentences || Arrays.equals(
+                            this.sentences, sentences));
+        }
+    }
+
+    /**
+     * Aktuální výsledky.
+     */
+    private volatile Resolution resolution = null;
+
+    /**
+     * Najde šablonu pro větu přesměrování. Výsledek je vždy shodný s
+     * výsledkem {@link MatchingStructure#find(InputPath)}.
+     * 
+     * @param structure
+     *            prohledávaná struktura
+     * @param sentences
+     *            normalizované věty vstupu
+     * @param index
+     *            index hledané věty
+     * @param path
+     *            vstupní cesta hledané věty s kontextem konverzace
+     * @return výsledek hledání
+     */
+    public MatchResult find(final MatchingStructure structure,
+            final String[] sentences, final int index, final InputPath path) {
+        // Značka se musí přečíst před hledáním, výsledek nalezený po souběžné
+        // změně tak zůstane svázán se starou značkou a nepoužije se.
+        final Object version = structure.getContentVersion();
+        if (version == null) {
+            return structure.find(path);
+        }
+
+        Resolution current = resolution;
+        if (current == null || !current.isValid(version, sentences)) {
+            current = new Resolution(version, sentences);
+            resolution = current;
+        }
+
+        Object match = current.matches.get(index);
+        if (match == null) {
+            match = structure.findContextFree(path);
+            if (match == null) {
+                match = CONTEXT_DEPENDENT;
+            }
+
+            current.matches.set(index, match);
+        }
+
+        if (match != CONTEXT_DEPENDENT) {
+            final MatchResult bound = ((ContextFreeMatch) match).bind(path);
+            if (bound != null) {
+                return bound;
+            }
+        }
+
+        return structure.find(path);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        final Resolution current = resolution;
+
+        return "RedirectTarget [sentences="
+                + (current == null ? null : Arrays.toString(current.sentences))
+                + "]";
+    }
+}
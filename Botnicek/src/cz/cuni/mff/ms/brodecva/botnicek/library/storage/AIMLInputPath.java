@@ -110,7 +110,7 @@ public final class AIMLInputPath implements InputPath, Serializable {
      * @param wordFactory
      *            továrna interpretující tokeny slov
      */
-    AIMLInputPath(final String pattern, final String that,
+    public AIMLInputPath(final String pattern, final String that,
             final String topic, final WordFactory wordFactory) {
         final String spaceRegex = "\\s+";
         final int partsCount = 3;
@@ -331,7 +331,10 @@ public final class AIMLInputPath implements InputPath, Serializable {
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result + words.hashCode();
+        // Podle hodnot slov, haše výčtových žolíků a značek se liší běh od běhu.
+        for (final Word word : words) {
+            result = prime * result + word.getValue().hashCode();
+        }
         return result;
     }
 
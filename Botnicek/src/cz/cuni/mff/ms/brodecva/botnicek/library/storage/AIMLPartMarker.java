@@ -19,6 +19,7 @@
 package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -29,7 +30,7 @@ import java.util.Set;
  * @version 1.0
  * 
  */
-public enum AIMLPartMarker implements PartMarker {
+public enum AIMLPartMarker implements PartMarker, IndexedWord {
     /**
      * Vzor.
      */
@@ -71,9 +72,11 @@ public enum AIMLPartMarker implements PartMarker {
     private final int order;
 
     /**
-     * Cache pro množinu všech hodnot výčtu.
+     * Neměnná množina všech hodnot výčtu. Vzniká při inicializaci třídy, aby
+     * byla bezpečně sdílená všemi vlákny.
      */
-    private static Set<PartMarker> allValuesCache = null;
+    private static final Set<PartMarker> ALL_VALUES = Collections
+            .unmodifiableSet(new HashSet<PartMarker>(Arrays.asList(values())));
 
     /**
      * Konstruktor značky části cesty.
@@ -108,6 +111,16 @@ public enum AIMLPartMarker implements PartMarker {
         return value;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.IndexedWord#getId()
+     */
+    @Override
+    public int getId() {
+        return WordDictionary.MARKERS_OFFSET + ordinal();
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -127,10 +140,6 @@ public enum AIMLPartMarker implements PartMarker {
      */
     @Override
     public Set<PartMarker> allValues() {
-        if (allValuesCache == null) {
-            allValuesCache = new HashSet<PartMarker>(Arrays.asList(values()));
-        }
-
-        return allValuesCache;
+        return ALL_VALUES;
     }
 }
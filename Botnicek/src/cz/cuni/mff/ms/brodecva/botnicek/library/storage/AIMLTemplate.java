@@ -22,7 +22,11 @@ import java.io.Serializable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
+
 import cz.cuni.mff.ms.brodecva.botnicek.library.logging.BotnicekLogger;
+import cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom.ReadOnlyTrees;
 import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
 
 /**
@@ -54,6 +58,12 @@ public final class AIMLTemplate implements Template, Serializable {
      */
     private final String value;
 
+    /**
+     * Přeložená šablona, vzniká líně při prvním vyhodnocení. Souběžný překlad
+     * vede k rovnocenným stromům, zámek proto není třeba.
+     */
+    private transient volatile Element compiled;
+
     /*
      * (non-Javadoc)
      * 
@@ -64,6 +74,28 @@ public final class AIMLTemplate implements Template, Serializable {
         return value;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.Template#getCompiled()
+     */
+    @Override
+    public Element getCompiled() throws SAXException {
+        Element result = compiled;
+
+        if (result == null) {
+            result = ReadOnlyTrees.parse(value);
+            compiled = result;
+
+            if (LOGGER.isLoggable(Level.FINER)) {
+                LOGGER.log(Level.FINER, "storage.TemplateCompiled", value);
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Konstruktor šablony s reakcí na dotaz.
      * 
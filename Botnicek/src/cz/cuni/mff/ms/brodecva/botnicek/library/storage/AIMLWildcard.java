@@ -25,7 +25,7 @@ package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
  * @author Václav Brodec
  * @version 1.0
  */
-public enum AIMLWildcard implements Word {
+public enum AIMLWildcard implements IndexedWord {
     /**
      * Žolík podtržítko.
      */
@@ -61,6 +61,16 @@ public enum AIMLWildcard implements Word {
         return value;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.IndexedWord#getId()
+     */
+    @Override
+    public int getId() {
+        return ordinal();
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -18,18 +18,22 @@
  */
 package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
 import cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.Normalizer;
 import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
 
 /**
- * Slovo normalizované vstupní sekvence.
+ * Slovo normalizované vstupní sekvence. Nese identifikátor z globálního
+ * {@link WordDictionary slovníku}, díky němuž se shodná slova porovnají
+ * jediným porovnáním čísel.
  * 
  * @author Václav Brodec
  * @version 1.0
  */
-public final class AIMLWord implements Word, Serializable {
+public final class AIMLWord implements IndexedWord, Serializable {
 
     /**
      * UID serializované verze.
@@ -42,11 +46,23 @@ public final class AIMLWord implements Word, Serializable {
     private static final ExceptionMessageLocalizer MESSAGE_LOCALIZER =
             ExceptionMessageLocalizer.getLocalizer();
 
+    /**
+     * Globální slovník slov.
+     */
+    private static final WordDictionary DICTIONARY = WordDictionary
+            .getDictionary();
+
     /**
      * Textová hodnota.
      */
     private final String value;
 
+    /**
+     * Identifikátor ve slovníku. Po deserializaci se přiděluje znovu, neboť
+     * slovník je platný jen v rámci běhu.
+     */
+    private transient int id;
+
     /*
      * (non-Javadoc)
      * 
@@ -57,8 +73,24 @@ public final class AIMLWord implements Word, Serializable {
         return value;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.IndexedWord#getId()
+     */
+    @Override
+    public int getId() {
+        if (id == WordDictionary.UNKNOWN) {
+            // Slovo mohlo být do slovníku přidáno až po vytvoření.
+            id = DICTIONARY.lookup(value);
+        }
+
+        return id;
+    }
+
     /**
-     * Vytvoří slovo z řetězce (nesmí být null).
+     * Vytvoří slovo z řetězce (nesmí být null). Slovník se nerozšiřuje, slovo
+     * v něm chybějící nese identifikátor {@value WordDictionary#UNKNOWN}.
      * 
      * @param value
      *            řetězec obsahující vlastní slovo
@@ -66,6 +98,21 @@ public final class AIMLWord implements Word, Serializable {
      *            normalizér kontrolující normalitu hodnoty
      */
     public AIMLWord(final String value, final Normalizer normalizer) {
+        this(value, normalizer, false);
+    }
+
+    /**
+     * Vytvoří slovo z řetězce (nesmí být null).
+     * 
+     * @param value
+     *            řetězec obsahující vlastní slovo
+     * @param normalizer
+     *            normalizér kontrolující normalitu hodnoty
+     * @param interned
+     *            zda slovo vložit do globálního slovníku, pokud v něm chybí
+     */
+    public AIMLWord(final String value, final Normalizer normalizer,
+            final boolean interned) {
         if (value == null) {
             throw new NullPointerException(MESSAGE_LOCALIZER.getMessage("storage.WordStringNull"));
         }
@@ -78,6 +125,28 @@ public final class AIMLWord implements Word, Serializable {
         }
 
         this.value = value;
+        if (interned) {
+            this.id = DICTIONARY.intern(value);
+        } else {
+            this.id = DICTIONARY.lookup(value);
+        }
+    }
+
+    /**
+     * Po deserializaci přidělí slovu identifikátor v aktuálním slovníku.
+     * 
+     * @param in
+     *            vstupní proud
+     * @throws IOException
+     *             chyba při čtení
+     * @throws ClassNotFoundException
+     *             neznámá třída
+     */
+    private void readObject(final ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        in.defaultReadObject();
+
+        id = DICTIONARY.intern(value);
     }
 
     /*
@@ -89,7 +158,7 @@ public final class AIMLWord implements Word, Serializable {
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result + value.toUpperCase().hashCode();
+        result = prime * result + value.hashCode();
         return result;
     }
 
@@ -112,6 +181,9 @@ public final class AIMLWord implements Word, Serializable {
             return false;
         }
         final AIMLWord other = (AIMLWord) obj;
+        if (id != WordDictionary.UNKNOWN && other.id != WordDictionary.UNKNOWN) {
+            return id == other.id;
+        }
         if (!value.equals(other.value)) {
             return false;
         }
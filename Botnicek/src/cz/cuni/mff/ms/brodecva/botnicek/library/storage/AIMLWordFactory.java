@@ -25,7 +25,9 @@ import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
 
 /**
  * Vytvoří slovo reprezentované nejpříhodnější implementací na základě textové
- * hodnoty.
+ * hodnoty. V režimu vkládání do slovníku přidělí každému novému slovu
+ * identifikátor v globálním {@link WordDictionary slovníku}, čehož se využívá
+ * při načítání kategorií.
  * 
  * @author Václav Brodec
  * @version 1.0
@@ -52,18 +54,36 @@ public final class AIMLWordFactory implements WordFactory, Serializable {
     private final Normalizer normalizer;
 
     /**
-     * Vytvoří továrnu na slova.
+     * Zda vkládat nová slova do globálního slovníku.
+     */
+    private final boolean interning;
+
+    /**
+     * Vytvoří továrnu na slova, která globální slovník nerozšiřuje.
      * 
      * @param normalizer
      *            normalizér pro věření formátu slova
      */
     public AIMLWordFactory(final Normalizer normalizer) {
+        this(normalizer, false);
+    }
+
+    /**
+     * Vytvoří továrnu na slova.
+     * 
+     * @param normalizer
+     *            normalizér pro věření formátu slova
+     * @param interning
+     *            zda vkládat nová slova do globálního slovníku
+     */
+    public AIMLWordFactory(final Normalizer normalizer, final boolean interning) {
         if (normalizer == null) {
             throw new NullPointerException(
                     MESSAGE_LOCALIZER.getMessage("storage.NullArgument"));
         }
 
         this.normalizer = normalizer;
+        this.interning = interning;
     }
 
     /*
@@ -87,7 +107,7 @@ public final class AIMLWordFactory implements WordFactory, Serializable {
             }
         }
 
-        return new AIMLWord(value, normalizer);
+        return new AIMLWord(value, normalizer, interning);
     }
 
 }
@@ -0,0 +1,318 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Dávkové hledání mnoha vstupních cest najednou. Cesty se rozdělí na úseky,
+ * které se prohledají souběžně ve sdíleném fondu vláken, výsledky se vrátí v
+ * pořadí vstupu.
+ * 
+ * <p>
+ * Ve stromu se cesty nejprve uspořádají podle otisku (hash) prvního slova.
+ * Nejde o úplné řazení podle posloupnosti slov, pouze cesty se stejným prvním
+ * slovem tak leží v jednom úseku vedle sebe. V každém uzlu se dále seskupují
+ * podle dalšího slova, stromem tak sestupují po slovech společně. Každá cesta
+ * přitom dostane přesně týž výsledek jako při samostatném hledání.
+ * </p>
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see MatchingStructure#findAll(List)
+ */
+final class BatchMatcher {
+    /**
+     * Nejvyšší počet cest v úseku, který se již dále nedělí.
+     */
+    static final int PARTITION_SIZE = 256;
+
+    /**
+     * Sdílený fond vláken o velikosti odpovídající počtu procesorů.
+     */
+    private static final ForkJoinPool POOL = new ForkJoinPool();
+
+    /**
+     * Skrytý konstruktor.
+     */
+    private BatchMatcher() {
+    }
+
+    /**
+     * Prohledá strukturu pro všechny cesty, jednotlivé úseky souběžně.
+     * Struktura musí snést souběžné hledání.
+     * 
+     * @param structure
+     *            prohledávaná struktura
+     * @param paths
+     *            vstupní cesty
+     * @return výsledky v pořadí cest
+     */
+    static List<MatchResult> findAll(final MatchingStructure structure,
+            final List<InputPath> paths) {
+        final InputPath[] inputs = paths.toArray(new InputPath[paths.size()]);
+        final MatchResult[] results = new MatchResult[inputs.length];
+
+        POOL.invoke(new StructureTask(structure, inputs, results, 0,
+                inputs.length));
+
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    /**
+     * Prohledá strom pro všechny cesty. Cesty se uspořádají podle otisku
+     * prvního slova a souvislé úseky se prohledají souběžně. V rámci úseku se
+     * cesty v každém uzlu dále seskupí podle následujícího slova, takže se
+     * cesty se společným začátkem prohledávají společně.
+     * 
+     * @param root
+     *            kořen stromu
+     * @param paths
+     *            vstupní cesty
+     * @param memoized
+     *            zda-li si hledání pamatuje neúspěšné stavy
+     * @return výsledky v pořadí cest
+     */
+    static List<MatchResult> findAll(final WordNode root,
+            final List<InputPath> paths, final boolean memoized) {
+        final InputPath[] inputs = paths.toArray(new InputPath[paths.size()]);
+        final int count = inputs.length;
+
+        final Word[][] words = new Word[count][];
+        final long[] sortKeys = new long[count];
+        for (int index = 0; index < count; index++) {
+            words[index] = WordNode.toWordArray(inputs[index]);
+
+            final int firstHash =
+                    words[index].length == 0 ? 0 : words[index][0].hashCode();
+            sortKeys[index] = WordNode.toSortKey(firstHash, index);
+        }
+        Arrays.sort(sortKeys);
+
+        final int[] order = new int[count];
+        for (int index = 0; index < count; index++) {
+            order[index] = WordNode.toIndex(sortKeys[index]);
+        }
+
+        final MatchResult[] results = new MatchResult[count];
+        POOL.invoke(new TreeTask(root, inputs, words, order, memoized,
+                results, 0, count));
+
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    /**
+     * Úloha prohledávající úsek cest obecné struktury po jedné.
+     */
+    private static final class StructureTask extends RecursiveAction {
+        /**
+         * UID serializované verze.
+         */
+        private static final long serialVersionUID = 2143178803346126590L;
+
+        /**
+         * Prohledávaná struktura.
+         */
+        private final MatchingStructure structure;
+
+        /**
+         * Všechny cesty.
+         */
+        private final InputPath[] paths;
+
+        /**
+         * Výsledky všech cest.
+         */
+        private final MatchResult[] results;
+
+        /**
+         * Začátek úseku (včetně).
+         */
+        private final int from;
+
+        /**
+         * Konec úseku (mimo).
+         */
+        private final int to;
+
+        /**
+         * Vytvoří úlohu pro úsek.
+         * 
+         * @param structure
+         *            prohledávaná struktura
+         * @param paths
+         *            všechny cesty
+         * @param results
+         *            výsledky všech cest
+         * @param from
+         *            začátek úseku (včetně)
+         * @param to
+         *            konec úseku (mimo)
+         */
+        StructureTask(final MatchingStructure structure,
+                final InputPath[] paths, final MatchResult[] results,
+                final int from, final int to) {
+            this.structure = structure;
+            this.paths = paths;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see java.util.concurrent.RecursiveAction#compute()
+         */
+        @Override
+        protected void compute() {
+            if (to - from > PARTITION_SIZE) {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new StructureTask(structure, paths, results, from,
+                        middle), new StructureTask(structure, paths, results,
+                        middle, to));
+                return;
+            }
+
+            for (int index = from; index < to; index++) {
+                results[index] = structure.find(paths[index]);
+            }
+        }
+    }
+
+    /**
+     * Úloha prohledávající úsek seřazených cest stromu společně.
+     */
+    private static final class TreeTask extends RecursiveAction {
+        /**
+         * UID serializované verze.
+         */
+        private static final long serialVersionUID = -6418897206427763071L;
+
+        /**
+         * Kořen stromu.
+         */
+        private final WordNode root;
+
+        /**
+         * Všechny cesty v pořadí vstupu.
+         */
+        private final InputPath[] paths;
+
+        /**
+         * Slova všech cest v pořadí vstupu.
+         */
+        private final Word[][] words;
+
+        /**
+         * Indexy cest seřazené podle prvního slova.
+         */
+        private final int[] order;
+
+        /**
+         * Zda-li si hledání pamatuje neúspěšné stavy.
+         */
+        private final boolean memoized;
+
+        /**
+         * Výsledky v pořadí vstupu.
+         */
+        private final MatchResult[] results;
+
+        /**
+         * Začátek úseku v seřazeném pořadí (včetně).
+         */
+        private final int from;
+
+        /**
+         * Konec úseku v seřazeném pořadí (mimo).
+         */
+        private final int to;
+
+        /**
+         * Vytvoří úlohu pro úsek.
+         * 
+         * @param root
+         *            kořen stromu
+         * @param paths
+         *            všechny cesty v pořadí vstupu
+         * @param words
+         *            slova všech cest v pořadí vstupu
+         * @param order
+         *            indexy cest seřazené podle prvního slova
+         * @param memoized
+         *            zda-li si hledání pamatuje neúspěšné stavy
+         * @param results
+         *            výsledky v pořadí vstupu
+         * @param from
+         *            začátek úseku v seřazeném pořadí (včetně)
+         * @param to
+         *            konec úseku v seřazeném pořadí (mimo)
+         */
+        TreeTask(final WordNode root, final InputPath[] paths,
+                final Word[][] words, final int[] order,
+                final boolean memoized, final MatchResult[] results,
+                final int from, final int to) {
+            this.root = root;
+            this.paths = paths;
+            this.words = words;
+            this.order = order;
+            this.memoized = memoized;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see java.util.concurrent.RecursiveAction#compute()
+         */
+        @Override
+        protected void compute() {
+            if (to - from > PARTITION_SIZE) {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new TreeTask(root, paths, words, order, memoized,
+                        results, from, middle), new TreeTask(root, paths,
+                        words, order, memoized, results, middle, to));
+                return;
+            }
+
+            final int count = to - from;
+            final InputPath[] partitionPaths = new InputPath[count];
+            final Word[][] partitionWords = new Word[count][];
+            for (int index = 0; index < count; index++) {
+                partitionPaths[index] = paths[order[from + index]];
+                partitionWords[index] = words[order[from + index]];
+            }
+
+            final MatchResult[] partitionResults =
+                    root.findAll(partitionPaths, partitionWords,
+                            AIMLPartMarker.PATTERN, memoized);
+
+            for (int index = 0; index < count; index++) {
+                results[order[from + index]] = partitionResults[index];
+            }
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.logging.BotnicekLogger;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
+
+/**
+ * <p>
+ * Binární obraz mozku robota. Obsahuje uzly stromu, slovník slov a těla
+ * šablon a je určen k otevření přes {@link FileChannel#map}, takže se hledá
+ * přímo v namapované paměti mimo haldu. Stránky souboru sdílí operační systém
+ * mezi všemi procesy, které obraz otevřou.
+ * </p>
+ * 
+ * <p>
+ * Všechna čísla jsou uložena jako 32bitová se sestupným pořadím bajtů. Za
+ * hlavičkou následují celočíselné úseky (indexy prvních synů, slova uzlů,
+ * indexy šablon, začátky slov, hašovací tabulka slov, začátky šablon), poté
+ * znaky slov v UTF-16 a nakonec těla šablon v UTF-8.
+ * </p>
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see MappedWordTree
+ */
+public final class BrainImage {
+
+    /**
+     * Značka formátu ("BOTI").
+     */
+    static final int MAGIC = 0x424F5449;
+
+    /**
+     * Verze formátu.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Počet čísel v hlavičce.
+     */
+    static final int HEADER_INTS = 8;
+
+    /**
+     * Kódování těl šablon.
+     */
+    static final Charset TEMPLATE_CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * Nejmenší délka hašovací tabulky slov.
+     */
+    private static final int MINIMUM_TABLE_LENGTH = 4;
+
+    /**
+     * Koeficient zaplnění hašovací tabulky slov.
+     */
+    private static final int TABLE_LOAD_FACTOR = 2;
+
+    /**
+     * Přípona dočasného souboru, do kterého se obraz zapisuje.
+     */
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = BotnicekLogger
+            .getLogger(BrainImage.class);
+
+    /**
+     * Lokalizátor hlášek výjimek.
+     */
+    private static final ExceptionMessageLocalizer MESSAGE_LOCALIZER =
+            ExceptionMessageLocalizer.getLocalizer();
+
+    /**
+     * Globální slovník slov.
+     */
+    private static final WordDictionary DICTIONARY = WordDictionary
+            .getDictionary();
+
+    /**
+     * Skrytý konstruktor.
+     */
+    private BrainImage() {
+    }
+
+    /**
+     * Vrátí počáteční pozici hledání slova v hašovací tabulce.
+     * 
+     * @param hash
+     *            haš hodnoty slova dle {@link String#hashCode()}
+     * @param mask
+     *            maska délky tabulky
+     * @return pozice v tabulce
+     */
+    static int slot(final int hash, final int mask) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * Zapíše obraz zmrazeného stromu. Obraz se nejprve zapíše do dočasného
+     * souboru, který pak nahradí cílový, aby jiné procesy nikdy neotevřely
+     * rozepsaný obraz.
+     * 
+     * @param tree
+     *            zmrazený strom
+     * @param path
+     *            cesta k obrazu
+     * @throws IOException
+     *             chyba při zápisu
+     */
+    public static void write(final FrozenWordTree tree, final Path path)
+            throws IOException {
+        if (tree == null || path == null) {
+            throw new NullPointerException(
+                    MESSAGE_LOCALIZER.getMessage("storage.NullArgument"));
+        }
+
+        final int[] firstChild = tree.getFirstChild();
+        final int[] globalIds = tree.getWordIds();
+        final int[] templateIndexes = tree.getTemplateIndexes();
+        final Template[] templates = tree.getTemplates();
+        final int nodeCount = globalIds.length;
+
+        // Lokální identifikátory zachovávají pořadí globálních, synové tak
+        // zůstanou seřazeni a žolíky na začátku úseků.
+        final int[] usedIds = new int[nodeCount];
+        int usedCount = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            if (globalIds[node] != WordDictionary.UNKNOWN) {
+                usedIds[usedCount++] = globalIds[node];
+            }
+        }
+        Arrays.sort(usedIds, 0, usedCount);
+        int wordCount = 0;
+        for (int i = 0; i < usedCount; i++) {
+            if (wordCount == 0 || usedIds[wordCount - 1] != usedIds[i]) {
+                usedIds[wordCount++] = usedIds[i];
+            }
+        }
+
+        final String[] words = new String[wordCount];
+        final int[] wordOffsets = new int[wordCount + 1];
+        for (int local = 0; local < wordCount; local++) {
+            words[local] = DICTIONARY.getValue(usedIds[local]);
+            wordOffsets[local + 1] = wordOffsets[local] + words[local].length();
+        }
+
+        final int[] localIds = new int[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            if (globalIds[node] == WordDictionary.UNKNOWN) {
+                localIds[node] = WordDictionary.UNKNOWN;
+            } else {
+                localIds[node] =
+                        Arrays.binarySearch(usedIds, 0, wordCount,
+                                globalIds[node]);
+            }
+        }
+
+        int tableLength = MINIMUM_TABLE_LENGTH;
+        while (tableLength < wordCount * TABLE_LOAD_FACTOR) {
+            tableLength <<= 1;
+        }
+        final int[] table = new int[tableLength];
+        for (int local = 0; local < wordCount; local++) {
+            int index = slot(words[local].hashCode(), tableLength - 1);
+            while (table[index] != 0) {
+                index = (index + 1) & (tableLength - 1);
+            }
+            table[index] = local + 1;
+        }
+
+        final byte[][] bodies = new byte[templates.length][];
+        final int[] templateOffsets = new int[templates.length + 1];
+        for (int i = 0; i < templates.length; i++) {
+            bodies[i] = templates[i].getValue().getBytes(TEMPLATE_CHARSET);
+            templateOffsets[i + 1] = templateOffsets[i] + bodies[i].length;
+        }
+
+        final Path temporary =
+                path.resolveSibling(path.getFileName() + TEMPORARY_SUFFIX);
+        try (final DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(tree.getCategoryCount());
+            out.writeInt(tree.isForwardCompatible() ? 1 : 0);
+            out.writeInt(nodeCount);
+            out.writeInt(wordCount);
+            out.writeInt(tableLength);
+            out.writeInt(templates.length);
+
+            writeInts(out, firstChild);
+            writeInts(out, localIds);
+            writeInts(out, templateIndexes);
+            writeInts(out, wordOffsets);
+            writeInts(out, table);
+            writeInts(out, templateOffsets);
+
+            for (final String word : words) {
+                out.writeChars(word);
+            }
+            for (final byte[] body : bodies) {
+                out.write(body);
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.log(Level.INFO, "storage.BrainImageWritten", new Object[] {
+                    path, nodeCount, wordCount, templates.length });
+        }
+    }
+
+    /**
+     * Zapíše pole čísel.
+     * 
+     * @param out
+     *            výstupní proud
+     * @param values
+     *            čísla
+     * @throws IOException
+     *             chyba při zápisu
+     */
+    private static void writeInts(final DataOutputStream out,
+            final int[] values) throws IOException {
+        for (final int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Otevře obraz namapováním souboru do paměti.
+     * 
+     * @param path
+     *            cesta k obrazu
+     * @return struktura hledající přímo v namapovaném obrazu
+     * @throws IOException
+     *             chyba při čtení či neplatný obraz
+     */
+    public static MappedWordTree open(final Path path) throws IOException {
+        if (path == null) {
+            throw new NullPointerException(
+                    MESSAGE_LOCALIZER.getMessage("storage.NullArgument"));
+        }
+
+        final MappedByteBuffer buffer;
+        try (final FileChannel channel =
+                FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+        }
+
+        final MappedWordTree result = open(buffer, path);
+        LOGGER.log(Level.INFO, "storage.BrainImageOpened", new Object[] {
+                path, result.getCategoryCount() });
+
+        return result;
+    }
+
+    /**
+     * Vytvoří strukturu nad obrazem v bufferu.
+     * 
+     * @param buffer
+     *            buffer s obrazem
+     * @param source
+     *            původ obrazu pro hlášení chyb
+     * @return struktura hledající přímo v bufferu
+     * @throws IOException
+     *             neplatný obraz
+     */
+    static MappedWordTree open(final ByteBuffer buffer, final Object source)
+            throws IOException {
+        if (buffer.capacity() < HEADER_INTS * Integer.SIZE / Byte.SIZE
+                || buffer.getInt(0) != MAGIC) {
+            throw new IOException(MESSAGE_LOCALIZER.getMessage(
+                    "storage.BrainImageInvalid", source));
+        }
+
+        final int version = buffer.getInt(Integer.SIZE / Byte.SIZE);
+        if (version != VERSION) {
+            throw new IOException(MESSAGE_LOCALIZER.getMessage(
+                    "storage.BrainImageVersion", source, version, VERSION));
+        }
+
+        try {
+            return new MappedWordTree(buffer);
+        } catch (final IndexOutOfBoundsException e) {
+            throw new IOException(MESSAGE_LOCALIZER.getMessage(
+                    "storage.BrainImageInvalid", source), e);
+        } catch (final IllegalArgumentException e) {
+            throw new IOException(MESSAGE_LOCALIZER.getMessage(
+                    "storage.BrainImageInvalid", source), e);
+        }
+    }
+}
@@ -0,0 +1,553 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.logging.BotnicekLogger;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
+
+/**
+ * <p>
+ * Struktura, která si pamatuje výsledky hledání naposledy použitých vstupních
+ * cest (vzor, that, téma) ve vnořené struktuře. Opakované vstupy tak
+ * nevyžadují nové procházení stromu se zpětným návratem přes žolíky.
+ * </p>
+ * 
+ * <p>
+ * Mezipaměť je rozdělena do {@value #SEGMENTS_COUNT} nezávisle zamykaných
+ * úseků, každý z nich vyhazuje nejdéle nepoužité záznamy. Každá změna
+ * provedená přes tuto strukturu po prvním hledání zvýší verzi mezipaměti,
+ * záznamy ze starší verze se již nevrací. Změny před prvním hledáním, kdy je
+ * mezipaměť prázdná, verzi nemění. Změny provedené přímo ve vnořené struktuře mezipaměť
+ * nezneplatní.
+ * </p>
+ * 
+ * <p>
+ * Úspěšné výsledky se pamatují v neměnné podobě (šablona a pozice žolíků) a
+ * při každém nalezení v mezipaměti se z nich sestaví nový výsledek, volající
+ * si je tedy nemohou navzájem ovlivnit. Výsledky jiných implementací než
+ * {@link SuccesfulResult} a {@link FailedResult} se nepamatují. Bezpečnost
+ * pro vícevláknové využití je dána vnořenou strukturou.
+ * </p>
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ */
+public final class CachingStructure implements MatchingStructure, Serializable {
+
+    /**
+     * UID serializované verze.
+     */
+    private static final long serialVersionUID = 3140979626734624306L;
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = BotnicekLogger
+            .getLogger(CachingStructure.class);
+
+    /**
+     * Lokalizátor hlášek výjimek.
+     */
+    private static final ExceptionMessageLocalizer MESSAGE_LOCALIZER =
+            ExceptionMessageLocalizer.getLocalizer();
+
+    /**
+     * Výchozí počet pamatovaných výsledků.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Počet úseků mezipaměti (mocnina dvou).
+     */
+    public static final int SEGMENTS_COUNT = 16;
+
+    /**
+     * Úsek mezipaměti s vlastním zámkem, který vyhazuje nejdéle nepoužité
+     * záznamy.
+     */
+    private static final class Segment extends
+            LinkedHashMap<InputPath, CachedResult> {
+
+        /**
+         * UID serializované verze.
+         */
+        private static final long serialVersionUID = -4471180377406358516L;
+
+        /**
+         * Výchozí faktor naplnění.
+         */
+        private static final float LOAD_FACTOR = 0.75f;
+
+        /**
+         * Maximální počet záznamů v úseku.
+         */
+        private final int capacity;
+
+        /**
+         * Vytvoří prázdný úsek.
+         * 
+         * @param capacity
+         *            maximální počet záznamů
+         */
+        private Segment(final int capacity) {
+            super(capacity, LOAD_FACTOR, true);
+
+            this.capacity = capacity;
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+         */
+        @Override
+        protected boolean removeEldestEntry(
+                final Map.Entry<InputPath, CachedResult> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    /**
+     * Zapamatovaný výsledek spolu s verzí mezipaměti, ve které vznikl.
+     */
+    private static final class CachedResult {
+
+        /**
+         * Zachycený úspěšný výsledek, null pro neúspěšné hledání.
+         */
+        private final CapturedMatch match;
+
+        /**
+         * Verze mezipaměti.
+         */
+        private final int version;
+
+        /**
+         * Vytvoří záznam.
+         * 
+         * @param match
+         *            zachycený úspěšný výsledek, null pro neúspěšné hledání
+         * @param version
+         *            verze mezipaměti před hledáním
+         */
+        private CachedResult(final CapturedMatch match, final int version) {
+            this.match = match;
+            this.version = version;
+        }
+
+        /**
+         * Sestaví výsledek pro vstupní cestu.
+         * 
+         * @param path
+         *            vstupní cesta, pro kterou byl výsledek zapamatován
+         * @return nový úspěšný výsledek, nebo sdílený neúspěšný
+         */
+        private MatchResult bind(final InputPath path) {
+            if (match == null) {
+                return FailedResult.getInstance();
+            }
+
+            return match.bind(path);
+        }
+    }
+
+    /**
+     * Vnořená struktura.
+     */
+    private final MatchingStructure cached;
+
+    /**
+     * Maximální počet pamatovaných výsledků.
+     */
+    private final int capacity;
+
+    /**
+     * Úseky mezipaměti.
+     */
+    private transient Segment[] segments;
+
+    /**
+     * Verze mezipaměti, zvyšuje se při každé změně struktury.
+     */
+    private transient volatile int version;
+
+    /**
+     * Značka verze obsahu, při každém zneplatnění se nahradí novou.
+     */
+    private transient volatile Object contentVersion = new Object();
+
+    /**
+     * Indikuje, zda-li již proběhlo hledání. Do té doby je mezipaměť prázdná a
+     * změny struktury (typicky hromadné načítání) ji nezneplatňují.
+     */
+    private transient volatile boolean searched;
+
+    /**
+     * Vytvoří strukturu s mezipamětí výchozí velikosti.
+     * 
+     * @param cached
+     *            vnořená struktura
+     */
+    public CachingStructure(final MatchingStructure cached) {
+        this(cached, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Vytvoří strukturu s mezipamětí.
+     * 
+     * @param cached
+     *            vnořená struktura
+     * @param capacity
+     *            maximální počet pamatovaných výsledků, alespoň
+     *            {@value #SEGMENTS_COUNT}
+     */
+    public CachingStructure(final MatchingStructure cached, final int capacity) {
+        if (cached == null) {
+            throw new NullPointerException(
+                    MESSAGE_LOCALIZER.getMessage("storage.NullArgument"));
+        }
+
+        if (capacity < SEGMENTS_COUNT) {
+            throw new IllegalArgumentException(MESSAGE_LOCALIZER.getMessage(
+                    "storage.CacheCapacityTooSmall", capacity, SEGMENTS_COUNT));
+        }
+
+        this.cached = cached;
+        this.capacity = capacity;
+        this.segments = createSegments(capacity);
+    }
+
+    /**
+     * Vytvoří prázdné úseky mezipaměti.
+     * 
+     * @param capacity
+     *            celková kapacita
+     * @return úseky
+     */
+    private static Segment[] createSegments(final int capacity) {
+        final Segment[] result = new Segment[SEGMENTS_COUNT];
+        for (int i = 0; i < SEGMENTS_COUNT; i++) {
+            result[i] = new Segment(capacity / SEGMENTS_COUNT);
+        }
+
+        return result;
+    }
+
+    /**
+     * Vrátí vnořenou strukturu.
+     * 
+     * @return vnořená struktura
+     */
+    public MatchingStructure getCached() {
+        return cached;
+    }
+
+    /**
+     * Vrátí verzi mezipaměti.
+     * 
+     * @return počet zneplatnění mezipaměti, tj. změn provedených přes tuto
+     *         strukturu od prvního hledání
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Vrátí úsek příslušný ke vstupní cestě.
+     * 
+     * @param path
+     *            vstupní cesta
+     * @return úsek
+     */
+    private Segment segmentFor(final InputPath path) {
+        final int hash = path.hashCode();
+
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS_COUNT - 1)];
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#find
+     * (cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath)
+     */
+    @Override
+    public MatchResult find(final InputPath path) {
+        // Příznak se musí nastavit před čtením verze, jinak by souběžná
+        // změna mohla zneplatnění vynechat a výsledek starší verze stromu
+        // by zůstal platný.
+        if (!searched) {
+            searched = true;
+        }
+        final int current = version;
+        final Segment segment = segmentFor(path);
+
+        final CachedResult hit;
+        synchronized (segment) {
+            hit = segment.get(path);
+        }
+
+        if (hit != null && hit.version == current) {
+            if (LOGGER.isLoggable(Level.FINER)) {
+                LOGGER.log(Level.FINER, "storage.CacheHit", path);
+            }
+
+            return hit.bind(path);
+        }
+
+        final MatchResult result = cached.find(path);
+
+        final CachedResult entry = toEntry(result, current);
+        if (entry != null) {
+            synchronized (segment) {
+                segment.put(path, entry);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Převede výsledek hledání na záznam mezipaměti.
+     * 
+     * @param result
+     *            výsledek hledání
+     * @param current
+     *            verze mezipaměti před hledáním
+     * @return záznam, nebo null, pokud výsledek nelze zachytit
+     */
+    private static CachedResult toEntry(final MatchResult result,
+            final int current) {
+        if (!result.isSuccesful()) {
+            return new CachedResult(null, current);
+        }
+
+        if (!(result instanceof SuccesfulResult)) {
+            return null;
+        }
+
+        final CapturedMatch match = ((SuccesfulResult) result).capture();
+        if (match == null) {
+            return null;
+        }
+
+        return new CachedResult(match, current);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#findAll
+     * (java.util.List)
+     */
+    @Override
+    public List<MatchResult> findAll(final List<InputPath> paths) {
+        return cached.findAll(paths);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * findContextFree(cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath)
+     */
+    @Override
+    public ContextFreeMatch findContextFree(final InputPath path) {
+        return cached.findContextFree(path);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * Stejně jako při hledání se nejprve nastaví příznak, aby každá pozdější
+     * změna značku nahradila.
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * getContentVersion()
+     */
+    @Override
+    public Object getContentVersion() {
+        if (!searched) {
+            searched = true;
+        }
+
+        return contentVersion;
+    }
+
+    /**
+     * Zneplatní všechny zapamatované výsledky. Záznamy se nemažou, pouze se
+     * zvýší verze mezipaměti, takže je přepíší či vytlačí nové výsledky a
+     * zneplatnění je levné i při hromadném vkládání kategorií.
+     */
+    public synchronized void invalidate() {
+        version++;
+        contentVersion = new Object();
+
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "storage.CacheInvalidated", version);
+        }
+    }
+
+    /**
+     * Zneplatní mezipaměť po změně struktury, pokud v ní mohou být záznamy.
+     * Při načítání před prvním hledáním se tak nezamyká ani nemění verze.
+     */
+    private void invalidateIfSearched() {
+        if (searched) {
+            invalidate();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#add
+     * (cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath,
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.Template)
+     */
+    @Override
+    public void add(final InputPath path, final Template answer) {
+        cached.add(path, answer);
+
+        invalidateIfSearched();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#replace
+     * (cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath,
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.Template)
+     */
+    @Override
+    public Template replace(final InputPath path, final Template answer) {
+        final Template previous = cached.replace(path, answer);
+
+        invalidateIfSearched();
+        return previous;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#remove
+     * (cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath)
+     */
+    @Override
+    public Template remove(final InputPath path) {
+        final Template removed = cached.remove(path);
+
+        if (removed != null) {
+            invalidateIfSearched();
+        }
+        return removed;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * getCategoryCount()
+     */
+    @Override
+    public int getCategoryCount() {
+        return cached.getCategoryCount();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * getStatistics()
+     */
+    @Override
+    public StructureStatistics getStatistics() {
+        return cached.getStatistics();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * isForwardCompatible()
+     */
+    @Override
+    public boolean isForwardCompatible() {
+        return cached.isForwardCompatible();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * setForwardCompatible(boolean)
+     */
+    @Override
+    public void setForwardCompatible(final boolean forwardCompatible) {
+        cached.setForwardCompatible(forwardCompatible);
+
+        invalidateIfSearched();
+    }
+
+    /**
+     * Po načtení vytvoří prázdnou mezipaměť.
+     * 
+     * @param in
+     *            vstupní proud
+     * @throws IOException
+     *             chyba při čtení
+     * @throws ClassNotFoundException
+     *             neznámá třída
+     */
+    private void readObject(final ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        in.defaultReadObject();
+
+        segments = createSegments(capacity);
+        contentVersion = new Object();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "CachingStructure [cached=" + cached + ", capacity=" + capacity
+                + ", version=" + version + "]";
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import java.util.Arrays;
+
+/**
+ * Neměnně zachycený úspěšný výsledek hledání: nalezená šablona a pozice
+ * žolíků ve vstupní cestě. Lze jej sdílet mezi vlákny a pro každé použití z
+ * něj sestavit nový výsledek, nahrazené části se přitom vyčtou ze zadané
+ * cesty.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see SuccesfulResult#capture()
+ */
+final class CapturedMatch {
+
+    /**
+     * Nalezená šablona.
+     */
+    private final Template template;
+
+    /**
+     * Části cesty, ve kterých žolíky leží, v pořadí zaznamenání.
+     */
+    private final PartMarker[] parts;
+
+    /**
+     * Žolíky v pořadí zaznamenání.
+     */
+    private final Word[] wildcards;
+
+    /**
+     * Indexy prvních pohlcených slov.
+     */
+    private final int[] froms;
+
+    /**
+     * Indexy za posledními pohlcenými slovy.
+     */
+    private final int[] tos;
+
+    /**
+     * Vytvoří zachycený výsledek. Pole se nekopírují a nesmí se již měnit.
+     * 
+     * @param template
+     *            nalezená šablona
+     * @param parts
+     *            části cesty žolíků v pořadí zaznamenání
+     * @param wildcards
+     *            žolíky v pořadí zaznamenání
+     * @param froms
+     *            indexy prvních pohlcených slov
+     * @param tos
+     *            indexy za posledními pohlcenými slovy
+     */
+    CapturedMatch(final Template template, final PartMarker[] parts,
+            final Word[] wildcards, final int[] froms, final int[] tos) {
+        this.template = template;
+        this.parts = parts;
+        this.wildcards = wildcards;
+        this.froms = froms;
+        this.tos = tos;
+    }
+
+    /**
+     * Sestaví nový výsledek pro vstupní cestu rovnou té, pro kterou byl
+     * výsledek zachycen.
+     * 
+     * @param path
+     *            vstupní cesta
+     * @return nový úspěšný výsledek
+     */
+    MatchResult bind(final InputPath path) {
+        final SuccesfulResult result = new SuccesfulResult(template);
+        if (parts.length == 0) {
+            return result;
+        }
+
+        final Word[] words = WordNode.toWordArray(path);
+        for (int index = 0; index < parts.length; index++) {
+            result.addStarMatchedPart(parts[index], WordNode.getCapturedPart(
+                    path, words, froms[index], tos[index], parts[index]));
+            result.addWildcardPosition(parts[index], wildcards[index],
+                    froms[index], tos[index]);
+        }
+
+        return result;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "CapturedMatch [template=" + template + ", parts="
+                + Arrays.toString(parts) + ", wildcards="
+                + Arrays.toString(wildcards) + ", froms="
+                + Arrays.toString(froms) + ", tos=" + Arrays.toString(tos)
+                + "]";
+    }
+}
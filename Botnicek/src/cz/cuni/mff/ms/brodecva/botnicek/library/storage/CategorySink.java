@@ -0,0 +1,56 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+/**
+ * Příjemce kategorií, do kterého parser zdrojového kódu vkládá načtené
+ * kategorie. Vedle rozhodovacích struktur jím mohou být i pomocné záznamy,
+ * které kategorie jen shromažďují, aniž by v nich šlo hledat.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see MatchingStructure
+ */
+public interface CategorySink {
+    /**
+     * Přidá šablonu pro danou vstupní cestu jako její výsledek.
+     * 
+     * @param path
+     *            vstupní cesta obsahující dotaz
+     * @param answer
+     *            šablona s reakcí odpovídající dotazu ve vstupní cestě
+     */
+    void add(InputPath path, Template answer);
+
+    /**
+     * Značí nutnost dopředného zpracování.
+     * 
+     * @return true, pokud příjemce vyžaduje dopředné zpracování
+     */
+    boolean isForwardCompatible();
+
+    /**
+     * Označí příjemce jako příjemce vyžadujícího dopředné zpracování.
+     * 
+     * @param forwardCompatible
+     *            true pro označení příjemce jako příjemce obsahujícího prvky
+     *            vyžadující dopředné zpracování
+     */
+    void setForwardCompatible(boolean forwardCompatible);
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+/**
+ * <p>
+ * Výsledek hledání vzorové části vstupní cesty, který nezávisí na kontextu.
+ * Nalezená kategorie má v části that i topic jediný žolík a před ní by
+ * hledání nenarazilo na žádnou kategorii, jejíž shoda by na kontextu
+ * závisela. Pro libovolné that a topic tak hledání celé cesty skončí u téže
+ * šablony se stejně zachycenými částmi vzoru.
+ * </p>
+ * 
+ * <p>
+ * Instance je neměnná a lze ji sdílet mezi konverzacemi.
+ * </p>
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see MatchingStructure#findContextFree(InputPath)
+ */
+public final class ContextFreeMatch {
+
+    /**
+     * Nalezená šablona.
+     */
+    private final Template template;
+
+    /**
+     * Žolíky vzoru v pořadí cesty.
+     */
+    private final Word[] wildcards;
+
+    /**
+     * Počáteční indexy úseků pohlcených žolíky vzoru.
+     */
+    private final int[] froms;
+
+    /**
+     * Koncové indexy (mimo) úseků pohlcených žolíky vzoru.
+     */
+    private final int[] tos;
+
+    /**
+     * Části vzoru zachycené žolíky.
+     */
+    private final InputPath[] parts;
+
+    /**
+     * Žolík části that.
+     */
+    private final Word thatWildcard;
+
+    /**
+     * Žolík části topic.
+     */
+    private final Word topicWildcard;
+
+    /**
+     * Vytvoří výsledek.
+     * 
+     * @param template
+     *            nalezená šablona
+     * @param wildcards
+     *            žolíky vzoru v pořadí cesty
+     * @param froms
+     *            počáteční indexy pohlcených úseků
+     * @param tos
+     *            koncové indexy (mimo) pohlcených úseků
+     * @param parts
+     *            zachycené části vzoru
+     * @param thatWildcard
+     *            žolík části that
+     * @param topicWildcard
+     *            žolík části topic
+     */
+    ContextFreeMatch(final Template template, final Word[] wildcards,
+            final int[] froms, final int[] tos, final InputPath[] parts,
+            final Word thatWildcard, final Word topicWildcard) {
+        this.template = template;
+        this.wildcards = wildcards;
+        this.froms = froms;
+        this.tos = tos;
+        this.parts = parts;
+        this.thatWildcard = thatWildcard;
+        this.topicWildcard = topicWildcard;
+    }
+
+    /**
+     * Vrátí nalezenou šablonu.
+     * 
+     * @return šablona
+     */
+    public Template getTemplate() {
+        return template;
+    }
+
+    /**
+     * Doplní výsledek o kontext vstupní cesty. Vzniklý výsledek je shodný s
+     * výsledkem hledání celé cesty, žolíky that a topic zachytí celé své
+     * části.
+     * 
+     * @param path
+     *            celá vstupní cesta se vzorovou částí, pro kterou byl výsledek
+     *            nalezen
+     * @return nový úspěšný výsledek, nebo null, pokud je část that nebo topic
+     *         prázdná a žolík ji pohltit nemůže
+     */
+    public MatchResult bind(final InputPath path) {
+        final Word[] words = WordNode.toWordArray(path);
+
+        int thatIndex = -1;
+        int topicIndex = -1;
+        for (int index = 0; index < words.length; index++) {
+            if (AIMLPartMarker.THAT.equals(words[index])) {
+                thatIndex = index;
+            } else if (AIMLPartMarker.TOPIC.equals(words[index])) {
+                topicIndex = index;
+            }
+        }
+
+        if (thatIndex == -1 || topicIndex - thatIndex < 2
+                || words.length - topicIndex < 2) {
+            return null;
+        }
+
+        final MatchResult result = new SuccesfulResult(template);
+
+        bindPart(result, path, words, AIMLPartMarker.TOPIC, topicWildcard,
+                topicIndex + 1, words.length);
+        bindPart(result, path, words, AIMLPartMarker.THAT, thatWildcard,
+                thatIndex + 1, topicIndex);
+
+        for (int index = wildcards.length - 1; index >= 0; index--) {
+            result.addStarMatchedPart(AIMLPartMarker.PATTERN, parts[index]);
+            result.addWildcardPosition(AIMLPartMarker.PATTERN,
+                    wildcards[index], froms[index], tos[index]);
+        }
+
+        return result;
+    }
+
+    /**
+     * Zaznamená do výsledku část kontextu pohlcenou žolíkem. Část tvořená
+     * jediným slovem shodným s hvězdičkou projde při hledání hvězdičkovou
+     * větví jako obyčejné slovo (slovo má přednost před hvězdičkou), nic se
+     * tedy nezachytí.
+     * 
+     * @param result
+     *            doplňovaný výsledek
+     * @param path
+     *            celá vstupní cesta
+     * @param words
+     *            slova celé vstupní cesty
+     * @param part
+     *            část kontextu
+     * @param wildcard
+     *            žolík části
+     * @param from
+     *            počáteční index části (včetně)
+     * @param to
+     *            koncový index části (mimo)
+     */
+    private static void bindPart(final MatchResult result,
+            final InputPath path, final Word[] words, final PartMarker part,
+            final Word wildcard, final int from, final int to) {
+        if (to - from == 1 && AIMLWildcard.ASTERISK.equals(wildcard)
+                && wildcard.getValue().equals(words[from].getValue())) {
+            return;
+        }
+
+        result.addStarMatchedPart(part, path.subPath(from, to));
+        result.addWildcardPosition(part, wildcard, from, to);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "ContextFreeMatch [template=" + template + ", wildcards="
+                + wildcards.length + ", thatWildcard=" + thatWildcard
+                + ", topicWildcard=" + topicWildcard + "]";
+    }
+}
@@ -52,6 +52,21 @@ public final class FailedResult implements MatchResult, Serializable {
      */
     private static final long serialVersionUID = 8101303385220960832L;
 
+    /**
+     * Sdílená instance. Výsledek nenese žádný stav, lze jej tedy vracet při
+     * každém neúspěšném hledání bez nutnosti vytvářet nové objekty.
+     */
+    private static final FailedResult INSTANCE = new FailedResult();
+
+    /**
+     * Vrátí sdílenou instanci neúspěšného výsledku.
+     * 
+     * @return sdílený neúspěšný výsledek
+     */
+    public static FailedResult getInstance() {
+        return INSTANCE;
+    }
+
     /**
      * Konstruktor indikátoru neúspěšného hledání.
      */
@@ -108,6 +123,37 @@ public final class FailedResult implements MatchResult, Serializable {
             final InputPath matchedPart) {
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchResult#
+     * addWildcardPosition(cz.cuni.mff.ms.brodecva.botnicek.library.storage.
+     * PartMarker, cz.cuni.mff.ms.brodecva.botnicek.library.storage.Word, int,
+     * int)
+     */
+    @Override
+    public void addWildcardPosition(final PartMarker pathPart,
+            final Word wildcard, final int from, final int to) {
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * Neúspěšný výsledek nemá přednost před žádným úspěšným.
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchResult#
+     * comparePriority(cz.cuni.mff.ms.brodecva.botnicek.library.storage.
+     * MatchResult)
+     */
+    @Override
+    public int comparePriority(final MatchResult other) {
+        if (other.isSuccesful()) {
+            return 1;
+        }
+
+        return 0;
+    }
+
     /* (non-Javadoc)
      * @see java.lang.Object#toString()
      */
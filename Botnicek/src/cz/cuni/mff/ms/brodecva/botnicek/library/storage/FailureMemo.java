@@ -0,0 +1,101 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Záznam neúspěšných stavů jednoho hledání ve stromu. Stavem je uzel, do
+ * kterého hledání vstoupilo za žolíkem, spolu s pozicí ve slovech vstupní
+ * cesty. Výsledek hledání v takovém stavu nezávisí na tom, kolik slov pohltily
+ * předchozí žolíky, opakovaný pokus jej tedy může přeskočit bez změny pořadí
+ * nalezených shod.
+ * 
+ * <p>
+ * Instance slouží jedinému hledání a není bezpečná pro více vláken. Úložiště
+ * se vytváří až při prvním zaznamenaném neúspěchu.
+ * </p>
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see WordNode#find(InputPath, PartMarker, boolean)
+ */
+final class FailureMemo {
+    /**
+     * Neúspěšné pozice pro jednotlivé uzly.
+     */
+    private Map<WordNode, BitSet> failures = null;
+
+    /**
+     * Délka prohledávané vstupní cesty.
+     */
+    private final int length;
+
+    /**
+     * Vytvoří prázdný záznam pro hledání cesty dané délky.
+     * 
+     * @param length
+     *            počet slov vstupní cesty
+     */
+    FailureMemo(final int length) {
+        this.length = length;
+    }
+
+    /**
+     * Zjistí, zda-li již hledání v daném stavu jednou selhalo.
+     * 
+     * @param node
+     *            uzel
+     * @param position
+     *            pozice ve slovech vstupní cesty
+     * @return true, pokud byl stav zaznamenán jako neúspěšný
+     */
+    boolean hasFailed(final WordNode node, final int position) {
+        if (failures == null) {
+            return false;
+        }
+
+        final BitSet positions = failures.get(node);
+        return positions != null && positions.get(position);
+    }
+
+    /**
+     * Zaznamená neúspěch hledání v daném stavu.
+     * 
+     * @param node
+     *            uzel
+     * @param position
+     *            pozice ve slovech vstupní cesty
+     */
+    void recordFailure(final WordNode node, final int position) {
+        if (failures == null) {
+            failures = new IdentityHashMap<WordNode, BitSet>();
+        }
+
+        BitSet positions = failures.get(node);
+        if (positions == null) {
+            positions = new BitSet(length + 1);
+            failures.put(node, positions);
+        }
+
+        positions.set(position);
+    }
+}
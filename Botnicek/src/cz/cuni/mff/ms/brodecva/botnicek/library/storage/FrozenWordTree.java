@@ -0,0 +1,759 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.logging.BotnicekLogger;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
+
+/**
+ * <p>
+ * Neměnná podoba {@link WordTree} vzniklá po dokončení načítání. Uzly jsou
+ * očíslovány po úrovních a uloženy v plochých polích primitivních typů: synové
+ * každého uzlu tvoří souvislý úsek seřazený podle identifikátorů slov z
+ * globálního {@link WordDictionary slovníku}, takže se mezi nimi hledá
+ * binárně a bez procházení odkazů.
+ * </p>
+ * 
+ * <p>
+ * Struktura se po vytvoření nemění, a proto ji lze bez zamykání sdílet mezi
+ * vlákny. Přidávání kategorií není podporováno.
+ * </p>
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see WordTree#freeze()
+ */
+public final class FrozenWordTree implements MatchingStructure, Serializable {
+    /**
+     * UID serializované verze.
+     */
+    private static final long serialVersionUID = 5094236413562851708L;
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = BotnicekLogger
+            .getLogger(FrozenWordTree.class);
+
+    /**
+     * Lokalizátor hlášek výjimek.
+     */
+    private static final ExceptionMessageLocalizer MESSAGE_LOCALIZER =
+            ExceptionMessageLocalizer.getLocalizer();
+
+    /**
+     * Globální slovník slov.
+     */
+    private static final WordDictionary DICTIONARY = WordDictionary
+            .getDictionary();
+
+    /**
+     * Index kořene.
+     */
+    private static final int ROOT = 0;
+
+    /**
+     * Značka chybějícího uzlu či šablony.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * Počet synů, od kterého se mezi nimi hledá binárně.
+     */
+    private static final int BINARY_SEARCH_THRESHOLD = 8;
+
+    /**
+     * Index prvního syna každého uzlu, poslední prvek uzavírá synovský úsek
+     * posledního uzlu.
+     */
+    private final int[] firstChild;
+
+    /**
+     * Identifikátor slova, které na uzel odkazuje (kořen nemá žádné).
+     */
+    private final int[] wordIds;
+
+    /**
+     * Index šablony uzlu, nebo {@value #NONE}.
+     */
+    private final int[] templateIndexes;
+
+    /**
+     * Šablony.
+     */
+    private final Template[] templates;
+
+    /**
+     * Počet kategorií.
+     */
+    private final int categoryCount;
+
+    /**
+     * Indikuje přítomnost prvků vyžadujících dopředné zpracování.
+     */
+    private final boolean forwardCompatible;
+
+    /**
+     * Zmrazí strom s daným kořenem.
+     * 
+     * @param root
+     *            kořen stromu
+     * @param categoryCount
+     *            počet kategorií
+     * @param forwardCompatible
+     *            indikace prvků vyžadujících dopředné zpracování
+     * @return zmrazený strom
+     */
+    static FrozenWordTree freeze(final WordNode root, final int categoryCount,
+            final boolean forwardCompatible) {
+        final List<WordNode> nodes = new ArrayList<WordNode>();
+        final List<Template> templates = new ArrayList<Template>();
+        int[] firstChild = new int[1];
+        int[] wordIds = new int[1];
+        int[] templateIndexes = new int[1];
+
+        nodes.add(root);
+        wordIds[ROOT] = WordDictionary.UNKNOWN;
+        for (int index = 0; index < nodes.size(); index++) {
+            final WordNode node = nodes.get(index);
+
+            firstChild = ensureLength(firstChild, index + 2);
+            templateIndexes = ensureLength(templateIndexes, index + 1);
+
+            firstChild[index] = nodes.size();
+            for (final Entry<Word, WordNode> branch : node.getBranchEntries()) {
+                wordIds = ensureLength(wordIds, nodes.size() + 1);
+                wordIds[nodes.size()] = DICTIONARY.intern(branch.getKey());
+                nodes.add(branch.getValue());
+            }
+
+            final Template template = node.getTemplate();
+            if (template == null) {
+                templateIndexes[index] = NONE;
+            } else {
+                templateIndexes[index] = templates.size();
+                templates.add(template);
+            }
+        }
+
+        final int count = nodes.size();
+        firstChild[count] = count;
+
+        final FrozenWordTree result =
+                new FrozenWordTree(Arrays.copyOf(firstChild, count + 1),
+                        Arrays.copyOf(wordIds, count), Arrays.copyOf(
+                                templateIndexes, count),
+                        templates.toArray(new Template[templates.size()]),
+                        categoryCount, forwardCompatible);
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "storage.TreeFrozen", new Object[] {
+                    categoryCount, count });
+        }
+
+        return result;
+    }
+
+    /**
+     * Zajistí délku pole.
+     * 
+     * @param array
+     *            pole
+     * @param length
+     *            požadovaná délka
+     * @return pole alespoň požadované délky
+     */
+    private static int[] ensureLength(final int[] array, final int length) {
+        if (array.length >= length) {
+            return array;
+        }
+
+        return Arrays.copyOf(array, Math.max(length, array.length * 2));
+    }
+
+    /**
+     * Vytvoří strom z polí, ve kterých synové uzlů ještě nemusí být seřazeni.
+     * Uzly očísluje znovu tak, aby synovské úseky byly seřazené podle
+     * identifikátorů slov.
+     * 
+     * @param unsortedFirstChild
+     *            indexy prvních synů
+     * @param unsortedWordIds
+     *            identifikátory slov odkazujících na uzly
+     * @param unsortedTemplateIndexes
+     *            indexy šablon uzlů
+     * @param templates
+     *            šablony
+     * @param categoryCount
+     *            počet kategorií
+     * @param forwardCompatible
+     *            indikace prvků vyžadujících dopředné zpracování
+     */
+    private FrozenWordTree(final int[] unsortedFirstChild,
+            final int[] unsortedWordIds, final int[] unsortedTemplateIndexes,
+            final Template[] templates, final int categoryCount,
+            final boolean forwardCompatible) {
+        final int count = unsortedWordIds.length;
+
+        final int[] order = new int[count];
+        final long[] keys = new long[count];
+        this.firstChild = new int[count + 1];
+
+        order[ROOT] = ROOT;
+        int tail = 1;
+        for (int index = 0; index < count; index++) {
+            final int original = order[index];
+            final int from = unsortedFirstChild[original];
+            final int to = unsortedFirstChild[original + 1];
+
+            firstChild[index] = tail;
+            for (int child = from; child < to; child++) {
+                keys[tail + child - from] =
+                        ((long) unsortedWordIds[child] << Integer.SIZE) | child;
+            }
+            Arrays.sort(keys, tail, tail + to - from);
+            for (int i = tail; i < tail + to - from; i++) {
+                order[i] = (int) keys[i];
+            }
+
+            tail += to - from;
+        }
+        firstChild[count] = tail;
+
+        this.wordIds = new int[count];
+        this.templateIndexes = new int[count];
+        for (int index = 0; index < count; index++) {
+            wordIds[index] = unsortedWordIds[order[index]];
+            templateIndexes[index] = unsortedTemplateIndexes[order[index]];
+        }
+
+        this.templates = templates;
+        this.categoryCount = categoryCount;
+        this.forwardCompatible = forwardCompatible;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#find
+     * (cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath)
+     */
+    @Override
+    public MatchResult find(final InputPath path) {
+        LOGGER.log(Level.INFO, "storage.FindingMatchForPath", path);
+
+        final Word[] words = WordNode.toWordArray(path);
+        final int[] ids = new int[words.length];
+        for (int index = 0; index < words.length; index++) {
+            ids[index] = DICTIONARY.lookup(words[index]);
+        }
+
+        return find(path, words, ids, ROOT, 0, AIMLPartMarker.PATTERN);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#findAll
+     * (java.util.List)
+     */
+    @Override
+    public List<MatchResult> findAll(final List<InputPath> paths) {
+        return BatchMatcher.findAll(this, paths);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * Zmrazený strom hledání nezávislé na kontextu nepodporuje.
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * findContextFree(cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath)
+     */
+    @Override
+    public ContextFreeMatch findContextFree(final InputPath path) {
+        return null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * getContentVersion()
+     */
+    @Override
+    public Object getContentVersion() {
+        return null;
+    }
+
+    /**
+     * Prohledá podstrom uzlu od dané pozice ve slovech vstupní cesty.
+     * 
+     * @param path
+     *            celá vstupní cesta
+     * @param words
+     *            slova celé vstupní cesty
+     * @param ids
+     *            identifikátory slov celé vstupní cesty
+     * @param node
+     *            index uzlu
+     * @param position
+     *            index prvního dosud nezpracovaného slova
+     * @param currentPart
+     *            typ aktuálně porovnávané části vzorku
+     * @return výsledek hledání zbytku vstupní cesty v podstromu uzlu
+     */
+    private MatchResult find(final InputPath path, final Word[] words,
+            final int[] ids, final int node, final int position,
+            final PartMarker currentPart) {
+        if (position == words.length) {
+            final int templateIndex = templateIndexes[node];
+            if (templateIndex == NONE) {
+                return FailedResult.getInstance();
+            }
+
+            return new SuccesfulResult(templates[templateIndex]);
+        }
+
+        MatchResult result;
+
+        result =
+                suffixSearch(path, words, ids, node, position,
+                        AIMLWildcard.UNDERSCORE, currentPart);
+        if (result.isSuccesful()) {
+            return result;
+        }
+
+        final int id = ids[position];
+        if (id != WordDictionary.UNKNOWN) {
+            final int child = getChild(node, id);
+            if (child != NONE) {
+                result =
+                        find(path, words, ids, child, position + 1,
+                                WordNode.getNewPart(words[position],
+                                        currentPart));
+                if (result.isSuccesful()) {
+                    return result;
+                }
+            }
+        }
+
+        return suffixSearch(path, words, ids, node, position,
+                AIMLWildcard.ASTERISK, currentPart);
+    }
+
+    /**
+     * Suffixové hledání v podstromě žolíku. Žolík pohltí alespoň jedno slovo,
+     * kratší pohlcené úseky mají přednost.
+     * 
+     * @param path
+     *            celá vstupní cesta
+     * @param words
+     *            slova celé vstupní cesty
+     * @param ids
+     *            identifikátory slov celé vstupní cesty
+     * @param node
+     *            index uzlu
+     * @param position
+     *            index prvního slova pohlceného žolíkem
+     * @param wildcard
+     *            žolík
+     * @param currentPart
+     *            typ aktuálně porovnávané části vzorku
+     * @return výsledek hledání mezi suffixy v podstromě žolíku
+     */
+    private MatchResult suffixSearch(final InputPath path, final Word[] words,
+            final int[] ids, final int node, final int position,
+            final AIMLWildcard wildcard, final PartMarker currentPart) {
+        final int child = getChild(node, wildcard.getId());
+        if (child == NONE) {
+            return FailedResult.getInstance();
+        }
+
+        for (int end = position + 1; end <= words.length; end++) {
+            final MatchResult result =
+                    find(path, words, ids, child, end, currentPart);
+
+            if (result.isSuccesful()) {
+                result.addStarMatchedPart(currentPart, WordNode
+                        .getCapturedPart(path, words, position, end,
+                                currentPart));
+                result.addWildcardPosition(currentPart, wildcard, position,
+                        end);
+                return result;
+            }
+        }
+
+        return FailedResult.getInstance();
+    }
+
+    /**
+     * Najde syna uzlu, na kterého odkazuje dané slovo.
+     * 
+     * @param node
+     *            index uzlu
+     * @param wordId
+     *            identifikátor slova
+     * @return index syna, nebo {@value #NONE}
+     */
+    private int getChild(final int node, final int wordId) {
+        int low = firstChild[node];
+        int high = firstChild[node + 1] - 1;
+
+        // Žolíky mají nejnižší identifikátory, chybějící se tak odhalí hned.
+        if (low > high || wordIds[low] > wordId) {
+            return NONE;
+        }
+
+        if (high - low < BINARY_SEARCH_THRESHOLD) {
+            for (int child = low; child <= high; child++) {
+                final int childWordId = wordIds[child];
+                if (childWordId == wordId) {
+                    return child;
+                }
+                if (childWordId > wordId) {
+                    return NONE;
+                }
+            }
+
+            return NONE;
+        }
+
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int middleWordId = wordIds[middle];
+
+            if (middleWordId < wordId) {
+                low = middle + 1;
+            } else if (middleWordId > wordId) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return NONE;
+    }
+
+    /**
+     * Zmrazený strom nelze měnit.
+     * 
+     * @param path
+     *            vstupní cesta
+     * @param answer
+     *            šablona
+     * @throws UnsupportedOperationException
+     *             vždy
+     */
+    @Override
+    public void add(final InputPath path, final Template answer) {
+        throw new UnsupportedOperationException(
+                MESSAGE_LOCALIZER.getMessage("storage.FrozenStructureImmutable"));
+    }
+
+    /**
+     * Zmrazený strom nelze měnit.
+     * 
+     * @param path
+     *            vstupní cesta
+     * @param answer
+     *            šablona
+     * @return nic
+     * @throws UnsupportedOperationException
+     *             vždy
+     */
+    @Override
+    public Template replace(final InputPath path, final Template answer) {
+        throw new UnsupportedOperationException(
+                MESSAGE_LOCALIZER.getMessage("storage.FrozenStructureImmutable"));
+    }
+
+    /**
+     * Zmrazený strom nelze měnit.
+     * 
+     * @param path
+     *            vstupní cesta
+     * @return nic
+     * @throws UnsupportedOperationException
+     *             vždy
+     */
+    @Override
+    public Template remove(final InputPath path) {
+        throw new UnsupportedOperationException(
+                MESSAGE_LOCALIZER.getMessage("storage.FrozenStructureImmutable"));
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * getCategoryCount()
+     */
+    @Override
+    public int getCategoryCount() {
+        return categoryCount;
+    }
+
+    /**
+     * Vrátí indexy prvních synů uzlů (pole se nesmí měnit).
+     * 
+     * @return indexy prvních synů, poslední prvek uzavírá úsek posledního uzlu
+     */
+    int[] getFirstChild() {
+        return firstChild;
+    }
+
+    /**
+     * Vrátí identifikátory slov odkazujících na uzly (pole se nesmí měnit).
+     * 
+     * @return identifikátory slov odkazujících na uzly
+     */
+    int[] getWordIds() {
+        return wordIds;
+    }
+
+    /**
+     * Vrátí indexy šablon uzlů (pole se nesmí měnit).
+     * 
+     * @return indexy šablon uzlů
+     */
+    int[] getTemplateIndexes() {
+        return templateIndexes;
+    }
+
+    /**
+     * Vrátí šablony (pole se nesmí měnit).
+     * 
+     * @return šablony
+     */
+    Template[] getTemplates() {
+        return templates;
+    }
+
+    /**
+     * Vrátí počet uzlů.
+     * 
+     * @return počet uzlů
+     */
+    public int getNodeCount() {
+        return wordIds.length;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * getStatistics()
+     */
+    @Override
+    public StructureStatistics getStatistics() {
+        final StructureStatistics statistics = new StructureStatistics();
+        final int count = wordIds.length;
+
+        // Synové následují za otci, hloubky lze tedy spočítat jedním průchodem.
+        final int[] depths = new int[count];
+        for (int node = 0; node < count; node++) {
+            final int from = firstChild[node];
+            final int to = firstChild[node + 1];
+            for (int child = from; child < to; child++) {
+                depths[child] = depths[node] + 1;
+            }
+
+            statistics.addNode(depths[node], to - from);
+            if (node != ROOT) {
+                statistics.addWord(DICTIONARY.getValue(wordIds[node]));
+            }
+        }
+
+        for (final Template template : templates) {
+            final int length = template.getValue().length();
+
+            statistics.addTemplate(StructureStatistics.CHAR_BYTES * length);
+            statistics.addHeapSize(StructureStatistics.OBJECT_HEADER_BYTES
+                    + StructureStatistics.REFERENCE_BYTES
+                    + StructureStatistics.STRING_OVERHEAD_BYTES
+                    + StructureStatistics.CHAR_BYTES * length);
+        }
+
+        statistics.addHeapSize(StructureStatistics.OBJECT_HEADER_BYTES + 4
+                * StructureStatistics.REFERENCE_BYTES + 4
+                * StructureStatistics.ARRAY_HEADER_BYTES
+                + (long) (3 * count + 1) * StructureStatistics.INT_BYTES
+                + (long) templates.length * StructureStatistics.REFERENCE_BYTES);
+
+        return statistics;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * isForwardCompatible()
+     */
+    @Override
+    public boolean isForwardCompatible() {
+        return forwardCompatible;
+    }
+
+    /**
+     * Zmrazený strom nelze měnit.
+     * 
+     * @param forwardCompatible
+     *            indikace prvků vyžadujících dopředné zpracování
+     * @throws UnsupportedOperationException
+     *             vždy
+     */
+    @Override
+    public void setForwardCompatible(final boolean forwardCompatible) {
+        throw new UnsupportedOperationException(
+                MESSAGE_LOCALIZER.getMessage("storage.FrozenStructureImmutable"));
+    }
+
+    /**
+     * Nahradí strom při serializaci formou, která místo identifikátorů slov
+     * platných jen v rámci běhu nese jejich hodnoty.
+     * 
+     * @return serializovaná forma
+     */
+    private Object writeReplace() {
+        final String[] values = new String[wordIds.length];
+        for (int index = 0; index < wordIds.length; index++) {
+            if (wordIds[index] != WordDictionary.UNKNOWN) {
+                values[index] = DICTIONARY.getValue(wordIds[index]);
+            }
+        }
+
+        return new SerializedForm(firstChild, values, templateIndexes,
+                templates, categoryCount, forwardCompatible);
+    }
+
+    /**
+     * Strom se smí deserializovat jen přes serializovanou formu.
+     * 
+     * @param in
+     *            vstupní proud
+     * @throws InvalidObjectException
+     *             vždy
+     */
+    private void readObject(final ObjectInputStream in)
+            throws InvalidObjectException {
+        throw new InvalidObjectException(
+                MESSAGE_LOCALIZER.getMessage("storage.SerializedFormRequired"));
+    }
+
+    /**
+     * Serializovaná forma zmrazeného stromu.
+     * 
+     * @author Václav Brodec
+     * @version 1.0
+     */
+    private static final class SerializedForm implements Serializable {
+        /**
+         * UID serializované verze.
+         */
+        private static final long serialVersionUID = -2271804556186409473L;
+
+        /**
+         * Indexy prvních synů.
+         */
+        private final int[] firstChild;
+
+        /**
+         * Hodnoty slov odkazujících na uzly.
+         */
+        private final String[] words;
+
+        /**
+         * Indexy šablon uzlů.
+         */
+        private final int[] templateIndexes;
+
+        /**
+         * Šablony.
+         */
+        private final Template[] templates;
+
+        /**
+         * Počet kategorií.
+         */
+        private final int categoryCount;
+
+        /**
+         * Indikace prvků vyžadujících dopředné zpracování.
+         */
+        private final boolean forwardCompatible;
+
+        /**
+         * Vytvoří serializovanou formu.
+         * 
+         * @param firstChild
+         *            indexy prvních synů
+         * @param words
+         *            hodnoty slov odkazujících na uzly
+         * @param templateIndexes
+         *            indexy šablon uzlů
+         * @param templates
+         *            šablony
+         * @param categoryCount
+         *            počet kategorií
+         * @param forwardCompatible
+         *            indikace prvků vyžadujících dopředné zpracování
+         */
+        private SerializedForm(final int[] firstChild, final String[] words,
+                final int[] templateIndexes, final Template[] templates,
+                final int categoryCount, final boolean forwardCompatible) {
+            this.firstChild = firstChild;
+            this.words = words;
+            this.templateIndexes = templateIndexes;
+            this.templates = templates;
+            this.categoryCount = categoryCount;
+            this.forwardCompatible = forwardCompatible;
+        }
+
+        /**
+         * Obnoví strom s identifikátory slov z aktuálního slovníku.
+         * 
+         * @return obnovený strom
+         */
+        private Object readResolve() {
+            final int[] wordIds = new int[words.length];
+            for (int index = 0; index < words.length; index++) {
+                if (words[index] == null) {
+                    wordIds[index] = WordDictionary.UNKNOWN;
+                } else {
+                    wordIds[index] = DICTIONARY.intern(words[index]);
+                }
+            }
+
+            return new FrozenWordTree(firstChild, wordIds, templateIndexes,
+                    templates, categoryCount, forwardCompatible);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+/**
+ * Slovo nesoucí svůj identifikátor v globálním slovníku.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see WordDictionary
+ */
+public interface IndexedWord extends Word {
+    /**
+     * Vrátí identifikátor slova v globálním slovníku.
+     * 
+     * @return identifikátor slova, nebo {@value WordDictionary#UNKNOWN}, pokud
+     *         slovo ve slovníku není
+     */
+    int getId();
+}
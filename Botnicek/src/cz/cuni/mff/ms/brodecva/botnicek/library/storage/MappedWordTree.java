@@ -0,0 +1,671 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.logging.BotnicekLogger;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
+
+/**
+ * <p>
+ * Neměnná rozhodovací struktura hledající přímo v {@link BrainImage obrazu
+ * mozku}, typicky namapovaném do paměti. Na haldě nejsou uzly ani slova,
+ * vzniká pouze výsledek hledání. Šablona se z obrazu přečte až při prvním
+ * nalezení a poté se uchová i s přeloženou podobou.
+ * </p>
+ * 
+ * <p>
+ * Rozložení uzlů odpovídá {@link FrozenWordTree}, slova však nesou lokální
+ * identifikátory obrazu a vyhledávají se v jeho vlastní hašovací tabulce.
+ * Struktura je bezpečná pro souběžné hledání z více vláken.
+ * </p>
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see BrainImage#open(java.nio.file.Path)
+ */
+public final class MappedWordTree implements MatchingStructure {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = BotnicekLogger
+            .getLogger(MappedWordTree.class);
+
+    /**
+     * Lokalizátor hlášek výjimek.
+     */
+    private static final ExceptionMessageLocalizer MESSAGE_LOCALIZER =
+            ExceptionMessageLocalizer.getLocalizer();
+
+    /**
+     * Počet bajtů čísla.
+     */
+    private static final int INT_BYTES = Integer.SIZE / Byte.SIZE;
+
+    /**
+     * Počet bajtů znaku.
+     */
+    private static final int CHAR_BYTES = Character.SIZE / Byte.SIZE;
+
+    /**
+     * Index kořene.
+     */
+    private static final int ROOT = 0;
+
+    /**
+     * Značka chybějícího uzlu, slova či šablony.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * Počet synů, od kterého se mezi nimi hledá binárně.
+     */
+    private static final int BINARY_SEARCH_THRESHOLD = 8;
+
+    /**
+     * Počet pohledů do obrazu, které struktura drží.
+     */
+    private static final int VIEW_COUNT = 9;
+
+    /**
+     * Odhad haldy obsazené jedním pohledem do obrazu.
+     */
+    private static final int VIEW_HEAP_BYTES = 48;
+
+    /**
+     * Počet kategorií.
+     */
+    private final int categoryCount;
+
+    /**
+     * Indikuje přítomnost prvků vyžadujících dopředné zpracování.
+     */
+    private final boolean forwardCompatible;
+
+    /**
+     * Počet uzlů.
+     */
+    private final int nodeCount;
+
+    /**
+     * Indexy prvních synů.
+     */
+    private final IntBuffer firstChild;
+
+    /**
+     * Lokální identifikátory slov odkazujících na uzly.
+     */
+    private final IntBuffer nodeWords;
+
+    /**
+     * Indexy šablon uzlů.
+     */
+    private final IntBuffer templateIndexes;
+
+    /**
+     * Začátky slov v úseku znaků.
+     */
+    private final IntBuffer wordOffsets;
+
+    /**
+     * Hašovací tabulka slov (lokální identifikátor zvýšený o jedna).
+     */
+    private final IntBuffer wordTable;
+
+    /**
+     * Maska délky hašovací tabulky slov.
+     */
+    private final int wordTableMask;
+
+    /**
+     * Začátky těl šablon.
+     */
+    private final IntBuffer templateOffsets;
+
+    /**
+     * Znaky slov.
+     */
+    private final CharBuffer wordChars;
+
+    /**
+     * Těla šablon v UTF-8.
+     */
+    private final ByteBuffer templateBodies;
+
+    /**
+     * Již přečtené šablony.
+     */
+    private final AtomicReferenceArray<Template> templates;
+
+    /**
+     * Lokální identifikátor žolíku podtržítko.
+     */
+    private final int underscoreId;
+
+    /**
+     * Lokální identifikátor žolíku hvězdička.
+     */
+    private final int asteriskId;
+
+    /**
+     * Vytvoří strukturu nad obrazem se zkontrolovanou hlavičkou.
+     * 
+     * @param image
+     *            obraz
+     */
+    MappedWordTree(final ByteBuffer image) {
+        int offset = INT_BYTES * 2;
+        categoryCount = image.getInt(offset);
+        offset += INT_BYTES;
+        forwardCompatible = image.getInt(offset) != 0;
+        offset += INT_BYTES;
+        nodeCount = image.getInt(offset);
+        offset += INT_BYTES;
+        final int wordCount = image.getInt(offset);
+        offset += INT_BYTES;
+        final int tableLength = image.getInt(offset);
+        offset += INT_BYTES;
+        final int templateCount = image.getInt(offset);
+        offset = BrainImage.HEADER_INTS * INT_BYTES;
+
+        firstChild = slice(image, offset, (nodeCount + 1) * INT_BYTES).asIntBuffer();
+        offset += (nodeCount + 1) * INT_BYTES;
+        nodeWords = slice(image, offset, nodeCount * INT_BYTES).asIntBuffer();
+        offset += nodeCount * INT_BYTES;
+        templateIndexes = slice(image, offset, nodeCount * INT_BYTES).asIntBuffer();
+        offset += nodeCount * INT_BYTES;
+        wordOffsets = slice(image, offset, (wordCount + 1) * INT_BYTES).asIntBuffer();
+        offset += (wordCount + 1) * INT_BYTES;
+        wordTable = slice(image, offset, tableLength * INT_BYTES).asIntBuffer();
+        wordTableMask = tableLength - 1;
+        offset += tableLength * INT_BYTES;
+        templateOffsets = slice(image, offset, (templateCount + 1) * INT_BYTES).asIntBuffer();
+        offset += (templateCount + 1) * INT_BYTES;
+
+        final int charCount = wordOffsets.get(wordCount);
+        wordChars = slice(image, offset, charCount * CHAR_BYTES).asCharBuffer();
+        offset += charCount * CHAR_BYTES;
+        templateBodies = slice(image, offset, templateOffsets.get(templateCount));
+        templates = new AtomicReferenceArray<Template>(templateCount);
+
+        underscoreId = lookupWord(AIMLWildcard.UNDERSCORE.getValue());
+        asteriskId = lookupWord(AIMLWildcard.ASTERISK.getValue());
+    }
+
+    /**
+     * Vyřízne úsek obrazu.
+     * 
+     * @param image
+     *            obraz
+     * @param offset
+     *            počátek úseku
+     * @param length
+     *            délka úseku
+     * @return úsek se samostatnou pozicí a limitem
+     */
+    private static ByteBuffer slice(final ByteBuffer image, final int offset,
+            final int length) {
+        final ByteBuffer duplicate = image.duplicate();
+        duplicate.position(offset);
+        duplicate.limit(offset + length);
+
+        return duplicate.slice();
+    }
+
+    /**
+     * Vyhledá lokální identifikátor slova v obrazu.
+     * 
+     * @param value
+     *            hodnota slova
+     * @return lokální identifikátor, nebo {@value #NONE}
+     */
+    private int lookupWord(final String value) {
+        if (value == null) {
+            return NONE;
+        }
+
+        for (int index = BrainImage.slot(value.hashCode(), wordTableMask);; index =
+                (index + 1) & wordTableMask) {
+            final int entry = wordTable.get(index);
+            if (entry == 0) {
+                return NONE;
+            }
+
+            final int local = entry - 1;
+            if (wordEquals(local, value)) {
+                return local;
+            }
+        }
+    }
+
+    /**
+     * Porovná slovo obrazu s hodnotou.
+     * 
+     * @param local
+     *            lokální identifikátor slova
+     * @param value
+     *            hodnota
+     * @return true, pokud jsou stejné
+     */
+    private boolean wordEquals(final int local, final String value) {
+        final int from = wordOffsets.get(local);
+        final int to = wordOffsets.get(local + 1);
+        if (to - from != value.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            if (wordChars.get(from + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#find
+     * (cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath)
+     */
+    @Override
+    public MatchResult find(final InputPath path) {
+        LOGGER.log(Level.INFO, "storage.FindingMatchForPath", path);
+
+        final Word[] words = WordNode.toWordArray(path);
+        final int[] ids = new int[words.length];
+        for (int index = 0; index < words.length; index++) {
+            ids[index] = lookupWord(words[index].getValue());
+        }
+
+        return find(path, words, ids, ROOT, 0, AIMLPartMarker.PATTERN);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#findAll
+     * (java.util.List)
+     */
+    @Override
+    public List<MatchResult> findAll(final List<InputPath> paths) {
+        return BatchMatcher.findAll(this, paths);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * Mapovaný strom hledání nezávislé na kontextu nepodporuje.
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * findContextFree(cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath)
+     */
+    @Override
+    public ContextFreeMatch findContextFree(final InputPath path) {
+        return null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * getContentVersion()
+     */
+    @Override
+    public Object getContentVersion() {
+        return null;
+    }
+
+    /**
+     * Prohledá podstrom uzlu od dané pozice ve slovech vstupní cesty.
+     * 
+     * @param path
+     *            celá vstupní cesta
+     * @param words
+     *            slova celé vstupní cesty
+     * @param ids
+     *            lokální identifikátory slov celé vstupní cesty
+     * @param node
+     *            index uzlu
+     * @param position
+     *            index prvního dosud nezpracovaného slova
+     * @param currentPart
+     *            typ aktuálně porovnávané části vzorku
+     * @return výsledek hledání zbytku vstupní cesty v podstromu uzlu
+     */
+    private MatchResult find(final InputPath path, final Word[] words,
+            final int[] ids, final int node, final int position,
+            final PartMarker currentPart) {
+        if (position == words.length) {
+            final int templateIndex = templateIndexes.get(node);
+            if (templateIndex == NONE) {
+                return FailedResult.getInstance();
+            }
+
+            return new SuccesfulResult(getTemplate(templateIndex));
+        }
+
+        MatchResult result;
+
+        result =
+                suffixSearch(path, words, ids, node, position, underscoreId,
+                        currentPart);
+        if (result.isSuccesful()) {
+            return result;
+        }
+
+        final int id = ids[position];
+        if (id != NONE) {
+            final int child = getChild(node, id);
+            if (child != NONE) {
+                result =
+                        find(path, words, ids, child, position + 1,
+                                WordNode.getNewPart(words[position],
+                                        currentPart));
+                if (result.isSuccesful()) {
+                    return result;
+                }
+            }
+        }
+
+        return suffixSearch(path, words, ids, node, position, asteriskId,
+                currentPart);
+    }
+
+    /**
+     * Suffixové hledání v podstromě žolíku. Žolík pohltí alespoň jedno slovo,
+     * kratší pohlcené úseky mají přednost.
+     * 
+     * @param path
+     *            celá vstupní cesta
+     * @param words
+     *            slova celé vstupní cesty
+     * @param ids
+     *            lokální identifikátory slov celé vstupní cesty
+     * @param node
+     *            index uzlu
+     * @param position
+     *            index prvního slova pohlceného žolíkem
+     * @param wildcardId
+     *            lokální identifikátor žolíku
+     * @param currentPart
+     *            typ aktuálně porovnávané části vzorku
+     * @return výsledek hledání mezi suffixy v podstromě žolíku
+     */
+    private MatchResult suffixSearch(final InputPath path, final Word[] words,
+            final int[] ids, final int node, final int position,
+            final int wildcardId, final PartMarker currentPart) {
+        if (wildcardId == NONE) {
+            return FailedResult.getInstance();
+        }
+
+        final int child = getChild(node, wildcardId);
+        if (child == NONE) {
+            return FailedResult.getInstance();
+        }
+
+        for (int end = position + 1; end <= words.length; end++) {
+            final MatchResult result =
+                    find(path, words, ids, child, end, currentPart);
+
+            if (result.isSuccesful()) {
+                result.addStarMatchedPart(currentPart, WordNode
+                        .getCapturedPart(path, words, position, end,
+                                currentPart));
+                result.addWildcardPosition(currentPart,
+                        wildcardId == asteriskId ? AIMLWildcard.ASTERISK
+                                : AIMLWildcard.UNDERSCORE, position, end);
+                return result;
+            }
+        }
+
+        return FailedResult.getInstance();
+    }
+
+    /**
+     * Najde syna uzlu, na kterého odkazuje dané slovo.
+     * 
+     * @param node
+     *            index uzlu
+     * @param wordId
+     *            lokální identifikátor slova
+     * @return index syna, nebo {@value #NONE}
+     */
+    private int getChild(final int node, final int wordId) {
+        int low = firstChild.get(node);
+        int high = firstChild.get(node + 1) - 1;
+
+        if (low > high || nodeWords.get(low) > wordId) {
+            return NONE;
+        }
+
+        if (high - low < BINARY_SEARCH_THRESHOLD) {
+            for (int child = low; child <= high; child++) {
+                final int childWordId = nodeWords.get(child);
+                if (childWordId == wordId) {
+                    return child;
+                }
+                if (childWordId > wordId) {
+                    return NONE;
+                }
+            }
+
+            return NONE;
+        }
+
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int middleWordId = nodeWords.get(middle);
+
+            if (middleWordId < wordId) {
+                low = middle + 1;
+            } else if (middleWordId > wordId) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return NONE;
+    }
+
+    /**
+     * Vrátí šablonu, kterou při prvním požadavku přečte z obrazu.
+     * 
+     * @param templateIndex
+     *            index šablony
+     * @return šablona
+     */
+    private Template getTemplate(final int templateIndex) {
+        final Template cached = templates.get(templateIndex);
+        if (cached != null) {
+            return cached;
+        }
+
+        final ByteBuffer body = templateBodies.duplicate();
+        body.position(templateOffsets.get(templateIndex));
+        body.limit(templateOffsets.get(templateIndex + 1));
+
+        final Template read =
+                new AIMLTemplate(BrainImage.TEMPLATE_CHARSET.decode(body)
+                        .toString());
+        if (templates.compareAndSet(templateIndex, null, read)) {
+            return read;
+        }
+
+        return templates.get(templateIndex);
+    }
+
+    /**
+     * Obraz nelze měnit.
+     * 
+     * @param path
+     *            vstupní cesta
+     * @param answer
+     *            šablona
+     * @throws UnsupportedOperationException
+     *             vždy
+     */
+    @Override
+    public void add(final InputPath path, final Template answer) {
+        throw new UnsupportedOperationException(
+                MESSAGE_LOCALIZER.getMessage("storage.FrozenStructureImmutable"));
+    }
+
+    /**
+     * Obraz nelze měnit.
+     * 
+     * @param path
+     *            vstupní cesta
+     * @param answer
+     *            šablona
+     * @return nic
+     * @throws UnsupportedOperationException
+     *             vždy
+     */
+    @Override
+    public Template replace(final InputPath path, final Template answer) {
+        throw new UnsupportedOperationException(
+                MESSAGE_LOCALIZER.getMessage("storage.FrozenStructureImmutable"));
+    }
+
+    /**
+     * Obraz nelze měnit.
+     * 
+     * @param path
+     *            vstupní cesta
+     * @return nic
+     * @throws UnsupportedOperationException
+     *             vždy
+     */
+    @Override
+    public Template remove(final InputPath path) {
+        throw new UnsupportedOperationException(
+                MESSAGE_LOCALIZER.getMessage("storage.FrozenStructureImmutable"));
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * getCategoryCount()
+     */
+    @Override
+    public int getCategoryCount() {
+        return categoryCount;
+    }
+
+    /**
+     * Vrátí počet uzlů.
+     * 
+     * @return počet uzlů
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Sestaví statistiku obrazu. Uzly, slova i šablony leží v mapovaném
+     * souboru mimo haldu, odhad haldy proto zahrnuje jen samotnou strukturu a
+     * pohledy do obrazu. Velikost šablon odpovídá jejich zakódování v obrazu.
+     * 
+     * @return statistika obrazu
+     */
+    @Override
+    public StructureStatistics getStatistics() {
+        final StructureStatistics statistics = new StructureStatistics();
+
+        // Synové následují za otci, hloubky lze tedy spočítat jedním průchodem.
+        final int[] depths = new int[nodeCount];
+        final BitSet seenWords = new BitSet();
+        for (int node = 0; node < nodeCount; node++) {
+            final int from = firstChild.get(node);
+            final int to = firstChild.get(node + 1);
+            for (int child = from; child < to; child++) {
+                depths[child] = depths[node] + 1;
+            }
+
+            statistics.addNode(depths[node], to - from);
+
+            final int local = nodeWords.get(node);
+            if (local != WordDictionary.UNKNOWN && !seenWords.get(local)) {
+                seenWords.set(local);
+
+                final int wordFrom = wordOffsets.get(local);
+                final int wordTo = wordOffsets.get(local + 1);
+                final CharBuffer word = wordChars.duplicate();
+                word.position(wordFrom);
+                word.limit(wordTo);
+                statistics.addWord(word.toString());
+            }
+        }
+
+        final int templateCount = templateOffsets.limit() - 1;
+        for (int index = 0; index < templateCount; index++) {
+            statistics.addTemplate(templateOffsets.get(index + 1)
+                    - templateOffsets.get(index));
+        }
+
+        statistics.addHeapSize(StructureStatistics.OBJECT_HEADER_BYTES
+                + VIEW_COUNT
+                * (StructureStatistics.REFERENCE_BYTES + VIEW_HEAP_BYTES) + 6
+                * StructureStatistics.INT_BYTES
+                + StructureStatistics.OBJECT_HEADER_BYTES
+                + templateCount * StructureStatistics.REFERENCE_BYTES);
+
+        return statistics;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * isForwardCompatible()
+     */
+    @Override
+    public boolean isForwardCompatible() {
+        return forwardCompatible;
+    }
+
+    /**
+     * Obraz nelze měnit.
+     * 
+     * @param forwardCompatible
+     *            indikace prvků vyžadujících dopředné zpracování
+     * @throws UnsupportedOperationException
+     *             vždy
+     */
+    @Override
+    public void setForwardCompatible(final boolean forwardCompatible) {
+        throw new UnsupportedOperationException(
+                MESSAGE_LOCALIZER.getMessage("storage.FrozenStructureImmutable"));
+    }
+}
@@ -62,4 +62,32 @@ public interface MatchResult {
      */
     void addStarMatchedPart(PartMarker pathPart, InputPath matchedPart);
 
+    /**
+     * Zaznamená pozici žolíku, kterým hledání prošlo. Spolu s nahrazenými
+     * částmi se volá při návratu z úspěšného hledání, tedy od konce vzoru.
+     * 
+     * @param pathPart
+     *            část, ve které žolík leží, nesmí být null
+     * @param wildcard
+     *            žolík, nesmí být null
+     * @param from
+     *            index prvního slova vstupní cesty pohlceného žolíkem
+     * @param to
+     *            index za posledním pohlceným slovem
+     */
+    void addWildcardPosition(PartMarker pathPart, Word wildcard, int from,
+            int to);
+
+    /**
+     * Porovná přednost výsledku s jiným výsledkem hledání téže vstupní cesty v
+     * jiné struktuře. Přednost odpovídá pořadí, v jakém by oba vzory prošlo
+     * hledání ve sjednocení struktur (podtržítko, slovo, hvězdička; kratší
+     * pohlcené úseky dříve).
+     * 
+     * @param other
+     *            jiný výsledek, nesmí být null
+     * @return záporné číslo, pokud má přednost tento výsledek, kladné, pokud
+     *         druhý, nula při stejné přednosti
+     */
+    int comparePriority(MatchResult other);
 }
@@ -18,6 +18,8 @@
  */
 package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
 
+import java.util.List;
+
 /**
  * Datová struktura umožňující ukládání a hledání reakcí na normalizovaná
  * vstupní data.
@@ -25,7 +27,7 @@ package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
  * @author Václav Brodec
  * @version 1.0
  */
-public interface MatchingStructure {
+public interface MatchingStructure extends CategorySink {
     /**
      * Pokusí se najít odpovídající šablonu pro vstupní cestu.
      * 
@@ -36,35 +38,75 @@ public interface MatchingStructure {
     MatchResult find(InputPath path);
 
     /**
-     * Přidá šablonu pro danou vstupní cestu jako její výsledek.
+     * Pokusí se najít odpovídající šablony pro mnoho vstupních cest najednou,
+     * např. při vyhodnocování celého korpusu. Cesty se mohou prohledávat
+     * souběžně, každá však dostane týž výsledek jako při volání
+     * {@link #find(InputPath)}.
+     * 
+     * @param paths
+     *            vstupní cesty
+     * @return výsledky hledání v pořadí cest
+     */
+    List<MatchResult> findAll(List<InputPath> paths);
+
+    /**
+     * Pokusí se najít šablonu pro vzorovou část vstupní cesty tak, aby
+     * výsledek platil pro libovolné that a topic. To lze zaručit, pokud vítězná
+     * kategorie má v obou částech kontextu jediný žolík a hledání před ní
+     * nenarazí na žádnou kategorii, jejíž shoda by na kontextu závisela.
+     * 
+     * @param path
+     *            celá vstupní cesta, rozhoduje pouze její vzorová část
+     * @return výsledek nezávislý na kontextu, nebo null, pokud jej nelze
+     *         zaručit či jej struktura nepodporuje
+     */
+    ContextFreeMatch findContextFree(InputPath path);
+
+    /**
+     * Vrátí značku verze obsahu. Dokud struktura vrací tutéž značku (podle
+     * identity), nezměnil se výsledek žádného hledání, takže výsledky odvozené
+     * z obsahu si lze zapamatovat spolu se značkou.
+     * 
+     * @return značka verze obsahu, nebo null, pokud struktura změny obsahu
+     *         nesleduje
+     */
+    Object getContentVersion();
+
+    /**
+     * Nahradí šablonu pro danou vstupní cestu, případně ji přidá, pokud pro
+     * cestu žádná uložena není.
      * 
      * @param path
      *            vstupní cesta obsahující dotaz
      * @param answer
-     *            šablona s reakcí odpovídající dotazu ve vstupní cestě
+     *            nová šablona s reakcí odpovídající dotazu ve vstupní cestě
+     * @return nahrazená šablona, null pokud pro cestu žádná nebyla uložena
      */
-    void add(InputPath path, Template answer);
+    Template replace(InputPath path, Template answer);
 
     /**
-     * Vrátí počet uložených kategorií (dvojic šablona - vzor).
+     * Odstraní kategorii s danou vstupní cestou. Práce je úměrná délce cesty,
+     * nikoli velikosti struktury.
      * 
-     * @return počet uložených kategorií
+     * @param path
+     *            vstupní cesta obsahující dotaz
+     * @return odstraněná šablona, null pokud pro cestu žádná nebyla uložena
      */
-    int getCategoryCount();
+    Template remove(InputPath path);
 
     /**
-     * Značí nutnost dopředného zpracování.
+     * Vrátí počet uložených kategorií (dvojic šablona - vzor).
      * 
-     * @return true, pokud struktura vyžaduje dopředné zpracování
+     * @return počet uložených kategorií
      */
-    boolean isForwardCompatible();
+    int getCategoryCount();
 
     /**
-     * Označí strukturu jako strukturu vyžadující dopředné zpracování.
+     * Sestaví statistiku velikosti a tvaru struktury. Sestavení neblokuje
+     * souběžné hledání, při souběžných změnách tak nemusí odpovídat jedinému
+     * okamžiku.
      * 
-     * @param forwardCompatible
-     *            true pro označení struktury jako struktury obsahující prvky
-     *            vyžadující dopředné zpracování
+     * @return statistika struktury
      */
-    void setForwardCompatible(boolean forwardCompatible);
+    StructureStatistics getStatistics();
 }
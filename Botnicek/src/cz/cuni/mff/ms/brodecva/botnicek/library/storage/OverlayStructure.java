@@ -0,0 +1,313 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.logging.BotnicekLogger;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
+
+/**
+ * <p>
+ * Struktura, která nad sdílenou základní strukturou drží vlastní překryvnou
+ * strukturu. Všechny změny jdou pouze do překryvné struktury, základ se
+ * nemění a může tak být sdílen více konverzacemi a mít mezipaměť výsledků.
+ * Typicky jde o kategorie naučené během jedné konverzace, které se uvolní
+ * spolu s ní.
+ * </p>
+ * 
+ * <p>
+ * Hledání dává stejný výsledek jako hledání ve sjednocení obou struktur.
+ * Každá ze struktur se prohledá nejvýše jednou a z nalezených vzorů se
+ * vybere ten s vyšší předností dle AIML (podtržítko, slovo, hvězdička). Při
+ * shodné přednosti, tj. stejném vzoru, má přednost překryvná struktura,
+ * stejně jako by kategorii přepsala při načítání. Prázdná překryvná
+ * struktura se neprohledává.
+ * </p>
+ * 
+ * <p>
+ * Bezpečnost pro vícevláknové využití je dána oběma strukturami.
+ * </p>
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see MatchResult#comparePriority(MatchResult)
+ */
+public final class OverlayStructure implements MatchingStructure, Serializable {
+
+    /**
+     * UID serializované verze.
+     */
+    private static final long serialVersionUID = 6353208794137150182L;
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = BotnicekLogger
+            .getLogger(OverlayStructure.class);
+
+    /**
+     * Lokalizátor hlášek výjimek.
+     */
+    private static final ExceptionMessageLocalizer MESSAGE_LOCALIZER =
+            ExceptionMessageLocalizer.getLocalizer();
+
+    /**
+     * Sdílená základní struktura, která se nemění.
+     */
+    private final MatchingStructure base;
+
+    /**
+     * Překryvná struktura, do které jdou všechny změny.
+     */
+    private final MatchingStructure overlay;
+
+    /**
+     * Vytvoří strukturu překrývající základ.
+     * 
+     * @param base
+     *            sdílená základní struktura
+     * @param overlay
+     *            překryvná struktura, obvykle prázdná
+     */
+    public OverlayStructure(final MatchingStructure base,
+            final MatchingStructure overlay) {
+        if (base == null || overlay == null) {
+            throw new NullPointerException(
+                    MESSAGE_LOCALIZER.getMessage("storage.NullArgument"));
+        }
+
+        this.base = base;
+        this.overlay = overlay;
+    }
+
+    /**
+     * Vrátí základní strukturu.
+     * 
+     * @return základní struktura
+     */
+    public MatchingStructure getBase() {
+        return base;
+    }
+
+    /**
+     * Vrátí překryvnou strukturu.
+     * 
+     * @return překryvná struktura
+     */
+    public MatchingStructure getOverlay() {
+        return overlay;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#find
+     * (cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath)
+     */
+    @Override
+    public MatchResult find(final InputPath path) {
+        final MatchResult baseResult = base.find(path);
+
+        if (overlay.getCategoryCount() == 0) {
+            return baseResult;
+        }
+
+        final MatchResult overlayResult = overlay.find(path);
+        if (overlayResult.isSuccesful()
+                && overlayResult.comparePriority(baseResult) <= 0) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "storage.OverlayMatchChosen", path);
+            }
+
+            return overlayResult;
+        }
+
+        return baseResult;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * findContextFree(cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath)
+     */
+    @Override
+    public ContextFreeMatch findContextFree(final InputPath path) {
+        if (overlay.getCategoryCount() == 0) {
+            return base.findContextFree(path);
+        }
+
+        return null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * Dokud je vrstva prázdná, odpovídá obsah obsahu základu. Naučené
+     * kategorie mohou výsledky základu přebít, značku pak struktura nevede.
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * getContentVersion()
+     */
+    @Override
+    public Object getContentVersion() {
+        if (overlay.getCategoryCount() == 0) {
+            return base.getContentVersion();
+        }
+
+        return null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#findAll
+     * (java.util.List)
+     */
+    @Override
+    public List<MatchResult> findAll(final List<InputPath> paths) {
+        final List<MatchResult> baseResults = base.findAll(paths);
+
+        if (overlay.getCategoryCount() == 0) {
+            return baseResults;
+        }
+
+        final List<MatchResult> overlayResults = overlay.findAll(paths);
+        final List<MatchResult> results =
+                new ArrayList<MatchResult>(baseResults.size());
+        for (int index = 0; index < baseResults.size(); index++) {
+            final MatchResult baseResult = baseResults.get(index);
+            final MatchResult overlayResult = overlayResults.get(index);
+
+            if (overlayResult.isSuccesful()
+                    && overlayResult.comparePriority(baseResult) <= 0) {
+                results.add(overlayResult);
+            } else {
+                results.add(baseResult);
+            }
+        }
+
+        return Collections.unmodifiableList(results);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#add
+     * (cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath,
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.Template)
+     */
+    @Override
+    public void add(final InputPath path, final Template answer) {
+        overlay.add(path, answer);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#replace
+     * (cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath,
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.Template)
+     */
+    @Override
+    public Template replace(final InputPath path, final Template answer) {
+        return overlay.replace(path, answer);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * Odstraňuje pouze z překryvné struktury, kategorie základu zůstávají.
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#remove
+     * (cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath)
+     */
+    @Override
+    public Template remove(final InputPath path) {
+        return overlay.remove(path);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * getCategoryCount()
+     */
+    @Override
+    public int getCategoryCount() {
+        return base.getCategoryCount() + overlay.getCategoryCount();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * getStatistics()
+     */
+    @Override
+    public StructureStatistics getStatistics() {
+        final StructureStatistics statistics = base.getStatistics();
+        statistics.merge(overlay.getStatistics());
+
+        return statistics;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * isForwardCompatible()
+     */
+    @Override
+    public boolean isForwardCompatible() {
+        return base.isForwardCompatible() || overlay.isForwardCompatible();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * setForwardCompatible(boolean)
+     */
+    @Override
+    public void setForwardCompatible(final boolean forwardCompatible) {
+        overlay.setForwardCompatible(forwardCompatible);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "OverlayStructure [base=" + base + ", overlay=" + overlay + "]";
+    }
+}
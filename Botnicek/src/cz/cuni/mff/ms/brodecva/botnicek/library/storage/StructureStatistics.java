@@ -0,0 +1,314 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.CoreHistogram;
+
+/**
+ * Statistika velikosti a tvaru struktury s kategoriemi. Vzniká průchodem
+ * struktury, který nebrání souběžnému hledání, a slouží k plánování kapacity
+ * pro jednotlivé roboty bez nutnosti pořizovat výpis haldy.
+ * 
+ * <p>
+ * Odhad obsazené haldy vychází z typické 64bitové JVM s komprimovanými
+ * odkazy a dvěma bajty na znak řetězce. Nezahrnuje zarovnání objektů, jde
+ * tedy spíše o dolní odhad, JVM s kompaktními řetězci naopak uloží text
+ * šablon v polovičním prostoru.
+ * </p>
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see MatchingStructure#getStatistics()
+ */
+public final class StructureStatistics {
+    /**
+     * Odhad velikosti hlavičky objektu v bajtech.
+     */
+    public static final int OBJECT_HEADER_BYTES = 12;
+
+    /**
+     * Odhad velikosti hlavičky pole v bajtech.
+     */
+    public static final int ARRAY_HEADER_BYTES = 16;
+
+    /**
+     * Odhad velikosti odkazu v bajtech.
+     */
+    public static final int REFERENCE_BYTES = 4;
+
+    /**
+     * Velikost celého čísla v bajtech.
+     */
+    public static final int INT_BYTES = Integer.SIZE / Byte.SIZE;
+
+    /**
+     * Velikost znaku v bajtech.
+     */
+    public static final int CHAR_BYTES = Character.SIZE / Byte.SIZE;
+
+    /**
+     * Odhad velikosti řetězce bez jeho znaků (objekt a hlavička pole znaků).
+     */
+    public static final int STRING_OVERHEAD_BYTES = OBJECT_HEADER_BYTES
+            + REFERENCE_BYTES + INT_BYTES + ARRAY_HEADER_BYTES;
+
+    /**
+     * Počet uzlů.
+     */
+    private int nodeCount = 0;
+
+    /**
+     * Počty uzlů podle hloubky.
+     */
+    private final SortedMap<Integer, Integer> depths =
+            new TreeMap<Integer, Integer>();
+
+    /**
+     * Počty uzlů podle počtu synů.
+     */
+    private final SortedMap<Integer, Integer> branching =
+            new TreeMap<Integer, Integer>();
+
+    /**
+     * Histogram jader map větví.
+     */
+    private final CoreHistogram cores = new CoreHistogram();
+
+    /**
+     * Různá slova na hranách.
+     */
+    private final Set<String> words = new HashSet<String>();
+
+    /**
+     * Počet šablon.
+     */
+    private int templateCount = 0;
+
+    /**
+     * Velikost textu šablon v bajtech.
+     */
+    private long templateBytes = 0;
+
+    /**
+     * Odhad haldy obsazené mimo jádra map.
+     */
+    private long heapSize = 0;
+
+    /**
+     * Započte uzel.
+     * 
+     * @param depth
+     *            hloubka uzlu
+     * @param branchCount
+     *            počet synů uzlu
+     */
+    public void addNode(final int depth, final int branchCount) {
+        nodeCount++;
+        increment(depths, depth, 1);
+        increment(branching, branchCount, 1);
+    }
+
+    /**
+     * Započte slovo na hraně. Do počtu různých slov se každá hodnota započte
+     * jen jednou.
+     * 
+     * @param value
+     *            hodnota slova
+     */
+    public void addWord(final String value) {
+        words.add(value);
+    }
+
+    /**
+     * Započte šablonu.
+     * 
+     * @param bytes
+     *            velikost textu šablony v bajtech tak, jak jej struktura
+     *            uchovává
+     */
+    public void addTemplate(final long bytes) {
+        templateCount++;
+        templateBytes += bytes;
+    }
+
+    /**
+     * Přičte k odhadu obsazené haldy.
+     * 
+     * @param bytes
+     *            odhad v bajtech
+     */
+    public void addHeapSize(final long bytes) {
+        heapSize += bytes;
+    }
+
+    /**
+     * Připojí statistiku jiné struktury, např. překryvu nad základní
+     * strukturou.
+     * 
+     * @param other
+     *            připojovaná statistika
+     */
+    public void merge(final StructureStatistics other) {
+        nodeCount += other.nodeCount;
+        for (final Entry<Integer, Integer> entry : other.depths.entrySet()) {
+            increment(depths, entry.getKey(), entry.getValue());
+        }
+        for (final Entry<Integer, Integer> entry : other.branching.entrySet()) {
+            increment(branching, entry.getKey(), entry.getValue());
+        }
+        cores.merge(other.cores);
+        words.addAll(other.words);
+        templateCount += other.templateCount;
+        templateBytes += other.templateBytes;
+        heapSize += other.heapSize;
+    }
+
+    /**
+     * Zvýší počet v histogramu.
+     * 
+     * @param histogram
+     *            histogram
+     * @param key
+     *            sloupec
+     * @param count
+     *            přičítaný počet
+     */
+    private static void increment(final SortedMap<Integer, Integer> histogram,
+            final int key, final int count) {
+        final Integer previous = histogram.get(key);
+        histogram.put(key, previous == null ? count : previous + count);
+    }
+
+    /**
+     * Vrátí počet uzlů.
+     * 
+     * @return počet uzlů
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Vrátí rozložení uzlů podle hloubky.
+     * 
+     * @return počty uzlů podle hloubky
+     */
+    public SortedMap<Integer, Integer> getDepthDistribution() {
+        return Collections.unmodifiableSortedMap(depths);
+    }
+
+    /**
+     * Vrátí nejvyšší hloubku uzlu.
+     * 
+     * @return nejvyšší hloubka, -1 pro prázdnou statistiku
+     */
+    public int getMaxDepth() {
+        return depths.isEmpty() ? -1 : depths.lastKey();
+    }
+
+    /**
+     * Vrátí histogram větvení.
+     * 
+     * @return počty uzlů podle počtu synů
+     */
+    public SortedMap<Integer, Integer> getBranchingHistogram() {
+        return Collections.unmodifiableSortedMap(branching);
+    }
+
+    /**
+     * Vrátí histogram jader map větví. Struktury bez map (zmrazené stromy)
+     * jej mají prázdný.
+     * 
+     * @return histogram jader
+     */
+    public CoreHistogram getCoreHistogram() {
+        return cores;
+    }
+
+    /**
+     * Vrátí počet různých slov na hranách.
+     * 
+     * @return počet různých slov
+     */
+    public int getDistinctWordCount() {
+        return words.size();
+    }
+
+    /**
+     * Vrátí počet šablon.
+     * 
+     * @return počet šablon
+     */
+    public int getTemplateCount() {
+        return templateCount;
+    }
+
+    /**
+     * Vrátí celkovou velikost textu šablon.
+     * 
+     * @return velikost textu šablon v bajtech
+     */
+    public long getTemplateBytes() {
+        return templateBytes;
+    }
+
+    /**
+     * Vrátí odhad haldy obsazené strukturou včetně jader map.
+     * 
+     * @return odhad v bajtech
+     */
+    public long getEstimatedHeapSize() {
+        return heapSize + cores.getEstimatedHeapSize();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("StructureStatistics [nodeCount=");
+        builder.append(nodeCount);
+        builder.append(", depths=");
+        builder.append(depths);
+        builder.append(", branching=");
+        builder.append(branching);
+        builder.append(", cores=");
+        builder.append(cores);
+        builder.append(", distinctWords=");
+        builder.append(words.size());
+        builder.append(", templateCount=");
+        builder.append(templateCount);
+        builder.append(", templateBytes=");
+        builder.append(templateBytes);
+        builder.append(", estimatedHeapSize=");
+        builder.append(getEstimatedHeapSize());
+        builder.append("]");
+        return builder.toString();
+    }
+}
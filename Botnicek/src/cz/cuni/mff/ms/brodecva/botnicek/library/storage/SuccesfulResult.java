@@ -20,6 +20,7 @@ package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
 
 import java.io.Serializable;
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -65,6 +66,32 @@ public final class SuccesfulResult implements MatchResult, Serializable {
      */
     private static final String SPACE = " ";
 
+    /**
+     * Počáteční kapacita záznamu pozic žolíků.
+     */
+    private static final int WILDCARD_POSITIONS_INITIAL_CAPACITY = 4;
+
+    /**
+     * Posun indexu prvního pohlceného slova v zakódované pozici žolíku.
+     */
+    private static final int FROM_SHIFT = 32;
+
+    /**
+     * Bit hvězdičky v zakódované pozici žolíku. Podtržítko jej nemá nastaven,
+     * při stejném začátku tak má přednost, poté rozhoduje délka.
+     */
+    private static final long ASTERISK_BIT = 1L << 31;
+
+    /**
+     * Prázdný záznam pozic žolíků.
+     */
+    private static final long[] NO_WILDCARD_POSITIONS = new long[0];
+
+    /**
+     * Prázdný záznam částí žolíků.
+     */
+    private static final PartMarker[] NO_WILDCARD_PARTS = new PartMarker[0];
+
     /**
      * Nalezená šablona reakce.
      */
@@ -76,6 +103,22 @@ public final class SuccesfulResult implements MatchResult, Serializable {
     private final Map<PartMarker, Deque<InputPath>> wildcardMatchedParts =
             new HashMap<PartMarker, Deque<InputPath>>(3);
 
+    /**
+     * Zakódované pozice žolíků vzoru v pořadí od konce vzoru (viz
+     * {@link #addWildcardPosition(Word, int, int)}).
+     */
+    private long[] wildcardPositions = NO_WILDCARD_POSITIONS;
+
+    /**
+     * Části vstupní cesty, ve kterých leží zaznamenané žolíky.
+     */
+    private PartMarker[] wildcardParts = NO_WILDCARD_PARTS;
+
+    /**
+     * Počet zaznamenaných pozic žolíků.
+     */
+    private int wildcardPositionsCount = 0;
+
     /**
      * Konstruktor výsledku hledání.
      * 
@@ -193,6 +236,158 @@ public final class SuccesfulResult implements MatchResult, Serializable {
         }
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * Pozici kóduje do jednoho čísla tak, aby při stejném začátku pořadí čísel
+     * odpovídalo přednosti žolíků.
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchResult#
+     * addWildcardPosition(cz.cuni.mff.ms.brodecva.botnicek.library.storage.
+     * PartMarker, cz.cuni.mff.ms.brodecva.botnicek.library.storage.Word, int,
+     * int)
+     */
+    @Override
+    public void addWildcardPosition(final PartMarker pathPart,
+            final Word wildcard, final int from, final int to) {
+        if (pathPart == null) {
+            throw new NullPointerException(
+                    MESSAGE_LOCALIZER.getMessage("storage.PathPartNull"));
+        }
+
+        if (wildcard == null) {
+            throw new NullPointerException(
+                    MESSAGE_LOCALIZER.getMessage("storage.WildcardNull"));
+        }
+
+        if (wildcardPositionsCount == wildcardPositions.length) {
+            wildcardPositions =
+                    Arrays.copyOf(wildcardPositions, Math.max(
+                            WILDCARD_POSITIONS_INITIAL_CAPACITY,
+                            wildcardPositionsCount * 2));
+            wildcardParts =
+                    Arrays.copyOf(wildcardParts, wildcardPositions.length);
+        }
+
+        long position = ((long) from << FROM_SHIFT) | (to - from);
+        if (AIMLWildcard.ASTERISK.equals(wildcard)) {
+            position |= ASTERISK_BIT;
+        }
+
+        wildcardPositions[wildcardPositionsCount] = position;
+        wildcardParts[wildcardPositionsCount] = pathPart;
+        wildcardPositionsCount++;
+    }
+
+    /**
+     * Zachytí šablonu a pozice žolíků výsledku do neměnné podoby, ze které
+     * lze pro stejnou vstupní cestu sestavit rovnocenný nový výsledek.
+     * 
+     * @return zachycený výsledek, nebo null, pokud nahrazené části nebyly
+     *         zaznamenány spolu s pozicemi žolíků
+     */
+    CapturedMatch capture() {
+        int partsCount = 0;
+        for (final Deque<InputPath> matchedInPart : wildcardMatchedParts
+                .values()) {
+            partsCount += matchedInPart.size();
+        }
+        if (partsCount != wildcardPositionsCount) {
+            return null;
+        }
+
+        final Word[] wildcards = new Word[wildcardPositionsCount];
+        final int[] froms = new int[wildcardPositionsCount];
+        final int[] tos = new int[wildcardPositionsCount];
+        for (int index = 0; index < wildcardPositionsCount; index++) {
+            final long position = wildcardPositions[index];
+
+            if ((position & ASTERISK_BIT) == 0) {
+                wildcards[index] = AIMLWildcard.UNDERSCORE;
+            } else {
+                wildcards[index] = AIMLWildcard.ASTERISK;
+            }
+            froms[index] = (int) (position >>> FROM_SHIFT);
+            tos[index] = froms[index] + (int) (position & (ASTERISK_BIT - 1));
+        }
+
+        return new CapturedMatch(template, Arrays.copyOf(wildcardParts,
+                wildcardPositionsCount), wildcards, froms, tos);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * Prochází pozice žolíků obou vzorů od začátku. Dokud se shodují, pohltily
+     * oba vzory stejná slova. V první odlišné pozici rozhoduje dřívější
+     * začátek (proti němu stojí ve druhém vzoru slovo), jinak druh a délka.
+     * Úspěšné výsledky jiných implementací považuje za rovnocenné.
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchResult#
+     * comparePriority(cz.cuni.mff.ms.brodecva.botnicek.library.storage.
+     * MatchResult)
+     */
+    @Override
+    public int comparePriority(final MatchResult other) {
+        if (!other.isSuccesful()) {
+            return -1;
+        }
+
+        if (!(other instanceof SuccesfulResult)) {
+            return 0;
+        }
+
+        final SuccesfulResult otherResult = (SuccesfulResult) other;
+
+        int index = wildcardPositionsCount - 1;
+        int otherIndex = otherResult.wildcardPositionsCount - 1;
+        while (index >= 0 && otherIndex >= 0) {
+            final long position = wildcardPositions[index];
+            final long otherPosition = otherResult.wildcardPositions[otherIndex];
+
+            if (position != otherPosition) {
+                final long from = position >>> FROM_SHIFT;
+                final long otherFrom = otherPosition >>> FROM_SHIFT;
+
+                if (from < otherFrom) {
+                    return compareWithWord(position);
+                }
+                if (from > otherFrom) {
+                    return -compareWithWord(otherPosition);
+                }
+
+                return position < otherPosition ? -1 : 1;
+            }
+
+            index--;
+            otherIndex--;
+        }
+
+        if (index >= 0) {
+            return compareWithWord(wildcardPositions[index]);
+        }
+        if (otherIndex >= 0) {
+            return -compareWithWord(otherResult.wildcardPositions[otherIndex]);
+        }
+
+        return 0;
+    }
+
+    /**
+     * Porovná přednost žolíku se slovem na stejné pozici.
+     * 
+     * @param position
+     *            zakódovaná pozice žolíku
+     * @return záporné číslo pro podtržítko, kladné pro hvězdičku
+     */
+    private static int compareWithWord(final long position) {
+        if ((position & ASTERISK_BIT) == 0) {
+            return -1;
+        }
+
+        return 1;
+    }
+
     /* (non-Javadoc)
      * @see java.lang.Object#toString()
      */
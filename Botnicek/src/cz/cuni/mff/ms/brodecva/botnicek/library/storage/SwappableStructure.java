@@ -0,0 +1,261 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.logging.BotnicekLogger;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
+
+/**
+ * <p>
+ * Struktura, jejíž obsah lze za běhu atomicky vyměnit za jinou strukturu.
+ * Všechny operace předává právě zveřejněné struktuře, kterou přečte jedním
+ * čtením nestálé proměnné, takže rozběhnuté hledání doběhne nad původní
+ * verzí a následující již použije novou. Hledající vlákna se nikdy
+ * nezamykají.
+ * </p>
+ * 
+ * <p>
+ * Bezpečnost pro vícevláknové využití je dána zveřejněnými strukturami,
+ * vyměnit je lze z libovolného vlákna.
+ * </p>
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ */
+public final class SwappableStructure implements MatchingStructure,
+        Serializable {
+
+    /**
+     * UID serializované verze.
+     */
+    private static final long serialVersionUID = -2043873564189212716L;
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = BotnicekLogger
+            .getLogger(SwappableStructure.class);
+
+    /**
+     * Lokalizátor hlášek výjimek.
+     */
+    private static final ExceptionMessageLocalizer MESSAGE_LOCALIZER =
+            ExceptionMessageLocalizer.getLocalizer();
+
+    /**
+     * Právě zveřejněná struktura.
+     */
+    private volatile MatchingStructure current;
+
+    /**
+     * Vytvoří strukturu s počátečním obsahem.
+     * 
+     * @param initial
+     *            počáteční struktura
+     */
+    public SwappableStructure(final MatchingStructure initial) {
+        if (initial == null) {
+            throw new NullPointerException(
+                    MESSAGE_LOCALIZER.getMessage("storage.NullArgument"));
+        }
+
+        this.current = initial;
+    }
+
+    /**
+     * Vrátí právě zveřejněnou strukturu.
+     * 
+     * @return zveřejněná struktura
+     */
+    public MatchingStructure getCurrent() {
+        return current;
+    }
+
+    /**
+     * Zveřejní novou strukturu místo stávající.
+     * 
+     * @param replacement
+     *            plně naplněná nová struktura
+     * @return původní struktura
+     */
+    public MatchingStructure swap(final MatchingStructure replacement) {
+        if (replacement == null) {
+            throw new NullPointerException(
+                    MESSAGE_LOCALIZER.getMessage("storage.NullArgument"));
+        }
+
+        final MatchingStructure previous;
+        synchronized (this) {
+            previous = current;
+            current = replacement;
+        }
+
+        LOGGER.log(Level.INFO, "storage.StructureSwapped", new Object[] {
+                previous.getCategoryCount(), replacement.getCategoryCount() });
+        return previous;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#find
+     * (cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath)
+     */
+    @Override
+    public MatchResult find(final InputPath path) {
+        return current.find(path);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#findAll
+     * (java.util.List)
+     */
+    @Override
+    public List<MatchResult> findAll(final List<InputPath> paths) {
+        return current.findAll(paths);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * findContextFree(cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath)
+     */
+    @Override
+    public ContextFreeMatch findContextFree(final InputPath path) {
+        return current.findContextFree(path);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * Výměnou struktury se mění i značka, ta nová patří nové struktuře.
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * getContentVersion()
+     */
+    @Override
+    public Object getContentVersion() {
+        return current.getContentVersion();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#add
+     * (cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath,
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.Template)
+     */
+    @Override
+    public void add(final InputPath path, final Template answer) {
+        current.add(path, answer);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#replace
+     * (cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath,
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.Template)
+     */
+    @Override
+    public Template replace(final InputPath path, final Template answer) {
+        return current.replace(path, answer);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#remove
+     * (cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath)
+     */
+    @Override
+    public Template remove(final InputPath path) {
+        return current.remove(path);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * getCategoryCount()
+     */
+    @Override
+    public int getCategoryCount() {
+        return current.getCategoryCount();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * getStatistics()
+     */
+    @Override
+    public StructureStatistics getStatistics() {
+        return current.getStatistics();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * isForwardCompatible()
+     */
+    @Override
+    public boolean isForwardCompatible() {
+        return current.isForwardCompatible();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * setForwardCompatible(boolean)
+     */
+    @Override
+    public void setForwardCompatible(final boolean forwardCompatible) {
+        current.setForwardCompatible(forwardCompatible);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "SwappableStructure [current=" + current + "]";
+    }
+}
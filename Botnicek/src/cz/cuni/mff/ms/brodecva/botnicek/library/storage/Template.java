@@ -18,6 +18,9 @@
  */
 package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
 
+import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
+
 /**
  * Šablona s reakcí na dotaz.
  * 
@@ -32,6 +35,17 @@ public interface Template {
      */
     String getValue();
 
+    /**
+     * Vrátí šablonu přeloženou do neměnného stromu, který lze vyhodnocovat
+     * opakovaně a souběžně bez dalšího čtení kódu. Překládá se nejvýše jednou,
+     * při prvním použití.
+     * 
+     * @return kořenový prvek přeložené šablony
+     * @throws SAXException
+     *             pokud kód šablony není správně strukturovaný
+     */
+    Element getCompiled() throws SAXException;
+
     /**
      * Vrátí hash šablony.
      * 
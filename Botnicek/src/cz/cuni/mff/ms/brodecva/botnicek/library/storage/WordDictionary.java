@@ -0,0 +1,279 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
+
+/**
+ * Globální slovník normalizovaných slov. Každé vložené slovo dostane hustě
+ * přidělený celočíselný identifikátor, takže uzly stromu mohou místo řetězců
+ * porovnávat pouze čísla.
+ * 
+ * <p>
+ * Nízké identifikátory jsou vyhrazeny pro zástupné znaky a značky částí cesty
+ * (v pořadí jejich deklarace). Hledání identifikátoru slovník nerozšiřuje,
+ * slova uživatelských vstupů jej tedy nezvětšují.
+ * </p>
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ */
+public final class WordDictionary {
+
+    /**
+     * Identifikátor slova, které ve slovníku není.
+     */
+    public static final int UNKNOWN = -1;
+
+    /**
+     * Počátek identifikátorů vyhrazených pro značky částí cesty.
+     */
+    public static final int MARKERS_OFFSET = AIMLWildcard.values().length;
+
+    /**
+     * Počet vyhrazených identifikátorů.
+     */
+    public static final int RESERVED_COUNT = MARKERS_OFFSET
+            + AIMLPartMarker.values().length;
+
+    /**
+     * Počáteční kapacita tabulky hodnot.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Lokalizátor hlášek výjimek.
+     */
+    private static final ExceptionMessageLocalizer MESSAGE_LOCALIZER =
+            ExceptionMessageLocalizer.getLocalizer();
+
+    /**
+     * Jediná instance.
+     */
+    private static final WordDictionary INSTANCE = new WordDictionary();
+
+    /**
+     * Identifikátory podle hodnot slov.
+     */
+    private final ConcurrentMap<String, Integer> ids =
+            new ConcurrentHashMap<String, Integer>(INITIAL_CAPACITY);
+
+    /**
+     * Hodnoty slov podle identifikátorů.
+     */
+    private volatile String[] values = new String[INITIAL_CAPACITY];
+
+    /**
+     * Počet přidělených identifikátorů.
+     */
+    private volatile int size = 0;
+
+    /**
+     * Vrátí globální slovník.
+     * 
+     * @return globální slovník
+     */
+    public static WordDictionary getDictionary() {
+        return INSTANCE;
+    }
+
+    /**
+     * Vytvoří slovník s vyhrazenými identifikátory.
+     */
+    private WordDictionary() {
+        for (final AIMLWildcard wildcard : AIMLWildcard.values()) {
+            reserve(wildcard.getValue());
+        }
+
+        for (final AIMLPartMarker marker : AIMLPartMarker.values()) {
+            reserve(marker.getValue());
+        }
+    }
+
+    /**
+     * Vyhradí další identifikátor.
+     * 
+     * @param value
+     *            hodnota, null pro značky bez textové podoby
+     */
+    private synchronized void reserve(final String value) {
+        if (value == null) {
+            append(null);
+        } else {
+            intern(value);
+        }
+    }
+
+    /**
+     * Vrátí identifikátor slova, pokud jej slovník dosud neobsahuje, přidělí
+     * mu nový.
+     * 
+     * @param value
+     *            hodnota slova, nesmí být null
+     * @return identifikátor slova
+     */
+    public int intern(final String value) {
+        final Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+
+        return internMissing(value);
+    }
+
+    /**
+     * Přidělí identifikátor slovu, které nejspíše ve slovníku chybí.
+     * 
+     * @param value
+     *            hodnota slova
+     * @return identifikátor slova
+     */
+    private synchronized int internMissing(final String value) {
+        if (value == null) {
+            throw new NullPointerException(
+                    MESSAGE_LOCALIZER.getMessage("storage.WordStringNull"));
+        }
+
+        final Integer present = ids.get(value);
+        if (present != null) {
+            return present;
+        }
+
+        final int id = append(value);
+        ids.put(value, id);
+
+        return id;
+    }
+
+    /**
+     * Připojí hodnotu na konec tabulky hodnot.
+     * 
+     * @param value
+     *            hodnota
+     * @return přidělený identifikátor
+     */
+    private int append(final String value) {
+        final int id = size;
+
+        String[] current = values;
+        if (id == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[id] = value;
+
+        values = current;
+        size = id + 1;
+
+        return id;
+    }
+
+    /**
+     * Vyhledá identifikátor slova, aniž by slovník rozšiřoval.
+     * 
+     * @param value
+     *            hodnota slova
+     * @return identifikátor slova, nebo {@value #UNKNOWN}, pokud slovo ve
+     *         slovníku není
+     */
+    public int lookup(final String value) {
+        if (value == null) {
+            return UNKNOWN;
+        }
+
+        final Integer id = ids.get(value);
+        if (id == null) {
+            return UNKNOWN;
+        }
+
+        return id;
+    }
+
+    /**
+     * Vrátí identifikátor libovolného slova. Slova nesoucí identifikátor jej
+     * vrátí přímo, ostatní se vyhledají podle hodnoty.
+     * 
+     * @param word
+     *            slovo
+     * @return identifikátor slova, nebo {@value #UNKNOWN}, pokud slovo ve
+     *         slovníku není
+     */
+    public int lookup(final Word word) {
+        // Konečné třídy se testují levněji než rozhraní.
+        if (word instanceof AIMLWord) {
+            return ((AIMLWord) word).getId();
+        }
+        if (word instanceof AIMLWildcard) {
+            return ((AIMLWildcard) word).getId();
+        }
+        if (word instanceof AIMLPartMarker) {
+            return ((AIMLPartMarker) word).getId();
+        }
+        if (word instanceof IndexedWord) {
+            return ((IndexedWord) word).getId();
+        }
+
+        return lookup(word.getValue());
+    }
+
+    /**
+     * Vrátí identifikátor libovolného slova, pokud jej slovník dosud
+     * neobsahuje, přidělí mu nový.
+     * 
+     * @param word
+     *            slovo
+     * @return identifikátor slova
+     */
+    public int intern(final Word word) {
+        final int id = lookup(word);
+        if (id != UNKNOWN) {
+            return id;
+        }
+
+        return intern(word.getValue());
+    }
+
+    /**
+     * Vrátí hodnotu slova s daným identifikátorem.
+     * 
+     * @param id
+     *            identifikátor
+     * @return hodnota slova (null pro značky bez textové podoby)
+     */
+    public String getValue(final int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException(MESSAGE_LOCALIZER.getMessage(
+                    "storage.UnknownWordId", id));
+        }
+
+        return values[id];
+    }
+
+    /**
+     * Vrátí počet přidělených identifikátorů.
+     * 
+     * @return počet přidělených identifikátorů
+     */
+    public int getSize() {
+        return size;
+    }
+}
@@ -20,6 +20,7 @@ package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +30,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import cz.cuni.mff.ms.brodecva.botnicek.library.logging.BotnicekLogger;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.CoreHistogram;
 import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.Mapper;
 import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.MapperFactory;
 import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
@@ -42,7 +44,16 @@ import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
  * </p>
  * 
  * <p>
- * Tato implementace není bezpečná pro vícevláknové využití.
+ * Dále si uzel pamatuje nejmenší počet slov, který musí zbytek vstupní cesty
+ * mít, aby v podstromu dosáhl šablony, a nejvyšší počet slov aktuální části
+ * cesty (vzoru, that či tématu), který podstrom dokáže pohltit. Hledání tak
+ * vynechá podstromy, do kterých se zbytek vstupu nevejde, a žolíky zkouší
+ * jen délky, po kterých se zbytek do podstromu vejít může.
+ * </p>
+ * 
+ * <p>
+ * Tato implementace není bezpečná pro vícevláknové využití, dokud se mění.
+ * Uzly, které se již nemění, lze prohledávat souběžně (viz {@link WordTree}).
  * </p>
  * 
  * @author Václav Brodec
@@ -52,7 +63,102 @@ public final class WordNode implements Serializable {
     /**
      * UID serializované verze.
      */
-    private static final long serialVersionUID = 944771285396619741L;
+    private static final long serialVersionUID = -3127402416722350934L;
+
+    /**
+     * Stav hledání vzorové části cesty nezávislého na kontextu.
+     */
+    private static final class ContextFreeProbe {
+        /**
+         * Celá vstupní cesta.
+         */
+        private final InputPath path;
+
+        /**
+         * Slova celé vstupní cesty.
+         */
+        private final Word[] words;
+
+        /**
+         * Index značky části that, tj. konec vzorové části.
+         */
+        private final int patternEnd;
+
+        /**
+         * Žolíky na cestě k aktuálnímu uzlu.
+         */
+        private final Word[] wildcards;
+
+        /**
+         * Počáteční indexy úseků pohlcených žolíky.
+         */
+        private final int[] froms;
+
+        /**
+         * Koncové indexy (mimo) úseků pohlcených žolíky.
+         */
+        private final int[] tos;
+
+        /**
+         * Počet žolíků na cestě k aktuálnímu uzlu.
+         */
+        private int count = 0;
+
+        /**
+         * Nalezený výsledek, null pokud nebyl nalezen nebo závisí na kontextu.
+         */
+        private ContextFreeMatch match = null;
+
+        /**
+         * Vytvoří stav hledání.
+         * 
+         * @param path
+         *            celá vstupní cesta
+         * @param words
+         *            slova celé vstupní cesty
+         * @param patternEnd
+         *            konec vzorové části
+         */
+        private ContextFreeProbe(final InputPath path, final Word[] words,
+                final int patternEnd) {
+            this.path = path;
+            this.words = words;
+            this.patternEnd = patternEnd;
+            this.wildcards = new Word[patternEnd];
+            this.froms = new int[patternEnd];
+            this.tos = new int[patternEnd];
+        }
+
+        /**
+         * Zaznamená výsledek pro list za kontextem.
+         * 
+         * @param template
+         *            šablona listu
+         * @param thatWildcard
+         *            žolík části that
+         * @param topicWildcard
+         *            žolík části topic
+         */
+        private void succeed(final Template template, final Word thatWildcard,
+                final Word topicWildcard) {
+            final InputPath[] parts = new InputPath[count];
+            for (int index = 0; index < count; index++) {
+                parts[index] = path.subPath(froms[index], tos[index]);
+            }
+
+            match =
+                    new ContextFreeMatch(template, Arrays.copyOf(wildcards,
+                            count), Arrays.copyOf(froms, count),
+                            Arrays.copyOf(tos, count), parts, thatWildcard,
+                            topicWildcard);
+        }
+    }
+
+    /**
+     * Délka podstromu bez šablony, resp. části s žolíkem, která tak není shora
+     * omezena.
+     */
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
 
     /**
      * Lokalizátor hlášek výjimek.
@@ -66,6 +172,25 @@ public final class WordNode implements Serializable {
     private static final Logger LOGGER = BotnicekLogger
             .getLogger(WordNode.class);
 
+    /**
+     * Odhad haldy obsazené samotným uzlem a obalem mapy jeho větví.
+     */
+    private static final int NODE_HEAP_BYTES =
+            StructureStatistics.OBJECT_HEADER_BYTES + 2
+                    * StructureStatistics.REFERENCE_BYTES + 4
+                    * StructureStatistics.INT_BYTES
+                    + StructureStatistics.OBJECT_HEADER_BYTES
+                    + StructureStatistics.REFERENCE_BYTES;
+
+    /**
+     * Odhad haldy obsazené slovem či šablonou bez znaků jejich hodnoty.
+     */
+    private static final int VALUE_HEAP_BYTES =
+            StructureStatistics.OBJECT_HEADER_BYTES
+                    + StructureStatistics.REFERENCE_BYTES
+                    + StructureStatistics.INT_BYTES
+                    + StructureStatistics.STRING_OVERHEAD_BYTES;
+
     /**
      * Mapa se synovskými uzly, klíčovaná podle slova ze vstupní cesty.
      */
@@ -81,6 +206,20 @@ public final class WordNode implements Serializable {
      */
     private int maxHeight = 0;
 
+    /**
+     * Nejmenší počet slov, který musí mít zbytek vstupní cesty, aby v
+     * podstromu uzlu dosáhl šablony. Pro podstrom bez šablony
+     * {@value #UNBOUNDED}.
+     */
+    private int minLength = UNBOUNDED;
+
+    /**
+     * Nejvyšší počet slov aktuální části vstupní cesty (po značku další části
+     * či konec cesty), který podstrom uzlu pohltí na cestě k šabloně. Leží-li
+     * na některé takové cestě v této části žolík, {@value #UNBOUNDED}.
+     */
+    private int maxPartLength = 0;
+
     /**
      * Úroveň na které se v hlavním stromu nachází tento uzel (0 - kořen).
      */
@@ -144,6 +283,28 @@ public final class WordNode implements Serializable {
         return maxHeight;
     }
 
+    /**
+     * Vrátí nejmenší délku zbytku vstupní cesty, pro kterou může podstrom
+     * uzlu obsahovat shodu.
+     * 
+     * @return nejmenší počet slov zbytku vstupní cesty, {@value #UNBOUNDED}
+     *         pro podstrom bez šablony
+     */
+    public int getMinLength() {
+        return minLength;
+    }
+
+    /**
+     * Vrátí nejvyšší délku zbytku aktuální části vstupní cesty, pro kterou
+     * může podstrom uzlu obsahovat shodu.
+     * 
+     * @return nejvyšší počet slov zbytku aktuální části, {@value #UNBOUNDED}
+     *         pokud v ní podstrom obsahuje žolík
+     */
+    public int getMaxPartLength() {
+        return maxPartLength;
+    }
+
     /**
      * Nastaví maximální výšku uzlu.
      * 
@@ -167,129 +328,702 @@ public final class WordNode implements Serializable {
      * @return výsledek hledání vstupní cesty v podstromu daném tímto uzlem
      */
     public MatchResult find(final InputPath path, final PartMarker currentPart) {
+        return find(path, currentPart, false);
+    }
+
+    /**
+     * Prohledá podstrom uzlu. Volitelně si hledání pamatuje stavy (uzel za
+     * žolíkem a pozici ve vstupu), ve kterých již selhalo, a nevstupuje do nich
+     * znovu. Počet prohledaných stavů je pak nejvýše polynomiální v délce
+     * vstupu i pro mnoho překrývajících se žolíků, pořadí priorit shod zůstává
+     * zachováno.
+     * 
+     * @param path
+     *            vstupní cesta obsahující dotaz, na který se hledá reakce
+     * @param currentPart
+     *            typ aktuálně porovnávané části vzorku
+     * @param memoized
+     *            zda-li zaznamenávat neúspěšné stavy
+     * @return výsledek hledání vstupní cesty v podstromu daném tímto uzlem
+     */
+    public MatchResult find(final InputPath path, final PartMarker currentPart,
+            final boolean memoized) {
+        if (currentPart == null) {
+            throw new NullPointerException(
+                    MESSAGE_LOCALIZER.getMessage("storage.MarkerNull"));
+        }
+
+        final Word[] words = toWordArray(path);
+        final FailureMemo memo =
+                memoized ? new FailureMemo(words.length) : null;
+
+        return find(path, words, toPartEnds(words, currentPart), 0,
+                currentPart, memo);
+    }
+
+    /**
+     * Prohledá podstrom uzlu pro více vstupních cest najednou. Cesty se v
+     * každém uzlu seskupí podle slova na aktuální pozici, cesty se společným
+     * začátkem pak sestupují po slovech společně a mapy větví se pro ně
+     * prohledávají jen jednou. Každá cesta dostane týž výsledek jako při
+     * samostatném hledání.
+     * 
+     * @param paths
+     *            vstupní cesty
+     * @param words
+     *            slova jednotlivých cest
+     * @param currentPart
+     *            typ aktuálně porovnávané části vzorku
+     * @param memoized
+     *            zda-li zaznamenávat neúspěšné stavy
+     * @return výsledky v pořadí cest
+     */
+    MatchResult[] findAll(final InputPath[] paths, final Word[][] words,
+            final PartMarker currentPart, final boolean memoized) {
+        final int count = paths.length;
+
+        final int[][] partEnds = new int[count][];
+        final FailureMemo[] memos = new FailureMemo[count];
+        final int[] group = new int[count];
+        for (int index = 0; index < count; index++) {
+            partEnds[index] = toPartEnds(words[index], currentPart);
+            if (memoized) {
+                memos[index] = new FailureMemo(words[index].length);
+            }
+            group[index] = index;
+        }
+
+        final MatchResult[] results = new MatchResult[count];
+        findGroup(paths, words, partEnds, memos, results, group, count, 0,
+                currentPart);
+
+        return results;
+    }
+
+    /**
+     * Prohledá podstrom uzlu pro skupinu cest, které se shodují ve všech
+     * slovech před danou pozicí. Pro každou cestu zachovává pořadí pokusů
+     * samostatného hledání: nejprve podtržítko, pak slovo, nakonec hvězdička.
+     * Cesty čekající na sestup se seřadí podle haše slova na pozici, sestup po
+     * slově se pak provádí pro souvislé úseky se stejným slovem společně,
+     * hledání za žolíky pro každou cestu zvlášť.
+     * 
+     * @param paths
+     *            všechny cesty
+     * @param words
+     *            slova všech cest
+     * @param partEnds
+     *            konce částí všech cest
+     * @param memos
+     *            záznamy neúspěšných stavů všech cest, prvky mohou být null
+     * @param results
+     *            výsledky všech cest, doplní se pro cesty skupiny
+     * @param group
+     *            indexy cest ve skupině
+     * @param size
+     *            počet cest ve skupině
+     * @param position
+     *            index prvního dosud nezpracovaného slova
+     * @param currentPart
+     *            typ aktuálně porovnávané části vzorku
+     */
+    private void findGroup(final InputPath[] paths, final Word[][] words,
+            final int[][] partEnds, final FailureMemo[] memos,
+            final MatchResult[] results, final int[] group, final int size,
+            final int position, final PartMarker currentPart) {
+        final int[] pending = new int[size];
+        int pendingCount = 0;
+
+        for (int member = 0; member < size; member++) {
+            final int index = group[member];
+            final int length = words[index].length;
+
+            if (!fits(length - position, partEnds[index][position] - position)) {
+                results[index] = FailedResult.getInstance();
+            } else if (position == length) {
+                results[index] =
+                        template == null ? FailedResult.getInstance()
+                                : new SuccesfulResult(template);
+            } else {
+                results[index] =
+                        suffixSearch(paths[index], words[index],
+                                partEnds[index], position,
+                                AIMLWildcard.UNDERSCORE, currentPart,
+                                memos[index]);
+                if (!results[index].isSuccesful()) {
+                    pending[pendingCount] = index;
+                    pendingCount++;
+                }
+            }
+        }
+
+        groupByWord(words, pending, pendingCount, position);
+
+        int runStart = 0;
+        while (runStart < pendingCount) {
+            final Word rootWord = words[pending[runStart]][position];
+
+            int runEnd = runStart + 1;
+            while (runEnd < pendingCount
+                    && words[pending[runEnd]][position].equals(rootWord)) {
+                runEnd++;
+            }
+
+            final WordNode subtreeRoot = branches.get(rootWord);
+            if (subtreeRoot != null) {
+                final int[] run =
+                        Arrays.copyOfRange(pending, runStart, runEnd);
+
+                subtreeRoot.findGroup(paths, words, partEnds, memos, results,
+                        run, run.length, position + 1,
+                        getNewPart(rootWord, currentPart));
+            }
+
+            runStart = runEnd;
+        }
+
+        for (int member = 0; member < pendingCount; member++) {
+            final int index = pending[member];
+            if (results[index].isSuccesful()) {
+                continue;
+            }
+
+            results[index] =
+                    suffixSearch(paths[index], words[index], partEnds[index],
+                            position, AIMLWildcard.ASTERISK, currentPart,
+                            memos[index]);
+        }
+    }
+
+    /**
+     * Seřadí indexy cest podle haše slova na dané pozici, takže cesty se
+     * stejným slovem leží vedle sebe.
+     * 
+     * @param words
+     *            slova všech cest
+     * @param indexes
+     *            řazené indexy cest
+     * @param count
+     *            počet platných indexů
+     * @param position
+     *            pozice porovnávaného slova
+     */
+    private static void groupByWord(final Word[][] words, final int[] indexes,
+            final int count, final int position) {
+        if (count < 2) {
+            return;
+        }
+
+        final long[] sortKeys = new long[count];
+        for (int member = 0; member < count; member++) {
+            final int index = indexes[member];
+            sortKeys[member] =
+                    toSortKey(words[index][position].hashCode(), index);
+        }
+        Arrays.sort(sortKeys);
+
+        for (int member = 0; member < count; member++) {
+            indexes[member] = toIndex(sortKeys[member]);
+        }
+    }
+
+    /**
+     * Spojí haš slova a index cesty do klíče pro řazení primitivních hodnot.
+     * Klíče se stejným hašem leží po seřazení vedle sebe.
+     * 
+     * @param hash
+     *            haš slova
+     * @param index
+     *            index cesty
+     * @return klíč pro řazení
+     */
+    static long toSortKey(final int hash, final int index) {
+        return ((long) hash << Integer.SIZE) | (index & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Vrátí index cesty z klíče pro řazení.
+     * 
+     * @param sortKey
+     *            klíč pro řazení
+     * @return index cesty
+     */
+    static int toIndex(final long sortKey) {
+        return (int) sortKey;
+    }
+
+    /**
+     * Převede vstupní cestu na pole slov, nad kterým se při hledání posouvá
+     * pouze index.
+     * 
+     * @param path
+     *            vstupní cesta
+     * @return slova cesty v zachovaném pořadí
+     */
+    static Word[] toWordArray(final InputPath path) {
+        final Word[] words = new Word[path.getLength()];
+
+        int index = 0;
+        for (final Word word : path) {
+            words[index] = word;
+            index++;
+        }
+
+        return words;
+    }
+
+    /**
+     * Pro každou pozici ve slovech vstupní cesty najde konec části, do které
+     * slovo patří, tj. index nejbližší následující značky části, případně
+     * délku cesty.
+     * 
+     * @param words
+     *            slova celé vstupní cesty
+     * @param currentPart
+     *            typ části na začátku cesty
+     * @return pole o délce o jedna větší než počet slov, konec části pro každou
+     *         pozici včetně pozice za posledním slovem
+     */
+    static int[] toPartEnds(final Word[] words, final PartMarker currentPart) {
+        final int[] partEnds = new int[words.length + 1];
+
+        int end = words.length;
+        partEnds[end] = end;
+        for (int index = words.length - 1; index >= 0; index--) {
+            if (isPartMarker(words[index], currentPart)) {
+                end = index;
+            }
+
+            partEnds[index] = end;
+        }
+
+        return partEnds;
+    }
+
+    /**
+     * Zjistí, zda-li se zbytek vstupní cesty může vejít do podstromu uzlu.
+     * 
+     * @param remainingLength
+     *            počet zbývajících slov vstupní cesty
+     * @param remainingPartLength
+     *            počet zbývajících slov aktuální části vstupní cesty
+     * @return false, pokud podstrom jistě neobsahuje shodu
+     */
+    private boolean fits(final int remainingLength,
+            final int remainingPartLength) {
+        return remainingLength >= minLength
+                && remainingPartLength <= maxPartLength;
+    }
+
+    /**
+     * Prohledá podstrom uzlu od dané pozice ve slovech vstupní cesty. Při
+     * hledání se nevytváří žádné kopie ani úseky cesty, neúspěšné větve
+     * nealokují žádné objekty.
+     * 
+     * @param path
+     *            celá vstupní cesta, ze které se vytváří zachycené části
+     * @param words
+     *            slova celé vstupní cesty
+     * @param partEnds
+     *            konce částí pro pozice ve slovech vstupní cesty
+     * @param position
+     *            index prvního dosud nezpracovaného slova
+     * @param currentPart
+     *            typ aktuálně porovnávané části vzorku
+     * @param memo
+     *            záznam neúspěšných stavů, null pokud se nevede
+     * @return výsledek hledání zbytku vstupní cesty v podstromu daném tímto
+     *         uzlem
+     */
+    private MatchResult find(final InputPath path, final Word[] words,
+            final int[] partEnds, final int position,
+            final PartMarker currentPart, final FailureMemo memo) {
+        if (!fits(words.length - position, partEnds[position] - position)) {
+            if (LOGGER.isLoggable(Level.FINEST)) {
+                LOGGER.log(Level.FINEST, "storage.NodeLengthPruned", new Object[] {
+                        this, path.subPath(position, words.length), currentPart });
+            }
+
+            return FailedResult.getInstance();
+        }
+
         if (LOGGER.isLoggable(Level.FINEST)) {
-            LOGGER.log(Level.FINEST, "storage.NodeMatching", new Object[] { this, path,
-                    currentPart });
+            LOGGER.log(Level.FINEST, "storage.NodeMatching", new Object[] { this,
+                    path.subPath(position, words.length), currentPart });
         }
 
-        if (path.isEmpty()) {
+        if (position == words.length) {
             if (template == null) {
                 if (LOGGER.isLoggable(Level.FINEST)) {
                     LOGGER.log(Level.FINEST, "storage.NodeTemplateNotFound", new Object[] {
-                            this, path, currentPart });
+                            this, path.subPath(position, words.length), currentPart });
                 }
 
-                return new FailedResult();
+                return FailedResult.getInstance();
             }
             
             if (LOGGER.isLoggable(Level.FINEST)) {
                 LOGGER.log(Level.FINEST, "storage.NodeTemplateFound", new Object[] { this,
-                        path, currentPart });
+                        path.subPath(position, words.length), currentPart });
             }
             return new SuccesfulResult(template);
         }
 
         MatchResult result;
 
-        result = suffixSearch(path, AIMLWildcard.UNDERSCORE, currentPart);
+        result =
+                suffixSearch(path, words, partEnds, position,
+                        AIMLWildcard.UNDERSCORE, currentPart, memo);
         if (result.isSuccesful()) {
             return result;
         }
 
-        result = atomicSearch(path, currentPart);
+        result =
+                atomicSearch(path, words, partEnds, position, currentPart,
+                        memo);
         if (result.isSuccesful()) {
             return result;
         }
 
-        result = suffixSearch(path, AIMLWildcard.ASTERISK, currentPart);
+        result =
+                suffixSearch(path, words, partEnds, position,
+                        AIMLWildcard.ASTERISK, currentPart, memo);
         if (result.isSuccesful()) {
             return result;
         }
         
         if (LOGGER.isLoggable(Level.FINEST)) {
-            LOGGER.log(Level.FINEST, "storage.NodeTriesRunOut", new Object[] { this, path,
-                    currentPart });
+            LOGGER.log(Level.FINEST, "storage.NodeTriesRunOut", new Object[] { this,
+                    path.subPath(position, words.length), currentPart });
         }
-        return new FailedResult();
+        return FailedResult.getInstance();
     }
 
     /**
      * Provede hledání v podstromu udaném slovem (tj. bez použití žolíku).
      * 
      * @param path
-     *            vstupní cesta obsahující dotaz, na který se hledá reakce
+     *            celá vstupní cesta
+     * @param words
+     *            slova celé vstupní cesty
+     * @param partEnds
+     *            konce částí pro pozice ve slovech vstupní cesty
+     * @param position
+     *            index aktuálně hledaného slova
      * @param currentPart
      *            typ aktuálně porovnávané části vzorku
+     * @param memo
+     *            záznam neúspěšných stavů, null pokud se nevede
      * @return výsledek hledání v podstromě (pokud existuje) určeném uzlem s
      *         aktuálně hledaným slovem
      */
-    private MatchResult atomicSearch(final InputPath path,
-            final PartMarker currentPart) {
-        final Word rootWord = path.head();
+    private MatchResult atomicSearch(final InputPath path, final Word[] words,
+            final int[] partEnds, final int position,
+            final PartMarker currentPart, final FailureMemo memo) {
+        final Word rootWord = words[position];
 
         final WordNode subtreeRoot = branches.get(rootWord);
 
         if (subtreeRoot == null) {
-            return new FailedResult();
+            return FailedResult.getInstance();
         }
 
         final PartMarker newCurrentPart = getNewPart(rootWord, currentPart);
 
-        return subtreeRoot.find(path.tail(), newCurrentPart);
+        return subtreeRoot.find(path, words, partEnds, position + 1,
+                newCurrentPart, memo);
     }
 
     /**
-     * Suffixové hledání v podstromě (pro žolíky).
+     * Suffixové hledání v podstromě (pro žolíky). Žolík pohltí alespoň jedno
+     * slovo, kratší pohlcené úseky mají přednost. Zkouší jen délky, po kterých
+     * se zbytek vstupní cesty vejde do podstromu žolíku a které již dříve v
+     * témže hledání neselhaly.
      * 
      * @param path
-     *            vstupní cesta obsahující dotaz, na který se hledá reakce
+     *            celá vstupní cesta
+     * @param words
+     *            slova celé vstupní cesty
+     * @param partEnds
+     *            konce částí pro pozice ve slovech vstupní cesty
+     * @param position
+     *            index prvního slova pohlceného žolíkem
      * @param rootWord
-     *            slovo ze vstupní cesty, v jehož podstromě jsou hledány suffix
-     *            vstupní cesty
+     *            žolík, v jehož podstromě jsou hledány suffixy vstupní cesty
      * @param currentPart
      *            typ aktuálně porovnávané části vzorku
+     * @param memo
+     *            záznam neúspěšných stavů, null pokud se nevede
      * @return výsledek (alespoň na jednu shodu) hledání mezi suffixy v
      *         podstromě (pokud existuje) určeném slovem ze vstupní cesty
      */
-    private MatchResult suffixSearch(final InputPath path, final AIMLWildcard rootWord,
-            final PartMarker currentPart) {
+    private MatchResult suffixSearch(final InputPath path, final Word[] words,
+            final int[] partEnds, final int position,
+            final AIMLWildcard rootWord, final PartMarker currentPart,
+            final FailureMemo memo) {
         final WordNode subtreeRoot = branches.get(rootWord);
 
         if (subtreeRoot == null) {
-            return new FailedResult();
+            return FailedResult.getInstance();
         }
 
-        final List<Word> wildcardMatchedPart = new ArrayList<Word>();
-        Word capturedWord = path.head();
-        if (!isPartMarker(capturedWord, currentPart)) {
-            wildcardMatchedPart.add(capturedWord);
-        }
-        
-        InputPath suffixPath = path.tail();
-        for (; !suffixPath.isEmpty(); suffixPath =
-                suffixPath.tail()) {
+        // Dokud žolík nepřekročí konec části, musí zbytek části podstrom pohltit.
+        final int first =
+                Math.max(position + 1, partEnds[position]
+                        - subtreeRoot.maxPartLength);
+        final int last = words.length - subtreeRoot.minLength;
+
+        for (int end = first; end <= last; end++) {
+            if (memo != null && memo.hasFailed(subtreeRoot, end)) {
+                if (LOGGER.isLoggable(Level.FINEST)) {
+                    LOGGER.log(Level.FINEST, "storage.NodeKnownFailureSkipped",
+                            new Object[] { subtreeRoot,
+                                    path.subPath(end, words.length),
+                                    currentPart });
+                }
+
+                continue;
+            }
+
             final MatchResult result =
-                    subtreeRoot.find(suffixPath, currentPart);
-            
+                    subtreeRoot.find(path, words, partEnds, end, currentPart,
+                            memo);
+
             if (result.isSuccesful()) {
                 result.addStarMatchedPart(currentPart,
-                            new AIMLInputPath(wildcardMatchedPart));
+                        getCapturedPart(path, words, position, end, currentPart));
+                result.addWildcardPosition(currentPart, rootWord, position,
+                        end);
                 return result;
-            } else {
-                capturedWord = suffixPath.head();
-                if (!isPartMarker(capturedWord, currentPart)) {
-                    wildcardMatchedPart.add(capturedWord);
-                }
+            }
+
+            if (memo != null) {
+                memo.recordFailure(subtreeRoot, end);
             }
         }
 
-        final MatchResult result = subtreeRoot.find(suffixPath, currentPart);
-        if (result.isSuccesful()) {
-            result.addStarMatchedPart(currentPart,
-                        new AIMLInputPath(wildcardMatchedPart));
+        return FailedResult.getInstance();
+    }
+
+    /**
+     * Prohledá podstrom pro vzorovou část vstupní cesty tak, aby výsledek
+     * nezávisel na kontextu. Prochází vzorovou část ve stejném pořadí jako
+     * {@link #find(InputPath, PartMarker)}. První uzel za celým vzorem, který
+     * má větev části that, rozhoduje: pokud její podstrom tvoří jediná cesta
+     * žolík - značka topic - žolík se šablonou, shodu by pro libovolný kontext
+     * našlo i úplné hledání. Jinak by shoda závisela na kontextu a hledání
+     * končí neúspěchem.
+     * 
+     * @param path
+     *            celá vstupní cesta, rozhoduje pouze její vzorová část
+     * @return výsledek nezávislý na kontextu, nebo null, pokud jej nelze
+     *         zaručit
+     */
+    public ContextFreeMatch findContextFree(final InputPath path) {
+        final Word[] words = toWordArray(path);
+
+        int patternEnd = 0;
+        while (patternEnd < words.length
+                && !AIMLPartMarker.THAT.equals(words[patternEnd])) {
+            patternEnd++;
         }
-        
-        return result;
+        if (patternEnd == words.length) {
+            return null;
+        }
+
+        final ContextFreeProbe probe =
+                new ContextFreeProbe(path, words, patternEnd);
+        probe(probe, 0);
+
+        return probe.match;
+    }
+
+    /**
+     * Prohledá podstrom uzlu od dané pozice ve vzorové části cesty. Žolíky
+     * nepřekračují konec vzoru, úplné hledání by v takovém případě stejně
+     * neuspělo (cesta obsahuje jedinou značku that).
+     * 
+     * @param probe
+     *            stav hledání
+     * @param position
+     *            index prvního dosud nezpracovaného slova
+     * @return true, pokud hledání skončilo nalezením výsledku či zjištěním
+     *         závislosti na kontextu
+     */
+    private boolean probe(final ContextFreeProbe probe, final int position) {
+        if (position == probe.patternEnd) {
+            final WordNode thatRoot = branches.get(AIMLPartMarker.THAT);
+            if (thatRoot == null) {
+                return false;
+            }
+
+            probeContext(probe, thatRoot);
+            return true;
+        }
+
+        return probeSuffixes(probe, position, AIMLWildcard.UNDERSCORE)
+                || probeWord(probe, position)
+                || probeSuffixes(probe, position, AIMLWildcard.ASTERISK);
+    }
+
+    /**
+     * Prohledá podstrom udaný slovem vzoru.
+     * 
+     * @param probe
+     *            stav hledání
+     * @param position
+     *            index aktuálního slova
+     * @return true, pokud hledání skončilo
+     */
+    private boolean probeWord(final ContextFreeProbe probe, final int position) {
+        final WordNode subtreeRoot = branches.get(probe.words[position]);
+        if (subtreeRoot == null) {
+            return false;
+        }
+
+        return subtreeRoot.probe(probe, position + 1);
+    }
+
+    /**
+     * Prohledá podstrom žolíku, kratší pohlcené úseky mají přednost.
+     * 
+     * @param probe
+     *            stav hledání
+     * @param position
+     *            index prvního slova pohlceného žolíkem
+     * @param wildcard
+     *            žolík
+     * @return true, pokud hledání skončilo
+     */
+    private boolean probeSuffixes(final ContextFreeProbe probe,
+            final int position, final AIMLWildcard wildcard) {
+        final WordNode subtreeRoot = branches.get(wildcard);
+        if (subtreeRoot == null) {
+            return false;
+        }
+
+        final int index = probe.count;
+        probe.count++;
+        probe.wildcards[index] = wildcard;
+        probe.froms[index] = position;
+
+        for (int end = position + 1; end <= probe.patternEnd; end++) {
+            probe.tos[index] = end;
+
+            if (subtreeRoot.probe(probe, end)) {
+                return true;
+            }
+        }
+
+        probe.count--;
+        return false;
+    }
+
+    /**
+     * Ověří, že podstrom části that tvoří jediná cesta žolík - značka topic -
+     * žolík se šablonou, a pokud ano, zaznamená výsledek.
+     * 
+     * @param probe
+     *            stav hledání
+     * @param thatRoot
+     *            uzel za značkou that
+     */
+    private static void probeContext(final ContextFreeProbe probe,
+            final WordNode thatRoot) {
+        final Word thatWildcard = thatRoot.getSoleWildcard();
+        if (thatWildcard == null) {
+            return;
+        }
+
+        final WordNode topicRoot =
+                thatRoot.branches.get(thatWildcard).getSoleChild(
+                        AIMLPartMarker.TOPIC);
+        if (topicRoot == null) {
+            return;
+        }
+
+        final Word topicWildcard = topicRoot.getSoleWildcard();
+        if (topicWildcard == null) {
+            return;
+        }
+
+        final WordNode leaf = topicRoot.branches.get(topicWildcard);
+        final Template leafTemplate = leaf.template;
+        if (leafTemplate == null || leaf.branches.getSize() != 0) {
+            return;
+        }
+
+        probe.succeed(leafTemplate, thatWildcard, topicWildcard);
+    }
+
+    /**
+     * Vrátí žolík, pokud je jediným synem uzlu bez šablony.
+     * 
+     * @return žolík, nebo null
+     */
+    private Word getSoleWildcard() {
+        if (template != null || branches.getSize() != 1) {
+            return null;
+        }
+
+        for (final Entry<Word, WordNode> branch : branches.getEntries()) {
+            if (branch.getKey() instanceof AIMLWildcard) {
+                return branch.getKey();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Vrátí syna pro dané slovo, pokud je jediným synem uzlu bez šablony.
+     * 
+     * @param word
+     *            slovo
+     * @return syn, nebo null
+     */
+    private WordNode getSoleChild(final Word word) {
+        if (template != null || branches.getSize() != 1) {
+            return null;
+        }
+
+        return branches.get(word);
+    }
+
+    /**
+     * Vytvoří žolíkem zachycenou část vstupní cesty. Oddělovače částí se do
+     * zachycené části nezahrnují.
+     * 
+     * @param path
+     *            celá vstupní cesta
+     * @param words
+     *            slova celé vstupní cesty
+     * @param from
+     *            počáteční index zachycené části (včetně)
+     * @param to
+     *            koncový index zachycené části (mimo)
+     * @param currentPart
+     *            typ aktuálně porovnávané části vzorku
+     * @return zachycená část
+     */
+    static InputPath getCapturedPart(final InputPath path,
+            final Word[] words, final int from, final int to,
+            final PartMarker currentPart) {
+        for (int index = from; index < to; index++) {
+            if (isPartMarker(words[index], currentPart)) {
+                final List<Word> wildcardMatchedPart =
+                        new ArrayList<Word>(to - from);
+                for (int i = from; i < to; i++) {
+                    if (!isPartMarker(words[i], currentPart)) {
+                        wildcardMatchedPart.add(words[i]);
+                    }
+                }
+
+                return new AIMLInputPath(wildcardMatchedPart);
+            }
+        }
+
+        return path.subPath(from, to);
     }
 
     /**
@@ -301,9 +1035,9 @@ public final class WordNode implements Serializable {
      *            současná část cesty
      * @return nová část
      */
-    private static PartMarker getNewPart(final Word rootWord,
+    static PartMarker getNewPart(final Word rootWord,
             final PartMarker currentPart) {
-        if (currentPart.allValues().contains(rootWord)) {
+        if (isPartMarker(rootWord, currentPart)) {
             return (PartMarker) rootWord;
         }
 
@@ -319,8 +1053,10 @@ public final class WordNode implements Serializable {
      *            současná část cesty
      * @return true, pokud ano
      */
-    private static boolean isPartMarker(final Word rootWord, final PartMarker currentPart) {
-        final boolean result = currentPart.allValues().contains(rootWord);
+    static boolean isPartMarker(final Word rootWord, final PartMarker currentPart) {
+        final boolean result =
+                rootWord instanceof PartMarker
+                        && currentPart.allValues().contains(rootWord);
         
         return result;
     }
@@ -337,9 +1073,53 @@ public final class WordNode implements Serializable {
      *            část vstupní cesty, ve které se nacházíme při přidávání
      * @param mapperFactory
      *            platná továrna na větvení
+     * @return šablona, kterou nová šablona přepsala, null pokud na konci cesty
+     *         žádná nebyla
+     */
+    public Template add(final InputPath path, final Template answer,
+            final PartMarker marker, final MapperFactory mapperFactory) {
+        return put(path, answer, marker, mapperFactory, false);
+    }
+
+    /**
+     * Nahradí šablonu na konci vstupní cesty. Na rozdíl od
+     * {@link #add(InputPath, Template, PartMarker, MapperFactory)} považuje
+     * přepsání původní šablony za očekávané.
+     * 
+     * @param path
+     *            vstupní cesta obsahující dotaz, která se zanáší do cesty od
+     *            kořenu stromu
+     * @param answer
+     *            šablona určená k uložení do posledního uzlu na cestě z kořene
+     * @param marker
+     *            část vstupní cesty, ve které se nacházíme při přidávání
+     * @param mapperFactory
+     *            platná továrna na větvení
+     * @return nahrazená šablona, null pokud na konci cesty žádná nebyla
      */
-    public void add(final InputPath path, final Template answer,
+    public Template replace(final InputPath path, final Template answer,
             final PartMarker marker, final MapperFactory mapperFactory) {
+        return put(path, answer, marker, mapperFactory, true);
+    }
+
+    /**
+     * Uloží šablonu na konec vstupní cesty.
+     * 
+     * @param path
+     *            vstupní cesta
+     * @param answer
+     *            šablona
+     * @param marker
+     *            část vstupní cesty, ve které se nacházíme při přidávání
+     * @param mapperFactory
+     *            platná továrna na větvení
+     * @param replacing
+     *            true, pokud se nemá varovat při přepsání šablony
+     * @return přepsaná šablona, null pokud žádná nebyla
+     */
+    private Template put(final InputPath path, final Template answer,
+            final PartMarker marker, final MapperFactory mapperFactory,
+            final boolean replacing) {
         if (LOGGER.isLoggable(Level.FINEST)) {
             LOGGER.log(Level.FINEST, "storage.NodeInsertingPath", new Object[] { this,
                     path, answer, marker });
@@ -356,28 +1136,244 @@ public final class WordNode implements Serializable {
                         path, answer, marker });
             }
             
-            if (template != null) {
+            if (template != null && !replacing) {
                 LOGGER.log(Level.WARNING, "storage.TemplateOverwrite", new Object[] { answer, template, this });
             }
             
+            final Template previous = template;
             template = answer;
-            return;
+            minLength = 0;
+            return previous;
         }
 
         final Word currentPathWord = path.head();
 
         final PartMarker newMarker = getNewPart(currentPathWord, marker);
 
-        final WordNode subtreeRoot = branches.get(currentPathWord);
+        WordNode subtreeRoot = branches.get(currentPathWord);
+        if (subtreeRoot == null) {
+            subtreeRoot = addChild(currentPathWord, newMarker, mapperFactory);
+        }
+
         final InputPath rest = path.tail();
+        final Template previous =
+                subtreeRoot.put(rest, answer, newMarker, mapperFactory,
+                        replacing);
+
+        setMaxHeight(rest.getLength());
+        widenLengths(currentPathWord, subtreeRoot, marker);
+        return previous;
+    }
+
+    /**
+     * Rozšíří meze délek uzlu o meze syna, jehož podstrom se rozrostl. Meze se
+     * při vkládání nezužují.
+     * 
+     * @param word
+     *            slovo, kterým na syna odkazuje uzel
+     * @param child
+     *            syn
+     * @param currentPart
+     *            část vstupní cesty, ve které se nachází uzel
+     */
+    private void widenLengths(final Word word, final WordNode child,
+            final PartMarker currentPart) {
+        final int branchMinLength = getBranchMinLength(child);
+        if (branchMinLength < minLength) {
+            minLength = branchMinLength;
+        }
+
+        final int branchMaxPartLength =
+                getBranchMaxPartLength(word, child, currentPart);
+        if (branchMaxPartLength > maxPartLength) {
+            maxPartLength = branchMaxPartLength;
+        }
+    }
+
+    /**
+     * Znovu spočítá meze délek ze šablony a synů. Volá se až po odebrání
+     * cesty.
+     * 
+     * @param currentPart
+     *            část vstupní cesty, ve které se nachází uzel
+     */
+    private void recomputeLengths(final PartMarker currentPart) {
+        int resultMinLength = template == null ? UNBOUNDED : 0;
+        int resultMaxPartLength = 0;
+
+        for (final Entry<Word, WordNode> branch : branches.getEntries()) {
+            final WordNode child = branch.getValue();
+
+            resultMinLength =
+                    Math.min(resultMinLength, getBranchMinLength(child));
+            resultMaxPartLength =
+                    Math.max(resultMaxPartLength, getBranchMaxPartLength(
+                            branch.getKey(), child, currentPart));
+        }
+
+        minLength = resultMinLength;
+        maxPartLength = resultMaxPartLength;
+    }
+
+    /**
+     * Vrátí nejmenší délku zbytku vstupní cesty pro shodu přes syna.
+     * 
+     * @param child
+     *            syn
+     * @return nejmenší délka včetně slova odkazujícího na syna
+     */
+    private static int getBranchMinLength(final WordNode child) {
+        final int childMinLength = child.minLength;
+        if (childMinLength == UNBOUNDED) {
+            return UNBOUNDED;
+        }
+
+        return childMinLength + 1;
+    }
+
+    /**
+     * Vrátí nejvyšší délku zbytku aktuální části vstupní cesty pro shodu přes
+     * syna.
+     * 
+     * @param word
+     *            slovo, kterým na syna odkazuje otec
+     * @param child
+     *            syn
+     * @param currentPart
+     *            část vstupní cesty, ve které se nachází otec
+     * @return nejvyšší délka včetně slova odkazujícího na syna
+     */
+    private static int getBranchMaxPartLength(final Word word,
+            final WordNode child, final PartMarker currentPart) {
+        if (isPartMarker(word, currentPart)) {
+            return 0;
+        }
+
+        final int childMaxPartLength = child.maxPartLength;
+        if (childMaxPartLength == UNBOUNDED
+                || AIMLWildcard.UNDERSCORE.equals(word)
+                || AIMLWildcard.ASTERISK.equals(word)) {
+            return UNBOUNDED;
+        }
+
+        return childMaxPartLength + 1;
+    }
+
+    /**
+     * Odstraní šablonu z konce vstupní cesty. Uzly, ve kterých po odstranění
+     * nezůstane šablona ani syn, jsou z podstromu odebrány, maximální výšky
+     * a meze délek uzlů na cestě jsou přepočítány. Cesta se čte od části
+     * vzoru.
+     * 
+     * @param path
+     *            vstupní cesta, jejíž šablona se odstraňuje
+     * @return odstraněná šablona, null pokud na konci cesty žádná nebyla
+     */
+    public Template remove(final InputPath path) {
+        return remove(toWordArray(path), 0, AIMLPartMarker.PATTERN);
+    }
+
+    /**
+     * Odstraní šablonu z konce zbytku vstupní cesty.
+     * 
+     * @param words
+     *            slova celé vstupní cesty
+     * @param position
+     *            index prvního dosud nezpracovaného slova
+     * @param currentPart
+     *            část vstupní cesty, ve které se nachází uzel
+     * @return odstraněná šablona, null pokud na konci cesty žádná nebyla
+     */
+    private Template remove(final Word[] words, final int position,
+            final PartMarker currentPart) {
+        if (position == words.length) {
+            final Template removed = template;
+            template = null;
+            recomputeLengths(currentPart);
+
+            if (removed != null && LOGGER.isLoggable(Level.FINER)) {
+                LOGGER.log(Level.FINER, "storage.NodeTemplateRemoval", new Object[] { this,
+                        removed });
+            }
+
+            return removed;
+        }
+
+        final Word word = words[position];
+        final WordNode subtreeRoot = branches.get(word);
         if (subtreeRoot == null) {
-            addChild(currentPathWord, newMarker, mapperFactory).add(rest,
-                    answer, newMarker, mapperFactory);
+            return null;
+        }
+
+        final int previousHeight = subtreeRoot.getBranchHeight();
+        final int previousMinLength = getBranchMinLength(subtreeRoot);
+        final int previousMaxPartLength =
+                getBranchMaxPartLength(word, subtreeRoot, currentPart);
+        final Template removed =
+                subtreeRoot.remove(words, position + 1, getNewPart(word,
+                        currentPart));
+        if (removed == null) {
+            return null;
+        }
+
+        final int height;
+        if (subtreeRoot.isEmpty()) {
+            branches.remove(word);
+            height = -1;
+
+            if (LOGGER.isLoggable(Level.FINEST)) {
+                LOGGER.log(Level.FINEST, "storage.NodeChildRemove", new Object[] { this,
+                        subtreeRoot });
+            }
         } else {
-            subtreeRoot.add(rest, answer, newMarker, mapperFactory);
+            height = subtreeRoot.getBranchHeight();
         }
 
-        setMaxHeight(rest.getLength());
+        if (previousHeight == maxHeight && height < previousHeight) {
+            recomputeMaxHeight();
+        }
+
+        // Meze syna se odebráním jen zúží, přepočet je nutný, určoval-li je.
+        if (previousMinLength == minLength
+                || previousMaxPartLength == maxPartLength) {
+            recomputeLengths(currentPart);
+        }
+
+        return removed;
+    }
+
+    /**
+     * Zjistí, zda-li uzel neobsahuje šablonu ani syny.
+     * 
+     * @return true, pokud je uzel prázdný
+     */
+    private boolean isEmpty() {
+        return template == null && branches.getSize() == 0;
+    }
+
+    /**
+     * Vrátí výšku, kterou uzel přispívá k maximální výšce svého otce.
+     * 
+     * @return maximální výška otce daná cestami vedoucími přes tento uzel
+     */
+    private int getBranchHeight() {
+        if (branches.getSize() == 0) {
+            return 0;
+        }
+
+        return maxHeight + 1;
+    }
+
+    /**
+     * Znovu spočítá maximální výšku ze synů.
+     */
+    private void recomputeMaxHeight() {
+        int result = 0;
+        for (final Entry<Word, WordNode> branch : branches.getEntries()) {
+            result = Math.max(result, branch.getValue().getBranchHeight());
+        }
+
+        maxHeight = result;
     }
 
     /**
@@ -406,6 +1402,58 @@ public final class WordNode implements Serializable {
         return newNode;
     }
 
+    /**
+     * Zhustí mapy větví uzlu i celého jeho podstromu na velikost odpovídající
+     * počtu synů.
+     * 
+     * @param histogram
+     *            histogram, do kterého se započtou výsledná jádra map
+     */
+    public void compact(final CoreHistogram histogram) {
+        branches.compact(histogram);
+
+        for (final Entry<Word, WordNode> branch : branches.getEntries()) {
+            branch.getValue().compact(histogram);
+        }
+    }
+
+    /**
+     * Započte uzel i celý jeho podstrom do statistiky. Průchod nic nezamyká,
+     * souběžné hledání tedy neblokuje.
+     * 
+     * @param statistics
+     *            plněná statistika
+     */
+    public void collectStatistics(final StructureStatistics statistics) {
+        final Set<Entry<Word, WordNode>> entries = branches.getEntries();
+
+        statistics.addNode(depth, entries.size());
+        statistics.addHeapSize(NODE_HEAP_BYTES);
+        branches.record(statistics.getCoreHistogram());
+
+        final Template current = template;
+        if (current != null) {
+            final int length = current.getValue().length();
+
+            statistics.addTemplate(StructureStatistics.CHAR_BYTES * length);
+            statistics.addHeapSize(VALUE_HEAP_BYTES
+                    + StructureStatistics.CHAR_BYTES * length);
+        }
+
+        for (final Entry<Word, WordNode> branch : entries) {
+            final Word word = branch.getKey();
+            final String value = word.getValue();
+
+            statistics.addWord(value);
+            // Žolíky a značky částí jsou sdílené konstanty.
+            if (word instanceof AIMLWord) {
+                statistics.addHeapSize(VALUE_HEAP_BYTES
+                        + StructureStatistics.CHAR_BYTES * value.length());
+            }
+            branch.getValue().collectStatistics(statistics);
+        }
+    }
+
     /**
      * Synové uzlu.
      * 
@@ -420,6 +1468,15 @@ public final class WordNode implements Serializable {
         return result;
     }
 
+    /**
+     * Větve uzlu.
+     * 
+     * @return dvojice slovo - syn
+     */
+    Set<Entry<Word, WordNode>> getBranchEntries() {
+        return branches.getEntries();
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -19,10 +19,12 @@
 package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
 
 import java.io.Serializable;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import cz.cuni.mff.ms.brodecva.botnicek.library.logging.BotnicekLogger;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.CoreHistogram;
 import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.MapperFactory;
 import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
 
@@ -34,7 +36,12 @@ import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
  * <p>
  * 
  * <p>
- * Tato implementace není bezpečná pro vícevláknové využití.
+ * Změny stromu jsou vzájemně vyloučeny, hledání souběžné se změnami však
+ * bezpečné není. Strom sdílený konverzacemi mozku se proto mění jen při
+ * načítání před zveřejněním mozku, poté je neměnný a prohledávat jej lze z
+ * libovolného počtu vláken. Kategorie naučené za běhu si každá konverzace
+ * ukládá do vlastní {@link OverlayStructure} nad sdíleným stromem a
+ * znovunačtení sestaví nový strom, kterým sdílený strom vymění celý.
  * </p>
  * 
  * @author Václav Brodec
@@ -44,7 +51,7 @@ public final class WordTree implements MatchingStructure, Serializable {
     /**
      * UID serializované verze.
      */
-    private static final long serialVersionUID = 2709310057638062838L;
+    private static final long serialVersionUID = -4617950238801346265L;
 
     /**
      * Logger.
@@ -78,6 +85,11 @@ public final class WordTree implements MatchingStructure, Serializable {
      */
     private boolean forwardCompatible;
 
+    /**
+     * Indikuje, zda-li si hledání pamatuje neúspěšné stavy.
+     */
+    private final boolean failuresMemoized;
+
     /**
      * Konstruktor stromové struktury.
      * 
@@ -85,12 +97,29 @@ public final class WordTree implements MatchingStructure, Serializable {
      *            továrna na větve uzlů stromu
      */
     public WordTree(final MapperFactory mapperFactory) {
+        this(mapperFactory, false);
+    }
+
+    /**
+     * Konstruktor stromové struktury s volbou zapamatování neúspěšných stavů
+     * hledání. Se zapamatováním roste čas hledání nejvýše polynomiálně s
+     * délkou vstupu i pro vzory s mnoha žolíky, za cenu pomocné paměti při
+     * každém hledání.
+     * 
+     * @param mapperFactory
+     *            továrna na větve uzlů stromu
+     * @param failuresMemoized
+     *            zda-li si hledání pamatuje neúspěšné stavy
+     */
+    public WordTree(final MapperFactory mapperFactory,
+            final boolean failuresMemoized) {
         if (mapperFactory == null) {
             throw new NullPointerException(
                     MESSAGE_LOCALIZER.getMessage("storage.NullFactory"));
         }
 
         this.mapperFactory = mapperFactory;
+        this.failuresMemoized = failuresMemoized;
         root = new WordNode(0, null, AIMLPartMarker.PATTERN, mapperFactory);
     }
 
@@ -106,11 +135,49 @@ public final class WordTree implements MatchingStructure, Serializable {
         LOGGER.log(Level.INFO, "storage.FindingMatchForPath", path);
 
         final MatchResult match =
-                root.find(path, AIMLPartMarker.PATTERN);
+                root.find(path, AIMLPartMarker.PATTERN, failuresMemoized);
 
         return match;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#findAll
+     * (java.util.List)
+     */
+    @Override
+    public List<MatchResult> findAll(final List<InputPath> paths) {
+        LOGGER.log(Level.INFO, "storage.FindingMatchesForPaths", paths.size());
+
+        return BatchMatcher.findAll(root, paths, failuresMemoized);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * findContextFree(cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath)
+     */
+    @Override
+    public ContextFreeMatch findContextFree(final InputPath path) {
+        return root.findContextFree(path);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * Strom změny nesleduje, verzi vede až mezipaměť nad ním.
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * getContentVersion()
+     */
+    @Override
+    public Object getContentVersion() {
+        return null;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -120,7 +187,7 @@ public final class WordTree implements MatchingStructure, Serializable {
      * cz.cuni.mff.ms.brodecva.botnicek.library.storage.Template)
      */
     @Override
-    public void add(final InputPath path, final Template answer) {
+    public synchronized void add(final InputPath path, final Template answer) {
         if (LOGGER.isLoggable(Level.FINE)) {
             LOGGER.log(Level.FINE, "storage.InsertingPathAndTemplate", new Object[] { path,
                     answer });
@@ -131,6 +198,53 @@ public final class WordTree implements MatchingStructure, Serializable {
         categoryCount++;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#replace
+     * (cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath,
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.Template)
+     */
+    @Override
+    public synchronized Template replace(final InputPath path,
+            final Template answer) {
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "storage.ReplacingPathAndTemplate", new Object[] { path,
+                    answer });
+        }
+
+        final Template previous =
+                root.replace(path, answer, AIMLPartMarker.PATTERN,
+                        mapperFactory);
+        if (previous == null) {
+            categoryCount++;
+        }
+
+        return previous;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#remove
+     * (cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath)
+     */
+    @Override
+    public synchronized Template remove(final InputPath path) {
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "storage.RemovingPath", path);
+        }
+
+        final Template removed = root.remove(path);
+        if (removed != null) {
+            categoryCount--;
+        }
+
+        return removed;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -142,6 +256,50 @@ public final class WordTree implements MatchingStructure, Serializable {
         return categoryCount;
     }
 
+    /**
+     * Po dokončení načítání nahradí mapy větví všech uzlů mapami přesně
+     * odpovídajícími počtu synů, čímž odstraní rezervy po odhadech továrny a
+     * postupném zvětšování. Strom lze i poté dále měnit.
+     * 
+     * @return histogram typů a velikostí výsledných jader map
+     */
+    public synchronized CoreHistogram compact() {
+        final CoreHistogram histogram = new CoreHistogram();
+
+        root.compact(histogram);
+
+        LOGGER.log(Level.INFO, "storage.TreeCompacted", new Object[] {
+                categoryCount, histogram });
+
+        return histogram;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#
+     * getStatistics()
+     */
+    @Override
+    public StructureStatistics getStatistics() {
+        final StructureStatistics statistics = new StructureStatistics();
+
+        root.collectStatistics(statistics);
+
+        return statistics;
+    }
+
+    /**
+     * Vytvoří neměnnou kopii stromu uloženou v plochých polích. Vhodné po
+     * dokončení načítání, kdy se do stromu již nepřidává. Souběžné změny
+     * stromu během kopírování čekají.
+     * 
+     * @return zmrazená kopie stromu
+     */
+    public synchronized FrozenWordTree freeze() {
+        return FrozenWordTree.freeze(root, categoryCount, forwardCompatible);
+    }
+
     /**
      * Vrátí používanou továrnu na větve.
      * 
@@ -151,6 +309,15 @@ public final class WordTree implements MatchingStructure, Serializable {
         return mapperFactory;
     }
 
+    /**
+     * Indikuje, zda-li si hledání pamatuje neúspěšné stavy.
+     * 
+     * @return true, pokud si hledání pamatuje neúspěšné stavy
+     */
+    public boolean isFailuresMemoized() {
+        return failuresMemoized;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -169,7 +336,8 @@ public final class WordTree implements MatchingStructure, Serializable {
      * setForwardCompatible(boolean)
      */
     @Override
-    public void setForwardCompatible(final boolean forwardCompatible) {
+    public synchronized void setForwardCompatible(
+            final boolean forwardCompatible) {
         this.forwardCompatible = forwardCompatible;
     }
 }
@@ -70,6 +70,11 @@ public final class AdaptiveMapper<K, V> implements Mapper<K, V>, Serializable {
      */
     private MapperCore<K, V> core;
 
+    /**
+     * Zda mapper nesmí používat jádra, která rozšiřují globální slovník slov.
+     */
+    private final boolean detached;
+
     /**
      * Vytvoří nový mapper s daným jádrem.
      * 
@@ -77,12 +82,41 @@ public final class AdaptiveMapper<K, V> implements Mapper<K, V>, Serializable {
      *            počáteční jádro, nesmí být null
      */
     public AdaptiveMapper(final MapperCore<K, V> core) {
+        this(core, false);
+    }
+
+    /**
+     * Vytvoří nový mapper s daným jádrem.
+     * 
+     * @param core
+     *            počáteční jádro, nesmí být null
+     * @param detached
+     *            true, pokud klíče nesmí rozšiřovat globální slovník slov
+     *            (například slova naučená během jednoho rozhovoru)
+     */
+    public AdaptiveMapper(final MapperCore<K, V> core, final boolean detached) {
         if (core == null) {
             throw new NullPointerException(
                     MESSAGE_LOCALIZER.getMessage("storage.map.NullCoreNotAccepted"));
         }
 
-        this.core = core;
+        this.detached = detached;
+        this.core = adopt(core);
+    }
+
+    /**
+     * Upraví nové jádro podle režimu mapperu.
+     * 
+     * @param candidate
+     *            nové jádro
+     * @return jádro k použití
+     */
+    private MapperCore<K, V> adopt(final MapperCore<K, V> candidate) {
+        if (detached) {
+            return ArrayCore.detachFromDictionary(candidate);
+        }
+
+        return candidate;
     }
 
     /*
@@ -125,6 +159,30 @@ public final class AdaptiveMapper<K, V> implements Mapper<K, V>, Serializable {
         }
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.Mapper#remove
+     * (java.lang.Object)
+     */
+    @Override
+    public V remove(final K key) {
+        final V removed = core.remove(key);
+
+        if (removed != null) {
+            final MapperCore<K, V> shrunk = core.shrink();
+
+            if (shrunk != core && LOGGER.isLoggable(Level.FINEST)) {
+                LOGGER.log(Level.FINEST, "storage.map.MapperShrunk", new Object[] { key,
+                        core, shrunk });
+            }
+
+            core = shrunk;
+        }
+
+        return removed;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -143,7 +201,32 @@ public final class AdaptiveMapper<K, V> implements Mapper<K, V>, Serializable {
      */
     @Override
     public void resize() {
-        core = core.resize();
+        core = adopt(core.resize());
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.Mapper#record(cz
+     * .cuni.mff.ms.brodecva.botnicek.library.storage.map.CoreHistogram)
+     */
+    @Override
+    public void record(final CoreHistogram histogram) {
+        histogram.record(core);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.Mapper#compact(cz
+     * .cuni.mff.ms.brodecva.botnicek.library.storage.map.CoreHistogram)
+     */
+    @Override
+    public void compact(final CoreHistogram histogram) {
+        core = adopt(ArrayCore.compactToFit(core));
+        histogram.record(core);
     }
 
     /*
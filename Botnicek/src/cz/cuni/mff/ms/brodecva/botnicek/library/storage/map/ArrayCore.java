@@ -44,6 +44,9 @@ import java.util.HashSet;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.StructureStatistics;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.Word;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.WordDictionary;
 import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
 
 /**
@@ -69,6 +72,12 @@ public final class ArrayCore<K, V> implements MapperCore<K, V>, Serializable {
     private static final ExceptionMessageLocalizer MESSAGE_LOCALIZER =
             ExceptionMessageLocalizer.getLocalizer();
 
+    /**
+     * Globální slovník slov.
+     */
+    private static final WordDictionary DICTIONARY = WordDictionary
+            .getDictionary();
+
     /**
      * Maximální kapacita.
      */
@@ -164,6 +173,33 @@ public final class ArrayCore<K, V> implements MapperCore<K, V>, Serializable {
         return false;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.MapperCore#remove
+     * (java.lang.Object)
+     */
+    @Override
+    public V remove(final K key) {
+        for (int i = 0; i < freeIndex; i++) {
+            final Entry<?, ?> entry = entries[i];
+
+            if (key.equals(entry.getKey())) {
+                freeIndex--;
+                entries[i] = entries[freeIndex];
+                entries[freeIndex] = null;
+
+                @SuppressWarnings("unchecked")
+                final V result = (V) entry.getValue();
+
+                return result;
+            }
+        }
+
+        return null;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -180,6 +216,8 @@ public final class ArrayCore<K, V> implements MapperCore<K, V>, Serializable {
 
         if (entries.length < MAXIMUM_CAPACITY) {
             newCore = new ArrayCore<K, V>(entries.length + 1);
+        } else if (inDictionary(Arrays.asList(entries))) {
+            newCore = new WordIdCore<K, V>(entries.length + 1);
         } else {
             newCore = new HashMapCore<K, V>(entries.length);
         }
@@ -193,6 +231,145 @@ public final class ArrayCore<K, V> implements MapperCore<K, V>, Serializable {
         return newCore;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.MapperCore#shrink ()
+     */
+    @Override
+    public MapperCore<K, V> shrink() {
+        if (freeIndex > SingleEntryCore.CAPACITY) {
+            return this;
+        }
+
+        return shrinkToFit(this);
+    }
+
+    /**
+     * Přesune záznamy jádra do nejmenšího jádra, do kterého se vejdou, pokud
+     * jich je méně než {@value #MAXIMUM_CAPACITY}.
+     * 
+     * @param <K>
+     *            klíč
+     * @param <V>
+     *            hodnota
+     * @param core
+     *            zmenšované jádro
+     * @return menší jádro se stejnými záznamy, případně původní jádro
+     */
+    static <K, V> MapperCore<K, V> shrinkToFit(final MapperCore<K, V> core) {
+        final int size = core.getSize();
+        if (size >= MAXIMUM_CAPACITY) {
+            return core;
+        }
+
+        final MapperCore<K, V> result;
+        if (size <= SingleEntryCore.CAPACITY) {
+            result = new SingleEntryCore<K, V>();
+        } else {
+            result = new ArrayCore<K, V>();
+        }
+
+        for (final Entry<K, V> entry : core.getEntries()) {
+            result.put(entry.getKey(), entry.getValue());
+        }
+
+        return result;
+    }
+
+    /**
+     * Přesune záznamy jádra do jádra, jehož typ a kapacita přesně odpovídají
+     * jejich počtu. Na rozdíl od {@link #shrinkToFit(MapperCore)} vytváří i
+     * větší jádra, určeno pro zhuštění po dokončení plnění.
+     * 
+     * @param <K>
+     *            klíč
+     * @param <V>
+     *            hodnota
+     * @param core
+     *            zhušťované jádro, nemění se
+     * @return jádro se stejnými záznamy, případně původní jádro, pokud již
+     *         přesně odpovídá
+     */
+    static <K, V> MapperCore<K, V> compactToFit(final MapperCore<K, V> core) {
+        final int size = core.getSize();
+        final Set<Entry<K, V>> entries = core.getEntries();
+
+        final MapperCore<K, V> result;
+        if (size <= SingleEntryCore.CAPACITY) {
+            if (core instanceof SingleEntryCore) {
+                return core;
+            }
+
+            result = new SingleEntryCore<K, V>();
+        } else if (size <= MAXIMUM_CAPACITY) {
+            if (core instanceof ArrayCore && core.getCapacity() == size) {
+                return core;
+            }
+
+            result = new ArrayCore<K, V>(size);
+        } else if (inDictionary(entries)) {
+            result = new WordIdCore<K, V>(size);
+        } else {
+            result = new HashMapCore<K, V>(size);
+        }
+
+        for (final Entry<K, V> entry : entries) {
+            result.put(entry.getKey(), entry.getValue());
+        }
+
+        return result;
+    }
+
+    /**
+     * Zjistí, zda-li jsou všechny klíče slova z globálního slovníku. Jen pak
+     * je lze přesunout do {@link WordIdCore}, aniž by se slovník rozšířil.
+     * 
+     * @param entries
+     *            záznamy
+     * @return true, pokud slovník všechny klíče obsahuje
+     */
+    private static boolean inDictionary(
+            final Iterable<? extends Entry<?, ?>> entries) {
+        for (final Entry<?, ?> entry : entries) {
+            final Object key = entry.getKey();
+            if (!(key instanceof Word)
+                    || DICTIONARY.lookup((Word) key) == WordDictionary.UNKNOWN) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Nahradí jádro {@link WordIdCore}, které nová slova vkládá do globálního
+     * slovníku, jádrem {@link HashMapCore} se stejnými záznamy. Ostatní jádra
+     * vrací beze změny.
+     * 
+     * @param <K>
+     *            klíč
+     * @param <V>
+     *            hodnota
+     * @param core
+     *            jádro, nemění se
+     * @return jádro, které slovník nerozšiřuje
+     */
+    static <K, V> MapperCore<K, V> detachFromDictionary(
+            final MapperCore<K, V> core) {
+        if (!(core instanceof WordIdCore)) {
+            return core;
+        }
+
+        final MapperCore<K, V> result = new HashMapCore<K, V>(core.getSize());
+        for (final Entry<K, V> entry : core.getEntries()) {
+            result.put(entry.getKey(), entry.getValue());
+        }
+
+        return result;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -260,6 +437,24 @@ public final class ArrayCore<K, V> implements MapperCore<K, V>, Serializable {
         return entries.length;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.MapperCore#
+     * getEstimatedHeapSize()
+     */
+    @Override
+    public long getEstimatedHeapSize() {
+        return StructureStatistics.OBJECT_HEADER_BYTES
+                + StructureStatistics.REFERENCE_BYTES
+                + StructureStatistics.INT_BYTES
+                + StructureStatistics.ARRAY_HEADER_BYTES
+                + (long) entries.length * StructureStatistics.REFERENCE_BYTES
+                + (long) freeIndex
+                * (StructureStatistics.OBJECT_HEADER_BYTES + 2
+                        * StructureStatistics.REFERENCE_BYTES);
+    }
+
     /*
      * (non-Javadoc)
      * 
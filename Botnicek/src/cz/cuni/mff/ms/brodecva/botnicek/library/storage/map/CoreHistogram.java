@@ -0,0 +1,215 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage.map;
+
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Histogram typů a velikostí jader map, který vzniká při zhušťování stromu či
+ * sestavování jeho statistiky. Slouží k ladění poměru paměti a rychlosti hledání podle skutečně načtených
+ * kategorií místo pevných odhadů ve {@link FrugalMapperFactory}.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see Mapper#compact(CoreHistogram)
+ * @see Mapper#record(CoreHistogram)
+ */
+public final class CoreHistogram {
+    /**
+     * Počty jader podle jednoduchého názvu typu a počtu záznamů.
+     */
+    private final SortedMap<String, SortedMap<Integer, Integer>> counts =
+            new TreeMap<String, SortedMap<Integer, Integer>>();
+
+    /**
+     * Celkový počet započtených jader.
+     */
+    private int total = 0;
+
+    /**
+     * Celkový počet záznamů v započtených jádrech.
+     */
+    private long entriesTotal = 0;
+
+    /**
+     * Odhad haldy obsazené započtenými jádry.
+     */
+    private long heapSize = 0;
+
+    /**
+     * Započte jádro.
+     * 
+     * @param core
+     *            jádro, nesmí být null
+     */
+    public void record(final MapperCore<?, ?> core) {
+        final String type = core.getClass().getSimpleName();
+        final int size = core.getSize();
+
+        SortedMap<Integer, Integer> sizes = counts.get(type);
+        if (sizes == null) {
+            sizes = new TreeMap<Integer, Integer>();
+            counts.put(type, sizes);
+        }
+
+        final Integer previous = sizes.get(size);
+        sizes.put(size, previous == null ? 1 : previous + 1);
+
+        total++;
+        entriesTotal += size;
+        heapSize += core.getEstimatedHeapSize();
+    }
+
+    /**
+     * Připojí počty z jiného histogramu.
+     * 
+     * @param other
+     *            připojovaný histogram
+     */
+    public void merge(final CoreHistogram other) {
+        for (final Entry<String, SortedMap<Integer, Integer>> type : other.counts
+                .entrySet()) {
+            SortedMap<Integer, Integer> sizes = counts.get(type.getKey());
+            if (sizes == null) {
+                sizes = new TreeMap<Integer, Integer>();
+                counts.put(type.getKey(), sizes);
+            }
+
+            for (final Entry<Integer, Integer> size : type.getValue()
+                    .entrySet()) {
+                final Integer previous = sizes.get(size.getKey());
+                sizes.put(size.getKey(), previous == null ? size.getValue()
+                        : previous + size.getValue());
+            }
+        }
+
+        total += other.total;
+        entriesTotal += other.entriesTotal;
+        heapSize += other.heapSize;
+    }
+
+    /**
+     * Vrátí počet započtených jader daného typu.
+     * 
+     * @param coreType
+     *            typ jádra
+     * @return počet jader daného typu
+     */
+    public int getCount(final Class<?> coreType) {
+        final SortedMap<Integer, Integer> sizes =
+                counts.get(coreType.getSimpleName());
+        if (sizes == null) {
+            return 0;
+        }
+
+        int result = 0;
+        for (final int count : sizes.values()) {
+            result += count;
+        }
+
+        return result;
+    }
+
+    /**
+     * Vrátí počet započtených jader daného typu s daným počtem záznamů.
+     * 
+     * @param coreType
+     *            typ jádra
+     * @param size
+     *            počet záznamů
+     * @return počet jader daného typu a velikosti
+     */
+    public int getCount(final Class<?> coreType, final int size) {
+        final SortedMap<Integer, Integer> sizes =
+                counts.get(coreType.getSimpleName());
+        if (sizes == null) {
+            return 0;
+        }
+
+        final Integer count = sizes.get(size);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Vrátí celkový počet započtených jader.
+     * 
+     * @return počet jader
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Vrátí celkový počet záznamů v započtených jádrech.
+     * 
+     * @return počet záznamů
+     */
+    public long getEntriesTotal() {
+        return entriesTotal;
+    }
+
+    /**
+     * Vrátí odhad haldy obsazené započtenými jádry.
+     * 
+     * @return odhad v bajtech
+     * @see MapperCore#getEstimatedHeapSize()
+     */
+    public long getEstimatedHeapSize() {
+        return heapSize;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("CoreHistogram [total=");
+        builder.append(total);
+        builder.append(", entries=");
+        builder.append(entriesTotal);
+        for (final Entry<String, SortedMap<Integer, Integer>> type : counts
+                .entrySet()) {
+            builder.append(", ");
+            builder.append(type.getKey());
+            builder.append("={");
+
+            boolean first = true;
+            for (final Entry<Integer, Integer> size : type.getValue()
+                    .entrySet()) {
+                if (!first) {
+                    builder.append(", ");
+                }
+                first = false;
+
+                builder.append(size.getKey());
+                builder.append('x');
+                builder.append(size.getValue());
+            }
+
+            builder.append("}");
+        }
+        builder.append("]");
+        return builder.toString();
+    }
+}
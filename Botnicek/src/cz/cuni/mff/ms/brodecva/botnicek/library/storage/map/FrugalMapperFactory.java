@@ -32,7 +32,9 @@ import cz.cuni.mff.ms.brodecva.botnicek.library.utils.classes.ClassManagment;
 
 /**
  * Tovární třída pro konstrukci efektivní mapy užité pro uložení odkazů na
- * synovské uzly stromové struktury.
+ * synovské uzly stromové struktury. Pro stromy se slovy, která nemají
+ * rozšiřovat globální slovník slov, vytváří mapy, které se nepřepnou na jádro
+ * {@link WordIdCore}.
  * 
  * @author Václav Brodec
  * @version 1.0
@@ -141,13 +143,48 @@ public final class FrugalMapperFactory implements MapperFactory, Serializable {
                 (Class<? extends MapperCore<Word, WordNode>>) array;
         INTERVAL_TO_CHOICE.put(ArrayCore.MINIMUM_CAPACITY, arrayCoreKlass);
 
-        final Class<?> hashMap = HashMapCore.class;
+        final Class<?> wordId = WordIdCore.class;
         @SuppressWarnings("unchecked")
         final Class<? extends MapperCore<Word, WordNode>> mapCoreKlass =
-                (Class<? extends MapperCore<Word, WordNode>>) hashMap;
+                (Class<? extends MapperCore<Word, WordNode>>) wordId;
         INTERVAL_TO_CHOICE.put(ArrayCore.MAXIMUM_CAPACITY + 1, mapCoreKlass);
     }
 
+    /**
+     * Vytvářet mapy, které nerozšiřují globální slovník slov.
+     */
+    private final boolean detached;
+
+    /**
+     * Vytvoří továrnu na mapy, jejichž klíče se vkládají do globálního
+     * slovníku slov.
+     */
+    public FrugalMapperFactory() {
+        this(false);
+    }
+
+    /**
+     * Vytvoří továrnu na mapy.
+     * 
+     * @param detached
+     *            true pro mapy, jejichž klíče se nevkládají do globálního
+     *            slovníku slov (například pro kategorie naučené v jednom
+     *            rozhovoru)
+     */
+    public FrugalMapperFactory(final boolean detached) {
+        this.detached = detached;
+    }
+
+    /**
+     * Zjistí, zda-li továrna vytváří mapy, které nerozšiřují globální slovník
+     * slov.
+     * 
+     * @return true, pokud mapy nepoužívají jádro {@link WordIdCore}
+     */
+    public boolean isDetached() {
+        return detached;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -183,7 +220,8 @@ public final class FrugalMapperFactory implements MapperFactory, Serializable {
                         expectedSize);
 
         final Mapper<Word, WordNode> mapper =
-                new AdaptiveMapper<Word, WordNode>(providedMapperCore);
+                new AdaptiveMapper<Word, WordNode>(providedMapperCore,
+                        detached);
         if (LOGGER.isLoggable(Level.FINEST)) {
             LOGGER.log(Level.FINEST, "storage.map.MapperCreationFinished", mapper);
         }
@@ -44,6 +44,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.StructureStatistics;
 import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
 
 /**
@@ -130,6 +131,18 @@ public final class HashMapCore<K, V> implements MapperCore<K, V>, Serializable {
         return false;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.MapperCore#remove
+     * (java.lang.Object)
+     */
+    @Override
+    public V remove(final K key) {
+        return map.remove(key);
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -141,6 +154,17 @@ public final class HashMapCore<K, V> implements MapperCore<K, V>, Serializable {
         return this; // Hašovací tabulka by měla stačit všem.
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.MapperCore#shrink ()
+     */
+    @Override
+    public MapperCore<K, V> shrink() {
+        return ArrayCore.shrinkToFit(this);
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -183,6 +207,33 @@ public final class HashMapCore<K, V> implements MapperCore<K, V>, Serializable {
         return CAPACITY;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.MapperCore#
+     * getEstimatedHeapSize()
+     */
+    @Override
+    public long getEstimatedHeapSize() {
+        // Tabulka java.util.HashMap se plní nejvýše do tří čtvrtin.
+        final int size = map.size();
+        final int tableLength = Integer.highestOneBit(Math.max(1, size * 4 / 3)) * 2;
+
+        final int mapBytes =
+                StructureStatistics.OBJECT_HEADER_BYTES + 4
+                        * StructureStatistics.REFERENCE_BYTES + 4
+                        * StructureStatistics.INT_BYTES;
+        final int nodeBytes =
+                StructureStatistics.OBJECT_HEADER_BYTES + 3
+                        * StructureStatistics.REFERENCE_BYTES
+                        + StructureStatistics.INT_BYTES;
+
+        return StructureStatistics.OBJECT_HEADER_BYTES
+                + StructureStatistics.REFERENCE_BYTES + mapBytes
+                + StructureStatistics.ARRAY_HEADER_BYTES + (long) tableLength
+                * StructureStatistics.REFERENCE_BYTES + (long) size * nodeBytes;
+    }
+
     /*
      * (non-Javadoc)
      * 
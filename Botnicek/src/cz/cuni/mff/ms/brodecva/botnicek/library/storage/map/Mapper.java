@@ -53,6 +53,17 @@ public interface Mapper<K, V> {
      */
     void put(K key, V value);
 
+    /**
+     * Odstraní z mapy záznam s daným klíčem. Pokud po odstranění postačí menší
+     * jádro, mapa jej vymění.
+     * 
+     * @param key
+     *            klíč
+     * @return hodnota, která byla s klíčem asociována, null pokud záznam
+     *         neexistoval
+     */
+    V remove(K key);
+
     /**
      * Vrátí množinu záznamů.
      * 
@@ -66,6 +77,24 @@ public interface Mapper<K, V> {
      */
     void resize();
 
+    /**
+     * Vymění jádro za takové, jehož typ a kapacita přesně odpovídají
+     * aktuálnímu počtu záznamů, a zaznamená je do histogramu. Vhodné po
+     * dokončení plnění, další vkládání jádro opět zvětšuje.
+     * 
+     * @param histogram
+     *            histogram, do kterého se výsledné jádro započte
+     */
+    void compact(CoreHistogram histogram);
+
+    /**
+     * Započte stávající jádro do histogramu, aniž by jej měnila.
+     * 
+     * @param histogram
+     *            histogram, do kterého se jádro započte
+     */
+    void record(CoreHistogram histogram);
+
     /**
      * Vrátí velikost.
      * 
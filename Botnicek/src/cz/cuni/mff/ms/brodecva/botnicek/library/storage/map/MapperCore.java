@@ -82,6 +82,16 @@ public interface MapperCore<K, V> {
      */
     boolean put(K key, V value);
 
+    /**
+     * Odstraní záznam s daným klíčem.
+     * 
+     * @param key
+     *            klíč
+     * @return hodnota, která byla s klíčem asociována, null pokud záznam
+     *         neexistoval
+     */
+    V remove(K key);
+
     /**
      * Vrátí novou verzi uložiště optimalizovanou pro aktuální počet prvků.
      * 
@@ -89,6 +99,14 @@ public interface MapperCore<K, V> {
      */
     MapperCore<K, V> resize();
 
+    /**
+     * Vrátí menší verzi uložiště, pokud aktuální počet prvků nevyžaduje
+     * stávající. Protějšek {@link #resize()} pro použití po odstranění prvků.
+     * 
+     * @return menší verze uložiště, případně toto uložiště
+     */
+    MapperCore<K, V> shrink();
+
     /**
      * Vrátí uložené záznamy.
      * 
@@ -110,6 +128,14 @@ public interface MapperCore<K, V> {
      */
     int getCapacity();
 
+    /**
+     * Odhadne velikost haldy, kterou jádro zabírá, včetně záznamů, ale bez
+     * klíčů a hodnot samotných.
+     * 
+     * @return odhad v bajtech
+     */
+    long getEstimatedHeapSize();
+
     /**
      * Vrátí hash pro záznamy.
      * 
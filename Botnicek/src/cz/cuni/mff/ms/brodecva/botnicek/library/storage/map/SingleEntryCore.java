@@ -42,6 +42,7 @@ import java.util.HashSet;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.StructureStatistics;
 import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
 
 /**
@@ -145,6 +146,25 @@ public final class SingleEntryCore<K, V> implements MapperCore<K, V> {
         return true;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.MapperCore#remove
+     * (java.lang.Object)
+     */
+    @Override
+    public V remove(final K key) {
+        if (entry == null || !entry.getKey().equals(key)) {
+            return null;
+        }
+
+        final V result = entry.getValue();
+        entry = null;
+
+        return result;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -182,6 +202,17 @@ public final class SingleEntryCore<K, V> implements MapperCore<K, V> {
         return result;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.MapperCore#shrink ()
+     */
+    @Override
+    public MapperCore<K, V> shrink() {
+        return this;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -209,6 +240,25 @@ public final class SingleEntryCore<K, V> implements MapperCore<K, V> {
         return CAPACITY;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.MapperCore#
+     * getEstimatedHeapSize()
+     */
+    @Override
+    public long getEstimatedHeapSize() {
+        final long core =
+                StructureStatistics.OBJECT_HEADER_BYTES
+                        + StructureStatistics.REFERENCE_BYTES;
+        if (entry == null) {
+            return core;
+        }
+
+        return core + StructureStatistics.OBJECT_HEADER_BYTES + 2
+                * StructureStatistics.REFERENCE_BYTES;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -0,0 +1,525 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage.map;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.HashSet;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.StructureStatistics;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.Word;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.WordDictionary;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.ExceptionMessageLocalizer;
+
+/**
+ * Jádro pro {@link Mapper} se slovy jako klíči, implementované hašovací
+ * tabulkou s otevřenou adresací nad identifikátory slov z globálního
+ * {@link WordDictionary slovníku}. Vyhledání porovnává pouze primitivní čísla,
+ * nevyžaduje obalování ani volání {@link Object#equals(Object)}.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * 
+ * @param <K>
+ *            klíč, musí jít o {@link Word}
+ * @param <V>
+ *            hodnota
+ */
+public final class WordIdCore<K, V> implements MapperCore<K, V>, Serializable {
+    /**
+     * UID serializované verze.
+     */
+    private static final long serialVersionUID = -3418263970415571923L;
+
+    /**
+     * Lokalizátor hlášek výjimek.
+     */
+    private static final ExceptionMessageLocalizer MESSAGE_LOCALIZER =
+            ExceptionMessageLocalizer.getLocalizer();
+
+    /**
+     * Globální slovník slov.
+     */
+    private static final WordDictionary DICTIONARY = WordDictionary
+            .getDictionary();
+
+    /**
+     * Kapacita. Stejně jako {@link HashMapCore}.
+     */
+    public static final int CAPACITY = HashMapCore.CAPACITY;
+
+    /**
+     * Nejmenší délka tabulky.
+     */
+    private static final int MINIMUM_TABLE_LENGTH = 4;
+
+    /**
+     * Multiplikativní konstanta pro rozptýlení identifikátorů.
+     */
+    private static final int SPREAD_FACTOR = 0x9E3779B9;
+
+    /**
+     * Identifikátory klíčů zvýšené o jedna (nula značí volné místo).
+     */
+    private transient int[] ids;
+
+    /**
+     * Klíče.
+     */
+    private transient Object[] keys;
+
+    /**
+     * Hodnoty.
+     */
+    private transient Object[] values;
+
+    /**
+     * Počet uložených párů.
+     */
+    private transient int size;
+
+    /**
+     * Vytvoří jádro o výchozí počáteční velikosti.
+     */
+    public WordIdCore() {
+        this(MINIMUM_TABLE_LENGTH);
+    }
+
+    /**
+     * Vytvoří jádro.
+     * 
+     * @param initialCapacity
+     *            počáteční kapacita (tj. počet prvků, který tabulka snese bez
+     *            zvětšování), musí být nezáporná
+     */
+    public WordIdCore(final int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException(MESSAGE_LOCALIZER.getMessage(
+                    "storage.map.CapacityOutOfBounds", initialCapacity));
+        }
+
+        allocate(tableLength(initialCapacity));
+    }
+
+    /**
+     * Spočítá délku tabulky pro daný počet prvků.
+     * 
+     * @param capacity
+     *            počet prvků
+     * @return délka tabulky (mocnina dvou)
+     */
+    private static int tableLength(final int capacity) {
+        int length = MINIMUM_TABLE_LENGTH;
+        while (length < capacity * HASH_SET_RESIZE_PREVENTION_FACTOR
+                && length < CAPACITY) {
+            length <<= 1;
+        }
+
+        return length;
+    }
+
+    /**
+     * Vytvoří prázdnou tabulku.
+     * 
+     * @param length
+     *            délka tabulky
+     */
+    private void allocate(final int length) {
+        ids = new int[length];
+        keys = new Object[length];
+        values = new Object[length];
+        size = 0;
+    }
+
+    /**
+     * Vrátí počáteční pozici hledání identifikátoru.
+     * 
+     * @param storedId
+     *            uložený (zvýšený) identifikátor
+     * @param mask
+     *            maska délky tabulky
+     * @return pozice v tabulce
+     */
+    private static int slot(final int storedId, final int mask) {
+        final int spread = storedId * SPREAD_FACTOR;
+
+        return (spread ^ (spread >>> 16)) & mask;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.MapperCore#get
+     * (java.lang.Object)
+     */
+    @Override
+    public V get(final K key) {
+        if (!(key instanceof Word)) {
+            return null;
+        }
+
+        final int id = DICTIONARY.lookup((Word) key);
+        if (id == WordDictionary.UNKNOWN) {
+            return null;
+        }
+
+        final int storedId = id + 1;
+        final int[] table = ids;
+        final int mask = table.length - 1;
+        for (int i = slot(storedId, mask);; i = (i + 1) & mask) {
+            final int candidate = table[i];
+            if (candidate == storedId) {
+                @SuppressWarnings("unchecked")
+                final V result = (V) values[i];
+                return result;
+            }
+            if (candidate == 0) {
+                return null;
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.MapperCore#put
+     * (java.lang.Object, java.lang.Object)
+     */
+    @Override
+    public boolean put(final K key, final V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException(
+                    MESSAGE_LOCALIZER.getMessage("storage.map.NullNotAccepted"));
+        }
+        if (!(key instanceof Word)) {
+            throw new IllegalArgumentException(
+                    MESSAGE_LOCALIZER.getMessage("storage.map.KeyNotWord", key));
+        }
+
+        if ((size + 1) * HASH_SET_RESIZE_PREVENTION_FACTOR > ids.length
+                && ids.length < CAPACITY) {
+            grow();
+        }
+
+        insert(DICTIONARY.intern((Word) key) + 1, key, value);
+
+        return false;
+    }
+
+    /**
+     * Vloží pár do tabulky, případně nahradí hodnotu.
+     * 
+     * @param storedId
+     *            uložený (zvýšený) identifikátor
+     * @param key
+     *            klíč
+     * @param value
+     *            hodnota
+     */
+    private void insert(final int storedId, final Object key,
+            final Object value) {
+        final int mask = ids.length - 1;
+        int i = slot(storedId, mask);
+        while (ids[i] != 0) {
+            if (ids[i] == storedId) {
+                keys[i] = key;
+                values[i] = value;
+                return;
+            }
+
+            i = (i + 1) & mask;
+        }
+
+        ids[i] = storedId;
+        keys[i] = key;
+        values[i] = value;
+        size++;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.MapperCore#remove
+     * (java.lang.Object)
+     */
+    @Override
+    public V remove(final K key) {
+        if (!(key instanceof Word)) {
+            return null;
+        }
+
+        final int id = DICTIONARY.lookup((Word) key);
+        if (id == WordDictionary.UNKNOWN) {
+            return null;
+        }
+
+        final int storedId = id + 1;
+        final int mask = ids.length - 1;
+        for (int i = slot(storedId, mask);; i = (i + 1) & mask) {
+            final int candidate = ids[i];
+            if (candidate == storedId) {
+                @SuppressWarnings("unchecked")
+                final V result = (V) values[i];
+
+                delete(i, mask);
+                return result;
+            }
+            if (candidate == 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Uvolní místo v tabulce a posune zpět páry, které by po jeho uvolnění
+     * nebyly při lineárním hledání nalezeny.
+     * 
+     * @param index
+     *            uvolňované místo
+     * @param mask
+     *            maska délky tabulky
+     */
+    private void delete(final int index, final int mask) {
+        int hole = index;
+        for (int i = (hole + 1) & mask; ids[i] != 0; i = (i + 1) & mask) {
+            final int home = slot(ids[i], mask);
+
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                ids[hole] = ids[i];
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+
+        ids[hole] = 0;
+        keys[hole] = null;
+        values[hole] = null;
+        size--;
+    }
+
+    /**
+     * Zdvojnásobí délku tabulky a přesune do ní uložené páry.
+     */
+    private void grow() {
+        final int[] oldIds = ids;
+        final Object[] oldKeys = keys;
+        final Object[] oldValues = values;
+
+        allocate(oldIds.length << 1);
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] != 0) {
+                insert(oldIds[i], oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.MapperCore#resize ()
+     */
+    @Override
+    public MapperCore<K, V> resize() {
+        return this; // Roste samo.
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.MapperCore#shrink ()
+     */
+    @Override
+    public MapperCore<K, V> shrink() {
+        return ArrayCore.shrinkToFit(this);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.MapperCore#
+     * getEntries ()
+     */
+    @Override
+    public Set<Entry<K, V>> getEntries() {
+        final Set<Entry<K, V>> result =
+                new HashSet<Entry<K, V>>(HASH_SET_RESIZE_PREVENTION_FACTOR
+                        * size);
+
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] != 0) {
+                @SuppressWarnings("unchecked")
+                final K key = (K) keys[i];
+                @SuppressWarnings("unchecked")
+                final V value = (V) values[i];
+
+                result.add(new SimpleImmutableEntry<K, V>(key, value));
+            }
+        }
+
+        return result;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.MapperCore#getSize
+     * ()
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.MapperCore#
+     * getCapacity()
+     */
+    @Override
+    public int getCapacity() {
+        return CAPACITY;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.MapperCore#
+     * getEstimatedHeapSize()
+     */
+    @Override
+    public long getEstimatedHeapSize() {
+        return StructureStatistics.OBJECT_HEADER_BYTES + 3
+                * StructureStatistics.REFERENCE_BYTES
+                + StructureStatistics.INT_BYTES + 3
+                * StructureStatistics.ARRAY_HEADER_BYTES + (long) ids.length
+                * (StructureStatistics.INT_BYTES + 2
+                        * StructureStatistics.REFERENCE_BYTES);
+    }
+
+    /**
+     * Uloží páry bez identifikátorů, které platí jen v rámci běhu.
+     * 
+     * @param out
+     *            výstupní proud
+     * @throws IOException
+     *             chyba při zápisu
+     */
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+
+        out.writeInt(size);
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] != 0) {
+                out.writeObject(keys[i]);
+                out.writeObject(values[i]);
+            }
+        }
+    }
+
+    /**
+     * Načte páry a znovu jim přidělí identifikátory v aktuálním slovníku.
+     * 
+     * @param in
+     *            vstupní proud
+     * @throws IOException
+     *             chyba při čtení
+     * @throws ClassNotFoundException
+     *             neznámá třída
+     */
+    private void readObject(final ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        in.defaultReadObject();
+
+        final int count = in.readInt();
+        allocate(tableLength(count));
+        for (int i = 0; i < count; i++) {
+            final Object key = in.readObject();
+            final Object value = in.readObject();
+
+            insert(DICTIONARY.intern((Word) key) + 1, key, value);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.brodecva.botnicek.library.storage.mapper.MapperCore#hashCode
+     * ()
+     */
+    @Override
+    public int hashCode() {
+        return getEntries().hashCode();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * cz.cuni.mff.brodecva.botnicek.library.storage.mapper.MapperCore#equals
+     * (java.lang.Object);
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        @SuppressWarnings("rawtypes")
+        final WordIdCore other = (WordIdCore) obj;
+        if (size != other.size) {
+            return false;
+        }
+        return getEntries().equals(other.getEntries());
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("WordIdCore [entries=");
+        builder.append(getEntries());
+        builder.append(", size=");
+        builder.append(getSize());
+        builder.append(", capacity=");
+        builder.append(getCapacity());
+        builder.append("]");
+        return builder.toString();
+    }
+}
@@ -36,23 +36,32 @@
  */
 package cz.cuni.mff.ms.brodecva.botnicek.library.utils;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import cz.cuni.mff.ms.brodecva.botnicek.library.logging.BotnicekLogger;
 import cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.Normalizer;
 import cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.SimpleNormalizer;
-import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLInputPath;
-import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLTemplate;
-import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchResult;
-import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure;
-import cz.cuni.mff.ms.brodecva.botnicek.library.storage.WordTree;
-import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.FrugalMapperFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLWildcard;
 
 /**
- * Testuje vzor pomocí prázdné {@link MatchingStructure}, do které vloží vzor a
- * na takto vzniklé struktuře se pokusí vyhledat daný text.
+ * <p>
+ * Testuje text proti vzoru se stejným výsledkem, jako kdyby byl text hledán ve
+ * stromu obsahujícím pouze daný vzor. Vzory se překládají do podoby
+ * {@link CompiledPattern} jen jednou a přeložené se uchovávají v omezené
+ * vyrovnávací paměti sdílené všemi porovnáními.
+ * </p>
+ * 
+ * <p>
+ * Každé vlákno si pamatuje poslední normalizovaný text, takže při postupném
+ * porovnání jedné hodnoty s mnoha vzory (např. u položek seznamu podmínky) se
+ * text normalizuje jen jednou. Třída je bezpečná pro vícevláknové využití.
+ * </p>
  * 
  * @author Václav Brodec
  * @version 1.0
@@ -71,14 +80,33 @@ public final class AIMLStructuralMatcher implements Matcher, Serializable {
             .getLogger(AIMLStructuralMatcher.class);
 
     /**
-     * Zástupný text šablony. Při porovnání se nevyužívá.
+     * Počet přeložených vzorů, po jehož překročení se vyrovnávací paměť
+     * vyprázdní.
      */
-    private static final String DUMMY_TEMPLATE_TEXT = "";
+    private static final int MAX_COMPILED_PATTERNS = 4096;
+
+    /**
+     * Vzor užitý místo chybějícího vzoru.
+     */
+    private static final String DEFAULT_PATTERN = AIMLWildcard.ASTERISK
+            .getValue();
 
     /**
      * Normalizér textu.
      */
-    private Normalizer normalizer = new SimpleNormalizer();
+    private final Normalizer normalizer = new SimpleNormalizer();
+
+    /**
+     * Přeložené vzory podle jejich textu.
+     */
+    private transient ConcurrentMap<String, CompiledPattern> compiled =
+            new ConcurrentHashMap<String, CompiledPattern>();
+
+    /**
+     * Poslední normalizovaný text každého vlákna.
+     */
+    private transient ThreadLocal<String[]> lastNormalized =
+            new ThreadLocal<String[]>();
 
     /*
      * (non-Javadoc)
@@ -90,21 +118,81 @@ public final class AIMLStructuralMatcher implements Matcher, Serializable {
      */
     @Override
     public boolean matches(final String text, final String pattern) {
-        final MatchingStructure arbitter =
-                new WordTree(new FrugalMapperFactory());
-
-        arbitter.add(new AIMLInputPath(pattern, null, null), new AIMLTemplate(
-                DUMMY_TEMPLATE_TEXT));
-
-        final MatchResult result =
-                arbitter.find(new AIMLInputPath(normalizer
-                        .convertToNormalChars(text), null, null));
+        final boolean result = compile(pattern).matches(normalize(text));
 
         if (LOGGER.isLoggable(Level.FINE)) {
             LOGGER.log(Level.FINE, "utils.MatcherResult", new Object[] { text,
                     pattern, result });
         }
 
-        return result.isSuccesful();
+        return result;
+    }
+
+    /**
+     * Vrátí přeložený vzor, pokud ještě přeložen nebyl, přeloží jej.
+     * 
+     * @param pattern
+     *            vzor, pokud je null, pak odpovídá libovolnému textu
+     * @return přeložený vzor
+     */
+    public CompiledPattern compile(final String pattern) {
+        final String key;
+        if (pattern == null) {
+            key = DEFAULT_PATTERN;
+        } else {
+            key = pattern;
+        }
+
+        final CompiledPattern cached = compiled.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        final CompiledPattern created =
+                CompiledPattern.compile(key, normalizer);
+        if (compiled.size() >= MAX_COMPILED_PATTERNS) {
+            compiled.clear();
+        }
+        compiled.put(key, created);
+
+        return created;
+    }
+
+    /**
+     * Převede text do normální podoby, ve které jej lze porovnat s přeloženým
+     * vzorem.
+     * 
+     * @param text
+     *            text
+     * @return text v normální podobě
+     */
+    public String normalize(final String text) {
+        final String[] last = lastNormalized.get();
+        if (last != null && last[0].equals(text)) {
+            return last[1];
+        }
+
+        final String normalized = normalizer.convertToNormalChars(text);
+        lastNormalized.set(new String[] { text, normalized });
+
+        return normalized;
+    }
+
+    /**
+     * Po deserializaci obnoví vyrovnávací paměti.
+     * 
+     * @param in
+     *            vstupní proud
+     * @throws IOException
+     *             chyba při čtení
+     * @throws ClassNotFoundException
+     *             neznámá třída
+     */
+    private void readObject(final ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        in.defaultReadObject();
+
+        compiled = new ConcurrentHashMap<String, CompiledPattern>();
+        lastNormalized = new ThreadLocal<String[]>();
     }
 }
@@ -0,0 +1,276 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.utils;
+
+import java.util.regex.Pattern;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.Normalizer;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLPartMarker;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLWildcard;
+
+/**
+ * <p>
+ * Přeložený vzor pro porovnání s normalizovaným textem. Vzor bez žolíků se
+ * porovnává prostým srovnáním řetězců, vzor se žolíky jako posloupnost slov,
+ * ve které každý žolík pokrývá alespoň jedno slovo textu.
+ * </p>
+ * 
+ * <p>
+ * Výsledek porovnání odpovídá hledání textu ve stromu, do kterého byl vložen
+ * pouze tento vzor. Instance jsou neměnné, a tedy bezpečné pro vícevláknové
+ * využití.
+ * </p>
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ */
+public final class CompiledPattern {
+
+    /**
+     * Lokalizátor hlášek výjimek.
+     */
+    private static final ExceptionMessageLocalizer MESSAGE_LOCALIZER =
+            ExceptionMessageLocalizer.getLocalizer();
+
+    /**
+     * Oddělovač slov vzoru i textu.
+     */
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("\\s+");
+
+    /**
+     * Vzor užitý místo chybějícího vzoru.
+     */
+    private static final String DEFAULT_PATTERN = AIMLWildcard.ASTERISK
+            .getValue();
+
+    /**
+     * Slova vzoru v normální podobě spojená jednou mezerou. Pouze u vzoru bez
+     * žolíků, jinak null.
+     */
+    private final String literal;
+
+    /**
+     * Slova vzoru, žolíky jsou reprezentovány hodnotou null. Pouze u vzoru se
+     * žolíky, jinak null.
+     */
+    private final String[] words;
+
+    /**
+     * Vytvoří přeložený vzor.
+     * 
+     * @param literal
+     *            spojená slova vzoru bez žolíků
+     * @param words
+     *            slova vzoru se žolíky
+     */
+    private CompiledPattern(final String literal, final String[] words) {
+        this.literal = literal;
+        this.words = words;
+    }
+
+    /**
+     * Přeloží vzor.
+     * 
+     * @param pattern
+     *            vzor, pokud je null, pak odpovídá libovolnému textu
+     * @param normalizer
+     *            normalizér ověřující normalitu slov vzoru
+     * @return přeložený vzor
+     * @throws IllegalArgumentException
+     *             pokud slovo vzoru obsahuje znak, který normální slovo
+     *             nemůže obsahovat
+     */
+    public static CompiledPattern compile(final String pattern,
+            final Normalizer normalizer) {
+        final String[] tokens;
+        if (pattern == null) {
+            tokens = new String[] { DEFAULT_PATTERN };
+        } else {
+            tokens = WORD_SEPARATOR.split(pattern);
+        }
+
+        boolean wildcarded = false;
+        final String[] words = new String[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            if (isWildcard(tokens[i])) {
+                wildcarded = true;
+                continue;
+            }
+
+            if (!isPartMarker(tokens[i])) {
+                check(tokens[i], normalizer);
+            }
+            words[i] = tokens[i];
+        }
+
+        if (wildcarded) {
+            return new CompiledPattern(null, words);
+        }
+
+        return new CompiledPattern(join(words), null);
+    }
+
+    /**
+     * Ověří, že slovo obsahuje jen znaky normálního slova.
+     * 
+     * @param word
+     *            slovo
+     * @param normalizer
+     *            normalizér
+     */
+    private static void check(final String word, final Normalizer normalizer) {
+        for (final char c : word.toCharArray()) {
+            if (!normalizer.isNormal(c) || c == Normalizer.SPACE) {
+                throw new IllegalArgumentException(
+                        MESSAGE_LOCALIZER.getMessage("storage.InvalidChar", c,
+                                word));
+            }
+        }
+    }
+
+    /**
+     * Indikuje, zda-li je slovo žolíkem.
+     * 
+     * @param word
+     *            slovo
+     * @return true, pokud je slovo žolíkem
+     */
+    private static boolean isWildcard(final String word) {
+        for (final AIMLWildcard wildcard : AIMLWildcard.values()) {
+            if (word.equals(wildcard.getValue())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Indikuje, zda-li je slovo značkou části cesty. Ta se v normalizovaném
+     * textu nikdy nevyskytne.
+     * 
+     * @param word
+     *            slovo
+     * @return true, pokud je slovo značkou části
+     */
+    private static boolean isPartMarker(final String word) {
+        for (final AIMLPartMarker marker : AIMLPartMarker.values()) {
+            if (word.equals(marker.getValue())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Spojí slova jednou mezerou.
+     * 
+     * @param words
+     *            slova
+     * @return spojená slova
+     */
+    private static String join(final String[] words) {
+        if (words.length == 1) {
+            return words[0];
+        }
+
+        final StringBuilder result = new StringBuilder();
+        for (int i = 0; i < words.length; i++) {
+            if (i > 0) {
+                result.append(Normalizer.SPACE);
+            }
+            result.append(words[i]);
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Indikuje, zda-li vzor neobsahuje žolíky.
+     * 
+     * @return true, pokud vzor neobsahuje žolíky
+     */
+    public boolean isLiteral() {
+        return literal != null;
+    }
+
+    /**
+     * Vrátí slova vzoru bez žolíků v podobě, ve které se srovnávají s
+     * normalizovaným textem.
+     * 
+     * @return spojená slova vzoru, nebo null, pokud vzor obsahuje žolíky
+     */
+    public String getLiteral() {
+        return literal;
+    }
+
+    /**
+     * Porovná vzor s textem.
+     * 
+     * @param normalizedText
+     *            text v normální podobě, tj. slova oddělená jednou mezerou
+     * @return true, pokud text odpovídá vzoru
+     */
+    public boolean matches(final String normalizedText) {
+        if (literal != null) {
+            return literal.equals(normalizedText);
+        }
+
+        return matchesWords(WORD_SEPARATOR.split(normalizedText));
+    }
+
+    /**
+     * Porovná slova textu se slovy vzoru. Každý žolík pohltí jedno slovo a
+     * poté libovolný počet dalších. Při neshodě se výpočet vrátí k poslednímu
+     * žolíku a prodlouží jeho pokrytí o jedno slovo; návrat k dřívějším
+     * žolíkům není nutný, neboť ty pokrytí jen ubírají následujícím.
+     * 
+     * @param text
+     *            slova textu
+     * @return true, pokud slova odpovídají vzoru
+     */
+    private boolean matchesWords(final String[] text) {
+        int textIndex = 0;
+        int wordIndex = 0;
+        int lastWildcardIndex = -1;
+        int lastWildcardEnd = 0;
+
+        while (textIndex < text.length) {
+            if (wordIndex < words.length && words[wordIndex] == null) {
+                lastWildcardIndex = wordIndex;
+                lastWildcardEnd = textIndex + 1;
+                textIndex++;
+                wordIndex++;
+            } else if (wordIndex < words.length
+                    && words[wordIndex].equals(text[textIndex])) {
+                textIndex++;
+                wordIndex++;
+            } else if (lastWildcardIndex >= 0) {
+                lastWildcardEnd++;
+                textIndex = lastWildcardEnd;
+                wordIndex = lastWildcardIndex + 1;
+            } else {
+                return false;
+            }
+        }
+
+        return wordIndex == words.length;
+    }
+}
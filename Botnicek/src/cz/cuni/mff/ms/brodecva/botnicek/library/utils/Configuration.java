@@ -102,6 +102,60 @@ public final class Configuration {
         return path;
     }
 
+    /**
+     * Načte nepovinnou cestu.
+     * 
+     * @param properties
+     *            nastavení
+     * @param key
+     *            klíč cesty
+     * @return načtená cesta, nebo null, pokud položka chybí
+     * @throws ConfigurationException
+     *             chyba při načítání cesty
+     */
+    public static Path readOptionalPath(final Map<String, String> properties,
+            final String key) throws ConfigurationException {
+        if (properties.get(key) == null) {
+            return null;
+        }
+
+        return readPath(properties, key);
+    }
+
+    /**
+     * Načte nepovinnou pravdivostní hodnotu zapsanou jako "true" nebo "false"
+     * (bez ohledu na velikost písmen).
+     * 
+     * @param properties
+     *            nastavení
+     * @param key
+     *            klíč hodnoty
+     * @param defaultValue
+     *            hodnota použitá, pokud položka chybí
+     * @return načtená hodnota
+     * @throws ConfigurationException
+     *             chyba při načítání hodnoty
+     */
+    public static boolean readOptionalBoolean(
+            final Map<String, String> properties, final String key,
+            final boolean defaultValue) throws ConfigurationException {
+        final String value = properties.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        final String trimmed = value.trim();
+        if (trimmed.equalsIgnoreCase(Boolean.TRUE.toString())) {
+            return true;
+        }
+        if (trimmed.equalsIgnoreCase(Boolean.FALSE.toString())) {
+            return false;
+        }
+
+        throw new ConfigurationException(MESSAGE_LOCALIZER.getMessage(
+                "utils.InvalidBooleanFormat", properties, key));
+    }
+
     /**
      * Načte pořadí načítaných souborů. Očekává pouze názvy souborů oddělené
      * pomocí {@link #FILE_NAMES_ORDER_DELIMITER}, nikoli cesty.
@@ -0,0 +1,291 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.loader;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLInputPath;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchResult;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.WordTree;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.FrugalMapperFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.IntegrationTest;
+
+/**
+ * Testuje, že souběžné načítání dává stejný výsledek jako postupné.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see AIMLCategoryLoader#loadFromLocation(Path, List, List)
+ */
+@Category(IntegrationTest.class)
+public final class AIMLCategoryLoaderParallelTest {
+
+    /**
+     * Počet vláken souběžného načítání.
+     */
+    private static final int PARALLELISM = 4;
+
+    /**
+     * Počet souborů v běžném pořadí.
+     */
+    private static final int STANDARD_FILES_COUNT = 6;
+
+    /**
+     * Kódování testovacích dokumentů.
+     */
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * Soubory načítané přednostně.
+     */
+    private static final List<String> BEFORE_ORDER = Arrays.asList("z.aiml");
+
+    /**
+     * Soubory načítané na konec.
+     */
+    private static final List<String> AFTER_ORDER = Arrays.asList("a.aiml");
+
+    /**
+     * Dočasná složka se soubory robota.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Umístění AIML souborů.
+     */
+    private Path location = null;
+
+    /**
+     * Stub robota.
+     */
+    private Bot botStub = null;
+
+    /**
+     * Vytvoří soubory robota, které si navzájem přepisují kategorie.
+     * 
+     * @throws IOException
+     *             chyba při zápisu souborů
+     */
+    @Before
+    public void setUp() throws IOException {
+        location = folder.newFolder("bot").toPath();
+
+        writeDocument("z.aiml", "1.0.1", "FIRST");
+        for (int i = 0; i < STANDARD_FILES_COUNT; i++) {
+            writeDocument("m" + i + ".aiml", "1.0.1", "STANDARD" + i);
+        }
+        writeDocument("a.aiml", "1.0.1", "LAST");
+
+        botStub = EasyMock.createMock(Bot.class);
+        expect(botStub.getPredicateValue(anyObject(String.class)))
+                .andStubReturn("");
+        replay(botStub);
+    }
+
+    /**
+     * Uklidí soubory robota.
+     */
+    @After
+    public void tearDown() {
+        location = null;
+        botStub = null;
+    }
+
+    /**
+     * Zapíše dokument se sdílenou kategorií SHARED, jejíž šablona nese
+     * označení souboru, a s vlastní kategorií souboru.
+     * 
+     * @param name
+     *            jméno souboru
+     * @param version
+     *            verze AIML dokumentu
+     * @param mark
+     *            označení souboru
+     * @throws IOException
+     *             chyba při zápisu souboru
+     */
+    private void writeDocument(final String name, final String version,
+            final String mark) throws IOException {
+        final String document =
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                        + "<aiml version=\"" + version
+                        + "\" xmlns=\"http://alicebot.org/2001/AIML-1.0.1\">"
+                        + "<category><pattern>SHARED</pattern><template>"
+                        + mark + "</template></category>"
+                        + "<category><pattern>" + mark
+                        + " *</pattern><template>" + mark
+                        + "</template></category>" + "</aiml>";
+
+        Files.write(location.resolve(name), document.getBytes(CHARSET));
+    }
+
+    /**
+     * Načte umístění daným načítačem.
+     * 
+     * @param loader
+     *            načítač
+     * @return naplněná struktura
+     * @throws LoaderException
+     *             chyba při načítání
+     */
+    private MatchingStructure load(final Loader loader)
+            throws LoaderException {
+        loader.loadFromLocation(location, BEFORE_ORDER, AFTER_ORDER);
+
+        return loader.getFilledStructure();
+    }
+
+    /**
+     * Vytvoří postupný načítač.
+     * 
+     * @return postupný načítač
+     */
+    private Loader createSequentialLoader() {
+        return new AIMLCategoryLoader(new WordTree(new FrugalMapperFactory()),
+                botStub, AIMLSourceParser.create());
+    }
+
+    /**
+     * Vytvoří souběžný načítač.
+     * 
+     * @return souběžný načítač
+     */
+    private Loader createParallelLoader() {
+        return new AIMLCategoryLoader(new WordTree(new FrugalMapperFactory()),
+                botStub, new AIMLSourceParserFactory(), PARALLELISM);
+    }
+
+    /**
+     * Vrátí šablonu nalezenou pro vzor.
+     * 
+     * @param structure
+     *            struktura
+     * @param pattern
+     *            vzor
+     * @return nalezená šablona
+     */
+    private static String findTemplate(final MatchingStructure structure,
+            final String pattern) {
+        final MatchResult result =
+                structure.find(new AIMLInputPath(pattern, "*", "*"));
+        assertTrue(result.isSuccesful());
+
+        return result.getTemplate().getValue();
+    }
+
+    /**
+     * Test method for
+     * {@link AIMLCategoryLoader#loadFromLocation(Path, List, List)}.
+     * 
+     * @throws LoaderException
+     *             chyba při načítání
+     */
+    @Test
+    public void testLoadFromLocationKeepsSequentialOrder()
+            throws LoaderException {
+        final MatchingStructure sequential = load(createSequentialLoader());
+        final MatchingStructure parallel = load(createParallelLoader());
+
+        assertEquals(sequential.getCategoryCount(),
+                parallel.getCategoryCount());
+        assertTrue(findTemplate(parallel, "SHARED").contains("LAST"));
+        for (int i = 0; i < STANDARD_FILES_COUNT; i++) {
+            final String pattern = "STANDARD" + i + " ANYTHING";
+
+            assertEquals(findTemplate(sequential, pattern),
+                    findTemplate(parallel, pattern));
+        }
+    }
+
+    /**
+     * Test method for
+     * {@link AIMLCategoryLoader#loadFromLocation(Path, List, List)}.
+     * 
+     * @throws LoaderException
+     *             chyba při načítání
+     * @throws IOException
+     *             chyba při zápisu souboru
+     */
+    @Test
+    public void testLoadFromLocationWhenEarlierFileForwardCompatible()
+            throws LoaderException, IOException {
+        writeDocument("z.aiml", "2.0", "FIRST");
+
+        final MatchingStructure sequential = load(createSequentialLoader());
+        final MatchingStructure parallel = load(createParallelLoader());
+
+        assertTrue(parallel.isForwardCompatible());
+        assertEquals(sequential.isForwardCompatible(),
+                parallel.isForwardCompatible());
+        assertEquals(sequential.getCategoryCount(),
+                parallel.getCategoryCount());
+        assertEquals(findTemplate(sequential, "SHARED"),
+                findTemplate(parallel, "SHARED"));
+    }
+
+    /**
+     * Test method for
+     * {@link AIMLCategoryLoader#loadFromLocation(Path, List, List)}.
+     * 
+     * @throws LoaderException
+     *             chyba při načítání
+     * @throws IOException
+     *             chyba při zápisu souboru
+     */
+    @Test(expected = LoaderException.class)
+    public void testLoadFromLocationWhenFileInvalid() throws LoaderException,
+            IOException {
+        Files.write(location.resolve("m3.aiml"), "<aiml>".getBytes(CHARSET));
+
+        load(createParallelLoader());
+    }
+
+    /**
+     * Test method for
+     * {@link AIMLCategoryLoader#AIMLCategoryLoader(MatchingStructure, Bot, SourceParserFactory, int)}
+     * .
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testAIMLCategoryLoaderWhenParallelismNotPositive() {
+        new AIMLCategoryLoader(new WordTree(new FrugalMapperFactory()),
+                botStub, new AIMLSourceParserFactory(), 0);
+    }
+}
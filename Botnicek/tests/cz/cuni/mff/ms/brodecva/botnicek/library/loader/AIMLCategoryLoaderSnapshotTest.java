@@ -0,0 +1,352 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.loader;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLInputPath;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.CategorySink;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchResult;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.WordTree;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.FrugalMapperFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.IntegrationTest;
+
+/**
+ * Testuje načítání kategorií ze snímku při výchozím načítání.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see AIMLCategoryLoader#load()
+ * @see CategorySnapshot
+ */
+@Category(IntegrationTest.class)
+public final class AIMLCategoryLoaderSnapshotTest {
+
+    /**
+     * Začátek testovacího dokumentu.
+     */
+    private static final String DOCUMENT_START =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                    + "<aiml version=\"1.0.1\" xmlns=\"http://alicebot.org/2001/AIML-1.0.1\">"
+                    + "<category><pattern>HELLO *</pattern><template>Hi <star/>.</template></category>"
+                    + "<category><pattern>MY NAME IS <bot name=\"name\"/></pattern><template>Mine too.</template></category>";
+
+    /**
+     * Konec testovacího dokumentu.
+     */
+    private static final String DOCUMENT_END = "</aiml>";
+
+    /**
+     * Kódování testovacího dokumentu.
+     */
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * Dočasná složka se soubory robota.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Umístění AIML souborů.
+     */
+    private Path location = null;
+
+    /**
+     * Testovací soubor.
+     */
+    private Path file = null;
+
+    /**
+     * Umístění snímku.
+     */
+    private Path snapshot = null;
+
+    /**
+     * Nastaví soubory robota.
+     * 
+     * @throws IOException
+     *             chyba při zápisu souboru
+     */
+    @Before
+    public void setUp() throws IOException {
+        location = folder.newFolder("bot").toPath();
+        file = location.resolve("test.aiml");
+        snapshot = folder.newFolder("cache").toPath().resolve("bot.snapshot");
+
+        Files.write(file, (DOCUMENT_START + DOCUMENT_END).getBytes(CHARSET));
+    }
+
+    /**
+     * Uklidí soubory robota.
+     */
+    @After
+    public void tearDown() {
+        location = null;
+        file = null;
+        snapshot = null;
+    }
+
+    /**
+     * Vytvoří stub robota s daným jménem.
+     * 
+     * @param name
+     *            jméno robota
+     * @return stub robota
+     */
+    private Bot createBotStub(final String name) {
+        final Bot botStub = EasyMock.createMock(Bot.class);
+        expect(botStub.getFilesPath()).andStubReturn(location);
+        expect(botStub.getBeforeOrder()).andStubReturn(
+                Collections.<String> emptyList());
+        expect(botStub.getAfterOrder()).andStubReturn(
+                Collections.<String> emptyList());
+        expect(botStub.getPredicateValue("name")).andStubReturn(name);
+        replay(botStub);
+
+        return botStub;
+    }
+
+    /**
+     * Načte kategorie výchozím načítáním se snímkem.
+     * 
+     * @param bot
+     *            robot
+     * @param parser
+     *            parser
+     * @return naplněná struktura
+     * @throws LoaderException
+     *             chyba při načítání
+     */
+    private MatchingStructure load(final Bot bot, final SourceParser parser)
+            throws LoaderException {
+        final MatchingStructure structure =
+                new WordTree(new FrugalMapperFactory());
+
+        new AIMLCategoryLoader(structure, bot, parser, snapshot).load();
+
+        return structure;
+    }
+
+    /**
+     * Vrátí šablonu nalezenou pro vzor.
+     * 
+     * @param structure
+     *            struktura
+     * @param pattern
+     *            vzor
+     * @return nalezená šablona, nebo null
+     */
+    private static String findTemplate(final MatchingStructure structure,
+            final String pattern) {
+        final MatchResult result =
+                structure.find(new AIMLInputPath(pattern, "*", "*"));
+        if (!result.isSuccesful()) {
+            return null;
+        }
+
+        return result.getTemplate().getValue();
+    }
+
+    /**
+     * Parser počítající naparsované dokumenty. Stejná třída parseru je
+     * součástí klíče snímku, proto jej testy používají pro všechna načtení.
+     */
+    private static final class CountingParser implements SourceParser {
+
+        /**
+         * Skutečný parser.
+         */
+        private final SourceParser parser = AIMLSourceParser.create();
+
+        /**
+         * Počet naparsovaných dokumentů.
+         */
+        private int count = 0;
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see
+         * cz.cuni.mff.ms.brodecva.botnicek.library.loader.SourceParser#parse
+         * (java.io.InputStream, java.lang.String,
+         * cz.cuni.mff.ms.brodecva.botnicek.library.storage.CategorySink,
+         * cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot)
+         */
+        @Override
+        public void parse(final InputStream inputStream,
+                final String systemId, final CategorySink structure,
+                final Bot bot) throws SourceParserException {
+            count++;
+            parser.parse(inputStream, systemId, structure, bot);
+        }
+    }
+
+    /**
+     * Test method for {@link AIMLCategoryLoader#load()}.
+     * 
+     * @throws LoaderException
+     *             chyba při načítání
+     */
+    @Test
+    public void testLoadWhenSnapshotMatchesSkipsParsing()
+            throws LoaderException {
+        final CountingParser parser = new CountingParser();
+
+        final MatchingStructure parsed = load(createBotStub("ALICE"), parser);
+        assertTrue(Files.exists(snapshot));
+        assertEquals(1, parser.count);
+
+        final MatchingStructure restored =
+                load(createBotStub("ALICE"), parser);
+
+        assertEquals(1, parser.count);
+        assertEquals(parsed.getCategoryCount(), restored.getCategoryCount());
+        assertEquals(parsed.isForwardCompatible(),
+                restored.isForwardCompatible());
+        assertEquals(findTemplate(parsed, "HELLO WORLD"),
+                findTemplate(restored, "HELLO WORLD"));
+        assertEquals(findTemplate(parsed, "MY NAME IS ALICE"),
+                findTemplate(restored, "MY NAME IS ALICE"));
+    }
+
+    /**
+     * Test method for {@link AIMLCategoryLoader#load()}.
+     * 
+     * @throws LoaderException
+     *             chyba při načítání
+     * @throws IOException
+     *             chyba při zápisu souboru
+     */
+    @Test
+    public void testLoadWhenFileChangedParsesAgain() throws LoaderException,
+            IOException {
+        final CountingParser parser = new CountingParser();
+        load(createBotStub("ALICE"), parser);
+
+        Files.write(file, (DOCUMENT_START
+                + "<category><pattern>BYE</pattern><template>Bye.</template></category>"
+                + DOCUMENT_END).getBytes(CHARSET));
+        Files.setLastModifiedTime(file,
+                FileTime.fromMillis(System.currentTimeMillis() + 1000));
+
+        final MatchingStructure reloaded =
+                load(createBotStub("ALICE"), parser);
+        assertEquals(2, parser.count);
+        assertTrue(findTemplate(reloaded, "BYE").contains("Bye."));
+
+        final MatchingStructure restored =
+                load(createBotStub("ALICE"), parser);
+        assertEquals(2, parser.count);
+        assertEquals(findTemplate(reloaded, "BYE"),
+                findTemplate(restored, "BYE"));
+    }
+
+    /**
+     * Test method for {@link AIMLCategoryLoader#load()}.
+     * 
+     * @throws LoaderException
+     *             chyba při načítání
+     */
+    @Test
+    public void testLoadWhenBotPredicateChangedParsesAgain()
+            throws LoaderException {
+        final CountingParser parser = new CountingParser();
+        load(createBotStub("ALICE"), parser);
+
+        final MatchingStructure reloaded = load(createBotStub("BOB"), parser);
+
+        assertEquals(2, parser.count);
+        assertTrue(findTemplate(reloaded, "MY NAME IS BOB").contains(
+                "Mine too."));
+    }
+
+    /**
+     * Test method for {@link AIMLCategoryLoader#load()}.
+     * 
+     * @throws LoaderException
+     *             chyba při načítání
+     * @throws IOException
+     *             chyba při zápisu souboru
+     */
+    @Test
+    public void testLoadWhenSnapshotCorruptedParsesAgain()
+            throws LoaderException, IOException {
+        final CountingParser parser = new CountingParser();
+        final MatchingStructure parsed = load(createBotStub("ALICE"), parser);
+
+        final byte[] content = Files.readAllBytes(snapshot);
+        Files.write(snapshot, Arrays.copyOf(content,
+                content.length / 2));
+
+        final MatchingStructure reloaded =
+                load(createBotStub("ALICE"), parser);
+
+        assertEquals(2, parser.count);
+        assertEquals(parsed.getCategoryCount(), reloaded.getCategoryCount());
+        assertFalse(content.length / 2 == Files.size(snapshot));
+    }
+
+    /**
+     * Test method for {@link AIMLCategoryLoader#load()}.
+     * 
+     * @throws LoaderException
+     *             chyba při načítání
+     */
+    @Test
+    public void testLoadWhenSnapshotNotSetParsesWithoutSnapshot()
+            throws LoaderException {
+        final CountingParser parser = new CountingParser();
+
+        for (int i = 0; i < 2; i++) {
+            final MatchingStructure structure =
+                    new WordTree(new FrugalMapperFactory());
+            new AIMLCategoryLoader(structure, createBotStub("ALICE"), parser)
+                    .load();
+            assertEquals(2, structure.getCategoryCount());
+        }
+
+        assertEquals(2, parser.count);
+        assertFalse(Files.exists(snapshot));
+        assertFalse(Files.exists(location.resolveSibling("bot.snapshot")));
+    }
+}
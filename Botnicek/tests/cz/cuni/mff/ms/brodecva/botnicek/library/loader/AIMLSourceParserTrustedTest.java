@@ -0,0 +1,174 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.loader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLInputPath;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.WordTree;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.FrugalMapperFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.IntegrationTest;
+
+/**
+ * Testuje parser důvěryhodných zdrojů, který vynechává validaci.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see AIMLSourceParser#createTrusted()
+ */
+@Category(IntegrationTest.class)
+public final class AIMLSourceParserTrustedTest {
+
+    /**
+     * Platný dokument.
+     */
+    private static final String VALID_CODE =
+            "<aiml version=\"1.0.1\" xmlns=\"http://alicebot.org/2001/AIML-1.0.1\">\r\n"
+                    + "    <category>\r\n"
+                    + "        <pattern>HELLO *</pattern>\r\n"
+                    + "        <template>Hi <star/>, I am <bot name=\"name\"/>.</template>\r\n"
+                    + "    </category>\r\n" + "</aiml>";
+
+    /**
+     * Dokument s atributem, který schéma nepovoluje.
+     */
+    private static final String INVALID_CODE =
+            "<aiml version=\"1.0.1\" xmlns=\"http://alicebot.org/2001/AIML-1.0.1\">"
+                    + "<category unknown=\"attribute\"><pattern>HELLO</pattern>"
+                    + "<template>Hi.</template></category></aiml>";
+
+    /**
+     * Stub robota.
+     */
+    private Bot botStub = null;
+
+    /**
+     * Nastaví stub robota.
+     */
+    @Before
+    public void setUp() {
+        botStub = EasyMock.createMock(Bot.class);
+        EasyMock.expect(botStub.getPredicateValue("name")).andStubReturn(
+                "Botnicek");
+        EasyMock.replay(botStub);
+    }
+
+    /**
+     * Uklidí stub robota.
+     */
+    @After
+    public void tearDown() {
+        botStub = null;
+    }
+
+    /**
+     * Naparsuje kód do nové struktury.
+     * 
+     * @param parser
+     *            parser
+     * @param code
+     *            zdrojový kód
+     * @return naplněná struktura
+     * @throws SourceParserException
+     *             chyba při parsování
+     */
+    private MatchingStructure parse(final SourceParser parser,
+            final String code) throws SourceParserException {
+        final MatchingStructure structure =
+                new WordTree(new FrugalMapperFactory());
+        final InputStream stream =
+                new ByteArrayInputStream(code.getBytes(Charset
+                        .forName("UTF-8")));
+
+        parser.parse(stream, "dummyId", structure, botStub);
+
+        return structure;
+    }
+
+    /**
+     * Test method for {@link AIMLSourceParser#createTrusted()}.
+     * 
+     * @throws SourceParserException
+     *             chyba při parsování
+     */
+    @Test
+    public void testCreateTrustedParsesSameAsValidating()
+            throws SourceParserException {
+        final MatchingStructure validated =
+                parse(AIMLSourceParser.create(), VALID_CODE);
+        final MatchingStructure trusted =
+                parse(AIMLSourceParser.createTrusted(), VALID_CODE);
+
+        final AIMLInputPath path = new AIMLInputPath("HELLO WORLD", "*", "*");
+        assertEquals(validated.getCategoryCount(), trusted.getCategoryCount());
+        assertEquals(validated.find(path).getTemplate(), trusted.find(path)
+                .getTemplate());
+    }
+
+    /**
+     * Test method for {@link AIMLSourceParser#createTrusted()}.
+     * 
+     * @throws SourceParserException
+     *             chyba při parsování
+     */
+    @Test
+    public void testCreateTrustedSkipsValidation()
+            throws SourceParserException {
+        final MatchingStructure trusted =
+                parse(AIMLSourceParser.createTrusted(), INVALID_CODE);
+
+        assertEquals(1, trusted.getCategoryCount());
+    }
+
+    /**
+     * Test method for {@link AIMLSourceParser#create()}.
+     * 
+     * @throws SourceParserException
+     *             chyba při parsování
+     */
+    @Test(expected = SourceParserException.class)
+    public void testCreateValidates() throws SourceParserException {
+        parse(AIMLSourceParser.create(), INVALID_CODE);
+    }
+
+    /**
+     * Test method for {@link AIMLSourceParser#isTrusted()}.
+     */
+    @Test
+    public void testIsTrusted() {
+        assertFalse(AIMLSourceParser.create().isTrusted());
+        assertTrue(AIMLSourceParser.createTrusted().isTrusted());
+        assertTrue(((AIMLSourceParser) new AIMLSourceParserFactory(true)
+                .createParser()).isTrusted());
+    }
+}
@@ -361,6 +361,10 @@ public final class AIMLTemplateParserTest {
         expect((Class) registryMock.get(KNOWN_ELEMENT_STUB_NAME, null)).andStubReturn(PrintsKnownElementProcessor.class);
         expect((Class) registryMock.get(UNKNOWN_ELEMENT_STUB_NAME, null)).andStubThrow(new ClassNotFoundException());
         expect((Class) registryMock.get(UNKNOWN_AIML_ELEMENT_STUB_NAME, AIML_NAMESPACE)).andStubThrow(new ClassNotFoundException());
+        expect(registryMock.getProcessor(AIML_ELEMENT_STUB_NAME, AIML_NAMESPACE)).andStubReturn(new PrintsAimlElementProcessor());
+        expect(registryMock.getProcessor(KNOWN_ELEMENT_STUB_NAME, null)).andStubReturn(new PrintsKnownElementProcessor());
+        expect(registryMock.getProcessor(UNKNOWN_ELEMENT_STUB_NAME, null)).andStubThrow(new ClassNotFoundException());
+        expect(registryMock.getProcessor(UNKNOWN_AIML_ELEMENT_STUB_NAME, AIML_NAMESPACE)).andStubThrow(new ClassNotFoundException());
         expect(registryMock.getNamespace()).andStubReturn(AIML_NAMESPACE);
         replay(registryMock);
         
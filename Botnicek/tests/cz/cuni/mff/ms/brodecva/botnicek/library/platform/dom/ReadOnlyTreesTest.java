@@ -0,0 +1,172 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLTemplate;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.UnitTest;
+
+/**
+ * Testuje překlad kódu do neměnných stromů.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see ReadOnlyTrees
+ */
+@Category(UnitTest.class)
+public final class ReadOnlyTreesTest {
+
+    /**
+     * Jmenný prostor AIML.
+     */
+    private static final String NAMESPACE = "http://alicebot.org/2001/AIML";
+
+    /**
+     * Zkušební šablona.
+     */
+    private static final String SOURCE = "<template xmlns=\"" + NAMESPACE
+            + "\" xmlns:b=\"urn:b\">A <set name=\"it\"><star index=\"2\"/></set>"
+            + "<![CDATA[<B>]]><!--C--><b:x b:y=\"z\"/></template>";
+
+    /**
+     * Test method for
+     * {@link ReadOnlyTrees#parse(String)}.
+     * 
+     * @throws Exception
+     *             chyba při překladu
+     */
+    @Test
+    public void testParsePreservesStructure() throws Exception {
+        final Element root = ReadOnlyTrees.parse(SOURCE);
+
+        assertEquals("template", root.getLocalName());
+        assertEquals(NAMESPACE, root.getNamespaceURI());
+
+        final NodeList children = root.getChildNodes();
+        assertEquals(5, children.getLength());
+        assertEquals(Node.TEXT_NODE, children.item(0).getNodeType());
+        assertEquals("A ", children.item(0).getNodeValue());
+        assertEquals(Node.CDATA_SECTION_NODE, children.item(2).getNodeType());
+        assertEquals("<B>", children.item(2).getNodeValue());
+        assertEquals(Node.COMMENT_NODE, children.item(3).getNodeType());
+        assertNull(children.item(5));
+
+        final Element set = (Element) children.item(1);
+        assertEquals("it", set.getAttribute("name"));
+        assertEquals("", set.getAttribute("value"));
+        assertSame(root, set.getParentNode());
+        assertSame(children.item(0), set.getPreviousSibling());
+        assertSame(children.item(2), set.getNextSibling());
+
+        final Element star = (Element) set.getFirstChild();
+        assertEquals("2", star.getAttribute("index"));
+        assertEquals(NAMESPACE, star.getNamespaceURI());
+
+        final Element foreign = (Element) children.item(4);
+        assertEquals("urn:b", foreign.getNamespaceURI());
+        assertEquals("b", foreign.getPrefix());
+        assertEquals("z", foreign.getAttributeNS("urn:b", "y"));
+        assertEquals("urn:b", foreign.lookupNamespaceURI("b"));
+
+        assertEquals(1, root.getElementsByTagNameNS(NAMESPACE, "star")
+                .getLength());
+    }
+
+    /**
+     * Test method for
+     * {@link ReadOnlyTrees#copyOf(Element)}.
+     * 
+     * @throws Exception
+     *             chyba při překladu
+     */
+    @Test
+    public void testCopyOfEqualsOriginal() throws Exception {
+        final DocumentBuilderFactory factory =
+                DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        final Element original =
+                factory.newDocumentBuilder()
+                        .parse(new InputSource(new StringReader(SOURCE)))
+                        .getDocumentElement();
+
+        final Element copy = ReadOnlyTrees.copyOf(original);
+
+        assertTrue(copy.isEqualNode(ReadOnlyTrees.parse(SOURCE)));
+        assertEquals(original.getTextContent(), copy.getTextContent());
+    }
+
+    /**
+     * Test method for
+     * {@link ReadOnlyElement#setAttribute(String, String)}.
+     * 
+     * @throws Exception
+     *             chyba při překladu
+     */
+    @Test(expected = DOMException.class)
+    public void testSetAttributeThrowsDOMException() throws Exception {
+        ReadOnlyTrees.parse(SOURCE).setAttribute("a", "b");
+    }
+
+    /**
+     * Test method for
+     * {@link ReadOnlyNode#appendChild(Node)}.
+     * 
+     * @throws Exception
+     *             chyba při překladu
+     */
+    @Test(expected = DOMException.class)
+    public void testAppendChildThrowsDOMException() throws Exception {
+        final Element root = ReadOnlyTrees.parse(SOURCE);
+
+        root.appendChild(root.getFirstChild());
+    }
+
+    /**
+     * Test method for
+     * {@link AIMLTemplate#getCompiled()}.
+     * 
+     * @throws Exception
+     *             chyba při překladu
+     */
+    @Test
+    public void testGetCompiledReturnsSameTree() throws Exception {
+        final AIMLTemplate template = new AIMLTemplate(SOURCE);
+
+        final Element compiled = template.getCompiled();
+
+        assertSame(compiled, template.getCompiled());
+        assertTrue(compiled.isEqualNode(ReadOnlyTrees.parse(SOURCE)));
+    }
+}
@@ -25,6 +25,7 @@ import static org.easymock.EasyMock.not;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.net.URI;
 import java.util.HashSet;
@@ -321,4 +322,35 @@ public final class ClassMapProcessorRegistryTest {
         
         assertEquals(result, ProcessorImplementation.class);
     }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.processor.ClassMapProcessorRegistry#getProcessor(java.lang.String, java.net.URI)}
+     * .
+     * 
+     * @throws ClassNotFoundException
+     *             třída nenalezena
+     */
+    @Test
+    public void testGetProcessorReturnsSharedInstance()
+            throws ClassNotFoundException {
+        final Processor result = registryForGet.getProcessor(CLASS_KEY, null);
+        
+        assertEquals(ProcessorImplementation.class, result.getClass());
+        assertSame(result, registryForGet.getProcessor(CLASS_KEY, NAMESPACE));
+    }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.processor.ClassMapProcessorRegistry#getProcessor(java.lang.String, java.net.URI)}
+     * .
+     * 
+     * @throws ClassNotFoundException
+     *             třída nenalezena
+     */
+    @Test(expected = ClassNotFoundException.class)
+    public void testGetProcessorWhenKeyHasNoClassBound()
+            throws ClassNotFoundException {
+        registryForGet.getProcessor(NOT_PRESENT_KEY, NAMESPACE);
+    }
 }
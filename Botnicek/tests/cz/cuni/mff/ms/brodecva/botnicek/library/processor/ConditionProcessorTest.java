@@ -18,14 +18,19 @@
  */
 package cz.cuni.mff.ms.brodecva.botnicek.library.processor;
 
+import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.isA;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.easymock.EasyMock.expectLastCall;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 
 import org.easymock.EasyMock;
+import org.easymock.IAnswer;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -33,9 +38,12 @@ import org.junit.experimental.categories.Category;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
 
 import cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser;
 import cz.cuni.mff.ms.brodecva.botnicek.library.platform.AIML;
+import cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom.ReadOnlyElement;
+import cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom.ReadOnlyTrees;
 import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Conversation;
 import cz.cuni.mff.ms.brodecva.botnicek.library.utils.Matcher;
 import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.UnitTest;
@@ -75,6 +83,21 @@ public final class ConditionProcessorTest {
      */
     private static final String NAME_ATTRIBUTE = AIML.ATT_NAME.getValue();
 
+    /**
+     * Název predikátu zaindexované podmínky.
+     */
+    private static final String INDEXED_PREDICATE_NAME = "indexed";
+
+    /**
+     * Kód zaindexované podmínky s výchozími možnostmi, opakovanou hodnotou a
+     * hodnotou se žolíkem.
+     */
+    private static final String INDEXED_CONDITION = "<condition name=\""
+            + INDEXED_PREDICATE_NAME + "\"><li>D1</li>"
+            + "<li value=\"A B\">AB</li><li value=\"* C\">STARC</li>"
+            + "<li value=\"C\">C</li><li value=\"C\">C2</li>"
+            + "<li>D2</li></condition>";
+
     /**
      * Vybraný obsah.
      */
@@ -472,6 +495,33 @@ public final class ConditionProcessorTest {
         multipleConditionListParser = null;
     }
 
+    /**
+     * Očekává jedno zpracování seznamu uzlů parserem, jehož výsledek parser
+     * připojí k výstupu.
+     * 
+     * @param parserMock
+     *            mock parseru
+     * @param content
+     *            výsledek zpracování
+     * @throws ProcessorException
+     *             chyba při zpracování
+     */
+    private static void expectEvaluation(final TemplateParser parserMock,
+            final String content) throws ProcessorException {
+        parserMock.evaluate(isA(NodeList.class), isA(StringBuilder.class));
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+
+            @Override
+            public Object answer() throws Throwable {
+                ((StringBuilder) EasyMock.getCurrentArguments()[1])
+                        .append(content);
+
+                return null;
+            }
+
+        });
+    }
+
     /**
      * Test pro
      * {@link cz.cuni.mff.ms.brodecva.botnicek.library.processor.ConditionProcessor#process(org.w3c.dom.Element, cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser)}
@@ -492,8 +542,7 @@ public final class ConditionProcessorTest {
 
         expect(blockParser.getConversation()).andStubReturn(
                 blockConversationMock);
-        expect(blockParser.evaluate(isA(NodeList.class))).andReturn(
-                CHOSEN_CONTENT);
+        expectEvaluation(blockParser, CHOSEN_CONTENT);
         replay(blockParser);
 
         final Processor processor = new ConditionProcessor(blockMatcher);
@@ -571,8 +620,7 @@ public final class ConditionProcessorTest {
         expect(singleConditionListOptionsMock.getLength()).andReturn(2);
         replay(singleConditionListOptionsMock);
 
-        expect(singleConditionListParser.evaluate(isA(NodeList.class)))
-                .andReturn(CHOSEN_CONTENT);
+        expectEvaluation(singleConditionListParser, CHOSEN_CONTENT);
         replay(singleConditionListParser);
 
         final Processor processor =
@@ -665,8 +713,7 @@ public final class ConditionProcessorTest {
         expect(singleConditionListOptionsMock.getLength()).andReturn(2);
         replay(singleConditionListOptionsMock);
 
-        expect(singleConditionListParser.evaluate(isA(NodeList.class)))
-                .andReturn(CHOSEN_CONTENT);
+        expectEvaluation(singleConditionListParser, CHOSEN_CONTENT);
         replay(singleConditionListParser);
 
         final Processor processor =
@@ -721,8 +768,7 @@ public final class ConditionProcessorTest {
         expect(multipleConditionListOptionsMock.getLength()).andReturn(2);
         replay(multipleConditionListOptionsMock);
 
-        expect(multipleConditionListParser.evaluate(isA(NodeList.class)))
-                .andReturn(CHOSEN_CONTENT);
+        expectEvaluation(multipleConditionListParser, CHOSEN_CONTENT);
         replay(multipleConditionListParser);
 
         final Processor processor =
@@ -815,8 +861,7 @@ public final class ConditionProcessorTest {
         expect(multipleConditionListOptionsMock.getLength()).andReturn(2);
         replay(multipleConditionListOptionsMock);
 
-        expect(multipleConditionListParser.evaluate(isA(NodeList.class)))
-                .andReturn(CHOSEN_CONTENT);
+        expectEvaluation(multipleConditionListParser, CHOSEN_CONTENT);
         replay(multipleConditionListParser);
 
         final Processor processor =
@@ -837,4 +882,114 @@ public final class ConditionProcessorTest {
         assertEquals(CHOSEN_CONTENT, result);
     }
 
+
+    /**
+     * Zpracuje neměnnou podmínku {@link #INDEXED_CONDITION} daným procesorem
+     * pro danou hodnotu predikátu. Parser k výstupu připojí text první
+     * zpracovávané možnosti.
+     * 
+     * @param processor
+     *            procesor
+     * @param predicateValue
+     *            hodnota predikátu
+     * @return výstup zpracování
+     * @throws ProcessorException
+     *             chyba při zpracování
+     * @throws SAXException
+     *             chyba při čtení podmínky
+     */
+    private static String processIndexed(final Processor processor,
+            final String predicateValue) throws ProcessorException,
+            SAXException {
+        return processIndexed(processor,
+                ReadOnlyTrees.parse(INDEXED_CONDITION), predicateValue);
+    }
+
+    /**
+     * Zpracuje danou neměnnou podmínku daným procesorem pro danou hodnotu
+     * predikátu. Parser k výstupu připojí text první zpracovávané možnosti.
+     * 
+     * @param processor
+     *            procesor
+     * @param element
+     *            podmínka
+     * @param predicateValue
+     *            hodnota predikátu
+     * @return výstup zpracování
+     * @throws ProcessorException
+     *             chyba při zpracování
+     */
+    private static String processIndexed(final Processor processor,
+            final ReadOnlyElement element, final String predicateValue)
+            throws ProcessorException {
+        final Conversation conversationMock = createMock(Conversation.class);
+        expect(conversationMock.getPredicateValue(INDEXED_PREDICATE_NAME))
+                .andStubReturn(predicateValue);
+        replay(conversationMock);
+
+        final TemplateParser parserMock = createMock(TemplateParser.class);
+        expect(parserMock.getConversation()).andStubReturn(conversationMock);
+        parserMock.evaluate(isA(NodeList.class), isA(StringBuilder.class));
+        expectLastCall().andStubAnswer(new IAnswer<Object>() {
+
+            @Override
+            public Object answer() throws Throwable {
+                final Object[] arguments = EasyMock.getCurrentArguments();
+                ((StringBuilder) arguments[1]).append(((NodeList) arguments[0])
+                        .item(0).getTextContent());
+
+                return null;
+            }
+
+        });
+        replay(parserMock);
+
+        return processor.process(element, parserMock);
+    }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.processor.ConditionProcessor#process(org.w3c.dom.Element, cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser)}
+     * .
+     * 
+     * @throws ProcessorException
+     *             chyba při zpracování
+     * @throws SAXException
+     *             chyba při čtení podmínky
+     */
+    @Test
+    public void testProcessWhenIndexedListKeepsOrderOfOptions()
+            throws ProcessorException, SAXException {
+        final Processor processor = new ConditionProcessor();
+
+        assertEquals("D1AB", processIndexed(processor, "a  b"));
+        assertEquals("D1C", processIndexed(processor, "c"));
+        assertEquals("D1STARC", processIndexed(processor, "x c"));
+        assertEquals("D1D2", processIndexed(processor, "unknown"));
+    }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.processor.ConditionProcessor#process(org.w3c.dom.Element, cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser)}
+     * .
+     * 
+     * @throws ProcessorException
+     *             chyba při zpracování
+     * @throws SAXException
+     *             chyba při čtení podmínky
+     */
+    @Test
+    public void testProcessWhenIndexedSharesIndexStoredOnElement()
+            throws ProcessorException, SAXException {
+        final ReadOnlyElement element = ReadOnlyTrees.parse(INDEXED_CONDITION);
+
+        assertEquals("D1C", processIndexed(new ConditionProcessor(), element,
+                "c"));
+        final Object index = element.getAttachment();
+        assertNotNull(index);
+
+        assertEquals("D1AB", processIndexed(new ConditionProcessor(), element,
+                "a b"));
+        assertSame(index, element.getAttachment());
+    }
 }
@@ -20,6 +20,7 @@ package cz.cuni.mff.ms.brodecva.botnicek.library.processor;
 
 import static org.easymock.EasyMock.and;
 import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.geq;
 import static org.easymock.EasyMock.isA;
 import static org.easymock.EasyMock.lt;
@@ -138,13 +139,17 @@ public final class RandomProcessorTest {
         replay(elementStub);
 
         parserMock = EasyMock.createMock(TemplateParser.class);
-        expect(parserMock.evaluate(isA(NodeList.class))).andAnswer(
-                new IAnswer<String>() {
+        parserMock.evaluate(isA(NodeList.class), isA(StringBuilder.class));
+        expectLastCall().andAnswer(
+                new IAnswer<Object>() {
 
                     @Override
-                    public String answer() throws Throwable {
-                        return String.valueOf(((NodeList) EasyMock
-                                .getCurrentArguments()[0]).getLength());
+                    public Object answer() throws Throwable {
+                        ((StringBuilder) EasyMock.getCurrentArguments()[1])
+                                .append(((NodeList) EasyMock
+                                        .getCurrentArguments()[0]).getLength());
+
+                        return null;
                     }
 
                 }).times(REPETITIONS_COUNT);
@@ -0,0 +1,211 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.processor;
+
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser;
+import cz.cuni.mff.ms.brodecva.botnicek.library.platform.dom.ReadOnlyTrees;
+import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Conversation;
+import cz.cuni.mff.ms.brodecva.botnicek.library.responder.ConversationException;
+import cz.cuni.mff.ms.brodecva.botnicek.library.responder.RedirectTarget;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.UnitTest;
+
+/**
+ * Testuje procesor pro přesměrování.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see SRAIProcessor
+ */
+@Category(UnitTest.class)
+public final class SRAIProcessorTest {
+
+    /**
+     * Obsah přesměrování.
+     */
+    private static final String TARGET = "HELLO";
+
+    /**
+     * Odpověď na přesměrování.
+     */
+    private static final String ANSWER = "Hi there!";
+
+    /**
+     * Testovaný procesor.
+     */
+    private Processor processor = null;
+
+    /**
+     * Mock konverzace.
+     */
+    private Conversation conversationMock = null;
+
+    /**
+     * Mock parseru.
+     */
+    private TemplateParser parserMock = null;
+
+    /**
+     * Nastaví objekty k testování.
+     * 
+     * @throws ProcessorException
+     *             chyba při zpracování
+     */
+    @Before
+    public void setUp() throws ProcessorException {
+        processor = new SRAIProcessor();
+
+        conversationMock = EasyMock.createMock(Conversation.class);
+
+        parserMock = EasyMock.createMock(TemplateParser.class);
+        expect(parserMock.evaluate(isA(NodeList.class))).andReturn(TARGET);
+        expect(parserMock.getConversation()).andReturn(conversationMock);
+        replay(parserMock);
+    }
+
+    /**
+     * Uklidí po testování.
+     */
+    @After
+    public void tearDown() {
+        processor = null;
+
+        conversationMock = null;
+
+        parserMock = null;
+    }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.processor.SRAIProcessor#process(org.w3c.dom.Element, cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser)}
+     * .
+     * 
+     * @throws ProcessorException
+     *             chyba při zpracování
+     * @throws ConversationException
+     *             chyba při vyhodnocování vstupu
+     * @throws SAXException
+     *             chyba při čtení prvku
+     */
+    @Test
+    public void testProcessWhenOnlyTextRedirects() throws ProcessorException,
+            ConversationException, SAXException {
+        expect(
+                conversationMock.attemptRedirect(eq(TARGET),
+                        isA(RedirectTarget.class))).andReturn(ANSWER);
+        replay(conversationMock);
+
+        final String result =
+                processor.process(ReadOnlyTrees.parse("<srai>" + TARGET
+                        + "<!-- comment --></srai>"), parserMock);
+
+        verify(parserMock);
+        verify(conversationMock);
+
+        assertEquals(ANSWER, result);
+    }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.processor.SRAIProcessor#process(org.w3c.dom.Element, cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser)}
+     * .
+     * 
+     * @throws ProcessorException
+     *             chyba při zpracování
+     * @throws ConversationException
+     *             chyba při vyhodnocování vstupu
+     * @throws SAXException
+     *             chyba při čtení prvku
+     */
+    @Test
+    public void testProcessWhenRepeatedReusesTarget()
+            throws ProcessorException, ConversationException, SAXException {
+        final Capture<RedirectTarget> first = new Capture<RedirectTarget>();
+        final Capture<RedirectTarget> second = new Capture<RedirectTarget>();
+        expect(conversationMock.attemptRedirect(eq(TARGET), capture(first)))
+                .andReturn(ANSWER);
+        expect(conversationMock.attemptRedirect(eq(TARGET), capture(second)))
+                .andReturn(ANSWER);
+        replay(conversationMock);
+
+        final TemplateParser repeatedParserMock =
+                EasyMock.createMock(TemplateParser.class);
+        expect(repeatedParserMock.evaluate(isA(NodeList.class))).andReturn(
+                TARGET).times(2);
+        expect(repeatedParserMock.getConversation()).andReturn(
+                conversationMock).times(2);
+        replay(repeatedParserMock);
+
+        final Element element =
+                ReadOnlyTrees.parse("<srai>" + TARGET + "</srai>");
+        assertEquals(ANSWER, processor.process(element, repeatedParserMock));
+        assertEquals(ANSWER, processor.process(element, repeatedParserMock));
+
+        verify(repeatedParserMock);
+        verify(conversationMock);
+
+        assertSame(first.getValue(), second.getValue());
+    }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.processor.SRAIProcessor#process(org.w3c.dom.Element, cz.cuni.mff.ms.brodecva.botnicek.library.parser.TemplateParser)}
+     * .
+     * 
+     * @throws ProcessorException
+     *             chyba při zpracování
+     * @throws ConversationException
+     *             chyba při vyhodnocování vstupu
+     * @throws SAXException
+     *             chyba při čtení prvku
+     */
+    @Test
+    public void testProcessWhenNestedElementTalks() throws ProcessorException,
+            ConversationException, SAXException {
+        expect(conversationMock.attemptTalk(TARGET)).andReturn(ANSWER);
+        replay(conversationMock);
+
+        final String result =
+                processor.process(ReadOnlyTrees.parse("<srai><star/></srai>"),
+                        parserMock);
+
+        verify(parserMock);
+        verify(conversationMock);
+
+        assertEquals(ANSWER, result);
+    }
+}
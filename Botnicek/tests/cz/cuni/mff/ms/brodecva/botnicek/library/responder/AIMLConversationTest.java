@@ -35,6 +35,7 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -67,10 +68,17 @@ import cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.Normalizer;
 import cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.Splitter;
 import cz.cuni.mff.ms.brodecva.botnicek.library.processor.ProcessorException;
 import cz.cuni.mff.ms.brodecva.botnicek.library.processor.set.DisplayStrategy;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLInputPath;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLTemplate;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.CachingStructure;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.ContextFreeMatch;
 import cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath;
 import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchResult;
 import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.StructureStatistics;
 import cz.cuni.mff.ms.brodecva.botnicek.library.storage.Template;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.WordTree;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.FrugalMapperFactory;
 import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.UnitTest;
 
 /**
@@ -218,11 +226,65 @@ public final class AIMLConversationTest {
             return fail;
         }
 
+        /* (non-Javadoc)
+         * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#findAll(java.util.List)
+         */
+        @Override
+        public List<MatchResult> findAll(final List<InputPath> paths) {
+            final List<MatchResult> results = new ArrayList<MatchResult>();
+            for (final InputPath path : paths) {
+                results.add(find(path));
+            }
+
+            return results;
+        }
+
+        /* (non-Javadoc)
+         * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#findContextFree(cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath)
+         */
+        @Override
+        public ContextFreeMatch findContextFree(final InputPath path) {
+            return null;
+        }
+
+        /* (non-Javadoc)
+         * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#getContentVersion()
+         */
+        @Override
+        public Object getContentVersion() {
+            return null;
+        }
+
         @Override
         public void add(final InputPath path, final Template answer) {
             allowLearnt = true;
         }
 
+        /* (non-Javadoc)
+         * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#replace(cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath, cz.cuni.mff.ms.brodecva.botnicek.library.storage.Template)
+         */
+        @Override
+        public Template replace(final InputPath path, final Template answer) {
+            allowLearnt = true;
+            return null;
+        }
+
+        /* (non-Javadoc)
+         * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#remove(cz.cuni.mff.ms.brodecva.botnicek.library.storage.InputPath)
+         */
+        @Override
+        public Template remove(final InputPath path) {
+            return null;
+        }
+
+        /* (non-Javadoc)
+         * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#getStatistics()
+         */
+        @Override
+        public StructureStatistics getStatistics() {
+            return new StructureStatistics();
+        }
+
         /* (non-Javadoc)
          * @see cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure#isForwardCompatible()
          */
@@ -269,6 +331,53 @@ public final class AIMLConversationTest {
         }
     }
 
+    /**
+     * Stub pro {@link Splitter} počítající dělené texty.
+     * 
+     * @author Václav Brodec
+     * @version 1.0
+     */
+    private static final class CountingSplitterStub implements Splitter,
+            Serializable {
+
+        /**
+         * UID serializované verze.
+         */
+        private static final long serialVersionUID = 4317296064513190285L;
+
+        /**
+         * Dělič, kterému se dělení předává.
+         */
+        private final Splitter splitter = new SplitterStub();
+
+        /**
+         * Počet dělených textů.
+         */
+        private int count = 0;
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.Splitter#
+         * splitToSentences(java.lang.String)
+         */
+        @Override
+        public String[] splitToSentences(final String text) {
+            count++;
+
+            return splitter.splitToSentences(text);
+        }
+
+        /**
+         * Vrátí počet dělených textů.
+         * 
+         * @return počet dělených textů
+         */
+        public int getCount() {
+            return count;
+        }
+    }
+
     /**
      * Stub pro {@link TemplateParserFactory}.
      * 
@@ -306,6 +415,13 @@ public final class AIMLConversationTest {
                                 return (String) EasyMock.getCurrentArguments()[0];
                             }
                         });
+                expect(parser.process(anyObject(Template.class))).andStubAnswer(
+                        new IAnswer<String>() {
+                            @Override
+                            public String answer() throws Throwable {
+                                return ((Template) EasyMock.getCurrentArguments()[0]).getValue();
+                            }
+                        });
             } catch (final ProcessorException e) {
                 e.printStackTrace();
             }
@@ -560,6 +676,16 @@ public final class AIMLConversationTest {
      */
     private static final String UNRECOGNIZABLE_SPEECH = "unrecognizable speech";
 
+    /**
+     * Začátek neměnných vstupů přesměrování, na které bot zná odpověď.
+     */
+    private static final String REDIRECT_PREFIX = "THIRD SENTENCE ";
+
+    /**
+     * Vzor neměnného cíle přesměrování ve skutečné struktuře.
+     */
+    private static final String REDIRECT_PATTERN = "REDIRECTED";
+
     /**
      * Promluva na kterou bot nezná odpověď před naučením.
      */
@@ -1165,6 +1291,142 @@ public final class AIMLConversationTest {
         conversation.getBotOutput(MOST_RECENT_2D_INDEX);
     }
     
+    /**
+     * Vytvoří konverzaci s daným děličem vět.
+     * 
+     * @param splitter
+     *            dělič vět
+     * @return nová konverzace
+     */
+    private AIMLConversation createConversation(final Splitter splitter) {
+        return new AIMLConversation(loaderStub, splitter, normalizerStub,
+                languageStub, parserFactoryStub, defaultPredicatesStub,
+                predicatesSetBehaviorStub, executorServiceStub);
+    }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.responder.AIMLConversation#attemptRedirect(java.lang.String)}
+     * .
+     * 
+     * @throws ConversationException
+     *             chyba v konverzaci
+     */
+    @Test
+    public void testAttemptRedirectWhenRepeatedReusesPreparedInput()
+            throws ConversationException {
+        final CountingSplitterStub splitter = new CountingSplitterStub();
+        final AIMLConversation redirecting = createConversation(splitter);
+
+        assertEquals(EXPECTED_RESPONSE, redirecting.attemptRedirect(SPEECH));
+        assertEquals(EXPECTED_RESPONSE, redirecting.attemptRedirect(SPEECH));
+        assertEquals(1, splitter.getCount());
+
+        assertEquals(EXPECTED_RESPONSE, redirecting.attemptTalk(SPEECH));
+        assertEquals(2, splitter.getCount());
+    }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.responder.AIMLConversation#attemptRedirect(java.lang.String)}
+     * .
+     * 
+     * @throws ConversationException
+     *             chyba v konverzaci
+     */
+    @Test
+    public void testAttemptRedirectWhenCapacityExceededPreparesLeastRecentlyUsedAgain()
+            throws ConversationException {
+        final CountingSplitterStub splitter = new CountingSplitterStub();
+        final AIMLConversation redirecting = createConversation(splitter);
+
+        for (int i = 0; i < AIMLConversation.PREPARED_INPUTS_CAPACITY; i++) {
+            redirecting.attemptRedirect(REDIRECT_PREFIX + i);
+        }
+        redirecting.attemptRedirect(REDIRECT_PREFIX + 0);
+        redirecting.attemptRedirect(REDIRECT_PREFIX
+                + AIMLConversation.PREPARED_INPUTS_CAPACITY);
+        assertEquals(AIMLConversation.PREPARED_INPUTS_CAPACITY + 1,
+                splitter.getCount());
+
+        redirecting.attemptRedirect(REDIRECT_PREFIX + 0);
+        redirecting.attemptRedirect(REDIRECT_PREFIX
+                + AIMLConversation.PREPARED_INPUTS_CAPACITY);
+        assertEquals(AIMLConversation.PREPARED_INPUTS_CAPACITY + 1,
+                splitter.getCount());
+
+        redirecting.attemptRedirect(REDIRECT_PREFIX + 1);
+        assertEquals(AIMLConversation.PREPARED_INPUTS_CAPACITY + 2,
+                splitter.getCount());
+    }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.responder.AIMLConversation#attemptRedirect(java.lang.String, RedirectTarget)}
+     * .
+     * 
+     * @throws ConversationException
+     *             chyba v konverzaci
+     */
+    @Test
+    public void testAttemptRedirectWithTargetWhenVersionNotTrackedFindsInStructure()
+            throws ConversationException {
+        final RedirectTarget target = new RedirectTarget();
+
+        assertEquals(EXPECTED_RESPONSE,
+                conversation.attemptRedirect(SPEECH, target));
+        assertEquals(EXPECTED_RESPONSE,
+                conversation.attemptRedirect(SPEECH, target));
+    }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.responder.AIMLConversation#attemptRedirect(java.lang.String, RedirectTarget)}
+     * .
+     * 
+     * @throws ConversationException
+     *             chyba v konverzaci
+     */
+    @Test
+    public void testAttemptRedirectWithTargetWhenStructureChangedFindsChanged()
+            throws ConversationException {
+        final InputPath path = new AIMLInputPath(REDIRECT_PATTERN, "*", "*");
+        final CachingStructure structure =
+                new CachingStructure(new WordTree(new FrugalMapperFactory()));
+        structure.add(path, new AIMLTemplate(FIRST_PART_OF_EXPECTED_RESPONSE));
+
+        final RedirectTarget target = new RedirectTarget();
+        final AIMLConversation redirecting =
+                new AIMLConversation(new LoaderStub(structure), splitterStub,
+                        normalizerStub, languageStub, parserFactoryStub,
+                        defaultPredicatesStub, predicatesSetBehaviorStub,
+                        executorServiceStub);
+        assertEquals(FIRST_PART_OF_EXPECTED_RESPONSE,
+                redirecting.attemptRedirect(REDIRECT_PATTERN, target));
+        assertEquals(FIRST_PART_OF_EXPECTED_RESPONSE,
+                redirecting.attemptRedirect(REDIRECT_PATTERN, target));
+
+        structure.replace(path, new AIMLTemplate(
+                SECOND_PART_OF_EXPECTED_RESPONSE));
+
+        assertEquals(SECOND_PART_OF_EXPECTED_RESPONSE,
+                redirecting.attemptRedirect(REDIRECT_PATTERN, target));
+    }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.responder.AIMLConversation#attemptRedirect(java.lang.String, RedirectTarget)}
+     * .
+     * 
+     * @throws ConversationException
+     *             chyba v konverzaci
+     */
+    @Test(expected = NullPointerException.class)
+    public void testAttemptRedirectWhenTargetNull()
+            throws ConversationException {
+        conversation.attemptRedirect(SPEECH, null);
+    }
+
     /**
      * Test pro
      * {@link cz.cuni.mff.ms.brodecva.botnicek.library.responder.AIMLConversation#attemptTalk(java.lang.String)}
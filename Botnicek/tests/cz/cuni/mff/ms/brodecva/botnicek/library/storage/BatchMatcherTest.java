@@ -0,0 +1,165 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.FrugalMapperFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.UnitTest;
+
+/**
+ * Testuje dávkové hledání, které musí pro každou cestu vrátit týž výsledek
+ * jako samostatné hledání, a to v pořadí vstupu.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see BatchMatcher
+ * @see MatchingStructure#findAll(List)
+ */
+@Category(UnitTest.class)
+public final class BatchMatcherTest {
+
+    /**
+     * Vzory kategorií stromu.
+     */
+    private static final String[] PATTERNS = { "A", "A B", "A *", "A _ C",
+            "* C", "_ B *", "B B B", "B * B", "C", "C A _", "*" };
+
+    /**
+     * Slova, ze kterých se skládají vstupy.
+     */
+    private static final String[] VOCABULARY = { "A", "B", "C", "D" };
+
+    /**
+     * Počet vstupů, který přesahuje velikost nedělitelného úseku.
+     */
+    private static final int INPUT_COUNT = 3 * BatchMatcher.PARTITION_SIZE;
+
+    /**
+     * Nejvyšší počet slov vstupu.
+     */
+    private static final int MAX_INPUT_LENGTH = 6;
+
+    /**
+     * Strom se vzory.
+     */
+    private WordTree tree;
+
+    /**
+     * Vstupní cesty.
+     */
+    private List<InputPath> paths;
+
+    /**
+     * Vytvoří strom se vzory a náhodné vstupy.
+     */
+    @Before
+    public void setUp() {
+        tree = new WordTree(new FrugalMapperFactory(), true);
+        for (final String pattern : PATTERNS) {
+            tree.add(new AIMLInputPath(pattern, "*", "*"), new AIMLTemplate(
+                    "<template>" + pattern + "</template>"));
+        }
+
+        final Random random = new Random(1);
+        paths = new ArrayList<InputPath>(INPUT_COUNT);
+        for (int index = 0; index < INPUT_COUNT; index++) {
+            final int length = 1 + random.nextInt(MAX_INPUT_LENGTH);
+
+            final StringBuilder input = new StringBuilder();
+            for (int position = 0; position < length; position++) {
+                if (position > 0) {
+                    input.append(' ');
+                }
+                input.append(VOCABULARY[random.nextInt(VOCABULARY.length)]);
+            }
+
+            paths.add(new AIMLInputPath(input.toString(), "*", "*"));
+        }
+    }
+
+    /**
+     * Ověří, že výsledky dávky odpovídají samostatnému hledání.
+     * 
+     * @param structure
+     *            prohledávaná struktura
+     */
+    private void assertSameAsFind(final MatchingStructure structure) {
+        final List<MatchResult> results = structure.findAll(paths);
+
+        assertEquals(paths.size(), results.size());
+        for (int index = 0; index < paths.size(); index++) {
+            final MatchResult expected = structure.find(paths.get(index));
+            final MatchResult actual = results.get(index);
+
+            assertEquals(expected.isSuccesful(), actual.isSuccesful());
+            assertEquals(expected.getTemplate(), actual.getTemplate());
+            assertEquals(expected.getStarMatchedParts(AIMLPartMarker.PATTERN),
+                    actual.getStarMatchedParts(AIMLPartMarker.PATTERN));
+        }
+    }
+
+    /**
+     * Test pro {@link WordTree#findAll(List)}.
+     */
+    @Test
+    public void testFindAllWordTreeMatchesFind() {
+        assertSameAsFind(tree);
+    }
+
+    /**
+     * Test pro {@link FrozenWordTree#findAll(List)}.
+     */
+    @Test
+    public void testFindAllFrozenWordTreeMatchesFind() {
+        assertSameAsFind(tree.freeze());
+    }
+
+    /**
+     * Test pro {@link OverlayStructure#findAll(List)}.
+     */
+    @Test
+    public void testFindAllOverlayStructureMatchesFind() {
+        final WordTree overlay = new WordTree(new FrugalMapperFactory());
+        overlay.add(new AIMLInputPath("A B", "*", "*"), new AIMLTemplate(
+                "<template>learned</template>"));
+        overlay.add(new AIMLInputPath("D *", "*", "*"), new AIMLTemplate(
+                "<template>learned D</template>"));
+
+        assertSameAsFind(new OverlayStructure(tree, overlay));
+    }
+
+    /**
+     * Test pro {@link WordTree#findAll(List)}.
+     */
+    @Test
+    public void testFindAllWhenEmptyReturnsEmpty() {
+        assertTrue(tree.findAll(Collections.<InputPath> emptyList()).isEmpty());
+    }
+}
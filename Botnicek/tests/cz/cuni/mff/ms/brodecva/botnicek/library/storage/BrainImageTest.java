@@ -0,0 +1,190 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.FrugalMapperFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.UnitTest;
+
+/**
+ * Testuje zápis a otevření obrazu mozku.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see BrainImage
+ * @see MappedWordTree
+ */
+@Category(UnitTest.class)
+public final class BrainImageTest {
+
+    /**
+     * Vzory vkládané do stromu (vzor, that, téma).
+     */
+    private static final String[][] PATTERNS = {
+            { "HELLO", null, null },
+            { "HELLO *", null, null },
+            { "_ THERE", null, null },
+            { "WHAT IS *", null, null },
+            { "WHAT IS YOUR NAME", null, null },
+            { "YES", "DO YOU LIKE *", null },
+            { "ŽLUŤOUČKÝ KŮŇ", null, null },
+            { "*", null, "WEATHER" },
+            { "*", null, null } };
+
+    /**
+     * Vstupy porovnávané s původním stromem (vzor, that, téma).
+     */
+    private static final String[][] INPUTS = {
+            { "HELLO", "*", "*" },
+            { "HELLO ROBOT", "*", "*" },
+            { "HI THERE", "*", "*" },
+            { "WHAT IS YOUR NAME", "*", "*" },
+            { "WHAT IS LOVE", "*", "*" },
+            { "YES", "DO YOU LIKE CHEESE", "*" },
+            { "ŽLUŤOUČKÝ KŮŇ", "*", "*" },
+            { "IS IT RAINING", "*", "WEATHER" },
+            { "UNKNOWNWORDINIMAGE", "*", "*" } };
+
+    /**
+     * Dočasná složka pro obrazy.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Původní strom.
+     */
+    private WordTree tree = null;
+
+    /**
+     * Cesta k obrazu.
+     */
+    private Path image = null;
+
+    /**
+     * Naplní strom a zapíše jeho obraz.
+     * 
+     * @throws IOException
+     *             chyba při zápisu
+     */
+    @Before
+    public void setUp() throws IOException {
+        tree = new WordTree(new FrugalMapperFactory());
+        for (int i = 0; i < PATTERNS.length; i++) {
+            tree.add(new AIMLInputPath(PATTERNS[i][0], PATTERNS[i][1],
+                    PATTERNS[i][2]), new AIMLTemplate("<template>" + i
+                    + " ěščř</template>"));
+        }
+
+        image = folder.getRoot().toPath().resolve("brain.img");
+        BrainImage.write(tree.freeze(), image);
+    }
+
+    /**
+     * Test pro {@link BrainImage#open(Path)} a
+     * {@link MappedWordTree#find(InputPath)}.
+     * 
+     * @throws IOException
+     *             chyba při čtení
+     */
+    @Test
+    public void testFindWhenOpenedReturnsSameAsTree() throws IOException {
+        final MappedWordTree mapped = BrainImage.open(image);
+
+        assertEquals(tree.getCategoryCount(), mapped.getCategoryCount());
+        assertEquals(tree.freeze().getNodeCount(), mapped.getNodeCount());
+        assertFalse(mapped.isForwardCompatible());
+        for (final String[] input : INPUTS) {
+            final MatchResult expected =
+                    tree.find(new AIMLInputPath(input[0], input[1], input[2]));
+            final MatchResult actual =
+                    mapped.find(new AIMLInputPath(input[0], input[1], input[2]));
+
+            assertEquals(expected.isSuccesful(), actual.isSuccesful());
+            if (expected.isSuccesful()) {
+                assertEquals(expected.getTemplate(), actual.getTemplate());
+                for (final PartMarker part : AIMLPartMarker.values()) {
+                    assertEquals(expected.getStarMatchedParts(part),
+                            actual.getStarMatchedParts(part));
+                }
+            }
+        }
+    }
+
+    /**
+     * Test pro {@link BrainImage#write(FrozenWordTree, Path)}.
+     * 
+     * @throws IOException
+     *             chyba při zápisu
+     */
+    @Test
+    public void testWriteWhenRewrittenReplacesImage() throws IOException {
+        tree.add(new AIMLInputPath("GOODBYE", null, null), new AIMLTemplate(
+                "<template>bye</template>"));
+        BrainImage.write(tree.freeze(), image);
+
+        final MatchResult result =
+                BrainImage.open(image).find(
+                        new AIMLInputPath("GOODBYE", "*", "*"));
+        assertTrue(result.isSuccesful());
+        assertEquals("<template>bye</template>", result.getTemplate()
+                .getValue());
+    }
+
+    /**
+     * Test pro {@link BrainImage#open(Path)}.
+     * 
+     * @throws IOException
+     *             očekávaná chyba
+     */
+    @Test(expected = IOException.class)
+    public void testOpenWhenNotImageThrows() throws IOException {
+        final Path other = folder.newFile("other.img").toPath();
+        Files.write(other, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11,
+                12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 25, 26,
+                27, 28, 29, 30, 31, 32 });
+
+        BrainImage.open(other);
+    }
+
+    /**
+     * Test pro {@link MappedWordTree#add(InputPath, Template)}.
+     * 
+     * @throws IOException
+     *             chyba při čtení
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAddThrows() throws IOException {
+        BrainImage.open(image).add(new AIMLInputPath("HELLO", null, null),
+                new AIMLTemplate("<template/>"));
+    }
+}
@@ -0,0 +1,313 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.FrugalMapperFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.UnitTest;
+
+/**
+ * Testuje strukturu s mezipamětí výsledků hledání.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see CachingStructure
+ */
+@Category(UnitTest.class)
+public final class CachingStructureTest {
+
+    /**
+     * Vnořená struktura.
+     */
+    private MatchingStructure cachedMock = null;
+
+    /**
+     * Šablona nalezená vnořenou strukturou.
+     */
+    private Template templateStub = null;
+
+    /**
+     * Výsledek hledání.
+     */
+    private MatchResult resultStub = null;
+
+    /**
+     * Testovaná struktura.
+     */
+    private CachingStructure structure = null;
+
+    /**
+     * Vytvoří vstupní cestu.
+     * 
+     * @param pattern
+     *            vzor
+     * @return nová instance cesty se vzorem a libovolným that a tématem
+     */
+    private static InputPath path(final String pattern) {
+        return new AIMLInputPath(pattern, "*", "*");
+    }
+
+    /**
+     * Ověří, že výsledek nese očekávanou šablonu.
+     * 
+     * @param expected
+     *            očekávaná šablona
+     * @param actual
+     *            výsledek hledání
+     */
+    private static void assertFound(final Template expected,
+            final MatchResult actual) {
+        assertEquals(true, actual.isSuccesful());
+        assertSame(expected, actual.getTemplate());
+    }
+
+    /**
+     * Nastaví testovanou strukturu.
+     */
+    @Before
+    public void setUp() {
+        cachedMock = createMock(MatchingStructure.class);
+        templateStub = createMock(Template.class);
+        replay(templateStub);
+        resultStub = new SuccesfulResult(templateStub);
+
+        structure =
+                new CachingStructure(cachedMock,
+                        CachingStructure.SEGMENTS_COUNT);
+    }
+
+    /**
+     * Uklidí testovanou strukturu.
+     */
+    @After
+    public void tearDown() {
+        cachedMock = null;
+        templateStub = null;
+        resultStub = null;
+        structure = null;
+    }
+
+    /**
+     * Test pro {@link CachingStructure#CachingStructure(MatchingStructure)}.
+     */
+    @Test(expected = NullPointerException.class)
+    public void testCachingStructureWhenNull() {
+        new CachingStructure(null);
+    }
+
+    /**
+     * Test pro
+     * {@link CachingStructure#CachingStructure(MatchingStructure, int)}.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testCachingStructureWhenCapacityTooSmall() {
+        new CachingStructure(cachedMock, CachingStructure.SEGMENTS_COUNT - 1);
+    }
+
+    /**
+     * Test pro {@link CachingStructure#find(InputPath)}.
+     */
+    @Test
+    public void testFindWhenRepeatedSearchesOnce() {
+        expect(cachedMock.find(path("HELLO"))).andReturn(resultStub).once();
+        replay(cachedMock);
+
+        assertSame(resultStub, structure.find(path("HELLO")));
+        assertFound(templateStub, structure.find(path("HELLO")));
+
+        verify(cachedMock);
+    }
+
+    /**
+     * Test pro {@link CachingStructure#find(InputPath)}.
+     */
+    @Test
+    public void testFindWhenRememberedReturnsIndependentResults() {
+        final Template answer = new AIMLTemplate("Hi.");
+        final CachingStructure tree =
+                new CachingStructure(new WordTree(new FrugalMapperFactory()));
+        tree.add(path("HELLO *"), answer);
+
+        final MatchResult first = tree.find(path("HELLO BIG WORLD"));
+        final MatchResult second = tree.find(path("HELLO BIG WORLD"));
+        assertNotSame(first, second);
+        assertFound(answer, second);
+
+        second.addStarMatchedPart(AIMLPartMarker.PATTERN, path("CHANGED"));
+        final MatchResult third = tree.find(path("HELLO BIG WORLD"));
+        assertNotSame(second, third);
+        assertEquals(Arrays.asList("BIG WORLD"),
+                third.getStarMatchedParts(AIMLPartMarker.PATTERN));
+        assertEquals(0, third.comparePriority(first));
+    }
+
+    /**
+     * Test pro {@link CachingStructure#find(InputPath)}.
+     */
+    @Test
+    public void testFindWhenOtherResultImplementationSearchesAgain() {
+        final MatchResult otherStub = createMock(MatchResult.class);
+        expect(otherStub.isSuccesful()).andStubReturn(true);
+        replay(otherStub);
+
+        expect(cachedMock.find(path("HELLO"))).andReturn(otherStub).times(2);
+        replay(cachedMock);
+
+        assertSame(otherStub, structure.find(path("HELLO")));
+        assertSame(otherStub, structure.find(path("HELLO")));
+
+        verify(cachedMock);
+    }
+
+    /**
+     * Test pro {@link CachingStructure#find(InputPath)}.
+     */
+    @Test
+    public void testFindWhenFailedRemembersFailure() {
+        expect(cachedMock.find(path("XYZZY"))).andReturn(
+                FailedResult.getInstance()).once();
+        replay(cachedMock);
+
+        structure.find(path("XYZZY"));
+        assertSame(FailedResult.getInstance(), structure.find(path("XYZZY")));
+
+        verify(cachedMock);
+    }
+
+    /**
+     * Test pro {@link CachingStructure#add(InputPath, Template)}.
+     */
+    @Test
+    public void testAddInvalidatesRememberedResults() {
+        final Template learntTemplateStub = createMock(Template.class);
+        replay(learntTemplateStub);
+        final MatchResult learntStub =
+                new SuccesfulResult(learntTemplateStub);
+
+        expect(cachedMock.find(path("HELLO"))).andReturn(resultStub).once();
+        cachedMock.add(path("HELLO"), templateStub);
+        expectLastCall();
+        expect(cachedMock.find(path("HELLO"))).andReturn(learntStub).once();
+        replay(cachedMock);
+
+        assertSame(resultStub, structure.find(path("HELLO")));
+        structure.add(path("HELLO"), templateStub);
+        assertSame(learntStub, structure.find(path("HELLO")));
+        assertFound(learntTemplateStub, structure.find(path("HELLO")));
+
+        verify(cachedMock);
+    }
+
+    /**
+     * Test pro {@link CachingStructure#add(InputPath, Template)}.
+     */
+    @Test
+    public void testAddWhenNotSearchedYetKeepsVersion() {
+        cachedMock.add(path("HELLO"), templateStub);
+        expectLastCall().times(2);
+        expect(cachedMock.find(path("HELLO"))).andReturn(resultStub).once();
+        cachedMock.add(path("BYE"), templateStub);
+        expectLastCall();
+        replay(cachedMock);
+
+        structure.add(path("HELLO"), templateStub);
+        structure.add(path("HELLO"), templateStub);
+        assertEquals(0, structure.getVersion());
+
+        structure.find(path("HELLO"));
+        structure.add(path("BYE"), templateStub);
+        assertEquals(1, structure.getVersion());
+
+        verify(cachedMock);
+    }
+
+    /**
+     * Test pro {@link CachingStructure#getContentVersion()}.
+     */
+    @Test
+    public void testGetContentVersionWhenChangedReplacesVersion() {
+        cachedMock.add(path("HELLO"), templateStub);
+        expectLastCall().times(2);
+        replay(cachedMock);
+
+        final Object initial = structure.getContentVersion();
+        assertSame(initial, structure.getContentVersion());
+
+        structure.add(path("HELLO"), templateStub);
+        final Object changed = structure.getContentVersion();
+        assertNotSame(initial, changed);
+
+        structure.add(path("HELLO"), templateStub);
+        assertNotSame(changed, structure.getContentVersion());
+
+        verify(cachedMock);
+    }
+
+    /**
+     * Test pro {@link CachingStructure#remove(InputPath)}.
+     */
+    @Test
+    public void testRemoveWhenAbsentKeepsRememberedResults() {
+        expect(cachedMock.find(path("HELLO"))).andReturn(resultStub).once();
+        expect(cachedMock.remove(path("BYE"))).andReturn(null);
+        replay(cachedMock);
+
+        structure.find(path("HELLO"));
+        structure.remove(path("BYE"));
+        assertFound(templateStub, structure.find(path("HELLO")));
+
+        verify(cachedMock);
+    }
+
+    /**
+     * Test pro {@link CachingStructure#find(InputPath)}.
+     */
+    @Test
+    public void testFindWhenCapacityExceededEvictsLeastRecentlyUsed() {
+        final int count = 4 * CachingStructure.SEGMENTS_COUNT;
+        for (int i = 0; i < count; i++) {
+            expect(cachedMock.find(path("WORD" + i))).andReturn(resultStub)
+                    .once();
+        }
+        expect(cachedMock.find(path("WORD0"))).andReturn(resultStub).once();
+        replay(cachedMock);
+
+        for (int i = 0; i < count; i++) {
+            structure.find(path("WORD" + i));
+        }
+        structure.find(path("WORD0"));
+
+        verify(cachedMock);
+    }
+}
@@ -18,6 +18,7 @@
  */
 package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
 
+import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -120,4 +121,19 @@ public final class FailedResultTest {
         assertEquals(0, result.getStarMatchedParts(partMock).size());
     }
 
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.storage.FailedResult#comparePriority(MatchResult)}
+     * .
+     */
+    @Test
+    public void testComparePriority() {
+        final MatchResult succesful = EasyMock.createMock(MatchResult.class);
+        expect(succesful.isSuccesful()).andStubReturn(true);
+        replay(succesful);
+
+        assertEquals(1, result.comparePriority(succesful));
+        assertEquals(0, result.comparePriority(FailedResult.getInstance()));
+    }
+
 }
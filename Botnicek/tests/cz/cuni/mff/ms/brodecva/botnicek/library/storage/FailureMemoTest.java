@@ -0,0 +1,128 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.FrugalMapperFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.UnitTest;
+
+/**
+ * Testuje záznam neúspěšných stavů hledání a hledání, které jej využívá.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see FailureMemo
+ */
+@Category(UnitTest.class)
+public final class FailureMemoTest {
+
+    /**
+     * Počet opakovaných slov vstupu, na kterém by hledání bez záznamu trvalo
+     * neúnosně dlouho.
+     */
+    private static final int LONG_INPUT_LENGTH = 128;
+
+    /**
+     * Vytvoří uzel se vzory.
+     * 
+     * @param patterns
+     *            vzory
+     * @return kořen s vloženými vzory
+     */
+    private static WordNode createRoot(final String... patterns) {
+        final WordNode root =
+                new WordNode(0, null, AIMLPartMarker.PATTERN,
+                        new FrugalMapperFactory());
+
+        for (final String pattern : patterns) {
+            root.add(new AIMLInputPath(pattern, "*", "*"), new AIMLTemplate(
+                    "<template>" + pattern + "</template>"),
+                    AIMLPartMarker.PATTERN, new FrugalMapperFactory());
+        }
+
+        return root;
+    }
+
+    /**
+     * Test pro {@link FailureMemo#hasFailed(WordNode, int)} a
+     * {@link FailureMemo#recordFailure(WordNode, int)}.
+     */
+    @Test
+    public void testRecordFailure() {
+        final WordNode first = createRoot();
+        final WordNode second = createRoot();
+        final FailureMemo memo = new FailureMemo(3);
+
+        assertFalse(memo.hasFailed(first, 1));
+
+        memo.recordFailure(first, 1);
+
+        assertTrue(memo.hasFailed(first, 1));
+        assertFalse(memo.hasFailed(first, 2));
+        assertFalse(memo.hasFailed(second, 1));
+    }
+
+    /**
+     * Test pro {@link WordNode#find(InputPath, PartMarker, boolean)}.
+     */
+    @Test
+    public void testFindWhenMemoizedKeepsPriorityAndCaptures() {
+        final WordNode root =
+                createRoot("_ B * C", "A * B * C", "* B *", "A _ C");
+        final InputPath path = new AIMLInputPath("A B X B Y C", "Z", "W");
+
+        final MatchResult plain = root.find(path, AIMLPartMarker.PATTERN);
+        final MatchResult memoized =
+                root.find(path, AIMLPartMarker.PATTERN, true);
+
+        assertEquals("<template>_ B * C</template>", memoized.getTemplate()
+                .getValue());
+        assertEquals(plain.getTemplate(), memoized.getTemplate());
+        assertEquals(Arrays.asList("A", "X B Y"),
+                memoized.getStarMatchedParts(AIMLPartMarker.PATTERN));
+        assertEquals(plain.getStarMatchedParts(AIMLPartMarker.PATTERN),
+                memoized.getStarMatchedParts(AIMLPartMarker.PATTERN));
+    }
+
+    /**
+     * Test pro {@link WordNode#find(InputPath, PartMarker, boolean)}.
+     */
+    @Test(timeout = 10000)
+    public void testFindWhenMemoizedOverlappingWildcardsFailsFast() {
+        final WordNode root =
+                createRoot("* A * A * A * A * A * B", "_ A _ A _ A * C");
+
+        final StringBuilder input = new StringBuilder("A");
+        for (int index = 1; index < LONG_INPUT_LENGTH; index++) {
+            input.append(" A");
+        }
+
+        assertFalse(root.find(
+                new AIMLInputPath(input.toString(), "*", "*"),
+                AIMLPartMarker.PATTERN, true).isSuccesful());
+    }
+}
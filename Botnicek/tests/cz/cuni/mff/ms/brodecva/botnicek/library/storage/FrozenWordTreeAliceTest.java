@@ -0,0 +1,141 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.loader.LoaderException;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.AliceSet;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.IntegrationTest;
+
+/**
+ * Porovná zmrazený strom sady ALICE a jeho obraz s původním stromem.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see WordTree#freeze()
+ * @see BrainImage
+ */
+@Category(IntegrationTest.class)
+public final class FrozenWordTreeAliceTest {
+
+    /**
+     * Logger knihovny, jehož úroveň se během testu zvyšuje.
+     */
+    private static final Logger LIBRARY_LOGGER = Logger
+            .getLogger("cz.cuni.mff.ms.brodecva.botnicek.library");
+
+    /**
+     * Dočasná složka pro obraz.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Původní úroveň loggeru knihovny.
+     */
+    private Level originalLevel = null;
+
+    /**
+     * Strom se sadou ALICE.
+     */
+    private WordTree tree = null;
+
+    /**
+     * Připraví strom.
+     * 
+     * @throws LoaderException
+     *             chyba při načítání sady
+     */
+    @Before
+    public void setUp() throws LoaderException {
+        originalLevel = LIBRARY_LOGGER.getLevel();
+        LIBRARY_LOGGER.setLevel(Level.WARNING);
+
+        tree = AliceSet.getWordTree();
+    }
+
+    /**
+     * Obnoví úroveň loggeru.
+     */
+    @After
+    public void tearDown() {
+        LIBRARY_LOGGER.setLevel(originalLevel);
+
+        tree = null;
+    }
+
+    /**
+     * Ověří, že struktura vrací na vzorové vstupy stejné výsledky jako strom.
+     * 
+     * @param structure
+     *            porovnávaná struktura
+     */
+    private void assertMatchesTree(final MatchingStructure structure) {
+        assertEquals(tree.getCategoryCount(), structure.getCategoryCount());
+        for (final String input : AliceSet.SAMPLE_INPUTS) {
+            final MatchResult expected =
+                    tree.find(new AIMLInputPath(input, "*", "*"));
+            final MatchResult actual =
+                    structure.find(new AIMLInputPath(input, "*", "*"));
+
+            assertEquals(input, expected.isSuccesful(), actual.isSuccesful());
+            assertEquals(input, expected.getTemplate(), actual.getTemplate());
+            assertEquals(input,
+                    expected.getStarMatchedParts(AIMLPartMarker.PATTERN),
+                    actual.getStarMatchedParts(AIMLPartMarker.PATTERN));
+        }
+    }
+
+    /**
+     * Test pro {@link WordTree#freeze()} a
+     * {@link FrozenWordTree#find(InputPath)}.
+     */
+    @Test
+    public void testFindWhenFrozenReturnsSameAsTree() {
+        assertMatchesTree(tree.freeze());
+    }
+
+    /**
+     * Test pro {@link BrainImage#write(FrozenWordTree, Path)} a
+     * {@link MappedWordTree#find(InputPath)}.
+     * 
+     * @throws IOException
+     *             chyba při zápisu či čtení obrazu
+     */
+    @Test
+    public void testFindWhenImageOpenedReturnsSameAsTree() throws IOException {
+        final Path image = folder.getRoot().toPath().resolve("alice.img");
+        BrainImage.write(tree.freeze(), image);
+
+        assertMatchesTree(BrainImage.open(image));
+    }
+}
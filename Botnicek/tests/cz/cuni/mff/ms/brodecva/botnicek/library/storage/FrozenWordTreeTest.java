@@ -0,0 +1,192 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.FrugalMapperFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.UnitTest;
+
+/**
+ * Testuje zmrazený strom prohledávací struktury.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see FrozenWordTree
+ */
+@Category(UnitTest.class)
+public final class FrozenWordTreeTest {
+
+    /**
+     * Vzory vkládané do stromu (vzor, that, téma).
+     */
+    private static final String[][] PATTERNS = {
+            { "HELLO", null, null },
+            { "HELLO *", null, null },
+            { "_ THERE", null, null },
+            { "WHAT IS *", null, null },
+            { "WHAT IS YOUR NAME", null, null },
+            { "YES", "DO YOU LIKE *", null },
+            { "*", null, "WEATHER" },
+            { "*", null, null } };
+
+    /**
+     * Vstupy porovnávané s původním stromem (vzor, that, téma).
+     */
+    private static final String[][] INPUTS = {
+            { "HELLO", "*", "*" },
+            { "HELLO ROBOT", "*", "*" },
+            { "HI THERE", "*", "*" },
+            { "WHAT IS YOUR NAME", "*", "*" },
+            { "WHAT IS LOVE", "*", "*" },
+            { "YES", "DO YOU LIKE CHEESE", "*" },
+            { "IS IT RAINING", "*", "WEATHER" },
+            { "UNKNOWNWORDINFROZENTREE", "*", "*" } };
+
+    /**
+     * Původní strom.
+     */
+    private WordTree tree = null;
+
+    /**
+     * Zmrazený strom.
+     */
+    private FrozenWordTree frozen = null;
+
+    /**
+     * Naplní strom a zmrazí jej.
+     */
+    @Before
+    public void setUp() {
+        tree = new WordTree(new FrugalMapperFactory());
+        for (int i = 0; i < PATTERNS.length; i++) {
+            tree.add(new AIMLInputPath(PATTERNS[i][0], PATTERNS[i][1],
+                    PATTERNS[i][2]), new AIMLTemplate("<template>" + i
+                    + "</template>"));
+        }
+
+        frozen = tree.freeze();
+    }
+
+    /**
+     * Ověří, že oba stromy vrací stejný výsledek.
+     * 
+     * @param structure
+     *            porovnávaná struktura
+     */
+    private void assertMatchesTree(final MatchingStructure structure) {
+        for (final String[] input : INPUTS) {
+            final MatchResult expected =
+                    tree.find(new AIMLInputPath(input[0], input[1], input[2]));
+            final MatchResult actual =
+                    structure.find(new AIMLInputPath(input[0], input[1],
+                            input[2]));
+
+            assertEquals(expected.isSuccesful(), actual.isSuccesful());
+            if (expected.isSuccesful()) {
+                assertEquals(expected.getTemplate(), actual.getTemplate());
+                for (final PartMarker part : AIMLPartMarker.values()) {
+                    assertEquals(expected.getStarMatchedParts(part),
+                            actual.getStarMatchedParts(part));
+                }
+            }
+        }
+    }
+
+    /**
+     * Test pro {@link WordTree#freeze()} a
+     * {@link FrozenWordTree#find(InputPath)}.
+     */
+    @Test
+    public void testFindWhenFrozenReturnsSameAsTree() {
+        assertMatchesTree(frozen);
+        assertEquals(tree.getCategoryCount(), frozen.getCategoryCount());
+        assertFalse(frozen.isForwardCompatible());
+    }
+
+    /**
+     * Test pro {@link FrozenWordTree#find(InputPath)}.
+     */
+    @Test
+    public void testFindWhenWildcardCapturedReturnsCapturedPart() {
+        final MatchResult result =
+                frozen.find(new AIMLInputPath("HELLO DEAR ROBOT", "*", "*"));
+
+        assertTrue(result.isSuccesful());
+        assertEquals("DEAR ROBOT",
+                result.getStarMatchedParts(AIMLPartMarker.PATTERN).get(0));
+    }
+
+    /**
+     * Test pro {@link FrozenWordTree#add(InputPath, Template)}.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAddThrows() {
+        frozen.add(new AIMLInputPath("HELLO", null, null), new AIMLTemplate(
+                "<template/>"));
+    }
+
+    /**
+     * Test pro {@link FrozenWordTree#setForwardCompatible(boolean)}.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSetForwardCompatibleThrows() {
+        frozen.setForwardCompatible(true);
+    }
+
+    /**
+     * Test serializace.
+     * 
+     * @throws IOException
+     *             chyba při zápisu
+     * @throws ClassNotFoundException
+     *             neznámá třída
+     */
+    @Test
+    public void testSerializationRestoresMatching() throws IOException,
+            ClassNotFoundException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(frozen);
+        }
+
+        final Object restored;
+        try (final ObjectInputStream in =
+                new ObjectInputStream(new ByteArrayInputStream(
+                        bytes.toByteArray()))) {
+            restored = in.readObject();
+        }
+
+        final FrozenWordTree restoredTree = (FrozenWordTree) restored;
+        assertEquals(frozen.getNodeCount(), restoredTree.getNodeCount());
+        assertMatchesTree(restoredTree);
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.FrugalMapperFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.UnitTest;
+
+/**
+ * Testuje strukturu s překryvnou strukturou nad sdíleným základem.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see OverlayStructure
+ */
+@Category(UnitTest.class)
+public final class OverlayStructureTest {
+
+    /**
+     * Vzory základu.
+     */
+    private static final String[] BASE_PATTERNS = { "WHAT IS *",
+            "WHAT IS YOUR NAME", "_ IS RED", "* NAME", "HELLO", "*" };
+
+    /**
+     * Vzory překryvné struktury.
+     */
+    private static final String[] OVERLAY_PATTERNS = { "WHAT IS LOVE",
+            "WHAT IS *", "WHAT *", "* YOUR NAME", "_ IS BLUE", "HELLO *",
+            "WHAT IS RED" };
+
+    /**
+     * Vstupy, pro které se porovnává výsledek se sjednocením struktur.
+     */
+    private static final List<String> INPUTS = Arrays.asList("WHAT IS LOVE",
+            "WHAT IS YOUR NAME", "WHAT IS RED", "WHAT IS BLUE", "HELLO",
+            "HELLO THERE", "MY NAME", "WHAT", "WHAT IS", "THE SKY IS BLUE",
+            "TELL ME YOUR NAME");
+
+    /**
+     * Základ.
+     */
+    private WordTree base = null;
+
+    /**
+     * Překryvná struktura.
+     */
+    private WordTree overlay = null;
+
+    /**
+     * Testovaná struktura.
+     */
+    private OverlayStructure structure = null;
+
+    /**
+     * Vytvoří cestu pro vzor.
+     * 
+     * @param pattern
+     *            vzor
+     * @return cesta s libovolným that a tématem
+     */
+    private static InputPath path(final String pattern) {
+        return new AIMLInputPath(pattern, "*", "*");
+    }
+
+    /**
+     * Vytvoří šablonu označenou vzorem a původem.
+     * 
+     * @param origin
+     *            původ
+     * @param pattern
+     *            vzor
+     * @return šablona
+     */
+    private static Template template(final String origin, final String pattern) {
+        return new AIMLTemplate("<template>" + origin + " " + pattern
+                + "</template>");
+    }
+
+    /**
+     * Naplní strom.
+     */
+    @Before
+    public void setUp() {
+        base = new WordTree(new FrugalMapperFactory());
+        for (final String pattern : BASE_PATTERNS) {
+            base.add(path(pattern), template("base", pattern));
+        }
+
+        overlay = new WordTree(new FrugalMapperFactory());
+        structure = new OverlayStructure(base, overlay);
+    }
+
+    /**
+     * Test pro
+     * {@link OverlayStructure#OverlayStructure(MatchingStructure, MatchingStructure)}
+     * .
+     */
+    @Test(expected = NullPointerException.class)
+    public void testOverlayStructureWhenBaseNull() {
+        new OverlayStructure(null, overlay);
+    }
+
+    /**
+     * Test pro {@link OverlayStructure#find(InputPath)}.
+     */
+    @Test
+    public void testFindWhenOverlayEmptyReturnsBaseResult() {
+        assertEquals(template("base", "WHAT IS *"),
+                structure.find(path("WHAT IS LOVE")).getTemplate());
+    }
+
+    /**
+     * Test pro {@link OverlayStructure#find(InputPath)}.
+     */
+    @Test
+    public void testFindWhenOverlayFilledMatchesAsUnion() {
+        final WordTree union = new WordTree(new FrugalMapperFactory());
+        for (final String pattern : BASE_PATTERNS) {
+            union.add(path(pattern), template("base", pattern));
+        }
+        for (final String pattern : OVERLAY_PATTERNS) {
+            structure.add(path(pattern), template("overlay", pattern));
+            union.add(path(pattern), template("overlay", pattern));
+        }
+
+        for (final String input : INPUTS) {
+            final MatchResult expected = union.find(path(input));
+            final MatchResult actual = structure.find(path(input));
+
+            assertEquals(input, expected.getTemplate(), actual.getTemplate());
+            assertEquals(input,
+                    expected.getStarMatchedParts(AIMLPartMarker.PATTERN),
+                    actual.getStarMatchedParts(AIMLPartMarker.PATTERN));
+        }
+    }
+
+    /**
+     * Test pro {@link OverlayStructure#find(InputPath)}.
+     */
+    @Test
+    public void testFindWhenThatDiffersPrefersWordInThat() {
+        base.add(new AIMLInputPath("HELLO", "HI", "*"), template("base",
+                "HELLO THAT HI"));
+        structure.add(path("HELLO"), template("overlay", "HELLO"));
+
+        assertEquals(template("base", "HELLO THAT HI"),
+                structure.find(new AIMLInputPath("HELLO", "HI", "*"))
+                        .getTemplate());
+        assertEquals(template("overlay", "HELLO"),
+                structure.find(new AIMLInputPath("HELLO", "BYE", "*"))
+                        .getTemplate());
+    }
+
+    /**
+     * Test pro {@link OverlayStructure#add(InputPath, Template)} a
+     * {@link OverlayStructure#remove(InputPath)}.
+     */
+    @Test
+    public void testAddAndRemoveLeaveBaseUnchanged() {
+        structure.add(path("WHAT IS LOVE"), template("overlay", "WHAT IS LOVE"));
+
+        assertEquals(BASE_PATTERNS.length, base.getCategoryCount());
+        assertEquals(BASE_PATTERNS.length + 1, structure.getCategoryCount());
+
+        assertNull(structure.remove(path("HELLO")));
+        assertEquals(template("overlay", "WHAT IS LOVE"),
+                structure.remove(path("WHAT IS LOVE")));
+        assertEquals(template("base", "HELLO"), structure.find(path("HELLO"))
+                .getTemplate());
+    }
+
+    /**
+     * Test pro {@link OverlayStructure#findContextFree(InputPath)}.
+     */
+    @Test
+    public void testFindContextFreeWhenOverlayFilledReturnsNull() {
+        assertEquals(template("base", "HELLO"),
+                structure.findContextFree(path("HELLO")).getTemplate());
+
+        structure.add(path("HELLO *"), template("overlay", "HELLO *"));
+
+        assertNull(structure.findContextFree(path("HELLO")));
+        assertNull(structure.getContentVersion());
+    }
+
+    /**
+     * Test pro {@link OverlayStructure#setForwardCompatible(boolean)}.
+     */
+    @Test
+    public void testSetForwardCompatibleLeavesBaseUnchanged() {
+        structure.setForwardCompatible(true);
+
+        assertFalse(base.isForwardCompatible());
+        assertTrue(structure.isForwardCompatible());
+    }
+}
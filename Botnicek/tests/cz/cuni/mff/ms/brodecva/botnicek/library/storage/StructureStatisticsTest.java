@@ -0,0 +1,164 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.ArrayCore;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.FrugalMapperFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.UnitTest;
+
+/**
+ * Testuje statistiku struktur s kategoriemi.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see StructureStatistics
+ */
+@Category(UnitTest.class)
+public final class StructureStatisticsTest {
+
+    /**
+     * Počet uzlů stromu z {@link #setUp()}: kořen, HELLO, YOU a dvakrát
+     * značky s hvězdičkami pro that a téma.
+     */
+    private static final int NODE_COUNT = 11;
+
+    /**
+     * Hloubka listu pod cestou HELLO YOU.
+     */
+    private static final int MAX_DEPTH = 6;
+
+    /**
+     * Strom se dvěma kategoriemi.
+     */
+    private WordTree tree = null;
+
+    /**
+     * Naplní strom.
+     */
+    @Before
+    public void setUp() {
+        tree = new WordTree(new FrugalMapperFactory());
+        tree.add(new AIMLInputPath("HELLO", "*", "*"), new AIMLTemplate(
+                "<template>Hi</template>"));
+        tree.add(new AIMLInputPath("HELLO YOU", "*", "*"), new AIMLTemplate(
+                "<template>Hi you</template>"));
+    }
+
+    /**
+     * Test pro {@link WordTree#getStatistics()}.
+     */
+    @Test
+    public void testWordTreeStatistics() {
+        final StructureStatistics statistics = tree.getStatistics();
+
+        assertEquals(NODE_COUNT, statistics.getNodeCount());
+        assertEquals(MAX_DEPTH, statistics.getMaxDepth());
+        assertEquals(Integer.valueOf(1), statistics.getDepthDistribution()
+                .get(0));
+        assertEquals(Integer.valueOf(2), statistics.getBranchingHistogram()
+                .get(0));
+        assertEquals(Integer.valueOf(1), statistics.getBranchingHistogram()
+                .get(2));
+        assertEquals(5, statistics.getDistinctWordCount());
+        assertEquals(2, statistics.getTemplateCount());
+        assertEquals(StructureStatistics.CHAR_BYTES
+                * ("<template>Hi</template>".length() + "<template>Hi you</template>"
+                        .length()), statistics.getTemplateBytes());
+        assertEquals(NODE_COUNT, statistics.getCoreHistogram().getTotal());
+        assertEquals(NODE_COUNT - 1, statistics.getCoreHistogram()
+                .getEntriesTotal());
+        assertEquals(1, statistics.getCoreHistogram().getCount(
+                ArrayCore.class, 2));
+        assertTrue(statistics.getEstimatedHeapSize() > statistics
+                .getTemplateBytes());
+    }
+
+    /**
+     * Test pro {@link FrozenWordTree#getStatistics()}.
+     */
+    @Test
+    public void testFrozenWordTreeStatisticsHasSameShape() {
+        final StructureStatistics expected = tree.getStatistics();
+        final StructureStatistics actual = tree.freeze().getStatistics();
+
+        assertEquals(expected.getNodeCount(), actual.getNodeCount());
+        assertEquals(expected.getDepthDistribution(),
+                actual.getDepthDistribution());
+        assertEquals(expected.getBranchingHistogram(),
+                actual.getBranchingHistogram());
+        assertEquals(expected.getDistinctWordCount(),
+                actual.getDistinctWordCount());
+        assertEquals(expected.getTemplateBytes(), actual.getTemplateBytes());
+        assertEquals(0, actual.getCoreHistogram().getTotal());
+    }
+
+    /**
+     * Test pro {@link StructureStatistics#merge(StructureStatistics)}.
+     */
+    @Test
+    public void testMerge() {
+        final StructureStatistics first = new StructureStatistics();
+        first.addNode(0, 1);
+        first.addWord("A");
+        first.addTemplate(4);
+        first.addHeapSize(10);
+
+        final StructureStatistics second = new StructureStatistics();
+        second.addNode(0, 2);
+        second.addNode(1, 0);
+        second.addWord("A");
+        second.addWord("B");
+        second.addHeapSize(5);
+
+        first.merge(second);
+
+        assertEquals(3, first.getNodeCount());
+        assertEquals(Integer.valueOf(2), first.getDepthDistribution().get(0));
+        assertEquals(1, first.getMaxDepth());
+        assertEquals(Integer.valueOf(1), first.getBranchingHistogram().get(2));
+        assertEquals(2, first.getDistinctWordCount());
+        assertEquals(1, first.getTemplateCount());
+        assertEquals(4, first.getTemplateBytes());
+        assertEquals(15, first.getEstimatedHeapSize());
+    }
+
+    /**
+     * Test pro {@link OverlayStructure#getStatistics()}.
+     */
+    @Test
+    public void testOverlayStatisticsCombinesBoth() {
+        final OverlayStructure overlay =
+                new OverlayStructure(tree, new WordTree(
+                        new FrugalMapperFactory()));
+        overlay.add(new AIMLInputPath("BYE", "*", "*"), new AIMLTemplate(
+                "<template>Bye</template>"));
+
+        final StructureStatistics statistics = overlay.getStatistics();
+
+        assertEquals(3, statistics.getTemplateCount());
+        assertEquals(6, statistics.getDistinctWordCount());
+    }
+}
@@ -210,4 +210,100 @@ public final class SuccesfulResultTest {
         result.addStarMatchedPart(partMock, null);
     }
 
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.storage.SuccesfulResult#addWildcardPosition(PartMarker, Word, int, int)}
+     * .
+     */
+    @Test(expected = NullPointerException.class)
+    public void testAddWildcardPositionWhenWildcardNull() {
+        result.addWildcardPosition(AIMLPartMarker.PATTERN, null, 0, 1);
+    }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.storage.SuccesfulResult#addWildcardPosition(PartMarker, Word, int, int)}
+     * .
+     */
+    @Test(expected = NullPointerException.class)
+    public void testAddWildcardPositionWhenPartNull() {
+        result.addWildcardPosition(null, AIMLWildcard.ASTERISK, 0, 1);
+    }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.storage.SuccesfulResult#comparePriority(MatchResult)}
+     * .
+     */
+    @Test
+    public void testComparePriorityWhenOtherFailedReturnsNegative() {
+        assertTrue(result.comparePriority(FailedResult.getInstance()) < 0);
+    }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.storage.SuccesfulResult#comparePriority(MatchResult)}
+     * .
+     */
+    @Test
+    public void testComparePriorityWhenSamePositionsReturnsZero() {
+        final SuccesfulResult other = new SuccesfulResult(templateMock);
+        other.addWildcardPosition(AIMLPartMarker.PATTERN,
+                AIMLWildcard.ASTERISK, 2, 4);
+        result.addWildcardPosition(AIMLPartMarker.PATTERN,
+                AIMLWildcard.ASTERISK, 2, 4);
+
+        assertEquals(0, result.comparePriority(other));
+    }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.storage.SuccesfulResult#comparePriority(MatchResult)}
+     * .
+     */
+    @Test
+    public void testComparePriorityWhenUnderscoreAgainstWordWins() {
+        final SuccesfulResult other = new SuccesfulResult(templateMock);
+        result.addWildcardPosition(AIMLPartMarker.PATTERN,
+                AIMLWildcard.UNDERSCORE, 1, 3);
+
+        assertTrue(result.comparePriority(other) < 0);
+        assertTrue(other.comparePriority(result) > 0);
+    }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.storage.SuccesfulResult#comparePriority(MatchResult)}
+     * .
+     */
+    @Test
+    public void testComparePriorityWhenEarlierAsteriskLoses() {
+        final SuccesfulResult other = new SuccesfulResult(templateMock);
+        other.addWildcardPosition(AIMLPartMarker.PATTERN,
+                AIMLWildcard.ASTERISK, 3, 4);
+        result.addWildcardPosition(AIMLPartMarker.PATTERN,
+                AIMLWildcard.ASTERISK, 1, 2);
+
+        assertTrue(result.comparePriority(other) > 0);
+    }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.storage.SuccesfulResult#comparePriority(MatchResult)}
+     * .
+     */
+    @Test
+    public void testComparePriorityWhenSameStartShorterWins() {
+        final SuccesfulResult other = new SuccesfulResult(templateMock);
+        other.addWildcardPosition(AIMLPartMarker.PATTERN,
+                AIMLWildcard.ASTERISK, 5, 6);
+        other.addWildcardPosition(AIMLPartMarker.PATTERN,
+                AIMLWildcard.ASTERISK, 0, 3);
+        result.addWildcardPosition(AIMLPartMarker.PATTERN,
+                AIMLWildcard.ASTERISK, 0, 1);
+
+        assertTrue(result.comparePriority(other) < 0);
+        assertTrue(other.comparePriority(result) > 0);
+    }
+
 }
@@ -0,0 +1,150 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertSame;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.UnitTest;
+
+/**
+ * Testuje strukturu s vyměnitelným obsahem.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see SwappableStructure
+ */
+@Category(UnitTest.class)
+public final class SwappableStructureTest {
+
+    /**
+     * Počáteční struktura.
+     */
+    private MatchingStructure initialMock = null;
+
+    /**
+     * Nahrazující struktura.
+     */
+    private MatchingStructure replacementMock = null;
+
+    /**
+     * Vstupní cesta.
+     */
+    private InputPath pathStub = null;
+
+    /**
+     * Testovaná struktura.
+     */
+    private SwappableStructure structure = null;
+
+    /**
+     * Nastaví testovanou strukturu.
+     */
+    @Before
+    public void setUp() {
+        initialMock = createMock(MatchingStructure.class);
+        replacementMock = createMock(MatchingStructure.class);
+        pathStub = createMock(InputPath.class);
+        replay(pathStub);
+
+        structure = new SwappableStructure(initialMock);
+    }
+
+    /**
+     * Uklidí testovanou strukturu.
+     */
+    @After
+    public void tearDown() {
+        initialMock = null;
+        replacementMock = null;
+        pathStub = null;
+        structure = null;
+    }
+
+    /**
+     * Test method for
+     * {@link SwappableStructure#SwappableStructure(MatchingStructure)}.
+     */
+    @Test(expected = NullPointerException.class)
+    public void testSwappableStructureWhenNull() {
+        new SwappableStructure(null);
+    }
+
+    /**
+     * Test method for {@link SwappableStructure#find(InputPath)}.
+     */
+    @Test
+    public void testFindDelegatesToCurrent() {
+        final MatchResult result = createMock(MatchResult.class);
+        expect(initialMock.find(pathStub)).andReturn(result);
+        replay(initialMock, replacementMock);
+
+        assertSame(result, structure.find(pathStub));
+
+        verify(initialMock, replacementMock);
+    }
+
+    /**
+     * Test method for {@link SwappableStructure#swap(MatchingStructure)}.
+     */
+    @Test
+    public void testSwapPublishesReplacement() {
+        final MatchResult result = createMock(MatchResult.class);
+        expect(initialMock.getCategoryCount()).andStubReturn(1);
+        expect(replacementMock.getCategoryCount()).andStubReturn(2);
+        expect(replacementMock.find(pathStub)).andReturn(result);
+        replay(initialMock, replacementMock);
+
+        assertSame(initialMock, structure.swap(replacementMock));
+        assertSame(replacementMock, structure.getCurrent());
+        assertSame(result, structure.find(pathStub));
+
+        verify(initialMock, replacementMock);
+    }
+
+    /**
+     * Test method for {@link SwappableStructure#swap(MatchingStructure)}.
+     */
+    @Test(expected = NullPointerException.class)
+    public void testSwapWhenNull() {
+        structure.swap(null);
+    }
+
+    /**
+     * Test method for {@link SwappableStructure#add(InputPath, Template)}.
+     */
+    @Test
+    public void testAddDelegatesToCurrent() {
+        final Template templateStub = createMock(Template.class);
+        initialMock.add(pathStub, templateStub);
+        replay(initialMock, replacementMock, templateStub);
+
+        structure.add(pathStub, templateStub);
+
+        verify(initialMock, replacementMock);
+    }
+}
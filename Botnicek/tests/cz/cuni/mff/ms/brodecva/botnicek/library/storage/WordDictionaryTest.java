@@ -0,0 +1,113 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.SimpleNormalizer;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.UnitTest;
+
+/**
+ * Testuje globální slovník slov.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see WordDictionary
+ */
+@Category(UnitTest.class)
+public final class WordDictionaryTest {
+
+    /**
+     * Slovník.
+     */
+    private final WordDictionary dictionary = WordDictionary.getDictionary();
+
+    /**
+     * Test pro {@link WordDictionary#intern(String)}.
+     */
+    @Test
+    public void testInternWhenRepeatedReturnsSameId() {
+        final int first = dictionary.intern("WORDDICTIONARYTESTREPEATED");
+
+        assertEquals(first, dictionary.intern("WORDDICTIONARYTESTREPEATED"));
+        assertEquals(first, dictionary.lookup("WORDDICTIONARYTESTREPEATED"));
+        assertEquals("WORDDICTIONARYTESTREPEATED", dictionary.getValue(first));
+    }
+
+    /**
+     * Test pro {@link WordDictionary#lookup(String)}.
+     */
+    @Test
+    public void testLookupWhenAbsentDoesNotGrow() {
+        final int size = dictionary.getSize();
+
+        assertEquals(WordDictionary.UNKNOWN,
+                dictionary.lookup("WORDDICTIONARYTESTABSENT"));
+        assertEquals(size, dictionary.getSize());
+    }
+
+    /**
+     * Test pro {@link WordDictionary#lookup(Word)}.
+     */
+    @Test
+    public void testLookupWhenReservedWordsReturnsDistinctReservedIds() {
+        assertEquals(AIMLWildcard.UNDERSCORE.getId(),
+                dictionary.lookup(AIMLWildcard.UNDERSCORE.getValue()));
+        assertEquals(AIMLWildcard.ASTERISK.getId(),
+                dictionary.lookup(AIMLWildcard.ASTERISK.getValue()));
+        assertEquals(AIMLPartMarker.THAT.getId(),
+                dictionary.lookup(AIMLPartMarker.THAT.getValue()));
+        assertEquals(AIMLPartMarker.TOPIC.getId(),
+                dictionary.lookup(AIMLPartMarker.TOPIC.getValue()));
+        assertNotEquals(AIMLPartMarker.PATTERN.getId(),
+                AIMLPartMarker.TEMPLATE.getId());
+        assertTrue(AIMLPartMarker.UNDEFINED.getId() < WordDictionary.RESERVED_COUNT);
+    }
+
+    /**
+     * Test pro {@link AIMLWordFactory#AIMLWordFactory(cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.Normalizer, boolean)}.
+     */
+    @Test
+    public void testWordsWhenInternedAndLookedUpShareId() {
+        final SimpleNormalizer normalizer = new SimpleNormalizer();
+        final AIMLWord before =
+                new AIMLWord("WORDDICTIONARYTESTLATE", normalizer);
+        assertEquals(WordDictionary.UNKNOWN, before.getId());
+        
+        final Word interned =
+                new AIMLWordFactory(normalizer, true)
+                        .create("WORDDICTIONARYTESTLATE");
+        final Word lookedUp =
+                new AIMLWordFactory(normalizer)
+                        .create("WORDDICTIONARYTESTLATE");
+
+        assertEquals(((IndexedWord) interned).getId(),
+                ((IndexedWord) lookedUp).getId());
+        assertEquals(((IndexedWord) interned).getId(), before.getId());
+        assertEquals(interned, lookedUp);
+        assertFalse(interned.equals(new AIMLWord("WORDDICTIONARYTESTOTHER",
+                normalizer, true)));
+    }
+}
@@ -0,0 +1,194 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.loader.LoaderException;
+import cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.SimpleNormalizer;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.AliceSet;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.IntegrationTest;
+
+/**
+ * Počítá alokace při hledání v rozsáhlém stromu sady ALICE. Hledání posouvá
+ * index nad jediným polem slov, takže neúspěšné větve nesmí alokovat nic a
+ * úspěšné hledání jen výsledek se zachycenými částmi.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see WordNode#find(InputPath, PartMarker)
+ */
+@Category(IntegrationTest.class)
+public final class WordNodeAllocationTest {
+
+    /**
+     * Počet zahřívacích kol před měřením.
+     */
+    private static final int WARM_UP_ROUNDS = 5000;
+
+    /**
+     * Počet měřených hledání pro každý vstup.
+     */
+    private static final int MEASURED_ROUNDS = 1000;
+
+    /**
+     * Horní mez alokovaných bajtů na jedno neúspěšné hledání. Pokrývá pouze
+     * pole slov a iterátor cesty, nezávisí na počtu navštívených větví.
+     */
+    private static final long FAILED_FIND_BYTES_LIMIT = 256;
+
+    /**
+     * Horní mez alokovaných bajtů na jedno úspěšné hledání. Původní
+     * implementace přes {@link InputPath#tail()} alokovala na stejných
+     * vstupech 1,3 až 4,5 kB.
+     */
+    private static final long SUCCESFUL_FIND_BYTES_LIMIT = 1024;
+
+    /**
+     * Logger knihovny, jehož úroveň se během měření zvyšuje.
+     */
+    private static final Logger LIBRARY_LOGGER = Logger
+            .getLogger("cz.cuni.mff.ms.brodecva.botnicek.library");
+
+    /**
+     * Měřič alokací vlákna.
+     */
+    private com.sun.management.ThreadMXBean threadBean = null;
+
+    /**
+     * Původní úroveň loggeru knihovny.
+     */
+    private Level originalLevel = null;
+
+    /**
+     * Strom se sadou ALICE.
+     */
+    private WordTree tree = null;
+
+    /**
+     * Připraví strom a měřič.
+     * 
+     * @throws LoaderException
+     *             chyba při načítání sady
+     */
+    @Before
+    public void setUp() throws LoaderException {
+        final java.lang.management.ThreadMXBean bean =
+                ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+
+        threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        originalLevel = LIBRARY_LOGGER.getLevel();
+        LIBRARY_LOGGER.setLevel(Level.WARNING);
+
+        tree = AliceSet.getWordTree();
+    }
+
+    /**
+     * Obnoví úroveň loggeru.
+     */
+    @After
+    public void tearDown() {
+        LIBRARY_LOGGER.setLevel(originalLevel);
+
+        tree = null;
+        threadBean = null;
+    }
+
+    /**
+     * Změří průměrný počet alokovaných bajtů na jedno hledání.
+     * 
+     * @param path
+     *            hledaná cesta
+     * @return průměrně alokované bajty
+     */
+    private long measureBytesPerFind(final InputPath path) {
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            tree.find(path);
+        }
+
+        final long threadId = Thread.currentThread().getId();
+        final long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            tree.find(path);
+        }
+        final long after = threadBean.getThreadAllocatedBytes(threadId);
+
+        return (after - before) / MEASURED_ROUNDS;
+    }
+
+    /**
+     * Test pro {@link WordTree#find(InputPath)} s úspěšnými vstupy.
+     */
+    @Test
+    public void testFindWhenSuccesfulAllocatesOnlyResult() {
+        final List<InputPath> paths = new ArrayList<InputPath>();
+        for (final String input : AliceSet.SAMPLE_INPUTS) {
+            paths.add(new AIMLInputPath(input, "*", "*"));
+        }
+
+        for (final InputPath path : paths) {
+            assertTrue(tree.find(path).isSuccesful());
+
+            final long bytes = measureBytesPerFind(path);
+            assertTrue(path + ": " + bytes + " B",
+                    bytes <= SUCCESFUL_FIND_BYTES_LIMIT);
+        }
+    }
+
+    /**
+     * Test pro {@link WordTree#find(InputPath)} se vstupem bez oddělovačů
+     * částí, který nelze přiřadit žádné kategorii, přestože prohledá mnoho
+     * větví.
+     */
+    @Test
+    public void testFindWhenFailedAllocatesNothingPerBranch() {
+        final WordFactory factory =
+                new AIMLWordFactory(new SimpleNormalizer());
+        final InputPath path =
+                new AIMLInputPath(Arrays.asList(factory.create("WHAT"),
+                        factory.create("IS"), factory.create("YOUR"),
+                        factory.create("NAME")));
+
+        final MatchResult result = tree.find(path);
+        assertFalse(result.isSuccesful());
+        assertSame(FailedResult.getInstance(), result);
+
+        final long bytes = measureBytesPerFind(path);
+        assertTrue(bytes + " B", bytes <= FAILED_FIND_BYTES_LIMIT);
+    }
+}
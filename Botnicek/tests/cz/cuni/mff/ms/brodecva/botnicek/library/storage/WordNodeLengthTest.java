@@ -0,0 +1,186 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.FrugalMapperFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.UnitTest;
+
+/**
+ * Testuje meze délek zbytku vstupní cesty v uzlech a hledání, které podle nich
+ * vynechává podstromy.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see WordNode
+ */
+@Category(UnitTest.class)
+public final class WordNodeLengthTest {
+
+    /**
+     * Počet slov, která k části vzoru přidá that a téma s hvězdičkou, včetně
+     * značek.
+     */
+    private static final int THAT_AND_TOPIC_LENGTH = 4;
+
+    /**
+     * Testovaný uzel.
+     */
+    private WordNode root = null;
+
+    /**
+     * Vytvoří cestu pro vzor.
+     * 
+     * @param pattern
+     *            vzor
+     * @return cesta s libovolným that a tématem
+     */
+    private static InputPath path(final String pattern) {
+        return new AIMLInputPath(pattern, "*", "*");
+    }
+
+    /**
+     * Vloží do uzlu vzor.
+     * 
+     * @param pattern
+     *            vzor
+     */
+    private void add(final String pattern) {
+        root.add(path(pattern), new AIMLTemplate("<template>" + pattern
+                + "</template>"), AIMLPartMarker.PATTERN,
+                new FrugalMapperFactory());
+    }
+
+    /**
+     * Vytvoří kořen.
+     */
+    @Before
+    public void setUp() {
+        root =
+                new WordNode(0, null, AIMLPartMarker.PATTERN,
+                        new FrugalMapperFactory());
+    }
+
+    /**
+     * Test pro {@link WordNode#getMinLength()} a
+     * {@link WordNode#getMaxPartLength()}.
+     */
+    @Test
+    public void testLengthsWhenEmpty() {
+        assertEquals(WordNode.UNBOUNDED, root.getMinLength());
+        assertEquals(0, root.getMaxPartLength());
+        assertFalse(root.find(path("HELLO"), AIMLPartMarker.PATTERN)
+                .isSuccesful());
+    }
+
+    /**
+     * Test pro {@link WordNode#getMinLength()} a
+     * {@link WordNode#getMaxPartLength()}.
+     */
+    @Test
+    public void testLengthsWhenOnlyWordsCountPatternPartOnly() {
+        add("A B C");
+        add("A B");
+        root.add(new AIMLInputPath("D", "E F G H", "*"), new AIMLTemplate(
+                "<template/>"), AIMLPartMarker.PATTERN,
+                new FrugalMapperFactory());
+
+        assertEquals(2 + THAT_AND_TOPIC_LENGTH, root.getMinLength());
+        assertEquals(3, root.getMaxPartLength());
+    }
+
+    /**
+     * Test pro {@link WordNode#getMaxPartLength()}.
+     */
+    @Test
+    public void testMaxPartLengthWhenWildcardInPartIsUnbounded() {
+        add("A B");
+        add("A _ B");
+
+        assertEquals(WordNode.UNBOUNDED, root.getMaxPartLength());
+    }
+
+    /**
+     * Test pro {@link WordNode#remove(InputPath)}.
+     */
+    @Test
+    public void testRemoveNarrowsLengths() {
+        add("A");
+        add("A B C *");
+
+        root.remove(path("A"));
+        assertEquals(4 + THAT_AND_TOPIC_LENGTH, root.getMinLength());
+
+        root.remove(path("A B C *"));
+        add("A B");
+        assertEquals(2, root.getMaxPartLength());
+        assertEquals(2 + THAT_AND_TOPIC_LENGTH, root.getMinLength());
+    }
+
+    /**
+     * Test pro {@link WordNode#find(InputPath, PartMarker)}.
+     */
+    @Test
+    public void testFindWhenWildcardFollowedByWordsCapturesCorrectly() {
+        add("* YOUR NAME");
+        add("WHAT IS *");
+        add("_ IS RED");
+        add("*");
+
+        final MatchResult result =
+                root.find(path("TELL ME WHAT IS YOUR NAME"),
+                        AIMLPartMarker.PATTERN);
+        assertEquals("<template>* YOUR NAME</template>", result
+                .getTemplate().getValue());
+        assertEquals(Arrays.asList("TELL ME WHAT IS"),
+                result.getStarMatchedParts(AIMLPartMarker.PATTERN));
+
+        final MatchResult longer =
+                root.find(path("WHAT IS THE COLOUR OF THE SKY AT NIGHT"),
+                        AIMLPartMarker.PATTERN);
+        assertEquals("<template>WHAT IS *</template>", longer.getTemplate()
+                .getValue());
+        assertEquals(Arrays.asList("THE COLOUR OF THE SKY AT NIGHT"),
+                longer.getStarMatchedParts(AIMLPartMarker.PATTERN));
+    }
+
+    /**
+     * Test pro {@link WordNode#find(InputPath, PartMarker)}.
+     */
+    @Test
+    public void testFindWhenPatternTooLongForWordsFallsBackToWildcard() {
+        add("WHAT IS YOUR NAME");
+        add("*");
+
+        assertEquals("<template>*</template>", root
+                .find(path("WHAT IS YOUR NAME AGAIN"), AIMLPartMarker.PATTERN)
+                .getTemplate().getValue());
+        assertEquals("<template>*</template>", root
+                .find(path("WHAT IS YOUR"), AIMLPartMarker.PATTERN)
+                .getTemplate().getValue());
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.FrugalMapperFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.UnitTest;
+
+/**
+ * Testuje hledání nezávislé na kontextu a doplnění jeho výsledku o kontext.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see WordTree#findContextFree(InputPath)
+ * @see ContextFreeMatch
+ */
+@Category(UnitTest.class)
+public final class WordTreeContextFreeTest {
+
+    /**
+     * Vzory vkládané do stromu s libovolným that a tématem.
+     */
+    private static final String[] PATTERNS = { "HELLO *", "_ THERE",
+            "WHAT IS *", "WHAT IS YOUR NAME", "*" };
+
+    /**
+     * Kontexty (that a téma), pro které se výsledky porovnávají.
+     */
+    private static final String[][] CONTEXTS = { { null, null },
+            { "WHAT IS YOUR NAME", null }, { "YES", "GREETINGS" },
+            { null, "SOME LONGER TOPIC" } };
+
+    /**
+     * Testovaný strom.
+     */
+    private WordTree tree = null;
+
+    /**
+     * Vytvoří cestu pro vzor.
+     * 
+     * @param pattern
+     *            vzor
+     * @return cesta s libovolným that a tématem
+     */
+    private static InputPath path(final String pattern) {
+        return new AIMLInputPath(pattern, null, null);
+    }
+
+    /**
+     * Naplní strom.
+     */
+    @Before
+    public void setUp() {
+        tree = new WordTree(new FrugalMapperFactory());
+        for (int i = 0; i < PATTERNS.length; i++) {
+            tree.add(path(PATTERNS[i]), new AIMLTemplate("<template>" + i
+                    + "</template>"));
+        }
+    }
+
+    /**
+     * Ověří, že doplněný výsledek odpovídá úplnému hledání ve všech
+     * kontextech.
+     * 
+     * @param input
+     *            vstup
+     */
+    private void assertBindsAsFind(final String input) {
+        final ContextFreeMatch match = tree.findContextFree(path(input));
+        assertNotNull(match);
+
+        for (final String[] context : CONTEXTS) {
+            final InputPath path =
+                    new AIMLInputPath(input, context[0], context[1]);
+
+            final MatchResult bound = match.bind(path);
+            final MatchResult found = tree.find(path);
+
+            assertSame(found.getTemplate(), bound.getTemplate());
+            for (final PartMarker part : new PartMarker[] {
+                    AIMLPartMarker.PATTERN, AIMLPartMarker.THAT,
+                    AIMLPartMarker.TOPIC }) {
+                assertEquals(found.getStarMatchedParts(part),
+                        bound.getStarMatchedParts(part));
+            }
+            assertEquals(0, bound.comparePriority(found));
+            assertEquals(0, found.comparePriority(bound));
+        }
+    }
+
+    /**
+     * Test pro {@link WordTree#findContextFree(InputPath)} a
+     * {@link ContextFreeMatch#bind(InputPath)}.
+     */
+    @Test
+    public void testFindContextFreeWhenOnlyWildcardContextsBindsAsFind() {
+        assertBindsAsFind("HELLO");
+        assertBindsAsFind("HELLO THERE");
+        assertBindsAsFind("WHAT IS YOUR NAME");
+        assertBindsAsFind("WHAT IS THE TIME NOW");
+        assertBindsAsFind("UNKNOWN WORDS");
+    }
+
+    /**
+     * Test pro {@link WordTree#findContextFree(InputPath)}.
+     */
+    @Test
+    public void testFindContextFreeWhenThatCompetitorReturnsNull() {
+        tree.add(new AIMLInputPath("WHAT IS YOUR NAME", "YES", null),
+                new AIMLTemplate("<template>that</template>"));
+
+        assertNull(tree.findContextFree(path("WHAT IS YOUR NAME")));
+        assertNotNull(tree.findContextFree(path("WHAT IS THE TIME")));
+    }
+
+    /**
+     * Test pro {@link WordTree#findContextFree(InputPath)}.
+     */
+    @Test
+    public void testFindContextFreeWhenEarlierBranchDependsOnTopicReturnsNull() {
+        tree.add(new AIMLInputPath("_ NAME", null, "GREETINGS"),
+                new AIMLTemplate("<template>topic</template>"));
+
+        assertNull(tree.findContextFree(path("WHAT IS YOUR NAME")));
+        assertEquals(new AIMLTemplate("<template>topic</template>"), tree
+                .find(new AIMLInputPath("WHAT IS YOUR NAME", "YES",
+                        "GREETINGS")).getTemplate());
+    }
+
+    /**
+     * Test pro {@link ContextFreeMatch#bind(InputPath)}.
+     */
+    @Test
+    public void testBindWhenThatEmptyReturnsNull() {
+        final InputPath path = path("HELLO");
+        final ContextFreeMatch match = tree.findContextFree(path);
+
+        final List<Word> withoutThat = new ArrayList<Word>();
+        for (final Word word : path) {
+            withoutThat.add(word);
+        }
+        withoutThat.remove(withoutThat.indexOf(AIMLPartMarker.THAT) + 1);
+
+        assertNull(match.bind(new AIMLInputPath(withoutThat)));
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.FrugalMapperFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.UnitTest;
+
+/**
+ * Testuje odstraňování a nahrazování kategorií ve stromu.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see WordTree
+ * @see WordNode
+ */
+@Category(UnitTest.class)
+public final class WordTreeRemovalTest {
+
+    /**
+     * Vzory vkládané do stromu.
+     */
+    private static final String[] PATTERNS = { "HELLO", "HELLO *",
+            "_ THERE", "WHAT IS *", "WHAT IS YOUR NAME", "A B C D E F", "*" };
+
+    /**
+     * Vzory, které se vkládají navíc a poté odstraňují.
+     */
+    private static final String[] EXTRA_PATTERNS = { "WHAT IS YOUR FAVOURITE COLOR",
+            "HELLO THERE MY FRIEND", "B", "C", "D", "E", "F", "G" };
+
+    /**
+     * Testovaný strom.
+     */
+    private WordTree tree = null;
+
+    /**
+     * Šablony vložené pro vzory z {@link #PATTERNS}.
+     */
+    private Template[] templates = null;
+
+    /**
+     * Vytvoří cestu pro vzor.
+     * 
+     * @param pattern
+     *            vzor
+     * @return cesta s libovolným that a tématem
+     */
+    private static InputPath path(final String pattern) {
+        return new AIMLInputPath(pattern, null, null);
+    }
+
+    /**
+     * Naplní strom.
+     */
+    @Before
+    public void setUp() {
+        tree = new WordTree(new FrugalMapperFactory());
+        templates = new Template[PATTERNS.length];
+        for (int i = 0; i < PATTERNS.length; i++) {
+            templates[i] = new AIMLTemplate("<template>" + i + "</template>");
+            tree.add(path(PATTERNS[i]), templates[i]);
+        }
+    }
+
+    /**
+     * Test pro {@link WordTree#remove(InputPath)}.
+     */
+    @Test
+    public void testRemoveWhenPresentFallsBackToWildcard() {
+        final Template removed = tree.remove(path("WHAT IS YOUR NAME"));
+
+        assertSame(templates[4], removed);
+        assertEquals(PATTERNS.length - 1, tree.getCategoryCount());
+        assertEquals(templates[3],
+                tree.find(new AIMLInputPath("WHAT IS YOUR NAME", "*", "*"))
+                        .getTemplate());
+    }
+
+    /**
+     * Test pro {@link WordTree#remove(InputPath)}.
+     */
+    @Test
+    public void testRemoveWhenAbsentReturnsNull() {
+        assertNull(tree.remove(path("WHAT IS")));
+        assertNull(tree.remove(path("UNKNOWNWORDINREMOVALTEST")));
+
+        assertEquals(PATTERNS.length, tree.getCategoryCount());
+        assertTrue(tree.find(new AIMLInputPath("WHAT IS YOUR NAME", "*", "*"))
+                .isSuccesful());
+    }
+
+    /**
+     * Test pro {@link WordTree#remove(InputPath)}.
+     */
+    @Test
+    public void testRemoveWhenExtraRemovedPrunesToSameShape() {
+        final int nodeCount = tree.freeze().getNodeCount();
+
+        for (final String pattern : EXTRA_PATTERNS) {
+            tree.add(path(pattern), new AIMLTemplate("<template/>"));
+        }
+        for (final String pattern : EXTRA_PATTERNS) {
+            assertTrue(tree.remove(path(pattern)) != null);
+        }
+
+        assertEquals(PATTERNS.length, tree.getCategoryCount());
+        assertEquals(nodeCount, tree.freeze().getNodeCount());
+        assertFalse(tree.find(new AIMLInputPath("G", "*", "*")).getTemplate()
+                .equals(new AIMLTemplate("<template/>")));
+    }
+
+    /**
+     * Test pro {@link WordTree#remove(InputPath)}.
+     */
+    @Test
+    public void testRemoveWhenAllRemovedLeavesOnlyRoot() {
+        for (final String pattern : PATTERNS) {
+            tree.remove(path(pattern));
+        }
+
+        assertEquals(0, tree.getCategoryCount());
+        assertEquals(1, tree.freeze().getNodeCount());
+        assertFalse(tree.find(new AIMLInputPath("HELLO", "*", "*"))
+                .isSuccesful());
+    }
+
+    /**
+     * Test pro {@link WordTree#replace(InputPath, Template)}.
+     */
+    @Test
+    public void testReplaceWhenPresentKeepsCount() {
+        final Template replacement = new AIMLTemplate("<template>new</template>");
+
+        final Template previous = tree.replace(path("HELLO"), replacement);
+
+        assertSame(templates[0], previous);
+        assertEquals(PATTERNS.length, tree.getCategoryCount());
+        assertSame(replacement,
+                tree.find(new AIMLInputPath("HELLO", "*", "*")).getTemplate());
+    }
+
+    /**
+     * Test pro {@link WordTree#replace(InputPath, Template)}.
+     */
+    @Test
+    public void testReplaceWhenAbsentAdds() {
+        assertNull(tree.replace(path("GOODBYE"), new AIMLTemplate(
+                "<template/>")));
+
+        assertEquals(PATTERNS.length + 1, tree.getCategoryCount());
+    }
+
+    /**
+     * Test pro {@link WordNode#remove(InputPath)}.
+     */
+    @Test
+    public void testRemoveWhenLongestPathRemovedLowersMaxHeight() {
+        final WordNode node =
+                new WordNode(0, null, AIMLPartMarker.PATTERN,
+                        new FrugalMapperFactory());
+        final InputPath shorter = new AIMLInputPath("A B", null, null);
+        final InputPath longer = new AIMLInputPath("A B C D", null, null);
+        node.add(shorter, new AIMLTemplate("<template/>"),
+                AIMLPartMarker.PATTERN, new FrugalMapperFactory());
+        final int shorterHeight = node.getMaxHeight();
+        node.add(longer, new AIMLTemplate("<template/>"),
+                AIMLPartMarker.PATTERN, new FrugalMapperFactory());
+        assertTrue(node.getMaxHeight() > shorterHeight);
+
+        node.remove(longer);
+        assertEquals(shorterHeight, node.getMaxHeight());
+
+        node.remove(shorter);
+        assertEquals(0, node.getMaxHeight());
+        assertTrue(node.getBranchWords().isEmpty());
+    }
+}
@@ -578,4 +578,50 @@ public abstract class AbstractArrayCoreTest<K, V> {
         }
     }
 
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.ArrayCore#remove(Object)}
+     * .
+     */
+    @Test
+    public final void testRemoveWhenPresentReturnsValueAndKeepsOthers() {
+        final K[] uniqueKeys = getUniqueValidKeys(CHOSEN_CAPACITY);
+        final V[] uniqueValues = getUniqueValidValues(CHOSEN_CAPACITY);
+
+        for (int i = 0; i < CHOSEN_CAPACITY; i++) {
+            core.put(uniqueKeys[i], uniqueValues[i]);
+        }
+
+        assertSame(uniqueValues[0], core.remove(uniqueKeys[0]));
+        assertNull(core.remove(uniqueKeys[0]));
+
+        assertEquals(CHOSEN_CAPACITY - 1, core.getSize());
+        assertNull(core.get(uniqueKeys[0]));
+        for (int i = 1; i < CHOSEN_CAPACITY; i++) {
+            assertSame(uniqueValues[i], core.get(uniqueKeys[i]));
+        }
+    }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.ArrayCore#shrink()}
+     * .
+     */
+    @Test
+    public final void testShrinkWhenOneEntryLeftReturnsSingleEntryCore() {
+        final K[] uniqueKeys = getUniqueValidKeys(CHOSEN_CAPACITY);
+        final V[] uniqueValues = getUniqueValidValues(CHOSEN_CAPACITY);
+
+        for (int i = 0; i < CHOSEN_CAPACITY; i++) {
+            core.put(uniqueKeys[i], uniqueValues[i]);
+        }
+        for (int i = 1; i < CHOSEN_CAPACITY; i++) {
+            core.remove(uniqueKeys[i]);
+        }
+
+        final MapperCore<K, V> result = core.shrink();
+
+        assertTrue(result instanceof SingleEntryCore);
+        assertSame(uniqueValues[0], result.get(uniqueKeys[0]));
+    }
 }
@@ -0,0 +1,142 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage.map;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLInputPath;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLTemplate;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.WordTree;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.UnitTest;
+
+/**
+ * Testuje histogram jader map a zhušťování map, které jej plní.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see CoreHistogram
+ */
+@Category(UnitTest.class)
+public final class CoreHistogramTest {
+
+    /**
+     * Počet prvků, který vyžaduje jádro s hašovací tabulkou.
+     */
+    private static final int LARGE_SIZE = 10;
+
+    /**
+     * Test pro {@link CoreHistogram#record(MapperCore)}.
+     */
+    @Test
+    public void testRecord() {
+        final CoreHistogram histogram = new CoreHistogram();
+        final ArrayCore<String, String> array = new ArrayCore<String, String>();
+        array.put("first", "1");
+        array.put("second", "2");
+
+        histogram.record(array);
+        histogram.record(array);
+        histogram.record(new SingleEntryCore<String, String>());
+
+        assertEquals(3, histogram.getTotal());
+        assertEquals(4, histogram.getEntriesTotal());
+        assertEquals(2, histogram.getCount(ArrayCore.class));
+        assertEquals(2, histogram.getCount(ArrayCore.class, 2));
+        assertEquals(0, histogram.getCount(ArrayCore.class, 3));
+        assertEquals(1, histogram.getCount(SingleEntryCore.class, 0));
+        assertEquals(0, histogram.getCount(HashMapCore.class));
+    }
+
+    /**
+     * Test pro {@link AdaptiveMapper#compact(CoreHistogram)}.
+     */
+    @Test
+    public void testCompactWhenOversizedFitsExactly() {
+        final AdaptiveMapper<String, String> mapper =
+                new AdaptiveMapper<String, String>(
+                        new HashMapCore<String, String>(LARGE_SIZE));
+        mapper.put("first", "1");
+        mapper.put("second", "2");
+        final CoreHistogram histogram = new CoreHistogram();
+
+        mapper.compact(histogram);
+
+        assertEquals(2, mapper.getCapacity());
+        assertEquals("1", mapper.get("first"));
+        assertEquals("2", mapper.get("second"));
+        assertEquals(1, histogram.getCount(ArrayCore.class, 2));
+    }
+
+    /**
+     * Test pro {@link AdaptiveMapper#compact(CoreHistogram)}.
+     */
+    @Test
+    public void testCompactWhenLargeUsesTable() {
+        final AdaptiveMapper<String, String> mapper =
+                new AdaptiveMapper<String, String>(
+                        new SingleEntryCore<String, String>());
+        for (int i = 0; i < LARGE_SIZE; i++) {
+            mapper.put("key" + i, "value" + i);
+        }
+        final CoreHistogram histogram = new CoreHistogram();
+
+        mapper.compact(histogram);
+
+        assertEquals(LARGE_SIZE, mapper.getSize());
+        for (int i = 0; i < LARGE_SIZE; i++) {
+            assertEquals("value" + i, mapper.get("key" + i));
+        }
+        assertEquals(1, histogram.getCount(HashMapCore.class, LARGE_SIZE));
+    }
+
+    /**
+     * Test pro {@link WordTree#compact()}.
+     */
+    @Test
+    public void testCompactTreeKeepsMatches() {
+        final WordTree tree = new WordTree(new FrugalMapperFactory());
+        tree.add(new AIMLInputPath("HELLO", "*", "*"), new AIMLTemplate(
+                "<template>1</template>"));
+        tree.add(new AIMLInputPath("HELLO *", "*", "*"), new AIMLTemplate(
+                "<template>2</template>"));
+
+        final CoreHistogram histogram = tree.compact();
+
+        assertEquals(
+                "<template>2</template>",
+                tree.find(new AIMLInputPath("HELLO THERE", "*", "*"))
+                        .getTemplate().getValue());
+        assertEquals(
+                "<template>1</template>",
+                tree.find(new AIMLInputPath("HELLO", "*", "*"))
+                        .getTemplate().getValue());
+        assertEquals(1, histogram.getCount(ArrayCore.class, 2));
+        assertEquals(histogram.getTotal() - 1, histogram.getEntriesTotal());
+
+        tree.add(new AIMLInputPath("HELLO YOU", "*", "*"), new AIMLTemplate(
+                "<template>3</template>"));
+        assertEquals(
+                "<template>3</template>",
+                tree.find(new AIMLInputPath("HELLO YOU", "*", "*"))
+                        .getTemplate().getValue());
+    }
+}
@@ -25,7 +25,9 @@ import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -38,8 +40,12 @@ import org.easymock.EasyMock;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.SimpleNormalizer;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLPartMarker;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLWord;
 import cz.cuni.mff.ms.brodecva.botnicek.library.storage.PartMarker;
 import cz.cuni.mff.ms.brodecva.botnicek.library.storage.Word;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.WordDictionary;
 import cz.cuni.mff.ms.brodecva.botnicek.library.storage.WordNode;
 import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.UnitTest;
 
@@ -58,6 +64,11 @@ public final class FrugalMapperFactoryTest {
      */
     private static final int LEAF_DEPTH = 15;
 
+    /**
+     * Počet vkládaných slov, více než pojme {@link ArrayCore}.
+     */
+    private static final int DETACHED_WORDS_COUNT = 16;
+
     /**
      * Test pro
      * {@link cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.FrugalMapperFactory#getMapper(int, cz.cuni.mff.ms.brodecva.botnicek.library.storage.Word, cz.cuni.mff.ms.brodecva.botnicek.library.storage.PartMarker)}
@@ -210,6 +221,38 @@ public final class FrugalMapperFactoryTest {
         new FrugalMapperFactory();
     }
 
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.FrugalMapperFactory#FrugalMapperFactory(boolean)}
+     * .
+     */
+    @Test
+    public void testGetMapperWhenDetachedKeepsDictionarySize() {
+        final FrugalMapperFactory factory = new FrugalMapperFactory(true);
+        final SimpleNormalizer normalizer = new SimpleNormalizer();
+        final WordDictionary dictionary = WordDictionary.getDictionary();
+        final int sizeBefore = dictionary.getSize();
+
+        final Mapper<Word, WordNode> mapper =
+                factory.getMapper(1, new AIMLWord("DETACHED", normalizer),
+                        AIMLPartMarker.PATTERN);
+        final WordNode[] nodes = new WordNode[DETACHED_WORDS_COUNT];
+        for (int i = 0; i < DETACHED_WORDS_COUNT; i++) {
+            final Word word =
+                    new AIMLWord("FRUGALDETACHED" + i, normalizer, false);
+            nodes[i] =
+                    new WordNode(2, word, AIMLPartMarker.PATTERN, factory);
+            mapper.put(word, nodes[i]);
+        }
+
+        assertTrue(factory.isDetached());
+        assertEquals(sizeBefore, dictionary.getSize());
+        for (int i = 0; i < DETACHED_WORDS_COUNT; i++) {
+            assertSame(nodes[i], mapper.get(new AIMLWord("FRUGALDETACHED" + i,
+                    normalizer, false)));
+        }
+    }
+
     /**
      * Test serializace.
      * 
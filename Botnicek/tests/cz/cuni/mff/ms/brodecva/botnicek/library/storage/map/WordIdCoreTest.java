@@ -0,0 +1,260 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.storage.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.SimpleNormalizer;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLPartMarker;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLWildcard;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLWord;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.Word;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.UnitTest;
+
+/**
+ * Testuje {@link WordIdCore}.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ */
+@Category(UnitTest.class)
+public final class WordIdCoreTest {
+
+    /**
+     * Počet vkládaných slov.
+     */
+    private static final int WORDS_COUNT = 1000;
+
+    /**
+     * Normalizér.
+     */
+    private final SimpleNormalizer normalizer = new SimpleNormalizer();
+
+    /**
+     * Prázdné jádro.
+     */
+    private WordIdCore<Word, Object> core = null;
+
+    /**
+     * Vytvoří nové prázdné jádro.
+     */
+    @Before
+    public void setUp() {
+        core = new WordIdCore<Word, Object>();
+    }
+
+    /**
+     * Vytvoří slovo.
+     * 
+     * @param index
+     *            pořadí slova
+     * @param interned
+     *            zda vložit do slovníku
+     * @return slovo
+     */
+    private Word createWord(final int index, final boolean interned) {
+        return new AIMLWord("WORDIDCORETEST" + index, normalizer, interned);
+    }
+
+    /**
+     * Test pro {@link WordIdCore#WordIdCore(int)}.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testWordIdCoreIntWhenNegativeCapacity() {
+        new WordIdCore<Word, Object>(-1);
+    }
+
+    /**
+     * Test pro {@link WordIdCore#put(Object, Object)} a
+     * {@link WordIdCore#get(Object)}.
+     */
+    @Test
+    public void testPutAndGetWhenManyWordsReturnsStoredValues() {
+        final Object[] values = new Object[WORDS_COUNT];
+        for (int i = 0; i < WORDS_COUNT; i++) {
+            values[i] = new Object();
+            assertFalse(core.put(createWord(i, true), values[i]));
+        }
+        
+        assertEquals(WORDS_COUNT, core.getSize());
+        assertEquals(WORDS_COUNT, core.getEntries().size());
+        for (int i = 0; i < WORDS_COUNT; i++) {
+            assertSame(values[i], core.get(createWord(i, false)));
+        }
+        assertNull(core.get(createWord(WORDS_COUNT, false)));
+    }
+
+    /**
+     * Test pro {@link WordIdCore#put(Object, Object)} a
+     * {@link WordIdCore#get(Object)}.
+     */
+    @Test
+    public void testPutWhenKeyNotInDictionaryInternsIt() {
+        final Object value = new Object();
+        core.put(new AIMLWord("WORDIDCORETESTLATEKEY", normalizer), value);
+        
+        assertSame(value, core.get(new AIMLWord("WORDIDCORETESTLATEKEY", normalizer)));
+    }
+
+    /**
+     * Test pro {@link WordIdCore#put(Object, Object)} a
+     * {@link WordIdCore#get(Object)}.
+     */
+    @Test
+    public void testPutWhenReservedWordsKeepsThemDistinct() {
+        final Object asterisk = new Object();
+        final Object underscore = new Object();
+        final Object that = new Object();
+        core.put(AIMLWildcard.ASTERISK, asterisk);
+        core.put(AIMLWildcard.UNDERSCORE, underscore);
+        core.put(AIMLPartMarker.THAT, that);
+
+        assertSame(asterisk, core.get(AIMLWildcard.ASTERISK));
+        assertSame(underscore, core.get(AIMLWildcard.UNDERSCORE));
+        assertSame(that, core.get(AIMLPartMarker.THAT));
+        assertNull(core.get(AIMLPartMarker.TOPIC));
+    }
+
+    /**
+     * Test pro {@link WordIdCore#put(Object, Object)}.
+     */
+    @Test
+    public void testPutWhenSameKeyReplacesValue() {
+        final Object replacement = new Object();
+        core.put(createWord(0, true), new Object());
+        core.put(createWord(0, true), replacement);
+
+        assertEquals(1, core.getSize());
+        assertSame(replacement, core.get(createWord(0, false)));
+    }
+
+    /**
+     * Test pro {@link WordIdCore#put(Object, Object)}.
+     */
+    @Test(expected = NullPointerException.class)
+    public void testPutWhenKeyNull() {
+        core.put(null, new Object());
+    }
+
+    /**
+     * Test pro {@link WordIdCore#resize()}.
+     */
+    @Test
+    public void testResizeReturnsSelf() {
+        core.put(createWord(0, true), new Object());
+
+        assertSame(core, core.resize());
+    }
+
+    /**
+     * Test serializace.
+     * 
+     * @throws IOException
+     *             chyba při zápisu
+     * @throws ClassNotFoundException
+     *             neznámá třída
+     */
+    @Test
+    public void testSerializationRestoresEntries() throws IOException,
+            ClassNotFoundException {
+        for (int i = 0; i < WORDS_COUNT; i++) {
+            core.put(createWord(i, true), Integer.valueOf(i));
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(core);
+        }
+
+        final Object restored;
+        try (final ObjectInputStream in =
+                new ObjectInputStream(new ByteArrayInputStream(
+                        bytes.toByteArray()))) {
+            restored = in.readObject();
+        }
+
+        assertEquals(core, restored);
+        @SuppressWarnings("unchecked")
+        final WordIdCore<Word, Object> restoredCore =
+                (WordIdCore<Word, Object>) restored;
+        assertEquals(Integer.valueOf(WORDS_COUNT - 1),
+                restoredCore.get(createWord(WORDS_COUNT - 1, false)));
+    }
+
+    /**
+     * Test pro {@link WordIdCore#remove(Object)}.
+     */
+    @Test
+    public void testRemoveWhenManyWordsKeepsRemainingReachable() {
+        for (int i = 0; i < WORDS_COUNT; i++) {
+            core.put(createWord(i, true), Integer.valueOf(i));
+        }
+
+        for (int i = 0; i < WORDS_COUNT; i += 2) {
+            assertEquals(Integer.valueOf(i), core.remove(createWord(i, false)));
+        }
+
+        assertEquals(WORDS_COUNT / 2, core.getSize());
+        for (int i = 0; i < WORDS_COUNT; i++) {
+            if (i % 2 == 0) {
+                assertNull(core.get(createWord(i, false)));
+            } else {
+                assertEquals(Integer.valueOf(i), core.get(createWord(i, false)));
+            }
+        }
+        assertNull(core.remove(createWord(0, false)));
+    }
+
+    /**
+     * Test pro {@link WordIdCore#shrink()}.
+     */
+    @Test
+    public void testShrinkWhenFewWordsLeftReturnsSmallerCores() {
+        for (int i = 0; i < WORDS_COUNT; i++) {
+            core.put(createWord(i, true), Integer.valueOf(i));
+        }
+        assertSame(core, core.shrink());
+
+        for (int i = 2; i < WORDS_COUNT; i++) {
+            core.remove(createWord(i, false));
+        }
+        final MapperCore<Word, Object> array = core.shrink();
+        assertTrue(array instanceof ArrayCore);
+        assertEquals(core.getEntries(), array.getEntries());
+
+        array.remove(createWord(1, false));
+        final MapperCore<Word, Object> single = array.shrink();
+        assertTrue(single instanceof SingleEntryCore);
+        assertEquals(Integer.valueOf(0), single.get(createWord(0, false)));
+    }
+}
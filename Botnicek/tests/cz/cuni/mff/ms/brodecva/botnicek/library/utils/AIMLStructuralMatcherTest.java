@@ -29,7 +29,7 @@ import org.junit.experimental.categories.Category;
 import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.IntegrationTest;
 
 /**
- * Testuje porovnávač vzoru, který pracuje pomocí vytváření miniaturní porovnávací struktury.
+ * Testuje porovnávač vzoru, který pracuje s přeloženými vzory.
  * 
  * @author Václav Brodec
  * @version 1.0
@@ -0,0 +1,212 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.Normalizer;
+import cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.SimpleNormalizer;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLInputPath;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.AIMLTemplate;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.WordTree;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.FrugalMapperFactory;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.test.IntegrationTest;
+
+/**
+ * Testuje přeložený vzor, zejména shodu výsledků s hledáním ve stromu
+ * obsahujícím pouze daný vzor.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see CompiledPattern
+ */
+@Category(IntegrationTest.class)
+public final class CompiledPatternTest {
+
+    /**
+     * Počet náhodně vygenerovaných dvojic vzoru a textu.
+     */
+    private static final int RANDOM_CASES_COUNT = 500;
+
+    /**
+     * Semínko generátoru pro opakovatelnost testu.
+     */
+    private static final long SEED = 20131018L;
+
+    /**
+     * Slova, ze kterých se skládají náhodné vzory a texty.
+     */
+    private static final String[] WORDS = { "A", "B", "C" };
+
+    /**
+     * Normalizér.
+     */
+    private Normalizer normalizer = null;
+
+    /**
+     * Inicializuje normalizér.
+     */
+    @Before
+    public void setUp() {
+        normalizer = new SimpleNormalizer();
+    }
+
+    /**
+     * Uklidí normalizér.
+     */
+    @After
+    public void tearDown() {
+        normalizer = null;
+    }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.utils.CompiledPattern#compile(java.lang.String, cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.Normalizer)}
+     * .
+     */
+    @Test
+    public void testCompileWhenWithoutWildcardsReturnsLiteral() {
+        final CompiledPattern compiled =
+                CompiledPattern.compile("SIMPLE  TEXT", normalizer);
+
+        assertTrue(compiled.isLiteral());
+        assertEquals("SIMPLE TEXT", compiled.getLiteral());
+    }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.utils.CompiledPattern#compile(java.lang.String, cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.Normalizer)}
+     * .
+     */
+    @Test
+    public void testCompileWhenWithWildcardsReturnsNotLiteral() {
+        final CompiledPattern compiled =
+                CompiledPattern.compile("SIMPLE _", normalizer);
+
+        assertFalse(compiled.isLiteral());
+        assertNull(compiled.getLiteral());
+    }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.utils.CompiledPattern#compile(java.lang.String, cz.cuni.mff.ms.brodecva.botnicek.library.preprocessor.Normalizer)}
+     * .
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompileWhenInvalidCharThrowsIllegalArgumentException() {
+        CompiledPattern.compile("simple TEXT", normalizer);
+    }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.utils.CompiledPattern#matches(java.lang.String)}
+     * .
+     */
+    @Test
+    public void testMatchesWhenNullPatternMatchesEverything() {
+        final CompiledPattern compiled =
+                CompiledPattern.compile(null, normalizer);
+
+        assertTrue(compiled.matches(""));
+        assertTrue(compiled.matches("SIMPLE TEXT"));
+    }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.utils.CompiledPattern#matches(java.lang.String)}
+     * .
+     */
+    @Test
+    public void testMatchesWhenWildcardNeedsBacktrackingReturnsTrue() {
+        final CompiledPattern compiled =
+                CompiledPattern.compile("* A B", normalizer);
+
+        assertTrue(compiled.matches("A B A B"));
+        assertFalse(compiled.matches("A B"));
+    }
+
+    /**
+     * Test pro
+     * {@link cz.cuni.mff.ms.brodecva.botnicek.library.utils.CompiledPattern#matches(java.lang.String)}
+     * .
+     */
+    @Test
+    public void testMatchesWhenRandomReturnsSameAsStructure() {
+        final Random random = new Random(SEED);
+
+        for (int i = 0; i < RANDOM_CASES_COUNT; i++) {
+            final String pattern = randomSequence(random, true);
+            final String text = randomSequence(random, false);
+
+            final MatchingStructure structure =
+                    new WordTree(new FrugalMapperFactory());
+            structure.add(new AIMLInputPath(pattern, null, null),
+                    new AIMLTemplate(""));
+            final boolean expected =
+                    structure.find(new AIMLInputPath(text, null, null))
+                            .isSuccesful();
+
+            assertEquals(pattern + " / " + text, expected, CompiledPattern
+                    .compile(pattern, normalizer).matches(text));
+        }
+    }
+
+    /**
+     * Vygeneruje náhodnou posloupnost slov.
+     * 
+     * @param random
+     *            generátor
+     * @param wildcards
+     *            zda mohou být slovy i žolíky
+     * @return slova oddělená mezerou
+     */
+    private static String randomSequence(final Random random,
+            final boolean wildcards) {
+        final int length = 1 + random.nextInt(5);
+
+        final StringBuilder result = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                result.append(' ');
+            }
+
+            final int choice = random.nextInt(WORDS.length + 2);
+            if (choice < WORDS.length) {
+                result.append(WORDS[choice]);
+            } else if (wildcards) {
+                result.append(choice == WORDS.length ? "*" : "_");
+            } else {
+                result.append(WORDS[0]);
+            }
+        }
+
+        return result.toString();
+    }
+}
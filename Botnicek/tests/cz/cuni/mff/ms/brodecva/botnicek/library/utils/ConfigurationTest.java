@@ -19,6 +19,9 @@
 package cz.cuni.mff.ms.brodecva.botnicek.library.utils;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 
@@ -123,6 +126,53 @@ public final class ConfigurationTest {
         Configuration.readPath(properties, "key");
     }
 
+    /**
+     * Testovací metoda pro {@link cz.cuni.mff.ms.brodecva.botnicek.library.utils.Configuration#readOptionalPath(java.util.Map, java.lang.String)}.
+     * @throws ConfigurationException chyba v konfiguraci
+     */
+    @Test
+    public void testReadOptionalPathWhenMissingReturnsNull() throws ConfigurationException {
+        final Map<String, String> properties = new HashMap<String, String>();
+        
+        assertNull(Configuration.readOptionalPath(properties, "key"));
+    }
+
+    /**
+     * Testovací metoda pro {@link cz.cuni.mff.ms.brodecva.botnicek.library.utils.Configuration#readOptionalBoolean(java.util.Map, java.lang.String, boolean)}.
+     * @throws ConfigurationException chyba v konfiguraci
+     */
+    @Test
+    public void testReadOptionalBooleanWhenMissingReturnsDefault() throws ConfigurationException {
+        final Map<String, String> properties = new HashMap<String, String>();
+        
+        assertFalse(Configuration.readOptionalBoolean(properties, "key", false));
+        assertTrue(Configuration.readOptionalBoolean(properties, "key", true));
+    }
+
+    /**
+     * Testovací metoda pro {@link cz.cuni.mff.ms.brodecva.botnicek.library.utils.Configuration#readOptionalBoolean(java.util.Map, java.lang.String, boolean)}.
+     * @throws ConfigurationException chyba v konfiguraci
+     */
+    @Test
+    public void testReadOptionalBooleanIgnoresCase() throws ConfigurationException {
+        final Map<String, String> properties = new HashMap<String, String>();
+        properties.put("key", " True ");
+        
+        assertTrue(Configuration.readOptionalBoolean(properties, "key", false));
+    }
+
+    /**
+     * Testovací metoda pro {@link cz.cuni.mff.ms.brodecva.botnicek.library.utils.Configuration#readOptionalBoolean(java.util.Map, java.lang.String, boolean)}.
+     * @throws ConfigurationException chyba v konfiguraci
+     */
+    @Test(expected = ConfigurationException.class)
+    public void testReadOptionalBooleanWhenInvalidValue() throws ConfigurationException {
+        final Map<String, String> properties = new HashMap<String, String>();
+        properties.put("key", "yes");
+        
+        Configuration.readOptionalBoolean(properties, "key", false);
+    }
+
     /**
      * Testovací metoda pro {@link cz.cuni.mff.ms.brodecva.botnicek.library.utils.Configuration#readLoadingOrder(java.util.Map, java.lang.String)}.
      * @throws ConfigurationException chyba v konfiguraci
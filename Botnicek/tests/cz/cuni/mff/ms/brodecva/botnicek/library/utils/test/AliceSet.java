@@ -0,0 +1,149 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.utils.test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.language.AIMLLanguage;
+import cz.cuni.mff.ms.brodecva.botnicek.library.language.Language;
+import cz.cuni.mff.ms.brodecva.botnicek.library.loader.AIMLCategoryLoader;
+import cz.cuni.mff.ms.brodecva.botnicek.library.loader.AIMLSourceParser;
+import cz.cuni.mff.ms.brodecva.botnicek.library.loader.LoaderException;
+import cz.cuni.mff.ms.brodecva.botnicek.library.responder.AIMLBot;
+import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Bot;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.MatchingStructure;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.WordTree;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.map.FrugalMapperFactory;
+
+/**
+ * Přístup k ukázkové sadě kategorií ALICE (složka {@code demo/alice}) pro
+ * testy, které potřebují rozsáhlý a realistický mozek.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ */
+public final class AliceSet {
+
+    /**
+     * Umístění zdrojových souborů sady.
+     */
+    public static final Path FILES_LOCATION = Paths.get("demo", "alice",
+            "aaa");
+
+    /**
+     * Umístění souboru promluvy.
+     */
+    public static final Path GOSSIP_LOCATION = Paths.get("demo", "alice",
+            "gossip.txt");
+
+    /**
+     * Soubory načítané přednostně.
+     */
+    public static final List<String> BEFORE_LOADING_ORDER = Collections
+            .unmodifiableList(Arrays.asList("Reductions.aiml"));
+
+    /**
+     * Soubory načítané nakonec.
+     */
+    public static final List<String> AFTER_LOADING_ORDER = Collections
+            .unmodifiableList(Arrays.asList("update.aiml"));
+
+    /**
+     * Normalizované vstupy typické pro provoz robota.
+     */
+    public static final List<String> SAMPLE_INPUTS = Collections
+            .unmodifiableList(Arrays.asList("HELLO", "HI", "WHAT IS YOUR NAME",
+                    "MY NAME IS JOHN", "I LIKE PIZZA VERY MUCH",
+                    "DO YOU KNOW WHAT THE WEATHER IS LIKE TODAY IN PRAGUE",
+                    "WHO CREATED YOU", "ARE YOU A ROBOT",
+                    "XYZZY FOO BAR BAZ QUUX", "TELL ME A JOKE"));
+
+    /**
+     * Jednou načtený sdílený strom.
+     */
+    private static WordTree wordTree = null;
+
+    /**
+     * Skrytý konstruktor.
+     */
+    private AliceSet() {
+    }
+
+    /**
+     * Vytvoří robota se zdrojovými soubory sady a jazykem bez substitucí.
+     * 
+     * @return robot
+     */
+    public static Bot createBot() {
+        final Map<Pattern, String> noSubstitutions =
+                new HashMap<Pattern, String>();
+        final Language language =
+                new AIMLLanguage("en", Pattern.compile("[\\.!\\?]"),
+                        noSubstitutions, noSubstitutions, noSubstitutions,
+                        noSubstitutions, noSubstitutions, noSubstitutions,
+                        noSubstitutions);
+
+        return new AIMLBot("AAA Alice", language, FILES_LOCATION,
+                GOSSIP_LOCATION, new HashMap<String, String>(),
+                BEFORE_LOADING_ORDER, AFTER_LOADING_ORDER);
+    }
+
+    /**
+     * Načte kategorie sady do struktury.
+     * 
+     * @param structure
+     *            plněná struktura
+     * @return naplněná struktura
+     * @throws LoaderException
+     *             chyba při načítání
+     */
+    public static MatchingStructure load(final MatchingStructure structure)
+            throws LoaderException {
+        new AIMLCategoryLoader(structure, createBot(),
+                AIMLSourceParser.create()).load();
+
+        return structure;
+    }
+
+    /**
+     * Vrátí sdílený strom s načtenou sadou. Strom je načten při prvním volání,
+     * testy jej nesmí měnit.
+     * 
+     * @return strom s načtenou sadou
+     * @throws LoaderException
+     *             chyba při načítání
+     */
+    public static synchronized WordTree getWordTree() throws LoaderException {
+        if (wordTree == null) {
+            final WordTree loaded = new WordTree(new FrugalMapperFactory());
+            load(loaded);
+
+            wordTree = loaded;
+        }
+
+        return wordTree;
+    }
+}
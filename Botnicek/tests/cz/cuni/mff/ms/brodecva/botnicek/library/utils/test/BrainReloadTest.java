@@ -0,0 +1,398 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.utils.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.AIMLBotConfiguration;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.AIMLBrain;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.AIMLConversationConfiguration;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.AIMLLanguageConfiguration;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.BotConfiguration;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.Brain;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.BrainWatcher;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.ConfigurationException;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.ConversationConfiguration;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.LanguageConfiguration;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.SessionException;
+import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Conversation;
+import cz.cuni.mff.ms.brodecva.botnicek.library.responder.ConversationException;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.Property;
+
+/**
+ * Ověřuje, že znovunačtení kategorií mozku se projeví v běžících konverzacích,
+ * které si přitom ponechají své predikáty.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see AIMLBrain#reload()
+ * @see BrainWatcher
+ */
+@Category(IntegrationTest.class)
+public final class BrainReloadTest {
+
+    /**
+     * Nejdelší doba čekání na znovunačtení sledovačem.
+     */
+    private static final long WATCH_TIMEOUT_MILLIS = 30000;
+
+    /**
+     * Interval kontroly znovunačtení sledovačem.
+     */
+    private static final long WATCH_POLL_MILLIS = 50;
+
+    /**
+     * Kódování testovacích dokumentů.
+     */
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * Počet opakování pozdravu přesměrovaného na stejný cíl.
+     */
+    private static final int REDIRECT_REPEATS = 3;
+
+    /**
+     * Kategorie, které jsou dobře utvořené, ale neodpovídají schématu.
+     */
+    private static final String INVALID_CATEGORIES =
+            "<category unchecked=\"true\"><pattern>HELLO</pattern>"
+                    + "<template>Hello unchecked.</template></category>";
+
+    /**
+     * Dočasná složka se soubory robota.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Umístění souborů robota.
+     */
+    private Path location = null;
+
+    /**
+     * Testovací soubor.
+     */
+    private Path file = null;
+
+    /**
+     * Mozek.
+     */
+    private Brain brain = null;
+
+    /**
+     * Nastavení jazyka.
+     */
+    private LanguageConfiguration languageConfiguration = null;
+
+    /**
+     * Nastavení konverzace.
+     */
+    private ConversationConfiguration conversationConfig = null;
+
+    /**
+     * Vytvoří mozek nad dočasnými soubory robota.
+     * 
+     * @throws IOException
+     *             chyba v načítání konfiguračních souborů
+     * @throws ConfigurationException
+     *             chyba ve formátu konfigurace
+     * @throws SessionException
+     *             chyba při načítání mozku
+     */
+    @Before
+    public void setUp() throws IOException, ConfigurationException,
+            SessionException {
+        final Class<?> currentClass = getClass();
+
+        location = folder.newFolder("bot").toPath();
+        file = location.resolve("test.aiml");
+        writeDocument("Hello.");
+        final String redirect =
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                        + "<aiml version=\"1.0.1\" xmlns=\"http://alicebot.org/2001/AIML-1.0.1\">"
+                        + "<category><pattern>HI</pattern><template>"
+                        + "<srai>HELLO</srai></template></category></aiml>";
+        Files.write(location.resolve("redirect.aiml"),
+                redirect.getBytes(CHARSET));
+
+        languageConfiguration =
+                AIMLLanguageConfiguration.create(Property.load(currentClass,
+                        "bot/language.properties"), Property.load(currentClass,
+                        "bot/gender.properties"), Property.load(currentClass,
+                        "bot/person.properties"), Property.load(currentClass,
+                        "bot/person2.properties"), Property.load(currentClass,
+                        "bot/abbreviations.properties"), Property.load(
+                        currentClass, "bot/spelling.properties"), Property
+                        .load(currentClass, "bot/emoticons.properties"),
+                        Property.load(currentClass,
+                                "bot/punctuation.properties"));
+
+        conversationConfig =
+                AIMLConversationConfiguration.create(Property.load(
+                        currentClass, "bot/defaultpredicates.properties"),
+                        Property.load(currentClass,
+                                "bot/setbehavior.properties"));
+
+        brain = createBrain(false);
+    }
+
+    /**
+     * Vytvoří mozek nad dočasnými soubory robota.
+     * 
+     * @param sourcesTrusted
+     *            zda se soubory robota nemají validovat
+     * @return mozek
+     * @throws SessionException
+     *             chyba při načítání mozku
+     */
+    private Brain createBrain(final boolean sourcesTrusted)
+            throws SessionException {
+        final BotConfiguration botConfig =
+                AIMLBotConfiguration.of("Test", location, folder.getRoot()
+                        .toPath().resolve("gossip.txt"), Collections
+                        .<String, String> emptyMap(), Collections
+                        .<String> emptyList(), Collections
+                        .<String> emptyList(), null, sourcesTrusted);
+
+        return AIMLBrain.create(botConfig, languageConfiguration);
+    }
+
+    /**
+     * Uklidí mozek.
+     */
+    @After
+    public void tearDown() {
+        location = null;
+        file = null;
+        brain = null;
+        languageConfiguration = null;
+        conversationConfig = null;
+    }
+
+    /**
+     * Zapíše testovací dokument s odpovědí na pozdrav a posune čas jeho
+     * změny, aby se změna projevila i na souborových systémech s hrubým
+     * rozlišením času.
+     * 
+     * @param answer
+     *            odpověď na pozdrav
+     * @throws IOException
+     *             chyba při zápisu souboru
+     */
+    private void writeDocument(final String answer) throws IOException {
+        writeCategories("<category><pattern>HELLO</pattern><template>"
+                + answer + "</template></category>");
+    }
+
+    /**
+     * Zapíše testovací dokument s danými kategoriemi a posune čas jeho změny.
+     * 
+     * @param categories
+     *            zdrojový kód kategorií
+     * @throws IOException
+     *             chyba při zápisu souboru
+     */
+    private void writeCategories(final String categories) throws IOException {
+        final String document =
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                        + "<aiml version=\"1.0.1\" xmlns=\"http://alicebot.org/2001/AIML-1.0.1\">"
+                        + categories + "</aiml>";
+
+        final FileTime previous =
+                Files.exists(file) ? Files.getLastModifiedTime(file) : null;
+        Files.write(file, document.getBytes(CHARSET));
+        if (previous != null) {
+            Files.setLastModifiedTime(file,
+                    FileTime.fromMillis(previous.toMillis() + 1000));
+        }
+    }
+
+    /**
+     * Odpoví na pozdrav.
+     * 
+     * @param conversation
+     *            konverzace
+     * @return odpověď
+     * @throws ConversationException
+     *             chyba v konverzaci
+     */
+    private static String greet(final Conversation conversation)
+            throws ConversationException {
+        conversation.talk("Hello");
+
+        return conversation.listen();
+    }
+
+    /**
+     * Odpoví na pozdrav přesměrovaný na původní pozdrav.
+     * 
+     * @param conversation
+     *            konverzace
+     * @return odpověď
+     * @throws ConversationException
+     *             chyba v konverzaci
+     */
+    private static String greetRedirected(final Conversation conversation)
+            throws ConversationException {
+        conversation.talk("Hi");
+
+        return conversation.listen();
+    }
+
+    /**
+     * Test method for {@link AIMLBrain#reload()}.
+     * 
+     * @throws IOException
+     *             chyba při zápisu souboru
+     * @throws SessionException
+     *             chyba při načítání mozku
+     * @throws ConversationException
+     *             chyba v konverzaci
+     */
+    @Test
+    public void testReloadKeepsConversations() throws IOException,
+            SessionException, ConversationException {
+        final Conversation conversation =
+                brain.createConversation(conversationConfig);
+        conversation.setPredicateValue("name", "Reload tester");
+        assertTrue(greet(conversation).contains("Hello."));
+
+        writeDocument("Hello again.");
+        brain.reload();
+
+        assertTrue(greet(conversation).contains("Hello again."));
+        assertEquals("Reload tester", conversation.getPredicateValue("name"));
+        assertEquals(brain.getCategoryCount(),
+                conversation.getCategoryCount());
+    }
+
+    /**
+     * Test method for {@link AIMLBrain#reload()}.
+     * 
+     * @throws IOException
+     *             chyba při zápisu souboru
+     * @throws SessionException
+     *             chyba při načítání mozku
+     * @throws ConversationException
+     *             chyba v konverzaci
+     */
+    @Test
+    public void testReloadRedirectsToReloadedAnswer() throws IOException,
+            SessionException, ConversationException {
+        final Conversation first =
+                brain.createConversation(conversationConfig);
+        final Conversation second =
+                brain.createConversation(conversationConfig);
+        for (int i = 0; i < REDIRECT_REPEATS; i++) {
+            assertTrue(greetRedirected(first).contains("Hello."));
+            assertTrue(greetRedirected(second).contains("Hello."));
+        }
+
+        writeDocument("Hello again.");
+        brain.reload();
+
+        for (int i = 0; i < REDIRECT_REPEATS; i++) {
+            assertTrue(greetRedirected(first).contains("Hello again."));
+            assertTrue(greetRedirected(second).contains("Hello again."));
+        }
+    }
+
+    /**
+     * Test method for {@link AIMLBrain#reload()}.
+     * 
+     * @throws IOException
+     *             chyba při zápisu souboru
+     * @throws SessionException
+     *             chyba při načítání mozku
+     */
+    @Test(expected = SessionException.class)
+    public void testReloadWhenSourcesNotTrustedRejectsInvalidDocument()
+            throws IOException, SessionException {
+        writeCategories(INVALID_CATEGORIES);
+
+        brain.reload();
+    }
+
+    /**
+     * Test method for {@link AIMLBrain#reload()}.
+     * 
+     * @throws IOException
+     *             chyba při zápisu souboru
+     * @throws SessionException
+     *             chyba při načítání mozku
+     * @throws ConversationException
+     *             chyba v konverzaci
+     */
+    @Test
+    public void testReloadWhenSourcesTrustedSkipsValidation()
+            throws IOException, SessionException, ConversationException {
+        final Brain trustedBrain = createBrain(true);
+
+        writeCategories(INVALID_CATEGORIES);
+        trustedBrain.reload();
+
+        assertTrue(greet(trustedBrain.createConversation(conversationConfig))
+                .contains("Hello unchecked."));
+    }
+
+    /**
+     * Test method for {@link BrainWatcher#watch(Brain, long)}.
+     * 
+     * @throws IOException
+     *             chyba při zápisu souboru
+     * @throws InterruptedException
+     *             přerušení při čekání
+     * @throws ConversationException
+     *             chyba v konverzaci
+     */
+    @Test
+    public void testWatchReloadsChangedFiles() throws IOException,
+            InterruptedException, ConversationException {
+        final Conversation conversation =
+                brain.createConversation(conversationConfig);
+
+        try (final BrainWatcher watcher = BrainWatcher.watch(brain, 50)) {
+            writeDocument("Hello from the watcher.");
+
+            final long deadline =
+                    System.currentTimeMillis() + WATCH_TIMEOUT_MILLIS;
+            while (!greet(conversation).contains("Hello from the watcher.")
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(WATCH_POLL_MILLIS);
+            }
+        }
+
+        assertTrue(greet(conversation).contains("Hello from the watcher."));
+    }
+}
@@ -0,0 +1,239 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.utils.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.AIMLBotConfiguration;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.AIMLBrain;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.AIMLConversationConfiguration;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.AIMLLanguageConfiguration;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.BotConfiguration;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.Brain;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.ConfigurationException;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.ConversationConfiguration;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.LanguageConfiguration;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.SessionException;
+import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Conversation;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.Property;
+
+/**
+ * Zatěžuje jeden sdílený mozek mnoha současně vedenými konverzacemi a ověřuje,
+ * že každá odpoví stejně, jako by byla vedena sama.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see AIMLBrain#createConversation(ConversationConfiguration)
+ */
+@Category(IntegrationTest.class)
+public final class ConcurrentConversationsTest {
+
+    /**
+     * Vstupy jedné konverzace. Vynechány jsou testy s náhodným či časově
+     * závislým výstupem a se zápisem do souborů.
+     */
+    private static final List<String> SCRIPT = Collections
+            .unmodifiableList(Arrays.asList("TESTPLAIN",
+                    "TESTSETDISPLAYVALUE", "TESTTHINKSET", "TESTSETGET",
+                    "TESTSETGETSERIAL", "TESTSETTOPIC", "TESTTOPICMATCH",
+                    "TESTSINGLECONDITION", "TESTMULTICONDITION",
+                    "TESTMULTICONDITIONWITHWILDCARD",
+                    "TESTMULTICONDITIONDEFAULT", "TESTMULTINAMECONDITION",
+                    "TESTSTARS", "TESTUNDERSCORES", "TESTFORMATTING",
+                    "TESTBOTPREDICATE", "TESTCONDITIONSETVALUE",
+                    "TESTNESTEDCONDITION", "TESTSETFROMCONDITION", "TESTSRAI",
+                    "TESTSR", "TESTNESTEDSRAI", "TESTTHINKSRAI",
+                    "TESTSTARSET", "TESTSIZE", "TESTNAMEDISPLAY",
+                    "TESTGENDER", "TESTDEEPSRAI", "TESTPERSON", "TESTPERSON2",
+                    "TESTOVERWRITING", "TESTMOREWILDCARDS"));
+
+    /**
+     * Počet vláken.
+     */
+    private static final int THREAD_COUNT = 8;
+
+    /**
+     * Počet konverzací.
+     */
+    private static final int CONVERSATION_COUNT = 64;
+
+    /**
+     * Nejdelší doba čekání na dokončení konverzací v sekundách.
+     */
+    private static final long TIMEOUT_SECONDS = 120;
+
+    /**
+     * Logger knihovny, jehož úroveň se během testu zvyšuje.
+     */
+    private static final Logger LIBRARY_LOGGER = Logger
+            .getLogger("cz.cuni.mff.ms.brodecva.botnicek.library");
+
+    /**
+     * Původní úroveň loggeru knihovny.
+     */
+    private Level originalLevel = null;
+
+    /**
+     * Sdílený mozek.
+     */
+    private Brain brain = null;
+
+    /**
+     * Nastavení konverzace.
+     */
+    private ConversationConfiguration conversationConfig = null;
+
+    /**
+     * Vlákna, ve kterých běží konverzace.
+     */
+    private ExecutorService executor = null;
+
+    /**
+     * Načte sdílený mozek testovacího robota.
+     * 
+     * @throws IOException
+     *             chyba v načítání konfiguračních souborů
+     * @throws ConfigurationException
+     *             chyba ve formátu konfigurace
+     * @throws SessionException
+     *             chyba při načítání mozku
+     */
+    @Before
+    public void setUp() throws ConfigurationException, IOException,
+            SessionException {
+        originalLevel = LIBRARY_LOGGER.getLevel();
+        LIBRARY_LOGGER.setLevel(Level.WARNING);
+
+        final Class<?> currentClass = getClass();
+
+        final BotConfiguration botConfig =
+                AIMLBotConfiguration.create(Property.load(currentClass,
+                        "bot/bot.properties"), Property.load(currentClass,
+                        "bot/botpredicates.properties"));
+
+        final LanguageConfiguration languageConfiguration =
+                AIMLLanguageConfiguration.create(Property.load(currentClass,
+                        "bot/language.properties"), Property.load(currentClass,
+                        "bot/gender.properties"), Property.load(currentClass,
+                        "bot/person.properties"), Property.load(currentClass,
+                        "bot/person2.properties"), Property.load(currentClass,
+                        "bot/abbreviations.properties"), Property.load(
+                        currentClass, "bot/spelling.properties"), Property
+                        .load(currentClass, "bot/emoticons.properties"),
+                        Property.load(currentClass,
+                                "bot/punctuation.properties"));
+
+        conversationConfig =
+                AIMLConversationConfiguration.create(Property.load(
+                        currentClass, "bot/defaultpredicates.properties"),
+                        Property.load(currentClass,
+                                "bot/setbehavior.properties"));
+
+        brain = AIMLBrain.create(botConfig, languageConfiguration);
+        executor = Executors.newFixedThreadPool(THREAD_COUNT);
+    }
+
+    /**
+     * Ukončí vlákna, uklidí sdílený mozek a obnoví úroveň loggeru.
+     */
+    @After
+    public void tearDown() {
+        LIBRARY_LOGGER.setLevel(originalLevel);
+
+        executor.shutdownNow();
+        executor = null;
+        brain = null;
+        conversationConfig = null;
+    }
+
+    /**
+     * Vede jednu konverzaci podle scénáře.
+     * 
+     * @param conversation
+     *            konverzace
+     * @return odpovědi v pořadí vstupů
+     * @throws Exception
+     *             chyba při vyhodnocování vstupu
+     */
+    private static List<String> talk(final Conversation conversation)
+            throws Exception {
+        final List<String> responses = new ArrayList<String>(SCRIPT.size());
+        for (final String input : SCRIPT) {
+            conversation.talk(input);
+            responses.add(conversation.listen());
+        }
+
+        return responses;
+    }
+
+    /**
+     * Test method for
+     * {@link AIMLBrain#createConversation(ConversationConfiguration)}.
+     * 
+     * @throws Exception
+     *             chyba při vedení konverzace
+     */
+    @Test
+    public void testConcurrentConversationsAnswerAsIfAlone() throws Exception {
+        final List<String> expected =
+                talk(brain.createConversation(conversationConfig));
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<List<String>>> results =
+                new ArrayList<Future<List<String>>>(CONVERSATION_COUNT);
+        for (int i = 0; i < CONVERSATION_COUNT; i++) {
+            final Conversation conversation =
+                    brain.createConversation(conversationConfig);
+
+            results.add(executor.submit(new Callable<List<String>>() {
+                @Override
+                public List<String> call() throws Exception {
+                    start.await();
+
+                    return talk(conversation);
+                }
+            }));
+        }
+        start.countDown();
+
+        for (final Future<List<String>> result : results) {
+            assertEquals(expected,
+                    result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/**
+ * Copyright Václav Brodec 2013.
+ * 
+ * This file is part of Botníček.
+ * 
+ * Botníček is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Botníček is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Botníček.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package cz.cuni.mff.ms.brodecva.botnicek.library.utils.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.AIMLBotConfiguration;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.AIMLBrain;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.AIMLConversationConfiguration;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.AIMLLanguageConfiguration;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.AIMLSession;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.BotConfiguration;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.Brain;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.ConfigurationException;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.ConversationConfiguration;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.LanguageConfiguration;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.Session;
+import cz.cuni.mff.ms.brodecva.botnicek.library.api.SessionException;
+import cz.cuni.mff.ms.brodecva.botnicek.library.loader.LoaderException;
+import cz.cuni.mff.ms.brodecva.botnicek.library.responder.Conversation;
+import cz.cuni.mff.ms.brodecva.botnicek.library.responder.ConversationException;
+import cz.cuni.mff.ms.brodecva.botnicek.library.storage.WordDictionary;
+import cz.cuni.mff.ms.brodecva.botnicek.library.utils.Property;
+
+/**
+ * Ověřuje, že relace založené nad jedním sdíleným mozkem sdílí kategorie, ale
+ * udržují si vlastní predikáty.
+ * 
+ * @author Václav Brodec
+ * @version 1.0
+ * @see AIMLBrain
+ */
+@Category(IntegrationTest.class)
+public final class SharedBrainTest {
+
+    /**
+     * Kódování učeného dokumentu.
+     */
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * Počet učených kategorií se společným prvním slovem, dost na to, aby
+     * uzel přerostl pole.
+     */
+    private static final int LEARNED_COUNT = 8;
+
+    /**
+     * Dočasná složka pro obraz mozku.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Nastavení robota.
+     */
+    private BotConfiguration botConfig = null;
+
+    /**
+     * Nastavení jazyka.
+     */
+    private LanguageConfiguration languageConfiguration = null;
+
+    /**
+     * Sdílený mozek.
+     */
+    private Brain brain = null;
+
+    /**
+     * Nastavení konverzace.
+     */
+    private ConversationConfiguration conversationConfig = null;
+
+    /**
+     * Načte sdílený mozek testovacího robota.
+     * 
+     * @throws IOException
+     *             chyba v načítání konfiguračních souborů
+     * @throws ConfigurationException
+     *             chyba ve formátu konfigurace
+     * @throws SessionException
+     *             chyba při načítání mozku
+     */
+    @Before
+    public void setUp() throws ConfigurationException, IOException,
+            SessionException {
+        final Class<?> currentClass = getClass();
+
+        botConfig =
+                AIMLBotConfiguration.create(Property.load(currentClass,
+                        "bot/bot.properties"), Property.load(currentClass,
+                        "bot/botpredicates.properties"));
+
+        languageConfiguration =
+                AIMLLanguageConfiguration.create(Property.load(currentClass,
+                        "bot/language.properties"), Property.load(currentClass,
+                        "bot/gender.properties"), Property.load(currentClass,
+                        "bot/person.properties"), Property.load(currentClass,
+                        "bot/person2.properties"), Property.load(currentClass,
+                        "bot/abbreviations.properties"), Property.load(
+                        currentClass, "bot/spelling.properties"), Property
+                        .load(currentClass, "bot/emoticons.properties"),
+                        Property.load(currentClass,
+                                "bot/punctuation.properties"));
+
+        conversationConfig =
+                AIMLConversationConfiguration.create(Property.load(
+                        currentClass, "bot/defaultpredicates.properties"),
+                        Property.load(currentClass,
+                                "bot/setbehavior.properties"));
+
+        brain = AIMLBrain.create(botConfig, languageConfiguration);
+    }
+
+    /**
+     * Uklidí sdílený mozek.
+     */
+    @After
+    public void tearDown() {
+        brain = null;
+        conversationConfig = null;
+        botConfig = null;
+        languageConfiguration = null;
+    }
+
+    /**
+     * Test method for
+     * {@link AIMLSession#start(Brain, ConversationConfiguration)}.
+     */
+    @Test
+    public void testStartSharesBrain() {
+        final Session first = AIMLSession.start(brain, conversationConfig);
+        final Session second = AIMLSession.start(brain, conversationConfig);
+
+        assertSame(brain.getBot(), first.getBot());
+        assertSame(first.getBot(), second.getBot());
+        assertSame(first.getLangugage(), second.getLangugage());
+        assertEquals(brain.getCategoryCount(), first.getConversation()
+                .getCategoryCount());
+        assertEquals(brain.getCategoryCount(), second.getConversation()
+                .getCategoryCount());
+    }
+
+    /**
+     * Test method for
+     * {@link AIMLBrain#createConversation(ConversationConfiguration)}.
+     */
+    @Test
+    public void testCreateConversationKeepsPredicatesSeparate() {
+        final Conversation first = brain.createConversation(conversationConfig);
+        final Conversation second =
+                brain.createConversation(conversationConfig);
+
+        final String original = second.getPredicateValue("name");
+        first.setPredicateValue("name", "Shared brain tester");
+
+        assertEquals("Shared brain tester", first.getPredicateValue("name"));
+        assertEquals(original, second.getPredicateValue("name"));
+    }
+
+    /**
+     * Test method for
+     * {@link AIMLBrain#createConversation(ConversationConfiguration)}.
+     */
+    @Test(expected = NullPointerException.class)
+    public void testCreateConversationWhenNullConfiguration() {
+        brain.createConversation(null);
+    }
+
+    /**
+     * Test method for
+     * {@link AIMLBrain#createConversation(ConversationConfiguration)}.
+     * 
+     * @throws IOException
+     *             chyba při zápisu dokumentu
+     * @throws LoaderException
+     *             chyba při učení
+     * @throws ConversationException
+     *             chyba v konverzaci
+     */
+    @Test
+    public void testCreateConversationWhenLearnedKeepsDictionarySize()
+            throws IOException, LoaderException, ConversationException {
+        final StringBuilder document =
+                new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                        + "<aiml version=\"1.0.1\" xmlns=\"http://alicebot.org/2001/AIML-1.0.1\">");
+        for (int i = 0; i < LEARNED_COUNT; i++) {
+            document.append("<category><pattern>SHAREDBRAINLEARNED WORD")
+                    .append(i).append("</pattern><template>Learned ")
+                    .append(i).append(".</template></category>");
+        }
+        document.append("</aiml>");
+
+        final Path file = folder.getRoot().toPath().resolve("learned.aiml");
+        Files.write(file, document.toString().getBytes(CHARSET));
+
+        final WordDictionary dictionary = WordDictionary.getDictionary();
+        final int sizeBefore = dictionary.getSize();
+
+        Conversation conversation =
+                brain.createConversation(conversationConfig);
+        conversation.learn(file);
+        conversation.talk("Sharedbrainlearned word5");
+        final String answer = conversation.listen();
+        conversation = null;
+
+        assertEquals("Learned 5.", answer);
+        assertEquals(sizeBefore, dictionary.getSize());
+    }
+
+    /**
+     * Test method for
+     * {@link AIMLBrain#createFromImage(BotConfiguration, LanguageConfiguration, Path)}
+     * .
+     * 
+     * @throws IOException
+     *             chyba při zápisu či čtení obrazu
+     * @throws SessionException
+     *             chyba při načítání mozku
+     */
+    @Test
+    public void testCreateFromImageSharesCategories() throws IOException,
+            SessionException {
+        final Path image = folder.getRoot().toPath().resolve("brain.img");
+        AIMLBrain.writeImage(botConfig, languageConfiguration, image);
+
+        final Brain mapped =
+                AIMLBrain.createFromImage(botConfig, languageConfiguration,
+                        image);
+        final Session session = AIMLSession.start(mapped, conversationConfig);
+
+        assertEquals(brain.getCategoryCount(), mapped.getCategoryCount());
+        assertEquals(brain.getCategoryCount(), session.getConversation()
+                .getCategoryCount());
+    }
+}